@@ -0,0 +1,97 @@
+package dev.gnash.compiler;
+
+import dev.gnash.antlr.GnashLexer;
+import dev.gnash.antlr.GnashParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the compiler phases in isolation: tokenisation with
+ * {@link GnashLexer}, the production {@link TwoStageParser} over pre-lexed
+ * tokens, {@link IrLowering} over a pre-built tree, and
+ * {@link GnashToBashGenerator#generate} both end to end from the tree and
+ * from pre-lowered IR.
+ * Subclasses decide where the source text comes from.
+ * <p>
+ * Run with {@code -prof gc} to get allocation rates alongside throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class CompilerPhaseBenchmark {
+
+    private String text;
+    private Path sourcePath;
+    private List<? extends Token> tokens;
+    private ParseTree tree;
+    private Ir.Unit unit;
+    /** Shared so that imported modules are parsed once per trial, as in a batch build. */
+    private ModuleLoader modules;
+
+    /** Returns the source text to benchmark; called once per trial. */
+    protected abstract String loadSource() throws Exception;
+
+    /** Returns the path reported in the generated header. */
+    protected abstract Path sourcePath();
+
+    @Setup
+    public void prepare() throws Exception {
+        text = loadSource();
+        sourcePath = sourcePath();
+        tokens = new GnashLexer(CharStreams.fromString(text)).getAllTokens();
+        tree = parse(tokens);
+        unit = IrLowering.lower(tree);
+        modules = new ModuleLoader();
+    }
+
+    @Benchmark
+    public List<? extends Token> lex() {
+        return new GnashLexer(CharStreams.fromString(text)).getAllTokens();
+    }
+
+    @Benchmark
+    public ParseTree parse() {
+        return parse(tokens);
+    }
+
+    @Benchmark
+    public Ir.Unit lower() {
+        return IrLowering.lower(tree);
+    }
+
+    @Benchmark
+    public String generate() {
+        return new GnashToBashGenerator(null, modules).generate(tree, sourcePath);
+    }
+
+    @Benchmark
+    public String emit() {
+        return new GnashToBashGenerator(null, modules).generate(unit, sourcePath);
+    }
+
+    private static ParseTree parse(List<? extends Token> tokens) {
+        GnashParser parser = new GnashParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.removeErrorListeners();
+        return TwoStageParser.compilationUnit(parser);
+    }
+}
@@ -0,0 +1,31 @@
+package dev.gnash.compiler;
+
+import org.openjdk.jmh.annotations.Param;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Phase benchmarks over the checked-in Gnash sources. The corpus root defaults
+ * to {@code src/gnash} relative to the working directory and can be moved with
+ * {@code -Dgnash.corpus=<dir>}.
+ */
+public class CorpusBenchmark extends CompilerPhaseBenchmark {
+
+    @Param({
+        "steps/AdminGroupNopass.gnash",
+        "lib/Config.gnash",
+        "scripts/SyntaxShowcase.gnash",
+    })
+    public String source;
+
+    @Override
+    protected String loadSource() throws Exception {
+        return Files.readString(sourcePath());
+    }
+
+    @Override
+    protected Path sourcePath() {
+        return Path.of(System.getProperty("gnash.corpus", "src/gnash")).resolve(source);
+    }
+}
@@ -0,0 +1,95 @@
+package dev.gnash.compiler;
+
+import dev.gnash.antlr.GnashLexer;
+import dev.gnash.antlr.GnashParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse-time regression benchmark comparing plain full-LL prediction with the
+ * production {@link TwoStageParser} strategy. Besides time per parse it reports
+ * a {@code kilobytes} secondary result, which JMH prints as time per KB of
+ * source so that inputs of different sizes can be compared directly.
+ * <p>
+ * {@code source} is either a path below the corpus root (see
+ * {@link CorpusBenchmark}) or {@code synthetic}, a generated program of 100
+ * functions nested eight deep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseStrategyBenchmark {
+
+    private static final String SYNTHETIC = "synthetic";
+
+    @Param({"LL", "SLL_FIRST"})
+    public String strategy;
+
+    @Param({
+        "steps/AdminGroupNopass.gnash",
+        "lib/Config.gnash",
+        "scripts/SyntaxShowcase.gnash",
+        SYNTHETIC,
+    })
+    public String source;
+
+    private List<? extends Token> tokens;
+    private double kilobytes;
+
+    /** Per-thread source volume, reported by JMH as time per KB. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Volume {
+        public double kilobytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            kilobytes = 0;
+        }
+    }
+
+    @Setup
+    public void prepare() throws Exception {
+        String text = SYNTHETIC.equals(source)
+                ? SyntheticGnashSource.generate(100, 8, 64)
+                : Files.readString(Path.of(System.getProperty("gnash.corpus", "src/gnash")).resolve(source));
+        kilobytes = text.getBytes(StandardCharsets.UTF_8).length / 1024.0;
+        tokens = new GnashLexer(CharStreams.fromString(text)).getAllTokens();
+    }
+
+    @Benchmark
+    public ParseTree parse(Volume volume) {
+        GnashParser parser = new GnashParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.removeErrorListeners();
+        volume.kilobytes += kilobytes;
+        if ("LL".equals(strategy)) {
+            return parser.compilationUnit();
+        }
+        return TwoStageParser.compilationUnit(parser);
+    }
+}
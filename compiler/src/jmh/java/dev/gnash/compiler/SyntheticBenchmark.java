@@ -0,0 +1,31 @@
+package dev.gnash.compiler;
+
+import org.openjdk.jmh.annotations.Param;
+
+import java.nio.file.Path;
+
+/**
+ * Phase benchmarks over generated programs so that cost can be plotted against
+ * function count, nesting depth and literal size independently.
+ */
+public class SyntheticBenchmark extends CompilerPhaseBenchmark {
+
+    @Param({"10", "100"})
+    public int functions;
+
+    @Param({"1", "4", "8"})
+    public int depth;
+
+    @Param({"16", "1024"})
+    public int literalSize;
+
+    @Override
+    protected String loadSource() {
+        return SyntheticGnashSource.generate(functions, depth, literalSize);
+    }
+
+    @Override
+    protected Path sourcePath() {
+        return Path.of("Synthetic.gnash");
+    }
+}
@@ -0,0 +1,97 @@
+package dev.gnash.compiler;
+
+/**
+ * Builds syntactically valid Gnash programs of a requested shape. Each function
+ * nests alternating {@code if}/{@code for}/{@code try} blocks down to the given
+ * depth and carries string, list and map literals whose payload grows with the
+ * literal size, exercising the same constructs as the step sources.
+ */
+final class SyntheticGnashSource {
+
+    private SyntheticGnashSource() {
+    }
+
+    static String generate(int functions, int depth, int literalSize) {
+        StringBuilder out = new StringBuilder();
+        out.append("package synthetic\n\n");
+        out.append("public def main(args) {\n");
+        out.append("  changed = false\n");
+        for (int i = 0; i < functions; i++) {
+            out.append("  if (fn").append(i).append("(\"arg").append(i).append("\")) {\n");
+            out.append("    changed = true\n");
+            out.append("  }\n");
+        }
+        out.append("  if (changed) {\n    return 10\n  }\n");
+        out.append("  return 0\n");
+        out.append("}\n\n");
+
+        String payload = payload(literalSize);
+        for (int i = 0; i < functions; i++) {
+            out.append("def fn").append(i).append("(value) {\n");
+            out.append("  stepPath = \"steps.synthetic").append(i).append("\"\n");
+            out.append("  text = \"").append(payload).append(" ${value}\"\n");
+            out.append("  items = [\"").append(payload).append("\", value, \"tail\"]\n");
+            out.append("  meta = {\n    kind: \"Synthetic\",\n    index: ").append(i)
+               .append(",\n    body: text,\n  }\n");
+            nest(out, depth, 1);
+            out.append("  return Config.isTrueOrDefault(\"${stepPath}.enabled\", true)\n");
+            out.append("}\n\n");
+        }
+        return out.toString();
+    }
+
+    private static void nest(StringBuilder out, int remaining, int level) {
+        if (remaining <= 0) {
+            indent(out, level);
+            out.append("println(\"leaf ${text}\")\n");
+            return;
+        }
+        switch (remaining % 3) {
+            case 0:
+                indent(out, level);
+                out.append("if (value && !items.contains(value)) {\n");
+                nest(out, remaining - 1, level + 1);
+                indent(out, level);
+                out.append("} else {\n");
+                indent(out, level + 1);
+                out.append("items.add(value)\n");
+                indent(out, level);
+                out.append("}\n");
+                break;
+            case 1:
+                indent(out, level);
+                out.append("for (item").append(level).append(" in items) {\n");
+                nest(out, remaining - 1, level + 1);
+                indent(out, level);
+                out.append("}\n");
+                break;
+            default:
+                indent(out, level);
+                out.append("try {\n");
+                indent(out, level + 1);
+                out.append("(output, exitCode) = $\"printf '%s' ${value}\"\n");
+                nest(out, remaining - 1, level + 1);
+                indent(out, level);
+                out.append("} catch (err) {\n");
+                indent(out, level + 1);
+                out.append("throw { kind: \"CommandError\", exitCode: exitCode, output: output }\n");
+                indent(out, level);
+                out.append("}\n");
+                break;
+        }
+    }
+
+    private static String payload(int size) {
+        StringBuilder text = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            text.append((char) ('a' + (i % 26)));
+        }
+        return text.toString();
+    }
+
+    private static void indent(StringBuilder out, int level) {
+        for (int i = 0; i < level; i++) {
+            out.append("  ");
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package dev.gnash.compiler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Config values fixed at compile time by {@code --bake-config}, so that a
+ * host-specific build can fold {@code Config.*} calls with literal paths into
+ * inline values.
+ * <p>
+ * Files are applied in order, later ones overriding earlier ones the way
+ * sourcing them one after another would. A file is either an RC file
+ * ({@code config/provision.rc}, {@code <hostname>.rc}) or, by its
+ * {@code .groovy} suffix, a {@code config/config.groovy} style block file.
+ * Both end up in the runtime's own model of scalars, arrays and associative
+ * arrays named after shell variables, and {@link #resolve} follows
+ * {@code __gnash_config_resolve}, so a baked lookup answers what the script
+ * would have found with those files loaded. Only plain assignments are
+ * understood: anything a shell would have to evaluate (expansions, commands,
+ * control flow) is rejected rather than guessed at. The environment is not
+ * consulted.
+ */
+final class BakedConfig {
+
+    /** A resolved value: exactly one of {@code scalar} and {@code list} is set. */
+    static final class Value {
+        final String scalar;
+        final List<String> list;
+
+        private Value(String scalar, List<String> list) {
+            this.scalar = scalar;
+            this.list = list;
+        }
+    }
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Set<String> DECLARE = Set.of("declare", "typeset", "export", "readonly");
+
+    private final Map<String, String> scalars = new HashMap<>();
+    private final Map<String, List<String>> arrays = new HashMap<>();
+    private final Map<String, Map<String, String>> maps = new HashMap<>();
+    private final String fingerprint;
+
+    private BakedConfig(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /** Reads {@code files} in order; syntax the baker cannot evaluate is reported as an {@link IOException}. */
+    static BakedConfig load(List<Path> files) throws IOException {
+        MessageDigest digest = sha256();
+        List<String> texts = new ArrayList<>(files.size());
+        for (Path file : files) {
+            byte[] bytes = Files.readAllBytes(file);
+            digest.update(file.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(bytes);
+            texts.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        BakedConfig config = new BakedConfig(HexFormat.of().formatHex(digest.digest()));
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            if (file.getFileName().toString().endsWith(".groovy")) {
+                new GroovyReader(config, file, texts.get(i)).read();
+            } else {
+                new RcReader(config, file, texts.get(i)).read();
+            }
+        }
+        return config;
+    }
+
+    /** Digest over the files and their contents; part of the build-cache key of baked output. */
+    String fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * The value {@code path} resolves to, or {@code null} when the runtime
+     * would not find it either. Step paths try the field as written and then
+     * with its dots folded to underscores, a missing {@code enabled} is
+     * {@code "true"}, and {@code globals.K} or plain {@code K} names a scalar.
+     */
+    Value resolve(String path) {
+        if (path.isEmpty()) {
+            return null;
+        }
+        if (path.startsWith("steps.")) {
+            String rest = path.substring("steps.".length());
+            int dot = rest.indexOf('.');
+            if (dot < 0 || dot == rest.length() - 1) {
+                return null;
+            }
+            String step = rest.substring(0, dot);
+            String field = rest.substring(dot + 1);
+            Value value = lookup(step, field);
+            if (value == null) {
+                value = lookup(step, field.replace('.', '_'));
+            }
+            if (value == null && field.equals("enabled")) {
+                value = new Value("true", null);
+            }
+            return value;
+        }
+        String key = path.startsWith("globals.") ? path.substring("globals.".length()) : path;
+        String scalar = scalars.get(key.replace('.', '_'));
+        return scalar == null ? null : new Value(scalar, null);
+    }
+
+    /** Whether Bash's {@code __gnash_bool_truthy} accepts {@code value}. */
+    static boolean truthy(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "1": case "y": case "yes": case "true": case "on":
+                return true;
+            case "0": case "n": case "no": case "false": case "off":
+                return false;
+            default:
+                return !value.isEmpty();
+        }
+    }
+
+    private Value lookup(String step, String field) {
+        Map<String, String> map = maps.get(step);
+        if (map != null && map.containsKey(field)) {
+            return new Value(map.get(field), null);
+        }
+        if (step.isEmpty() || field.isEmpty()) {
+            return null;
+        }
+        String name = step + "_" + field;
+        List<String> list = arrays.get(name);
+        if (list != null) {
+            return new Value(null, list);
+        }
+        String scalar = scalars.get(name);
+        return scalar == null ? null : new Value(scalar, null);
+    }
+
+    private void assignScalar(String name, String value) {
+        List<String> list = arrays.get(name);
+        Map<String, String> map = maps.get(name);
+        // As in Bash, a plain assignment to an array sets element 0.
+        if (list != null) {
+            if (list.isEmpty()) {
+                list.add(value);
+            } else {
+                list.set(0, value);
+            }
+        } else if (map != null) {
+            map.put("0", value);
+        } else {
+            scalars.put(name, value);
+        }
+    }
+
+    private void assignArray(String name, List<String> items) {
+        scalars.remove(name);
+        maps.remove(name);
+        arrays.put(name, new ArrayList<>(items));
+    }
+
+    private void assignMap(String name, Map<String, String> entries) {
+        scalars.remove(name);
+        arrays.remove(name);
+        maps.put(name, new LinkedHashMap<>(entries));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Base for the two readers: a cursor over the text with line tracking for errors. */
+    private abstract static class Reader {
+        final BakedConfig config;
+        final Path file;
+        final String text;
+        int pos;
+
+        Reader(BakedConfig config, Path file, String text) {
+            this.config = config;
+            this.file = file;
+            this.text = text;
+        }
+
+        abstract void read() throws IOException;
+
+        boolean atEnd() {
+            return pos >= text.length();
+        }
+
+        char peek() {
+            return text.charAt(pos);
+        }
+
+        IOException error(String message) {
+            int line = 1;
+            for (int i = 0; i < Math.min(pos, text.length()); i++) {
+                if (text.charAt(i) == '\n') {
+                    line++;
+                }
+            }
+            return new IOException(file + ":" + line + ": " + message);
+        }
+    }
+
+    /**
+     * Reads {@code name=value}, {@code name=(items)} and
+     * {@code declare -A name=([key]=value ...)} statements, optionally behind
+     * {@code declare}, {@code typeset}, {@code export} or {@code readonly}.
+     * Words may be quoted but not expanded.
+     */
+    private static final class RcReader extends Reader {
+
+        RcReader(BakedConfig config, Path file, String text) {
+            super(config, file, text);
+        }
+
+        @Override
+        void read() throws IOException {
+            while (skipBlank(true)) {
+                statement();
+            }
+        }
+
+        private void statement() throws IOException {
+            String word = word(false);
+            boolean assoc = false;
+            boolean declared = false;
+            if (DECLARE.contains(word)) {
+                declared = true;
+                skipBlank(false);
+                while (!atEnd() && peek() == '-') {
+                    String flags = word(false);
+                    if (flags.matches("-[aAgrx]*")) {
+                        assoc |= flags.indexOf('A') >= 0;
+                    } else if (!flags.equals("--")) {
+                        throw error("unsupported declare option " + flags);
+                    }
+                    skipBlank(false);
+                }
+                word = word(false);
+            }
+            int equals = word.indexOf('=');
+            String name = equals < 0 ? word : word.substring(0, equals);
+            if (!NAME.matcher(name).matches()) {
+                throw error("expected an assignment, found '" + word + "'");
+            }
+            if (equals < 0) {
+                if (!declared) {
+                    throw error("expected an assignment, found '" + word + "'");
+                }
+                if (assoc) {
+                    config.maps.computeIfAbsent(name, key -> new LinkedHashMap<>());
+                }
+            } else if (equals == word.length() - 1 && !atEnd() && peek() == '(') {
+                pos++;
+                compound(name, assoc || config.maps.containsKey(name));
+            } else {
+                config.assignScalar(name, word.substring(equals + 1));
+            }
+            skipBlank(false);
+            if (!atEnd() && peek() != '\n' && peek() != ';') {
+                throw error("unexpected text after assignment to " + name);
+            }
+        }
+
+        private void compound(String name, boolean assoc) throws IOException {
+            List<String> items = new ArrayList<>();
+            Map<String, String> entries = new LinkedHashMap<>();
+            while (true) {
+                if (!skipBlank(true)) {
+                    throw error("unterminated ( in assignment to " + name);
+                }
+                if (peek() == ')') {
+                    pos++;
+                    break;
+                }
+                if (assoc) {
+                    if (peek() != '[') {
+                        throw error("expected [key]=value in " + name);
+                    }
+                    int close = text.indexOf("]=", pos);
+                    if (close < 0) {
+                        throw error("expected [key]=value in " + name);
+                    }
+                    String key = new RcReader(config, file, text.substring(pos + 1, close)).word(true);
+                    pos = close + 2;
+                    entries.put(key, word(false));
+                } else {
+                    items.add(word(false));
+                }
+            }
+            if (assoc) {
+                config.assignMap(name, entries);
+            } else {
+                config.assignArray(name, items);
+            }
+        }
+
+        /** Skips blanks and comments, and newlines too when {@code lines}; false at end of input. */
+        private boolean skipBlank(boolean lines) {
+            while (!atEnd()) {
+                char c = peek();
+                if (c == ' ' || c == '\t' || (lines && (c == '\n' || c == ';'))) {
+                    pos++;
+                } else if (c == '#') {
+                    while (!atEnd() && peek() != '\n') {
+                        pos++;
+                    }
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** One shell word with its quotes removed; {@code whole} reads to the end of the text. */
+        private String word(boolean whole) throws IOException {
+            StringBuilder word = new StringBuilder();
+            while (!atEnd()) {
+                char c = peek();
+                if (!whole && " \t\n;()".indexOf(c) >= 0) {
+                    break;
+                }
+                pos++;
+                if (c == '\'') {
+                    int close = text.indexOf('\'', pos);
+                    if (close < 0) {
+                        throw error("unterminated single quote");
+                    }
+                    word.append(text, pos, close);
+                    pos = close + 1;
+                } else if (c == '"') {
+                    doubleQuoted(word);
+                } else if (c == '\\') {
+                    if (atEnd()) {
+                        throw error("dangling backslash");
+                    }
+                    word.append(text.charAt(pos++));
+                } else if ("$`<>|&*?~".indexOf(c) >= 0) {
+                    throw error("'" + c + "' needs a shell to evaluate");
+                } else {
+                    word.append(c);
+                }
+            }
+            return word.toString();
+        }
+
+        private void doubleQuoted(StringBuilder word) throws IOException {
+            while (true) {
+                if (atEnd()) {
+                    throw error("unterminated double quote");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return;
+                }
+                if (c == '$' || c == '`') {
+                    throw error("'" + c + "' needs a shell to evaluate");
+                }
+                if (c == '\\' && !atEnd() && "$`\"\\\n".indexOf(peek()) >= 0) {
+                    c = text.charAt(pos++);
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+                word.append(c);
+            }
+        }
+    }
+
+    /**
+     * Reads nested {@code name { ... }} blocks of {@code key = value}
+     * assignments, where a value is a string, a bare word such as a number or
+     * boolean, {@code null}, or a {@code [ ... ]} list of those. Under
+     * {@code steps}, {@code steps { s { f = v } }} lands where the RC form
+     * puts it: scalars in the step's map, lists in {@code s_f}. Everything
+     * else becomes the variable its path names with dots turned into
+     * underscores.
+     */
+    private static final class GroovyReader extends Reader {
+
+        GroovyReader(BakedConfig config, Path file, String text) {
+            super(config, file, text);
+        }
+
+        @Override
+        void read() throws IOException {
+            block(new ArrayList<>());
+            if (!atEnd()) {
+                throw error("unmatched }");
+            }
+        }
+
+        private void block(List<String> path) throws IOException {
+            while (skip() && peek() != '}') {
+                String name = bareWord();
+                if (!NAME.matcher(name).matches()) {
+                    throw error("expected a name, found '" + name + "'");
+                }
+                List<String> inner = new ArrayList<>(path);
+                inner.add(name);
+                skip();
+                if (!atEnd() && peek() == '{') {
+                    pos++;
+                    block(inner);
+                    if (!skip()) {
+                        throw error("unterminated block " + String.join(".", inner));
+                    }
+                    pos++;
+                } else if (!atEnd() && peek() == '=') {
+                    pos++;
+                    assign(inner, value());
+                } else {
+                    throw error("expected { or = after " + name);
+                }
+            }
+        }
+
+        /** A scalar as a one-element list, a list as a list, or {@code null} for {@code null}. */
+        private Object value() throws IOException {
+            if (!skip()) {
+                throw error("missing value");
+            }
+            if (peek() == '[') {
+                pos++;
+                List<String> items = new ArrayList<>();
+                while (skip() && peek() != ']') {
+                    Object item = value();
+                    if (!(item instanceof String)) {
+                        throw error("list items must be plain values");
+                    }
+                    items.add((String) item);
+                    if (skip() && peek() == ',') {
+                        pos++;
+                    }
+                }
+                if (atEnd()) {
+                    throw error("unterminated [");
+                }
+                pos++;
+                return items;
+            }
+            if (peek() == '"' || peek() == '\'') {
+                return quoted(text.charAt(pos++));
+            }
+            String word = bareWord();
+            if (word.isEmpty()) {
+                throw error("missing value");
+            }
+            return word.equals("null") ? null : word;
+        }
+
+        private void assign(List<String> path, Object value) {
+            String variable;
+            String mapKey = null;
+            if (path.size() >= 3 && path.get(0).equals("steps")) {
+                String field = String.join(".", path.subList(2, path.size()));
+                variable = path.get(1) + "_" + field.replace('.', '_');
+                mapKey = field;
+            } else {
+                variable = String.join("_", path);
+            }
+            Map<String, String> map = mapKey == null ? null : config.maps.get(path.get(1));
+            if (map != null) {
+                map.remove(mapKey);
+            }
+            config.scalars.remove(variable);
+            config.arrays.remove(variable);
+            if (value instanceof List) {
+                @SuppressWarnings("unchecked")
+                List<String> items = (List<String>) value;
+                config.arrays.put(variable, new ArrayList<>(items));
+            } else if (value != null && mapKey != null) {
+                config.maps.computeIfAbsent(path.get(1), key -> new LinkedHashMap<>()).put(mapKey, (String) value);
+            } else if (value != null) {
+                config.scalars.put(variable, (String) value);
+            }
+        }
+
+        private String quoted(char quote) throws IOException {
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (atEnd()) {
+                    throw error("unterminated string");
+                }
+                char c = text.charAt(pos++);
+                if (c == quote) {
+                    return value.toString();
+                }
+                if (c == '$' && quote == '"') {
+                    throw error("string interpolation needs Groovy to evaluate");
+                }
+                if (c == '\\' && !atEnd()) {
+                    c = text.charAt(pos++);
+                    switch (c) {
+                        case 'n': c = '\n'; break;
+                        case 't': c = '\t'; break;
+                        case 'r': c = '\r'; break;
+                        default: break;
+                    }
+                }
+                value.append(c);
+            }
+        }
+
+        private String bareWord() {
+            int start = pos;
+            while (!atEnd() && (Character.isLetterOrDigit(peek()) || "_.-+".indexOf(peek()) >= 0)) {
+                pos++;
+            }
+            return text.substring(start, pos);
+        }
+
+        /** Skips whitespace and comments; false at end of input. */
+        private boolean skip() {
+            while (!atEnd()) {
+                char c = peek();
+                if (Character.isWhitespace(c)) {
+                    pos++;
+                } else if (c == '#' || text.startsWith("//", pos)) {
+                    while (!atEnd() && peek() != '\n') {
+                        pos++;
+                    }
+                } else if (text.startsWith("/*", pos)) {
+                    int close = text.indexOf("*/", pos + 2);
+                    pos = close < 0 ? text.length() : close + 2;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package dev.gnash.compiler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Buffered UTF-8 sink the generator writes Bash into while it walks the IR.
+ * <p>
+ * Text is encoded through a fixed-size char/byte buffer pair and written to the
+ * channel whenever the byte buffer fills, so peak heap per unit is bounded by
+ * the buffers rather than by the size of the script. Constant blocks such as
+ * the runtime prelude are encoded once up front (see {@link #preEncode}) and
+ * handed to the channel as-is. Indentation comes from a table of prebuilt
+ * strings.
+ * <p>
+ * When asked to, the emitter also records every {@code __gnash_*} symbol in the
+ * text it is given so that {@link RuntimePrelude} can keep just the helpers a
+ * script refers to.
+ * <p>
+ * Channel failures surface as {@link UncheckedIOException} so that the
+ * renderers do not have to declare {@code IOException}; callers unwrap it.
+ */
+final class BashEmitter {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final String INDENT_UNIT = "  ";
+    private static final String[] INDENTS = new String[16];
+
+    static {
+        for (int i = 0; i < INDENTS.length; i++) {
+            INDENTS[i] = INDENT_UNIT.repeat(i);
+        }
+    }
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+    private Set<String> symbols;
+
+    BashEmitter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /** Adds the runtime symbols of all text appended from now on to {@code sink}. */
+    BashEmitter recordSymbols(Set<String> sink) {
+        this.symbols = sink;
+        return this;
+    }
+
+    /**
+     * Encodes {@code text} into a read-only direct buffer suitable for
+     * {@link #appendEncoded}. Direct buffers let file channels write without an
+     * intermediate copy.
+     */
+    static ByteBuffer preEncode(String text) {
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length);
+        buffer.put(encoded).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    BashEmitter append(CharSequence text) {
+        if (symbols != null) {
+            scanSymbols(text.toString());
+        }
+        int length = text.length();
+        int offset = 0;
+        while (offset < length) {
+            if (!chars.hasRemaining()) {
+                drainChars(false);
+            }
+            int count = Math.min(chars.remaining(), length - offset);
+            chars.append(text, offset, offset + count);
+            offset += count;
+        }
+        return this;
+    }
+
+    BashEmitter append(char ch) {
+        if (!chars.hasRemaining()) {
+            drainChars(false);
+        }
+        chars.put(ch);
+        return this;
+    }
+
+    BashEmitter append(int value) {
+        return append(Integer.toString(value));
+    }
+
+    /** Writes {@code level} levels of two-space indentation. */
+    BashEmitter indent(int level) {
+        if (level < INDENTS.length) {
+            return append(INDENTS[level]);
+        }
+        for (int i = 0; i < level; i++) {
+            append(INDENT_UNIT);
+        }
+        return this;
+    }
+
+    /**
+     * Writes bytes produced by {@link #preEncode}, flushing pending text first
+     * so ordering is preserved. The shared buffer itself is never modified.
+     */
+    BashEmitter appendEncoded(ByteBuffer encoded) {
+        drainChars(false);
+        flushBytes();
+        ByteBuffer view = encoded.duplicate();
+        try {
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /** Encodes and writes everything appended so far; the channel stays open. */
+    void flush() {
+        drainChars(true);
+        flushBytes();
+    }
+
+    private void scanSymbols(String text) {
+        scanSymbols(text, RuntimePrelude.SYMBOL_PREFIX);
+        scanSymbols(text, RuntimePrelude.VARIABLE_PREFIX);
+    }
+
+    private void scanSymbols(String text, String prefix) {
+        int at = text.indexOf(prefix);
+        while (at >= 0) {
+            int end = at + prefix.length();
+            while (end < text.length() && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_')) {
+                end++;
+            }
+            symbols.add(text.substring(at, end));
+            at = text.indexOf(prefix, end);
+        }
+    }
+
+    private void drainChars(boolean endOfInput) {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                flushBytes();
+                continue;
+            }
+            break;
+        }
+        if (endOfInput) {
+            while (encoder.flush(bytes).isOverflow()) {
+                flushBytes();
+            }
+            encoder.reset();
+        }
+        // A trailing high surrogate stays behind until its pair arrives.
+        chars.compact();
+    }
+
+    private void flushBytes() {
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        bytes.clear();
+    }
+}
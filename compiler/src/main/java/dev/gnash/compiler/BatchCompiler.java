@@ -0,0 +1,134 @@
+package dev.gnash.compiler;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles every {@code .gnash} file below a source root (typically
+ * {@code src/gnash}, covering steps, lib and scripts) into a mirrored output
+ * tree from a single JVM.
+ * <p>
+ * Units are compiled in parallel on a fork-join pool. Each unit gets its own
+ * lexer, parser and generator, so the only state shared between workers is
+ * ANTLR's prediction cache, which is warmed once for the whole tree. Sources
+ * are visited in sorted order and diagnostics are buffered per unit and printed
+ * in that order, so output and logs are identical regardless of scheduling.
+ */
+final class BatchCompiler {
+
+    private static final String SOURCE_SUFFIX = ".gnash";
+    private static final String TARGET_SUFFIX = ".sh";
+
+    private static final class UnitResult {
+        final Path source;
+        final List<String> diagnostics;
+        final Exception failure;
+
+        UnitResult(Path source, List<String> diagnostics, Exception failure) {
+            this.source = source;
+            this.diagnostics = diagnostics;
+            this.failure = failure;
+        }
+    }
+
+    private final int jobs;
+    private final BuildCache cache;
+    private final SharedRuntime runtime;
+    private final BakedConfig config;
+    private final PrintStream err;
+
+    BatchCompiler(int jobs, BuildCache cache, SharedRuntime runtime, BakedConfig config) {
+        this(jobs, cache, runtime, config, System.err);
+    }
+
+    BatchCompiler(int jobs, BuildCache cache, SharedRuntime runtime, BakedConfig config, PrintStream err) {
+        this.jobs = jobs;
+        this.cache = cache;
+        this.runtime = runtime;
+        this.config = config;
+        this.err = err;
+    }
+
+    /**
+     * Compiles the tree rooted at {@code sourceRoot} into {@code targetRoot}.
+     *
+     * @return the number of units that could not be compiled
+     */
+    int compileTree(Path sourceRoot, Path targetRoot) throws IOException {
+        List<Path> sources = collectSources(sourceRoot);
+        List<Callable<UnitResult>> tasks = new ArrayList<>(sources.size());
+        for (Path source : sources) {
+            Path relative = sourceRoot.relativize(source);
+            Path target = targetRoot.resolve(targetName(relative));
+            tasks.add(() -> compileUnit(source, target));
+        }
+
+        List<UnitResult> results = new ArrayList<>(tasks.size());
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        try {
+            for (Future<UnitResult> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("batch compilation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("batch compilation failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        int failures = 0;
+        for (UnitResult result : results) {
+            for (String diagnostic : result.diagnostics) {
+                err.println(result.source + ": " + diagnostic);
+            }
+            if (result.failure != null) {
+                failures++;
+                err.println(result.source + ": error: " + result.failure.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    private UnitResult compileUnit(Path source, Path target) {
+        DiagnosticCollector diagnostics = new DiagnosticCollector();
+        try {
+            GnashCompiler.compileFile(source, target, cache, runtime, config, diagnostics);
+            return new UnitResult(source, diagnostics.messages(), null);
+        } catch (IOException | RuntimeException e) {
+            return new UnitResult(source, diagnostics.messages(), e);
+        }
+    }
+
+    private static List<Path> collectSources(Path sourceRoot) throws IOException {
+        if (!Files.isDirectory(sourceRoot)) {
+            throw new IOException("source root is not a directory: " + sourceRoot);
+        }
+        try (Stream<Path> walk = Files.walk(sourceRoot)) {
+            return walk.filter(Files::isRegularFile)
+                       .filter(path -> path.getFileName().toString().endsWith(SOURCE_SUFFIX))
+                       .sorted()
+                       .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Path targetName(Path relative) {
+        String fileName = relative.getFileName().toString();
+        String stem = fileName.substring(0, fileName.length() - SOURCE_SUFFIX.length());
+        return relative.resolveSibling(stem + TARGET_SUFFIX);
+    }
+}
@@ -0,0 +1,187 @@
+package dev.gnash.compiler;
+
+import dev.gnash.antlr.GnashParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed cache of generated Bash, stored by default under
+ * {@code target/gnash-cache}.
+ * <p>
+ * Entries are keyed by a SHA-256 over the source bytes and a fingerprint of
+ * everything else that shapes the output: the {@code Gnash.g4} grammar, the
+ * generator version and the emitted runtime prelude. A hit
+ * skips lexing, parsing and generation entirely. Units that produced syntax
+ * errors are never stored, so their diagnostics are reported on every run.
+ */
+final class BuildCache {
+
+    static final Path DEFAULT_DIRECTORY = Path.of("target", "gnash-cache");
+
+    private static final String GRAMMAR_RESOURCE = "/dev/gnash/antlr/Gnash.g4";
+    private static final String ENTRY_SUFFIX = ".sh";
+
+    private final Path directory;
+    private final byte[] fingerprint;
+
+    BuildCache(Path directory) {
+        this.directory = directory;
+        this.fingerprint = compilerFingerprint();
+    }
+
+    /** Computes the cache key for the given source bytes. */
+    String key(byte[] source) {
+        return key(source, "");
+    }
+
+    /**
+     * Computes the cache key for source bytes whose output also depends on
+     * {@code variant}, such as the shared-runtime path a script is linked to.
+     */
+    String key(byte[] source, String variant) {
+        MessageDigest digest = sha256();
+        digest.update(fingerprint);
+        digest.update(variant.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(source);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Returns the cached output for {@code key}, or {@code null} on a miss. */
+    byte[] lookup(String key) throws IOException {
+        Path entry = entryPath(key);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        return Files.readAllBytes(entry);
+    }
+
+    void store(String key, byte[] output) throws IOException {
+        Path entry = entryPath(key);
+        Files.createDirectories(entry.getParent());
+        Path temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+        try {
+            Files.write(temp, output);
+            moveReplacing(temp, entry);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Stores a copy of the already-written {@code output} file under {@code key}. */
+    void store(String key, Path output) throws IOException {
+        Path entry = entryPath(key);
+        Files.createDirectories(entry.getParent());
+        Path temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+        try {
+            Files.copy(output, temp, StandardCopyOption.REPLACE_EXISTING);
+            moveReplacing(temp, entry);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns a fresh path next to {@code target} for streaming output into
+     * before {@link #moveIfChanged}. The file itself is not created, so it picks
+     * up the same default permissions the target would get.
+     */
+    static Path scratchFile(Path target) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path parent = absolute.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        String name = "." + absolute.getFileName() + "." + ProcessHandle.current().pid()
+                + "." + Thread.currentThread().getId() + ".tmp";
+        return absolute.resolveSibling(name);
+    }
+
+    /**
+     * Moves {@code scratch} over {@code target} unless the target already holds
+     * the same bytes, in which case the scratch file is left for the caller to
+     * delete and the target keeps its mtime.
+     *
+     * @return {@code true} when the target was replaced
+     */
+    static boolean moveIfChanged(Path scratch, Path target) throws IOException {
+        if (Files.isRegularFile(target)
+                && Files.size(target) == Files.size(scratch)
+                && Files.mismatch(scratch, target) == -1L) {
+            return false;
+        }
+        moveReplacing(scratch, target);
+        return true;
+    }
+
+    /**
+     * Writes {@code output} to {@code target} unless the file already holds the
+     * same bytes, so that make-style consumers keep seeing the old mtime.
+     *
+     * @return {@code true} when the file was (re)written
+     */
+    static boolean writeIfChanged(Path target, byte[] output) throws IOException {
+        if (Files.isRegularFile(target)
+                && Files.size(target) == output.length
+                && Arrays.equals(Files.readAllBytes(target), output)) {
+            return false;
+        }
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(target, output);
+        return true;
+    }
+
+    private static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static byte[] compilerFingerprint() {
+        MessageDigest digest = sha256();
+        digest.update(grammarBytes());
+        digest.update(Integer.toString(GnashToBashGenerator.VERSION).getBytes(StandardCharsets.UTF_8));
+        digest.update(GnashToBashGenerator.RUNTIME_BODY.getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    // The grammar is bundled as a resource by the build; the serialized ATN is an
+    // equivalent stand-in when running from classes that were built without it.
+    private static byte[] grammarBytes() {
+        try (InputStream in = BuildCache.class.getResourceAsStream(GRAMMAR_RESOURCE)) {
+            if (in != null) {
+                return in.readAllBytes();
+            }
+        } catch (IOException ignored) {
+            // fall through to the serialized ATN
+        }
+        return GnashParser._serializedATN.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package dev.gnash.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Peephole rules that answer common shell commands with Bash builtins instead
+ * of a {@code $(...)} subshell and an exec.
+ * <p>
+ * A rule matches a command spelled out in the source, either the argument of
+ * a {@code run("...")} style wrapper (see {@link #runsArgument}) or the text
+ * of a {@code $"..."} literal, once it is split into shell words. Words may be
+ * literal or interpolate {@code ${name}}; anything needing the shell to
+ * evaluate it (other expansions, globs, redirections, escapes) matches no rule.
+ * <p>
+ * A matched command becomes a call to a {@code __gnash_fast_*} runtime helper
+ * followed by {@code ||} and the original command. The helper either leaves
+ * exactly what the command would have printed, trailing newlines dropped as by
+ * {@code $(...)}, in the out-variable and succeeds, or returns 1 without side
+ * effects: when the command would fail, or when an interpolated word turns out
+ * not to be a plain word at run time. Failures therefore still run the real
+ * command, so their exit codes and output, and the {@code commandError} built
+ * from them, are unchanged.
+ */
+final class CommandRewrites {
+
+    /** Characters of a word the shell passes through unchanged; the runtime's {@code __gnash_fast_word} check. */
+    private static final Pattern PLAIN_WORD = Pattern.compile("[A-Za-z0-9_./@%+,:=][A-Za-z0-9_./@%+,:=-]*");
+    private static final Pattern WRAPPER_COMMAND = Pattern.compile("\\$\"\\$\\{([A-Za-z_][A-Za-z0-9_]*)}( 2>&1)?\"");
+
+    private static final List<Rule> RULES = rules();
+
+    private CommandRewrites() {
+    }
+
+    /** A helper call standing in for a matched command. */
+    static final class Rewrite {
+        private final String helper;
+        private final List<String> args;
+
+        private Rewrite(String helper, List<String> args) {
+            this.helper = helper;
+            this.args = args;
+        }
+
+        /** The helper call leaving the output in {@code dest}, a variable name or {@code ""} to discard it. */
+        String command(String dest) {
+            StringBuilder command = new StringBuilder(helper).append(' ').append(dest);
+            for (String arg : args) {
+                command.append(' ').append(arg);
+            }
+            return command.toString();
+        }
+    }
+
+    /**
+     * Whether {@code fn} runs its only parameter as a shell command: its body
+     * starts with {@code (output, exitCode) = $"${command}"}, optionally with
+     * {@code 2>&1}, as the steps' {@code run} does.
+     */
+    static boolean runsArgument(Ir.Function fn) {
+        return wrapperCommand(fn) != null;
+    }
+
+    /** The matched {@link #WRAPPER_COMMAND} of a function that runs its argument, else {@code null}. */
+    private static Matcher wrapperCommand(Ir.Function fn) {
+        if (fn.parameters.size() != 1 || fn.body == null || fn.body.isEmpty()
+                || !(fn.body.get(0) instanceof Ir.ExprStmt)) {
+            return null;
+        }
+        Ir.Expr first = ((Ir.ExprStmt) fn.body.get(0)).expr;
+        if (!(first instanceof Ir.Assign) || !(((Ir.Assign) first).value instanceof Ir.Literal)) {
+            return null;
+        }
+        Ir.Literal command = (Ir.Literal) ((Ir.Assign) first).value;
+        if (command.kind != Ir.LiteralKind.SHELL) {
+            return null;
+        }
+        Matcher matcher = WRAPPER_COMMAND.matcher(command.text);
+        return matcher.matches() && matcher.group(1).equals(fn.parameters.get(0).text) ? matcher : null;
+    }
+
+    /** The rewrite of the command string {@code command}, as a wrapper would run it, or {@code null}. */
+    static Rewrite forString(Ir.Str command) {
+        List<Object> pieces = new ArrayList<>();
+        for (Ir.Segment segment : command.segments) {
+            if (segment.property != null) {
+                return null;
+            }
+            if (segment.ref != null) {
+                pieces.add(new Ref("${" + segment.ref.interpolated + "}"));
+                continue;
+            }
+            String text = unescapeDoubleQuoted(segment.text);
+            if (text == null) {
+                return null;
+            }
+            pieces.add(text);
+        }
+        List<Word> words = split(pieces, false);
+        return words == null ? null : match(words);
+    }
+
+    /**
+     * The shell code {@code wrapper} (see {@link #runsArgument}) runs for the
+     * command string {@code command}, its {@code 2>&1} included, or
+     * {@code null} when the string uses syntax besides blanks, single quotes
+     * and {@code |}. Interpolations stay double-quoted expansions, so each is
+     * one word whatever it holds.
+     */
+    static String wrappedCommand(Ir.Function wrapper, Ir.Str command) {
+        Matcher matcher = wrapperCommand(wrapper);
+        if (matcher == null) {
+            return null;
+        }
+        List<Object> pieces = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (Ir.Segment segment : command.segments) {
+            if (segment.property != null) {
+                return null;
+            }
+            if (segment.ref != null) {
+                Ref ref = new Ref("${" + segment.ref.interpolated + "}");
+                pieces.add(ref);
+                text.append('"').append(ref.expansion).append('"');
+                continue;
+            }
+            String literal = unescapeDoubleQuoted(segment.text);
+            if (literal == null) {
+                return null;
+            }
+            pieces.add(literal);
+            text.append(literal);
+        }
+        if (split(pieces, false) == null) {
+            return null;
+        }
+        if (matcher.group(2) != null) {
+            text.append(matcher.group(2));
+        }
+        return text.toString().trim();
+    }
+
+    /** The rewrite of a {@code $"..."} literal, or {@code null}. */
+    static Rewrite forShellLiteral(String literal) {
+        if (literal == null || !literal.startsWith("$\"") || !literal.endsWith("\"")) {
+            return null;
+        }
+        String text = literal.substring(2, literal.length() - 1).trim();
+        // The text is pasted into $(...) as is, so ${name} expands where it is unquoted.
+        List<Object> pieces = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '$' && text.startsWith("${", i)) {
+                int end = text.indexOf('}', i);
+                if (end < 0 || !text.substring(i + 2, end).matches("[A-Za-z_][A-Za-z0-9_]*")) {
+                    return null;
+                }
+                pieces.add(run.toString());
+                run.setLength(0);
+                pieces.add(new Ref(text.substring(i, end + 1)));
+                i = end;
+                continue;
+            }
+            run.append(c);
+        }
+        pieces.add(run.toString());
+        List<Word> words = split(pieces, false);
+        return words == null ? null : match(words);
+    }
+
+    private static Rewrite match(List<Word> words) {
+        for (Rule rule : RULES) {
+            Rewrite rewrite = rule.apply(words);
+            if (rewrite != null) {
+                return rewrite;
+            }
+        }
+        return null;
+    }
+
+    private static List<Rule> rules() {
+        List<Rule> rules = new ArrayList<>();
+        for (String operator : List.of("-e", "-f", "-d", "-r", "-w", "-x", "-s")) {
+            rules.add(new Rule("test " + operator + " ?", "__gnash_fast_test", operator));
+        }
+        rules.add(new Rule("cat ?", "__gnash_fast_cat"));
+        rules.add(new Rule("printenv ?", "__gnash_fast_printenv"));
+        rules.add(new Rule("date +%s", "__gnash_fast_epoch"));
+        rules.add(new Rule("hostname", "__gnash_fast_hostname"));
+        rules.add(new Rule("id -nG ? | tr ' ' '\\n' | grep -qx ?", "__gnash_fast_in_group"));
+        rules.add(new Rule("printf ...", "__gnash_fast_printf"));
+        return rules;
+    }
+
+    /**
+     * A command shape and the helper answering it. In the pattern, {@code ?}
+     * stands for one plain or interpolated word and a trailing {@code ...}
+     * for any number of literal words, passed to the helper as they are.
+     */
+    private static final class Rule {
+        private final List<Word> pattern;
+        private final String helper;
+        /** Arguments the helper takes ahead of the captured words. */
+        private final List<String> fixed;
+
+        Rule(String pattern, String helper, String... fixed) {
+            List<Object> pieces = new ArrayList<>();
+            pieces.add(pattern);
+            this.pattern = split(pieces, true);
+            this.helper = helper;
+            this.fixed = List.of(fixed);
+        }
+
+        Rewrite apply(List<Word> words) {
+            List<String> args = new ArrayList<>(fixed);
+            for (int i = 0; i < pattern.size(); i++) {
+                String expected = pattern.get(i).literal();
+                if ("...".equals(expected)) {
+                    for (Word word : words.subList(i, words.size())) {
+                        if (word.operator || word.literal() == null) {
+                            return null;
+                        }
+                        args.add(singleQuote(word.literal()));
+                    }
+                    return new Rewrite(helper, args);
+                }
+                if (i >= words.size()) {
+                    return null;
+                }
+                Word word = words.get(i);
+                if (pattern.get(i).operator) {
+                    if (!word.operator) {
+                        return null;
+                    }
+                } else if ("?".equals(expected)) {
+                    String arg = word.operand();
+                    if (arg == null) {
+                        return null;
+                    }
+                    args.add(arg);
+                } else if (word.operator || !expected.equals(word.literal())) {
+                    return null;
+                }
+            }
+            return words.size() == pattern.size() ? new Rewrite(helper, args) : null;
+        }
+    }
+
+    /** An interpolation, kept as the Bash expansion it renders to. */
+    private static final class Ref {
+        final String expansion;
+
+        Ref(String expansion) {
+            this.expansion = expansion;
+        }
+    }
+
+    /** One shell word: literal text and {@link Ref}s, or a {@code |} between commands. */
+    private static final class Word {
+        final List<Object> parts = new ArrayList<>();
+        final boolean operator;
+
+        Word(boolean operator) {
+            this.operator = operator;
+        }
+
+        /** The value of a word without interpolation, else {@code null}. */
+        String literal() {
+            StringBuilder value = new StringBuilder();
+            for (Object part : parts) {
+                if (part instanceof Ref) {
+                    return null;
+                }
+                value.append((String) part);
+            }
+            return value.toString();
+        }
+
+        /**
+         * This word as a helper argument, or {@code null} when it cannot be a
+         * plain word. Literal words are checked here, interpolated ones by the
+         * helper once their value is known.
+         */
+        String operand() {
+            if (operator) {
+                return null;
+            }
+            String literal = literal();
+            if (literal != null) {
+                return PLAIN_WORD.matcher(literal).matches() ? singleQuote(literal) : null;
+            }
+            StringBuilder quoted = new StringBuilder("\"");
+            for (Object part : parts) {
+                if (part instanceof Ref) {
+                    quoted.append(((Ref) part).expansion);
+                } else if (PLAIN_WORD.matcher("a" + part).matches()) {
+                    quoted.append((String) part);
+                } else {
+                    return null;
+                }
+            }
+            return quoted.append('"').toString();
+        }
+    }
+
+    /**
+     * Splits text and references into words the way the shell would, or
+     * returns {@code null} when the command uses any syntax besides blanks,
+     * single quotes and {@code |}. A pattern may use {@code ?} and
+     * {@code ...} as words.
+     */
+    private static List<Word> split(List<Object> pieces, boolean pattern) {
+        List<Word> words = new ArrayList<>();
+        Word current = null;
+        boolean quoted = false;
+        for (Object piece : pieces) {
+            if (piece instanceof Ref) {
+                if (quoted) {
+                    return null;
+                }
+                if (current == null) {
+                    current = new Word(false);
+                    words.add(current);
+                }
+                current.parts.add(piece);
+                continue;
+            }
+            String text = (String) piece;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '\'') {
+                        quoted = false;
+                    } else {
+                        current.parts.add(String.valueOf(c));
+                    }
+                    continue;
+                }
+                if (c == ' ' || c == '\t') {
+                    current = null;
+                    continue;
+                }
+                if (c == '|') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '|') {
+                        return null;
+                    }
+                    words.add(new Word(true));
+                    current = null;
+                    continue;
+                }
+                boolean special = "\\\"$`;&<>()*[]{}!#~\n".indexOf(c) >= 0
+                        || (c == '?' && !pattern);
+                if (special) {
+                    return null;
+                }
+                if (current == null) {
+                    current = new Word(false);
+                    words.add(current);
+                }
+                if (c == '\'') {
+                    quoted = true;
+                } else {
+                    current.parts.add(String.valueOf(c));
+                }
+            }
+        }
+        return quoted ? null : words;
+    }
+
+    /**
+     * The value of Bash double-quoted text without expansions, or
+     * {@code null} when it expands something.
+     */
+    private static String unescapeDoubleQuoted(String text) {
+        StringBuilder value = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '$' || c == '`') {
+                return null;
+            }
+            if (c == '\\' && i + 1 < text.length() && "$`\"\\".indexOf(text.charAt(i + 1)) >= 0) {
+                c = text.charAt(++i);
+            }
+            value.append(c);
+        }
+        return value.toString();
+    }
+
+    private static String singleQuote(String text) {
+        return "'" + text.replace("'", "'\"'\"'") + "'";
+    }
+}
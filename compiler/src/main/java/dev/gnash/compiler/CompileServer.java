@@ -0,0 +1,176 @@
+package dev.gnash.compiler;
+
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-lived compiler daemon listening on a Unix-domain socket.
+ * <p>
+ * Keeping the JVM alive between requests means ANTLR's shared ATN/DFA caches
+ * for {@code GnashLexer}/{@code GnashParser} and the JIT-compiled generator stay
+ * warm, so editor save hooks and pre-commit checks only pay for the compile
+ * itself. The protocol is line oriented UTF-8 text so that a shell client can
+ * drive it through {@code socat} or {@code nc -U}:
+ * <pre>
+ *   request:  &lt;source.gnash&gt; TAB &lt;output.sh&gt;      (absolute paths, one per line)
+ *   response: diag TAB &lt;message&gt;                   (zero or more per request)
+ *             ok TAB &lt;output.sh&gt; | fail TAB &lt;message&gt; (exactly one per request)
+ * </pre>
+ * A connection ends at EOF or on an empty line. The control line
+ * {@code !shutdown} stops the server.
+ */
+final class CompileServer {
+
+    private static final String SHUTDOWN = "!shutdown";
+    private static final int WARMUP_ROUNDS = 200;
+    private static final String WARMUP_SOURCE = String.join("\n",
+            "public def main(args) {",
+            "  key = \"warmup\"",
+            "  if (!Config.isTrueOrDefault(\"steps.${key}.enabled\", true)) {",
+            "    return 0",
+            "  }",
+            "  items = [\"a\", \"b\"]",
+            "  for (item in items) {",
+            "    try {",
+            "      (output, exitCode) = $\"echo ${item}\"",
+            "    } catch (err) {",
+            "      throw { kind: \"Warmup\", exitCode: exitCode }",
+            "    }",
+            "  }",
+            "  return 0",
+            "}",
+            "");
+
+    private final Path socketPath;
+    private final BuildCache cache;
+    private final SharedRuntime runtime;
+    private final BakedConfig config;
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "gnash-compile");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile ServerSocketChannel server;
+
+    CompileServer(Path socketPath, BuildCache cache, SharedRuntime runtime, BakedConfig config) {
+        this.socketPath = socketPath.toAbsolutePath();
+        this.cache = cache;
+        this.runtime = runtime;
+        this.config = config;
+    }
+
+    void serve() throws IOException {
+        Files.deleteIfExists(socketPath);
+        try (ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.bind(UnixDomainSocketAddress.of(socketPath));
+            server = channel;
+            Runtime.getRuntime().addShutdownHook(new Thread(this::deleteSocket));
+            workers.execute(this::warmUp);
+            System.err.println("gnash compile server listening on " + socketPath);
+            while (channel.isOpen()) {
+                SocketChannel client;
+                try {
+                    client = channel.accept();
+                } catch (ClosedChannelException e) {
+                    // Closed by !shutdown, possibly between isOpen() and accept().
+                    break;
+                }
+                workers.execute(() -> handle(client));
+            }
+        } finally {
+            workers.shutdownNow();
+            deleteSocket();
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client;
+             BufferedReader in = new BufferedReader(Channels.newReader(client, StandardCharsets.UTF_8));
+             Writer out = Channels.newWriter(client, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null && !line.isEmpty()) {
+                if (SHUTDOWN.equals(line)) {
+                    out.write("ok\tshutdown\n");
+                    out.flush();
+                    server.close();
+                    return;
+                }
+                respond(line, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("gnash compile server: " + e.getMessage());
+        }
+    }
+
+    private void respond(String request, Writer out) throws IOException {
+        int tab = request.indexOf('\t');
+        if (tab < 0) {
+            out.write("fail\texpected <source>\\t<output>\n");
+            return;
+        }
+        Path source = Path.of(request.substring(0, tab));
+        Path target = Path.of(request.substring(tab + 1));
+        if (!source.isAbsolute() || !target.isAbsolute()) {
+            out.write("fail\tpaths must be absolute\n");
+            return;
+        }
+
+        DiagnosticCollector diagnostics = new DiagnosticCollector();
+        String failure = null;
+        try {
+            GnashCompiler.compileFile(source, target, cache, runtime, config, diagnostics);
+        } catch (IOException | RuntimeException e) {
+            failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        for (String message : diagnostics.messages()) {
+            out.write("diag\t" + source + ": " + message + "\n");
+        }
+        if (failure != null) {
+            out.write("fail\t" + source + ": " + failure.replace('\n', ' ') + "\n");
+        } else {
+            out.write("ok\t" + target + "\n");
+        }
+    }
+
+    // Primes the parser's prediction caches and lets the JIT compile the hot
+    // generator paths before the first real request arrives. A shutdown
+    // interrupts it, which closes the channel the generator writes to.
+    private void warmUp() {
+        Path name = Path.of("Warmup.gnash");
+        try {
+            for (int i = 0; i < WARMUP_ROUNDS && !Thread.currentThread().isInterrupted(); i++) {
+                GnashCompiler.compile(CharStreams.fromString(WARMUP_SOURCE, name.toString()),
+                        name, new DiagnosticCollector());
+            }
+        } catch (UncheckedIOException e) {
+            if (!(e.getCause() instanceof ClosedByInterruptException)) {
+                throw e;
+            }
+        }
+    }
+
+    private void deleteSocket() {
+        try {
+            Files.deleteIfExists(socketPath);
+        } catch (IOException ignored) {
+            // Best effort; a stale socket is removed on the next start.
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package dev.gnash.compiler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command-line options accepted by {@link GnashCompiler}. Positional arguments
+ * are kept in order so that each mode can validate its own arity.
+ */
+final class CompilerOptions {
+
+    static final String USAGE = String.join("\n",
+            "usage: GnashCompiler [options] <source.gnash> <output.sh>",
+            "       GnashCompiler --batch [options] <source-root> <output-root>",
+            "       GnashCompiler --serve <socket-path>",
+            "       GnashCompiler --run-steps [options] <source-root> <output-root>",
+            "",
+            "options:",
+            "  --jobs N        number of worker threads used by --batch and --run-steps (default: available processors)",
+            "  --cache-dir D   location of the incremental build cache (default: target/gnash-cache)",
+            "  --no-cache      always regenerate output instead of consulting the build cache",
+            "  --shared-runtime D  write the Bash runtime once to D/gnash-runtime-<hash>.sh and source it from scripts",
+            "  --bake-config F  fold Config lookups with literal paths against F (.rc or .groovy); repeat to layer overrides",
+            "  --profile-parser R  parse with ANTLR's profiler and write a per-decision report to R",
+            "  --manifest F    with --run-steps, read step metadata from F as well as from the step sources");
+
+    boolean batch;
+    boolean serve;
+    boolean runSteps;
+    int jobs = Runtime.getRuntime().availableProcessors();
+    boolean useCache = true;
+    Path cacheDirectory = BuildCache.DEFAULT_DIRECTORY;
+    Path profileReport;
+    Path sharedRuntimeDirectory;
+    Path manifest;
+    final List<Path> bakedConfigFiles = new ArrayList<>();
+    final List<String> positional = new ArrayList<>();
+
+    static CompilerOptions parse(String[] args) {
+        CompilerOptions options = new CompilerOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--batch":
+                    options.batch = true;
+                    break;
+                case "--serve":
+                    options.serve = true;
+                    break;
+                case "--run-steps":
+                    options.runSteps = true;
+                    break;
+                case "--manifest":
+                    options.manifest = Path.of(requireValue(args, ++i, arg));
+                    break;
+                case "--jobs":
+                    options.jobs = parsePositiveInt(arg, requireValue(args, ++i, arg));
+                    break;
+                case "--cache-dir":
+                    options.cacheDirectory = Path.of(requireValue(args, ++i, arg));
+                    break;
+                case "--no-cache":
+                    options.useCache = false;
+                    break;
+                case "--shared-runtime":
+                    options.sharedRuntimeDirectory = Path.of(requireValue(args, ++i, arg));
+                    break;
+                case "--bake-config":
+                    options.bakedConfigFiles.add(Path.of(requireValue(args, ++i, arg)));
+                    break;
+                case "--profile-parser":
+                    options.profileReport = Path.of(requireValue(args, ++i, arg));
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("unknown option: " + arg);
+                    }
+                    options.positional.add(arg);
+                    break;
+            }
+        }
+        if (options.profileReport != null && (options.batch || options.serve || options.runSteps)) {
+            throw new IllegalArgumentException("--profile-parser only applies to single-file compilation");
+        }
+        if (options.runSteps && (options.batch || options.serve)) {
+            throw new IllegalArgumentException("--run-steps cannot be combined with --batch or --serve");
+        }
+        if (options.manifest != null && !options.runSteps) {
+            throw new IllegalArgumentException("--manifest only applies to --run-steps");
+        }
+        if (options.serve) {
+            if (options.batch) {
+                throw new IllegalArgumentException("--serve cannot be combined with --batch");
+            }
+            if (options.positional.size() != 1) {
+                throw new IllegalArgumentException("--serve expects a socket path");
+            }
+        } else if (options.positional.size() != 2) {
+            throw new IllegalArgumentException("expected two positional arguments");
+        }
+        return options;
+    }
+
+    BuildCache cache() {
+        return useCache ? new BuildCache(cacheDirectory) : null;
+    }
+
+    SharedRuntime sharedRuntime() {
+        return sharedRuntimeDirectory == null ? null : new SharedRuntime(sharedRuntimeDirectory);
+    }
+
+    BakedConfig bakedConfig() throws IOException {
+        return bakedConfigFiles.isEmpty() ? null : BakedConfig.load(bakedConfigFiles);
+    }
+
+    Path socket() {
+        return Path.of(positional.get(0));
+    }
+
+    Path source() {
+        return Path.of(positional.get(0));
+    }
+
+    Path target() {
+        return Path.of(positional.get(1));
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int parsePositiveInt(String option, String value) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 1) {
+                throw new IllegalArgumentException(option + " must be at least 1");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a number: " + value);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package dev.gnash.compiler;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Buffers lexer and parser errors for a single compilation unit instead of
+ * printing them straight to stderr, so that callers compiling several units
+ * concurrently can report diagnostics in a stable order.
+ */
+final class DiagnosticCollector extends BaseErrorListener {
+
+    private final List<String> messages = new ArrayList<>();
+
+    @Override
+    public void syntaxError(Recognizer<?, ?> recognizer,
+                            Object offendingSymbol,
+                            int line,
+                            int charPositionInLine,
+                            String msg,
+                            RecognitionException e) {
+        // Mirrors ConsoleErrorListener so batch output reads like single-file output.
+        messages.add("line " + line + ":" + charPositionInLine + " " + msg);
+    }
+
+    List<String> messages() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    boolean isEmpty() {
+        return messages.isEmpty();
+    }
+}
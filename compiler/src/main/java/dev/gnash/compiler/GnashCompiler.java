@@ -2,42 +2,242 @@ package dev.gnash.compiler;
 
 import dev.gnash.antlr.GnashLexer;
 import dev.gnash.antlr.GnashParser;
+import org.antlr.v4.runtime.ANTLRErrorListener;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Entry point for the Gnash-to-Bash compiler. This proof-of-concept wires
  * together the generated ANTLR4 lexer + parser with a simple emitter that
  * demonstrates how Bash output could be produced from the parse tree.
+ * <p>
+ * Besides the single-file form, {@code --batch} compiles a whole source tree
+ * (for example {@code src/gnash}) from one JVM; see {@link BatchCompiler}.
+ * {@code --serve} keeps a warm compiler behind a Unix-domain socket; see
+ * {@link CompileServer}. Every mode goes through the content-addressed
+ * {@link BuildCache} unless {@code --no-cache} is given, and
+ * {@code --shared-runtime} links scripts against a {@link SharedRuntime}
+ * instead of inlining the Bash helpers. {@code --bake-config} folds config
+ * lookups into a host-specific build; see {@link BakedConfig}.
+ * {@code --run-steps} runs the steps of a compiled tree, independent ones in
+ * parallel; see {@link StepOrchestrator}.
+ * <p>
+ * Imports are resolved by the {@link Linker}; a unit that calls a function no
+ * module defines fails to compile. Imported modules are parsed once per JVM.
  */
 public final class GnashCompiler {
 
+    private static final ModuleLoader MODULES = new ModuleLoader();
+
     public static void main(String[] args) throws IOException {
-        if (args.length != 2) {
-            System.err.println("usage: GnashCompiler <source.gnash> <output.sh>");
+        CompilerOptions options;
+        try {
+            options = CompilerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.err.println(CompilerOptions.USAGE);
             System.exit(2);
+            return;
         }
 
-        Path source = Path.of(args[0]);
-        Path target = Path.of(args[1]);
+        if (options.runSteps) {
+            int status;
+            try {
+                status = new StepOrchestrator(options.jobs).runSteps(options.source(), options.target(), options.manifest);
+            } catch (IOException e) {
+                System.err.println("error: " + e.getMessage());
+                status = 1;
+            }
+            System.exit(status);
+            return;
+        }
 
-        CharStream input = CharStreams.fromPath(source);
-        GnashLexer lexer = new GnashLexer(input);
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        GnashParser parser = new GnashParser(tokens);
+        BuildCache cache = options.cache();
+        SharedRuntime runtime = options.sharedRuntime();
+        BakedConfig config;
+        try {
+            config = options.bakedConfig();
+        } catch (IOException e) {
+            System.err.println("error: cannot bake config: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (runtime != null) {
+            runtime.install();
+        }
+
+        if (options.serve) {
+            new CompileServer(options.socket(), cache, runtime, config).serve();
+            return;
+        }
+
+        if (options.batch) {
+            BatchCompiler batch = new BatchCompiler(options.jobs, cache, runtime, config);
+            int failures = batch.compileTree(options.source(), options.target());
+            if (failures > 0) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        Path source = options.source();
+        Path target = options.target();
+
+        DiagnosticCollector diagnostics = new DiagnosticCollector();
+        int status = 0;
+        try {
+            if (options.profileReport != null) {
+                profileFile(source, target, options.profileReport, runtime, config, diagnostics);
+            } else {
+                compileFile(source, target, cache, runtime, config, diagnostics);
+            }
+        } catch (LinkException e) {
+            for (String problem : e.problems()) {
+                System.err.println("error: " + problem);
+            }
+            status = 1;
+        } finally {
+            for (String message : diagnostics.messages()) {
+                System.err.println(message);
+            }
+        }
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Compiles {@code source} into {@code target}, consulting {@code cache}
+     * first when one is configured. Runnable scripts source {@code runtime}
+     * when one is given and inline the runtime otherwise. A non-null
+     * {@code config} is baked in; see {@link BakedConfig}. Generated Bash is
+     * streamed into a scratch file next to the target, and the target is only
+     * replaced when its content changes.
+     *
+     * @return {@code true} when the output was served from the cache
+     */
+    static boolean compileFile(Path source,
+                               Path target,
+                               BuildCache cache,
+                               SharedRuntime runtime,
+                               BakedConfig config,
+                               DiagnosticCollector diagnostics) throws IOException {
+        byte[] sourceBytes = Files.readAllBytes(source);
+        String text = new String(sourceBytes, StandardCharsets.UTF_8);
+        String runtimeReference = runtime == null ? null : runtime.referenceFrom(target);
+        String key = null;
+        if (cache != null) {
+            // The header names the source file, so equal sources with different
+            // names must not share an entry.
+            String variant = source.getFileName()
+                    + "\n" + (runtimeReference == null ? "" : runtimeReference)
+                    + "\n" + ModuleLoader.importsFingerprint(source, text)
+                    + (config == null ? "" : "\n" + config.fingerprint());
+            key = cache.key(sourceBytes, variant);
+            byte[] cached = cache.lookup(key);
+            if (cached != null) {
+                BuildCache.writeIfChanged(target, cached);
+                return true;
+            }
+        }
 
-        ParseTree tree = parser.compilationUnit();
+        CharStream input = CharStreams.fromString(text, source.toString());
+        Path scratch = BuildCache.scratchFile(target);
+        try {
+            try (FileChannel channel = FileChannel.open(scratch, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                compile(input, source, diagnostics, runtimeReference, config, channel);
+            }
+            if (cache != null && diagnostics.isEmpty()) {
+                cache.store(key, scratch);
+            }
+            BuildCache.moveIfChanged(scratch, target);
+        } finally {
+            Files.deleteIfExists(scratch);
+        }
+        return false;
+    }
 
-        GnashToBashGenerator generator = new GnashToBashGenerator();
-        String bash = generator.generate(tree, source);
+    /**
+     * Lexes, parses and generates Bash for a single source file. When
+     * {@code errors} is {@code null} syntax errors are reported through
+     * ANTLR's default console listener.
+     */
+    static String compile(CharStream input, Path source, ANTLRErrorListener errors) {
+        return new GnashToBashGenerator(null, MODULES).generate(parse(input, errors), source);
+    }
 
-        Files.createDirectories(target.getParent());
-        Files.writeString(target, bash);
+    /**
+     * As {@link #compile(CharStream, Path, ANTLRErrorListener)}, streaming the
+     * Bash into {@code output}. A non-null {@code runtimeReference} links a
+     * runnable script against the shared runtime at that relative path, and a
+     * non-null {@code config} is baked in.
+     */
+    static void compile(CharStream input,
+                        Path source,
+                        ANTLRErrorListener errors,
+                        String runtimeReference,
+                        BakedConfig config,
+                        WritableByteChannel output) throws IOException {
+        new GnashToBashGenerator(runtimeReference, MODULES, config).generate(parse(input, errors), source, output);
+    }
+
+    /**
+     * Compiles {@code source} with the parser running under ANTLR's profiling
+     * simulator and writes the per-decision report next to the output. The
+     * build cache is bypassed because a hit would skip the parse entirely.
+     */
+    static void profileFile(Path source,
+                            Path target,
+                            Path report,
+                            SharedRuntime runtime,
+                            BakedConfig config,
+                            DiagnosticCollector diagnostics) throws IOException {
+        ParserProfiler profiler = new ParserProfiler(newParser(CharStreams.fromPath(source), diagnostics));
+        ParseTree tree = profiler.parse();
+        String runtimeReference = runtime == null ? null : runtime.referenceFrom(target);
+        String bash = new GnashToBashGenerator(runtimeReference, MODULES, config).generate(tree, source);
+        BuildCache.writeIfChanged(target, bash.getBytes(StandardCharsets.UTF_8));
+        profiler.writeReport(report, source);
+    }
+
+    /**
+     * Parses an imported module. Syntax errors are fatal here: the importing
+     * unit cannot be linked against a module that does not parse.
+     */
+    static Ir.Unit parseModule(Path source) throws IOException {
+        DiagnosticCollector diagnostics = new DiagnosticCollector();
+        Ir.Unit unit = parse(CharStreams.fromPath(source, StandardCharsets.UTF_8), diagnostics);
+        if (!diagnostics.isEmpty()) {
+            throw new IOException(source + ": " + diagnostics.messages().get(0));
+        }
+        return unit;
+    }
+
+    private static Ir.Unit parse(CharStream input, ANTLRErrorListener errors) {
+        GnashParser parser = newParser(input, errors);
+        return IrLowering.lower(TwoStageParser.compilationUnit(parser));
+    }
+
+    private static GnashParser newParser(CharStream input, ANTLRErrorListener errors) {
+        GnashLexer lexer = new GnashLexer(input);
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        GnashParser parser = new GnashParser(tokens);
+        if (errors != null) {
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(errors);
+            parser.removeErrorListeners();
+            parser.addErrorListener(errors);
+        }
+        return parser;
     }
 }
@@ -1,42 +1,38 @@
 package dev.gnash.compiler;
 
-import dev.gnash.antlr.GnashBaseVisitor;
-import dev.gnash.antlr.GnashParser;
 import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.TerminalNode;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.StringJoiner;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * A minimal parse-tree visitor that demonstrates how Gnash source could be
- * transformed into Bash. For now this simply records high-level structure and
- * emits a stub shell script so that the parser integration can be validated.
+ * Emits Bash for a Gnash compilation unit. The parse tree is first lowered to
+ * {@link Ir} by {@link IrLowering}; every renderer below works off that IR, so
+ * each expression is inspected once per question asked of it rather than by
+ * re-descending the full precedence chain of parse-tree contexts.
  * <p>
- * Future iterations can replace the stub emission logic with a full code
- * generator that mirrors the behaviour of the reference Bash output found
- * under build/app.
+ * Future iterations can extend the emission logic so that it mirrors the
+ * behaviour of the reference Bash output found under build/app.
  */
-final class GnashToBashGenerator extends GnashBaseVisitor<Void> {
-
-    private static final class FunctionInfo {
-        final String name;
-        final List<String> parameters;
-        final GnashParser.BlockContext body;
-
-        FunctionInfo(String name, List<String> parameters, GnashParser.BlockContext body) {
-            this.name = name;
-            this.parameters = parameters;
-            this.body = body;
-        }
-    }
+final class GnashToBashGenerator {
 
     private static final class Condition {
         final String text;
@@ -49,10 +45,10 @@ final class GnashToBashGenerator extends GnashBaseVisitor<Void> {
             if (text.startsWith("!")) {
                 return new Condition(text.substring(1).trim());
             }
-            if (text.startsWith("[[") || text.startsWith("[")) {
+            if (text.startsWith("[[") || text.startsWith("[") || text.startsWith("((") || text.startsWith("{")) {
                 return new Condition("! " + text);
             }
-            if (text.startsWith("__gnash") || text.startsWith("echo") || text.startsWith("$(")) {
+            if (text.startsWith("__gnash") || text.startsWith("gnash_fn_") || text.startsWith("echo") || text.startsWith("$(")) {
                 return new Condition("! " + text);
             }
             return new Condition("! (" + text + ")");
@@ -65,23 +61,133 @@ final class GnashToBashGenerator extends GnashBaseVisitor<Void> {
         Condition combine(Condition other, String operator) {
             return new Condition(this.text + " " + operator + " " + other.text);
         }
+
+        /**
+         * This condition as one command. Bash chains {@code &&} and {@code ||}
+         * left to right at equal precedence, so a compound test on the right of
+         * either, or under {@code !}, needs braces to keep the source grouping.
+         */
+        Condition grouped() {
+            return new Condition("{ " + text + "; }");
+        }
     }
 
     private static final class Call {
+        final Ir.Call node;
         final String target;
         final List<String> args;
 
-        Call(String target, List<String> args) {
-            this.target = target;
+        Call(Ir.Call node, List<String> args) {
+            this.node = node;
+            this.target = node.target;
             this.args = args;
         }
     }
 
-    private final List<FunctionInfo> functions = new ArrayList<>();
-    private final List<GnashParser.ExpressionStatementContext> globalStatements = new ArrayList<>();
+    /**
+     * A construct around the statement being rendered that a return, or a
+     * jump to a loop around it, cannot leave directly: a streaming loop,
+     * whose descriptor is closed and whose command is reaped first, or the
+     * body or catch of a try with a finally block, which is left through its
+     * own loop so that the finally block runs before the jump is made.
+     */
+    private static final class Frame {
+        /** The size of {@link #loops} inside the construct. */
+        final int depth;
+        /** For a streaming loop, the command that closes it; otherwise {@code null}. */
+        final String close;
+        /**
+         * For a try, the variable holding the jump left pending: {@code break},
+         * {@code continue}, or the status to return with.
+         */
+        final String pending;
+        /** The kinds of jump left pending, shared by the body and catch of one try. */
+        final Set<String> jumps;
+
+        Frame(int depth, String close, String pending, Set<String> jumps) {
+            this.depth = depth;
+            this.close = close;
+            this.pending = pending;
+            this.jumps = jumps;
+        }
+    }
+
+    /**
+     * Revision of the emitted Bash. Bump whenever a generator change alters the
+     * output for unchanged sources so that {@link BuildCache} entries are retired.
+     */
+    static final int VERSION = 29;
+
+    /** Path of the shared runtime relative to the generated script, or {@code null} to inline it. */
+    private final String runtimeReference;
+    private final ModuleLoader modules;
+    /** Config fixed at compile time by {@code --bake-config}, or {@code null} to resolve it at run time. */
+    private final BakedConfig config;
     private int tempCounter = 0;
-
-    private static final String SUPPORT_FUNCTIONS = """
+    private Linker linker;
+    /** Module whose code is being rendered; calls resolve against its functions and imports. */
+    private Module currentModule;
+    private IrOptimizer optimizer;
+    /** Result and parameter kinds of the unit's functions. */
+    private Signatures signatures;
+    /** The kinds of the values in the code being rendered. */
+    private ValueKinds kinds;
+    /** Whether no caller reads the value of the function being rendered, so returns skip storing it. */
+    private boolean resultDiscarded;
+    /** Whether a function is being rendered rather than global statements, which leave by {@code exit}. */
+    private boolean inFunction;
+    /** Memo of {@link #mayThrow}, by the function called. */
+    private final Map<Ir.Function, Boolean> throwing = new HashMap<>();
+    /**
+     * Calls that must run before the statement being rendered, each leaving its
+     * result in a {@code __gnash_tmpN} out-variable. {@code null} where the
+     * value is evaluated conditionally ({@code elif} tests, the right side of
+     * {@code &&}/{@code ||}) and calls fall back to command substitution.
+     */
+    private List<String> hoisted;
+    /**
+     * Whether hoisted out-variables are declared {@code local}: in functions
+     * that cannot be reentered before they return. See {@link #reentrant}.
+     */
+    private boolean localTemps;
+    /** The loops around the statement being rendered, innermost first; {@code true} for a try's own. */
+    private final Deque<Boolean> loops = new ArrayDeque<>();
+    /**
+     * The status variable of the innermost try whose body is being rendered,
+     * {@code null} outside try bodies. A command failing there stores its
+     * status and breaks out of the try's loop instead of tripping errexit.
+     */
+    private String tryStatus;
+    /** The size of {@link #loops} inside the innermost try's own loop. */
+    private int tryDepth;
+    /**
+     * The streaming loops and the trys with a finally block around the
+     * statement being rendered, innermost first. A return, a throw, or a
+     * failure leaving a try around a streaming loop closes it on the way out;
+     * a return or loop jump out of a try body or catch waits for the finally
+     * block.
+     */
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    GnashToBashGenerator() {
+        this(null);
+    }
+
+    GnashToBashGenerator(String runtimeReference) {
+        this(runtimeReference, new ModuleLoader());
+    }
+
+    GnashToBashGenerator(String runtimeReference, ModuleLoader modules) {
+        this(runtimeReference, modules, null);
+    }
+
+    GnashToBashGenerator(String runtimeReference, ModuleLoader modules, BakedConfig config) {
+        this.runtimeReference = runtimeReference;
+        this.modules = modules;
+        this.config = config;
+    }
+
+    static final String SUPPORT_FUNCTIONS = """
 __gnash_die() {
   trap - ERR
   printf 'error: %s\\n' "$*" >&2
@@ -108,6 +214,10 @@ __gnash_trap_err() {
 
 trap '__gnash_trap_err' ERR
 
+# The value of the last throw, read back by the catch of a try. A command that
+# fails without throwing leaves it empty, and the catch gets its status instead.
+__GNASH_ERROR=""
+
 __gnash_bool_truthy() {
   local value="${1:-}"
   case "${value,,}" in
@@ -126,74 +236,147 @@ __gnash_bool_falsey() {
   return 0
 }
 
-__gnash_promote_assoc_locals() {
-  local -n __gnash_seen_ref="$1"
-  local __gnash_var=""
-  while IFS= read -r __gnash_var; do
-    [[ "$__gnash_var" == __gnash_* ]] && continue
-    [[ "$__gnash_var" == BASH_* ]] && continue
-    local __gnash_decl
-    __gnash_decl=$(declare -p "$__gnash_var" 2>/dev/null) || continue
-    [[ "$__gnash_decl" == "declare -A "* ]] || continue
-    local __gnash_found=0
-    for existing in "${__gnash_seen_ref[@]}"; do
-      if [[ "$existing" == "$__gnash_var" ]]; then
-        __gnash_found=1
-        break
-      fi
-    done
-    if (( !__gnash_found )); then
-      __gnash_decl=${__gnash_decl/#declare -A /declare -gA }
-      eval "$__gnash_decl"
-      __gnash_seen_ref+=("$__gnash_var")
+# Fills the array named first with the names of the shell variables other than
+# the runtime's own, or only the arrays when the second argument is arrayvar.
+# One compgen read lists them all; ${!prefix@} per letter rescans every variable
+# each time and is slower once the environment is large.
+__gnash_variable_names() {
+  local -n __gnash_names_ref="$1"
+  local -a __gnash_all=()
+  mapfile -t __gnash_all < <(compgen -A "${2:-variable}")
+  __gnash_names_ref=()
+  local __gnash_name
+  for __gnash_name in "${__gnash_all[@]}"; do
+    [[ "$__gnash_name" == __gnash_* || "$__gnash_name" == __GNASH_* ]] && continue
+    __gnash_names_ref+=("$__gnash_name")
+  done
+}
+
+# Adds the names of the associative arrays in scope to the set named first.
+__gnash_assoc_names() {
+  local -n __gnash_assoc_ref="$1"
+  # ${var@a} trips nounset on variables declared without a value.
+  local -
+  set +u
+  local -a __gnash_names=()
+  local __gnash_name
+  __gnash_variable_names __gnash_names arrayvar
+  for __gnash_name in "${__gnash_names[@]}"; do
+    local -n __gnash_var="$__gnash_name"
+    if [[ "${__gnash_var@a}" == *A* ]]; then
+      __gnash_assoc_ref["$__gnash_name"]=1
     fi
-  done < <(compgen -A variable)
+  done
 }
 
+# A `declare -A` in an RC file sourced by __gnash_load_rc makes a local of that
+# function. Copies the associative arrays missing from the set named first,
+# taken before sourcing, to global scope.
+__gnash_promote_assoc_locals() {
+  local -n __gnash_before_ref="$1"
+  local -A __gnash_after=()
+  __gnash_assoc_names __gnash_after
+  local __gnash_name __gnash_decl
+  for __gnash_name in "${!__gnash_after[@]}"; do
+    [[ -n "${__gnash_before_ref[$__gnash_name]+_}" ]] && continue
+    local -n __gnash_var="$__gnash_name"
+    __gnash_decl="${__gnash_var[@]@A}"
+    [[ "$__gnash_decl" == *=* ]] || __gnash_decl+="=()"
+    eval "${__gnash_decl/#declare -/declare -g}"
+  done
+}
+
+# Sources $GNASH_RC_OVERRIDE or $GNASH_RC, else the first readable of
+# ./.gnashrc, ~/.gnashrc and /etc/gnashrc, unless GNASH_NO_RC=1.
 __gnash_load_rc() {
   if [[ "${GNASH_NO_RC:-0}" == "1" ]]; then
-    return
+    return 0
   fi
 
-  local -a __gnash_assoc_seen=()
-  local __gnash_existing=""
-  while IFS= read -r __gnash_existing; do
-    local __gnash_decl
-    __gnash_decl=$(declare -p "$__gnash_existing" 2>/dev/null) || continue
-    [[ "$__gnash_decl" == "declare -A "* ]] || continue
-    __gnash_assoc_seen+=("$__gnash_existing")
-  done < <(compgen -A variable)
-
-  local override="${GNASH_RC_OVERRIDE:-${GNASH_RC:-}}"
-  if [[ -n "$override" ]]; then
-    if [[ -r "$override" ]]; then
-      # shellcheck disable=SC1090
-      source "$override"
-      __gnash_promote_assoc_locals __gnash_assoc_seen
-    else
-      __gnash_die "RC override '$override' not readable"
+  local __gnash_rc="${GNASH_RC_OVERRIDE:-${GNASH_RC:-}}"
+  if [[ -n "$__gnash_rc" ]]; then
+    if [[ ! -r "$__gnash_rc" ]]; then
+      __gnash_die "RC override '$__gnash_rc' not readable"
+    fi
+  else
+    local __gnash_candidate
+    for __gnash_candidate in "./.gnashrc" "$HOME/.gnashrc" "/etc/gnashrc"; do
+      if [[ -r "$__gnash_candidate" ]]; then
+        __gnash_rc="$__gnash_candidate"
+        break
+      fi
+    done
+    if [[ -z "$__gnash_rc" ]]; then
+      return 0
     fi
-    return
   fi
 
-  local candidates=(
-    "./.gnashrc"
-    "$HOME/.gnashrc"
-    "/etc/gnashrc"
-  )
-  local rc=
-  for candidate in "${candidates[@]}"; do
-    if [[ -r "$candidate" ]]; then
-      rc="$candidate"
-      break
-    fi
-  done
+  local -A __gnash_assoc_seen=()
+  __gnash_assoc_names __gnash_assoc_seen
+  # shellcheck disable=SC1090
+  source "$__gnash_rc"
+  __gnash_promote_assoc_locals __gnash_assoc_seen
+  __GNASH_CONFIG_INDEXED=0
+}
 
-  if [[ -n "$rc" ]]; then
-    # shellcheck disable=SC1090
-    source "$rc"
-    __gnash_promote_assoc_locals __gnash_assoc_seen
-  fi
+# Config paths are answered from an index built once from the shell variables:
+# __GNASH_CONFIG_KIND maps a dotted path to scalar or list and
+# __GNASH_CONFIG_REF to the variable behind it, read through ${!ref}. A step
+# map entry steps.<step>.<key> refers to <step>[<key>]; the arrays and scalars
+# <step>_<field> index as steps.<step>.<field>, which is how dots in a field are
+# folded to underscores; every scalar is also a global under its own name. The
+# index is built on first use and again after an RC file is loaded.
+declare -gA __GNASH_CONFIG_KIND=()
+declare -gA __GNASH_CONFIG_REF=()
+__GNASH_CONFIG_INDEXED=0
+
+__gnash_config_index() {
+  __GNASH_CONFIG_KIND=()
+  __GNASH_CONFIG_REF=()
+  __GNASH_CONFIG_INDEXED=1
+  # ${var@a} trips nounset on variables declared without a value.
+  local -
+  set +u
+  local -a __gnash_names=()
+  __gnash_variable_names __gnash_names
+  local -a __gnash_maps=()
+  local __gnash_name __gnash_kind __gnash_step __gnash_rest __gnash_key
+  for __gnash_name in "${__gnash_names[@]}"; do
+    local -n __gnash_var="$__gnash_name"
+    case "${__gnash_var@a}" in
+      *A*)
+        __gnash_maps+=("$__gnash_name")
+        continue
+        ;;
+      *a*)
+        __gnash_kind=list
+        ;;
+      *)
+        __gnash_kind=scalar
+        __GNASH_CONFIG_KIND["$__gnash_name"]=scalar
+        __GNASH_CONFIG_REF["$__gnash_name"]="$__gnash_name"
+        ;;
+    esac
+    __gnash_step="${__gnash_name%%_*}"
+    __gnash_rest="${__gnash_name#*_}"
+    while [[ "$__gnash_step" != "$__gnash_name" ]]; do
+      if [[ -n "$__gnash_step" && -n "$__gnash_rest" ]]; then
+        __GNASH_CONFIG_KIND["steps.${__gnash_step}.${__gnash_rest}"]="$__gnash_kind"
+        __GNASH_CONFIG_REF["steps.${__gnash_step}.${__gnash_rest}"]="$__gnash_name"
+      fi
+      [[ "$__gnash_rest" == *_* ]] || break
+      __gnash_step+="_${__gnash_rest%%_*}"
+      __gnash_rest="${__gnash_rest#*_}"
+    done
+  done
+  # Map entries go last: they take precedence over <step>_<field> variables.
+  for __gnash_name in "${__gnash_maps[@]}"; do
+    local -n __gnash_map="$__gnash_name"
+    for __gnash_key in "${!__gnash_map[@]}"; do
+      __GNASH_CONFIG_KIND["steps.${__gnash_name}.${__gnash_key}"]=scalar
+      __GNASH_CONFIG_REF["steps.${__gnash_name}.${__gnash_key}"]="${__gnash_name}[${__gnash_key}]"
+    done
+  done
 }
 
 __gnash_config_resolve() {
@@ -202,107 +385,44 @@ __gnash_config_resolve() {
   if [[ -z "$__gnash_dest" || -z "$path" ]]; then
     return 1
   fi
-
-  local root="${path%%.*}"
-  local remainder=""
-  if [[ "$path" == "$root" ]]; then
-    remainder=""
-  else
-    remainder="${path#${root}.}"
+  if (( !__GNASH_CONFIG_INDEXED )); then
+    __gnash_config_index
   fi
 
-  case "$root" in
-    steps)
-      if __gnash_config_resolve_step "$__gnash_dest" "$remainder"; then
-        return 0
+  local key="$path"
+  local field=""
+  case "$path" in
+    steps.*.?*)
+      field="${path#steps.*.}"
+      if [[ -z "${__GNASH_CONFIG_KIND[$key]+_}" ]]; then
+        key="${path%"$field"}${field//./_}"
       fi
       ;;
-    globals)
-      if __gnash_config_resolve_global "$__gnash_dest" "$remainder"; then
-        return 0
-      fi
+    steps.*)
+      return 1
+      ;;
+    globals.*)
+      key="${path#globals.}"
+      key="${key//./_}"
       ;;
     *)
-      if __gnash_config_resolve_global "$__gnash_dest" "$path"; then
-        return 0
-      fi
+      key="${path//./_}"
       ;;
   esac
-  return 1
-}
-
-__gnash_config_resolve_step() {
-  local __gnash_dest="$1"
-  local remainder="${2:-}"
-  if [[ -z "$__gnash_dest" || -z "$remainder" ]]; then
-    return 1
-  fi
-
-  local step="${remainder%%.*}"
-  if [[ -z "$step" ]]; then
-    return 1
-  fi
-
-  local field=""
-  if [[ "$remainder" == "$step" ]]; then
-    field=""
-  else
-    field="${remainder#${step}.}"
-  fi
-  if [[ -z "$field" ]]; then
-    return 1
-  fi
 
-  local assoc="${step}"
-  if declare -p "$assoc" &>/dev/null; then
-    # shellcheck disable=SC2178
-    local -n ref="$assoc"
-    if [[ "$field" == "enabled" && -n "${ref[enabled]+_}" ]]; then
-      printf -v "$__gnash_dest" '%s' "${ref[enabled]}"
-      return 0
-    fi
-    if [[ -n "${ref[$field]+_}" ]]; then
-      printf -v "$__gnash_dest" '%s' "${ref[$field]}"
-      return 0
-    fi
-  fi
-
-  local normalized_field="${field//./_}"
-  local array_name="${step}_${normalized_field}"
-  if declare -p "$array_name" &>/dev/null; then
-    local __gnash_tmp_token=""
-    __gnash_list_from_array __gnash_tmp_token "$array_name"
-    printf -v "$__gnash_dest" '%s' "$__gnash_tmp_token"
+  local ref="${__GNASH_CONFIG_REF[$key]:-}"
+  if [[ "${__GNASH_CONFIG_KIND[$key]:-}" == list ]]; then
+    __gnash_list_from_array "$__gnash_dest" "$ref"
     return 0
   fi
-
-  local var="${step}_${normalized_field}"
-  if [[ -n "${!var+_}" ]]; then
-    printf -v "$__gnash_dest" '%s' "${!var}"
+  if [[ -n "$ref" && -n "${!ref+_}" ]]; then
+    printf -v "$__gnash_dest" '%s' "${!ref}"
     return 0
   fi
-
   if [[ "$field" == "enabled" ]]; then
     printf -v "$__gnash_dest" '%s' "true"
     return 0
   fi
-
-  return 1
-}
-
-__gnash_config_resolve_global() {
-  local __gnash_dest="$1"
-  local key="${2:-}"
-  if [[ -z "$__gnash_dest" || -z "$key" ]]; then
-    return 1
-  fi
-
-  local var="${key//./_}"
-  if [[ -n "${!var+_}" ]]; then
-    printf -v "$__gnash_dest" '%s' "${!var}"
-    return 0
-  fi
-
   return 1
 }
 
@@ -315,6 +435,7 @@ __gnash_config_get() {
   fi
   local __gnash_value=""
   if __gnash_config_resolve "__gnash_value" "$path"; then
+    __gnash_export __gnash_value
     printf '%s' "$__gnash_value"
     return 0
   fi
@@ -356,6 +477,7 @@ __gnash_config_list() {
   if [[ -n "$__gnash_out_var" ]]; then
     printf -v "$__gnash_out_var" '%s' "$__gnash_token"
   else
+    __gnash_export __gnash_token
     printf '%s' "$__gnash_token"
   fi
 }
@@ -452,27 +574,27 @@ __gnash_config_step_boolean() {
   fi
 }
 
+# Lists live in global arrays named __gnash_list_<n>; a list value is the token
+# __gnash_list::<array>. A list built in a subshell dies with it, so one handed
+# back through $(...) travels as __gnash_list::=<items> instead, each item quoted
+# with printf %q by __gnash_export. Those values read like any other list and
+# are copied into an array of their own when they are first modified.
 __GNASH_LIST_PREFIX="__gnash_list::"
-__GNASH_LIST_DIR=""
-__GNASH_LIST_CLEANUP_REGISTERED=0
+__GNASH_LIST_COUNTER=0
+__GNASH_LIST_REF=""
 
-__gnash_list_cleanup() {
-  if [[ -n "$__GNASH_LIST_DIR" && -d "$__GNASH_LIST_DIR" ]]; then
-    rm -rf "$__GNASH_LIST_DIR"
-  fi
-}
-
-__gnash_list_init() {
-  if [[ -n "$__GNASH_LIST_DIR" ]]; then
+__gnash_list_alloc() {
+  local __gnash_alloc_name="__gnash_list_$((++__GNASH_LIST_COUNTER))"
+  declare -ga "$__gnash_alloc_name"
+  local -n __gnash_alloc_items="$__gnash_alloc_name"
+  __gnash_alloc_items=()
+  local __gnash_alloc_token="${__GNASH_LIST_PREFIX}${__gnash_alloc_name}"
+  if (( $# >= 1 )); then
+    printf -v "$1" '%s' "$__gnash_alloc_token"
     return
   fi
-  local dir
-  dir=$(mktemp -d "${TMPDIR:-/tmp}/gnash-list-XXXXXX") || __gnash_die "unable to allocate list storage"
-  __GNASH_LIST_DIR="$dir"
-  if (( BASH_SUBSHELL == 0 )) && (( !__GNASH_LIST_CLEANUP_REGISTERED )); then
-    trap '__gnash_list_cleanup' EXIT
-    __GNASH_LIST_CLEANUP_REGISTERED=1
-  fi
+  __gnash_export __gnash_alloc_token
+  printf '%s' "$__gnash_alloc_token"
 }
 
 __gnash_is_list() {
@@ -485,55 +607,46 @@ __gnash_list_name() {
   if ! __gnash_is_list "$token"; then
     return 1
   fi
-  printf '%s' "${token#$__GNASH_LIST_PREFIX}"
-}
-
-__gnash_list_path() {
-  local token="$1"
-  printf '%s' "${token#$__GNASH_LIST_PREFIX}"
-}
-
-__gnash_list_alloc() {
-  __gnash_list_init
-  local path
-  path=$(mktemp "${__GNASH_LIST_DIR}/list.XXXXXX") || __gnash_die "unable to create list buffer"
-  printf '%s%s' "$__GNASH_LIST_PREFIX" "$path"
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if [[ "$name" == "="* ]]; then
+    return 1
+  fi
+  printf '%s' "$name"
 }
 
 __gnash_list_write() {
   local token="$1"
   shift
-  local path
-  path=$(__gnash_list_path "$token")
-  : >"$path"
-  local item
-  for item in "$@"; do
-    printf '%s\\0' "$item" >>"$path"
-  done
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$token" || [[ "$name" == "="* ]]; then
+    __gnash_die "not a writable list: ${token}"
+  fi
+  local -n write_ref="$name"
+  write_ref=("$@")
 }
 
 __gnash_list_read() {
   local token="$1"
-  local dest="$2"
-  local path
-  path=$(__gnash_list_path "$token")
-  local -n out_ref="$dest"
+  local -n out_ref="$2"
   out_ref=()
-  if [[ ! -f "$path" ]]; then
+  if ! __gnash_is_list "$token"; then
+    return
+  fi
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if [[ "$name" == "="* ]]; then
+    # Only __gnash_export builds these, from printf %q output.
+    eval "out_ref=(${name#=})"
     return
   fi
-  local __gnash_item
-  while IFS= read -r -d '' __gnash_item; do
-    out_ref+=("$__gnash_item")
-  done <"$path"
+  local -n src_ref="$name"
+  out_ref=("${src_ref[@]}")
 }
 
 __gnash_list_from_array() {
   local dest="$1"
-  local src_name="$2"
-  local token
-  token=$(__gnash_list_alloc)
-  local -n src_ref="$src_name"
+  local -n src_ref="$2"
+  local token=""
+  __gnash_list_alloc token
   __gnash_list_write "$token" "${src_ref[@]}"
   printf -v "$dest" '%s' "$token"
 }
@@ -541,17 +654,15 @@ __gnash_list_from_array() {
 __gnash_list_from_value() {
   local dest="$1"
   local value="${2:-}"
-  local token
-  token=$(__gnash_list_alloc)
+  local token=""
+  __gnash_list_alloc token
   if __gnash_is_list "$value"; then
-    local -a __gnash_tmp_values=()
-    __gnash_list_read "$value" "__gnash_tmp_values"
-    __gnash_list_write "$token" "${__gnash_tmp_values[@]}"
+    __gnash_list_read "$value" "${token#$__GNASH_LIST_PREFIX}"
   elif [[ -z "$value" ]]; then
-    __gnash_list_write "$token"
-  elif [[ "$value" == *$'\n'* ]]; then
+    :
+  elif [[ "$value" == *$'\\n'* ]]; then
     local -a __gnash_tmp_split=()
-    IFS=$'\n' read -r -a __gnash_tmp_split <<<"$value"
+    IFS=$'\\n' read -r -a __gnash_tmp_split <<<"$value"
     __gnash_list_write "$token" "${__gnash_tmp_split[@]}"
   else
     __gnash_list_write "$token" "$value"
@@ -571,55 +682,108 @@ __gnash_list_to_array() {
   if [[ -z "$token" ]]; then
     return 0
   fi
-  if [[ "$token" == *$'\n'* ]]; then
-    IFS=$'\n' read -r -a out_ref <<<"$token"
+  if [[ "$token" == *$'\\n'* ]]; then
+    IFS=$'\\n' read -r -a out_ref <<<"$token"
   else
     out_ref=("$token")
   fi
 }
 
-__gnash_list_empty() {
-  local token
-  token=$(__gnash_list_alloc)
-  __gnash_list_write "$token"
-  if (( $# >= 1 )); then
-    printf -v "$1" '%s' "$token"
-    return
+# Points __GNASH_LIST_REF at the array holding the items of a value so that
+# loops can iterate it through a nameref instead of copying it. Values without
+# an array of their own are copied into a new list first.
+__gnash_list_ref() {
+  local value="${1:-}"
+  local name="${value#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$value" || [[ "$name" == "="* ]]; then
+    local __gnash_ref_token=""
+    __gnash_list_from_value __gnash_ref_token "$value"
+    name="${__gnash_ref_token#$__GNASH_LIST_PREFIX}"
   fi
-  printf '%s' "$token"
+  __GNASH_LIST_REF="$name"
+}
+
+# Returns the status of the command a streaming loop read from. A command cut
+# off by SIGPIPE because the loop stopped reading early counts as a success.
+__gnash_stream_wait() {
+  local rc=0
+  wait "$1" || rc=$?
+  if (( rc == 141 )); then
+    rc=0
+  fi
+  return "$rc"
+}
+
+__gnash_list_empty() {
+  __gnash_list_alloc "$@"
 }
 
 __gnash_list_from_values() {
-  local token
-  token=$(__gnash_list_alloc)
+  local token=""
+  __gnash_list_alloc token
   __gnash_list_write "$token" "$@"
+  __gnash_export token
   printf '%s' "$token"
 }
 
+# Builds a list from the remaining arguments into the variable named first.
+__gnash_list_new() {
+  local dest="$1"
+  shift
+  local token=""
+  __gnash_list_alloc token
+  __gnash_list_write "$token" "$@"
+  printf -v "$dest" '%s' "$token"
+}
+
 __gnash_list_append() {
   local token="${1:-}"
   local value="${2:-}"
-  local -a __gnash_items=()
-  __gnash_list_read "$token" "__gnash_items"
-  __gnash_items+=("$value")
-  __gnash_list_write "$token" "${__gnash_items[@]}"
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$token" || [[ "$name" == "="* ]]; then
+    __gnash_die "not a writable list: ${token}"
+  fi
+  local -n append_ref="$name"
+  append_ref+=("$value")
+}
+
+# Appends to the list held in the named variable. A value that is not a list of
+# this shell (a plain string, or a list returned from a subshell) is copied into
+# one first and the variable pointed at it.
+__gnash_list_push() {
+  local -n __gnash_push_ref="$1"
+  local __gnash_push_token="${__gnash_push_ref:-}"
+  local __gnash_push_name="${__gnash_push_token#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$__gnash_push_token" || [[ "$__gnash_push_name" == "="* ]]; then
+    __gnash_list_from_value __gnash_push_token "$__gnash_push_token"
+    __gnash_push_ref="$__gnash_push_token"
+    __gnash_push_name="${__gnash_push_token#$__GNASH_LIST_PREFIX}"
+  fi
+  local -n __gnash_push_items="$__gnash_push_name"
+  __gnash_push_items+=("${2:-}")
 }
 
 __gnash_list_contains() {
   local token="${1:-}"
   local needle="${2:-}"
   if __gnash_is_list "$token"; then
+    local name="${token#$__GNASH_LIST_PREFIX}"
     local -a __gnash_items=()
-    __gnash_list_read "$token" "__gnash_items"
+    if [[ "$name" == "="* ]]; then
+      __gnash_list_read "$token" "__gnash_items"
+      name="__gnash_items"
+    fi
+    local -n contains_ref="$name"
     local item
-    for item in "${__gnash_items[@]}"; do
+    for item in "${contains_ref[@]}"; do
       if [[ "$item" == "$needle" ]]; then
         return 0
       fi
     done
     return 1
   fi
-  [[ "$token" == "$needle" ]] || return 1
+  # Anything else is a string, searched like String.contains.
+  [[ "$token" == *"$needle"* ]] || return 1
 }
 
 __gnash_list_contains_value() {
@@ -683,1100 +847,1790 @@ __gnash_split_csv() {
   printf '%s\\n' "${_GNASH_TMP_VALUES[@]}"
 }
 
-# Packs key/value pairs into a serialized structure string with newline-separated
-# entries. Values containing newlines are base64 encoded so they can be safely
-# transported via command substitution.
-__gnash_struct_pack() {
-  if (( $# % 2 != 0 )); then
-    __gnash_die "__gnash_struct_pack requires key/value pairs"
+# Builtin answers for the commands CommandRewrites recognises, called as
+# `__gnash_fast_<cmd> DEST ARGS || <the command itself>`. Each one stores what
+# the command would print, trailing newlines dropped as by $(...), in the
+# variable named first (none when empty) and succeeds, or returns 1 without
+# side effects when the command would fail or an argument is not a plain word.
+__gnash_fast_word() {
+  [[ -n "${1:-}" && "$1" != -* && "$1" != *[!A-Za-z0-9_./@%+,:=-]* ]]
+}
+
+__gnash_fast_store() {
+  local __gnash_text="$2"
+  while [[ "$__gnash_text" == *$'\\n' ]]; do
+    __gnash_text="${__gnash_text%$'\\n'}"
+  done
+  if [[ -n "$1" ]]; then
+    printf -v "$1" '%s' "$__gnash_text"
+  fi
+}
+
+# test -<op> <path>
+__gnash_fast_test() {
+  __gnash_fast_word "${3:-}" || return 1
+  case "$2" in
+    -e) [[ -e "$3" ]] ;;
+    -f) [[ -f "$3" ]] ;;
+    -d) [[ -d "$3" ]] ;;
+    -r) [[ -r "$3" ]] ;;
+    -w) [[ -w "$3" ]] ;;
+    -x) [[ -x "$3" ]] ;;
+    -s) [[ -s "$3" ]] ;;
+    *) false ;;
+  esac || return 1
+  __gnash_fast_store "$1" ""
+}
+
+# cat <file>. A NUL ends the read early where cat would go on, so files holding
+# one are left to cat.
+__gnash_fast_cat() {
+  __gnash_fast_word "${2:-}" && [[ -f "$2" && -r "$2" ]] || return 1
+  local __gnash_content=""
+  if IFS= read -r -d '' __gnash_content <"$2"; then
+    return 1
+  fi
+  __gnash_fast_store "$1" "$__gnash_content"
+}
+
+# printenv <name>: only exported scalars are in the environment.
+__gnash_fast_printenv() {
+  local __gnash_name="${2:-}"
+  [[ "$__gnash_name" =~ ^[A-Za-z_][A-Za-z0-9_]*$ && "$__gnash_name" != __gnash_* ]] || return 1
+  [[ -v "$__gnash_name" ]] || return 1
+  local __gnash_attrs="${!__gnash_name@a}"
+  [[ "$__gnash_attrs" == *x* && "$__gnash_attrs" != *[aA]* ]] || return 1
+  __gnash_fast_store "$1" "${!__gnash_name}"
+}
+
+# date +%s
+__gnash_fast_epoch() {
+  local __gnash_now
+  printf -v __gnash_now '%(%s)T' -1
+  __gnash_fast_store "$1" "$__gnash_now"
+}
+
+# hostname; Bash reads the same gethostname() into $HOSTNAME at startup.
+__gnash_fast_hostname() {
+  [[ -n "${HOSTNAME:-}" ]] || return 1
+  __gnash_fast_store "$1" "$HOSTNAME"
+}
+
+# id -nG <user> | tr ' ' '\\n' | grep -qx <group>, with one fork instead of
+# three. An exact match is always a match of grep's pattern too.
+__gnash_fast_in_group() {
+  __gnash_fast_word "${2:-}" && __gnash_fast_word "${3:-}" || return 1
+  local __gnash_groups
+  __gnash_groups=$(id -nG "$2" 2>/dev/null) || return 1
+  [[ " ${__gnash_groups} " == *" $3 "* ]] || return 1
+  __gnash_fast_store "$1" ""
+}
+
+# printf <format> <args...> with literal arguments.
+__gnash_fast_printf() {
+  local __gnash_printed
+  printf -v __gnash_printed "${@:2}" 2>/dev/null || return 1
+  __gnash_fast_store "$1" "$__gnash_printed"
+}
+
+# String methods the generator cannot expand in place, called as
+# `__gnash_str_<method> DEST VALUE ARGS`. Each stores its result in the
+# variable named first, or prints it when that is empty.
+__gnash_str_result() {
+  if [[ -n "$1" ]]; then
+    printf -v "$1" '%s' "$2"
+  else
+    printf '%s' "$2"
+  fi
+}
+
+# trim(): drops leading and trailing whitespace.
+__gnash_str_trim() {
+  local __gnash_text="${2:-}"
+  __gnash_text="${__gnash_text#"${__gnash_text%%[![:space:]]*}"}"
+  __gnash_text="${__gnash_text%"${__gnash_text##*[![:space:]]}"}"
+  __gnash_str_result "$1" "$__gnash_text"
+}
+
+# replace(target, replacement): every occurrence, both taken literally.
+__gnash_str_replace() {
+  local __gnash_text="${2:-}"
+  if [[ -n "${3:-}" ]]; then
+    __gnash_text=${__gnash_text//"$3"/"${4:-}"}
+  fi
+  __gnash_str_result "$1" "$__gnash_text"
+}
+
+# substring(begin[, end]): the characters from begin up to end.
+__gnash_str_substring() {
+  local __gnash_text="${2:-}"
+  local -i __gnash_begin="${3:-0}"
+  local -i __gnash_end="${4:-${#__gnash_text}}"
+  if (( __gnash_end < __gnash_begin )); then
+    __gnash_end=__gnash_begin
+  fi
+  __gnash_str_result "$1" "${__gnash_text:__gnash_begin:__gnash_end-__gnash_begin}"
+}
+
+# indexOf(text): the offset of the first occurrence, or -1.
+__gnash_str_index_of() {
+  local __gnash_text="${2:-}"
+  local __gnash_head="${__gnash_text%%"${3:-}"*}"
+  if [[ -n "${3:-}" && "$__gnash_head" == "$__gnash_text" ]]; then
+    __gnash_str_result "$1" -1
+  else
+    __gnash_str_result "$1" "${#__gnash_head}"
+  fi
+}
+
+# a + b where neither side is known to be a string or a number: the sum of
+# two integers, the two run together otherwise.
+__gnash_plus() {
+  if [[ "${2:-}" =~ ^-?(0|[1-9][0-9]*)$ && "${3:-}" =~ ^-?(0|[1-9][0-9]*)$ ]]; then
+    __gnash_str_result "$1" "$(( $2 + $3 ))"
+  else
+    __gnash_str_result "$1" "${2:-}${3:-}"
+  fi
+}
+
+# Maps live in global associative arrays named __gnash_map_<n>; a map value is
+# the token __gnash_map::<array>. Like lists, a map printed from a subshell
+# travels as __gnash_map::=<key value ...>, quoted with printf %q.
+__GNASH_MAP_PREFIX="__gnash_map::"
+__GNASH_MAP_COUNTER=0
+
+__gnash_is_map() {
+  [[ "${1:-}" == "$__GNASH_MAP_PREFIX"* ]]
+}
+
+# Builds a map from the key/value pairs that follow into the variable named first.
+__gnash_map_new() {
+  if (( $# % 2 == 0 )); then
+    __gnash_die "__gnash_map_new requires a destination and key/value pairs"
   fi
+  local __gnash_map_name="__gnash_map_$((++__GNASH_MAP_COUNTER))"
+  declare -gA "$__gnash_map_name"
+  local -n __gnash_map_entries="$__gnash_map_name"
+  __gnash_map_entries=()
+  printf -v "$1" '%s' "${__GNASH_MAP_PREFIX}${__gnash_map_name}"
+  shift
   while (( $# > 0 )); do
-    local key="$1"
-    local value="$2"
+    __gnash_map_entries["$1"]="$2"
     shift 2
-    local encoding="raw"
-    if [[ "$value" == *$'\n'* ]]; then
-      encoding="b64"
-      value=$(printf '%s' "$value" | base64 | tr -d '\\n')
+  done
+}
+
+__gnash_map_from_pairs() {
+  local __gnash_map_token=""
+  __gnash_map_new __gnash_map_token "$@"
+  __gnash_export __gnash_map_token
+  printf '%s' "$__gnash_map_token"
+}
+
+# Stores the value under a key of a map (or an index of a list) in the variable
+# named first; missing entries and non-map values yield the empty string.
+__gnash_map_get() {
+  local __gnash_get_dest="$1"
+  local value="${2:-}"
+  local key="${3:-}"
+  local found=""
+  if __gnash_is_map "$value" && [[ -n "$key" ]]; then
+    local name="${value#$__GNASH_MAP_PREFIX}"
+    if [[ "$name" == "="* ]]; then
+      local -a pairs=()
+      eval "pairs=(${name#=})"
+      local i
+      for (( i = 0; i + 1 < ${#pairs[@]}; i += 2 )); do
+        if [[ "${pairs[i]}" == "$key" ]]; then
+          found="${pairs[i + 1]}"
+        fi
+      done
     else
-      value=$(printf '%s' "$value")
+      local -n entries_ref="$name"
+      found="${entries_ref[$key]-}"
     fi
-    printf '%s=%s:%s\\n' "$key" "$encoding" "$value"
-  done
+  elif __gnash_is_list "$value" && [[ "$key" =~ ^[0-9]+$ ]]; then
+    __gnash_list_ref "$value"
+    local -n items_ref="$__GNASH_LIST_REF"
+    found="${items_ref[key]-}"
+  fi
+  printf -v "$__gnash_get_dest" '%s' "$found"
+}
+
+__gnash_map_get_value() {
+  local __gnash_value=""
+  __gnash_map_get __gnash_value "$@"
+  __gnash_export __gnash_value
+  printf '%s' "$__gnash_value"
 }
 
-# Retrieves a value from a serialized structure emitted by __gnash_struct_pack.
-# When the stored value is base64 encoded it is transparently decoded.
-__gnash_struct_get() {
-  local struct="$1"
-  local key="$2"
-  local line
-  while IFS= read -r line; do
-    if [[ "${line%%=*}" == "$key" ]]; then
-      local rest="${line#*=}"
-      local encoding="${rest%%:*}"
-      local data="${rest#*:}"
-      if [[ "$encoding" == "b64" ]]; then
-        printf '%s' "$data" | base64 --decode
-      else
-        printf '%s' "$data"
+__gnash_map_contains() {
+  local value="${1:-}"
+  local key="${2:-}"
+  if ! __gnash_is_map "$value" || [[ -z "$key" ]]; then
+    return 1
+  fi
+  local name="${value#$__GNASH_MAP_PREFIX}"
+  if [[ "$name" == "="* ]]; then
+    local -a pairs=()
+    eval "pairs=(${name#=})"
+    local i
+    for (( i = 0; i < ${#pairs[@]}; i += 2 )); do
+      if [[ "${pairs[i]}" == "$key" ]]; then
+        return 0
       fi
-      return 0
+    done
+    return 1
+  fi
+  local -n entries_ref="$name"
+  [[ -n "${entries_ref[$key]+_}" ]]
+}
+
+# Stores the number of items of a list, or of entries of a map, in the variable
+# named first, or prints it when that is empty.
+__gnash_size() {
+  local value="${2:-}"
+  local count=0
+  if __gnash_is_map "$value"; then
+    local name="${value#$__GNASH_MAP_PREFIX}"
+    if [[ "$name" == "="* ]]; then
+      local -a pairs=()
+      eval "pairs=(${name#=})"
+      count=$(( ${#pairs[@]} / 2 ))
+    else
+      local -n entries_ref="$name"
+      count=${#entries_ref[@]}
     fi
-  done <<<"$struct"
-  return 1
+  elif [[ -n "$value" ]]; then
+    __gnash_list_ref "$value"
+    local -n items_ref="$__GNASH_LIST_REF"
+    count=${#items_ref[@]}
+  fi
+  __gnash_str_result "$1" "$count"
+}
+
+# Rewrites the list or map in the named variable into its self-contained form
+# when running in a subshell, so that printing it hands the contents to the
+# parent shell.
+__gnash_export() {
+  if (( BASH_SUBSHELL == 0 )); then
+    return 0
+  fi
+  local -n __gnash_export_ref="$1"
+  __gnash_export_value "$__gnash_export_ref"
+  __gnash_export_ref="$__GNASH_EXPORTED"
+}
+
+# Leaves the self-contained form of a value in __GNASH_EXPORTED, converting the
+# lists and maps nested in it as well.
+__gnash_export_value() {
+  local value="${1:-}"
+  local -a parts=()
+  local item
+  case "$value" in
+    "$__GNASH_LIST_PREFIX="* | "$__GNASH_MAP_PREFIX="*)
+      ;;
+    "$__GNASH_LIST_PREFIX"*)
+      local -n list_ref="${value#$__GNASH_LIST_PREFIX}"
+      for item in "${list_ref[@]}"; do
+        __gnash_export_value "$item"
+        parts+=("$__GNASH_EXPORTED")
+      done
+      value="${__GNASH_LIST_PREFIX}="
+      ;;
+    "$__GNASH_MAP_PREFIX"*)
+      local -n map_ref="${value#$__GNASH_MAP_PREFIX}"
+      for item in "${!map_ref[@]}"; do
+        __gnash_export_value "${map_ref[$item]}"
+        parts+=("$item" "$__GNASH_EXPORTED")
+      done
+      value="${__GNASH_MAP_PREFIX}="
+      ;;
+  esac
+  if (( ${#parts[@]} > 0 )); then
+    local encoded=""
+    printf -v encoded '%q ' "${parts[@]}"
+    value+="$encoded"
+  fi
+  __GNASH_EXPORTED="$value"
+}
+
+# Calls a linked Gnash function and prints its result so it can be captured with
+# $(...), preserving the function's exit status.
+__gnash_capture() {
+  local __gnash_fn="$1"
+  shift
+  local __gnash_result=""
+  "$__gnash_fn" __gnash_result "$@"
+  local rc=$?
+  __gnash_export __gnash_result
+  printf '%s' "${__gnash_result}"
+  return $rc
 }
 """;
 
-    private static final Pattern INTERPOLATION_PATTERN = Pattern.compile("\\$\\{([A-Za-z_][A-Za-z0-9_]*)}");
-    private static final String EMPTY_LIST_SENTINEL = "$(__gnash_list_empty)";
-    private static final String EMPTY_MAP_SENTINEL = "__GNASH_EMPTY_MAP__";
+    private static final String EMPTY_LIST_SENTINEL = "\"$(__gnash_list_empty)\"";
+    /** Operators that always compute a number; {@code +} may also concatenate. */
+    private static final Set<String> ARITHMETIC_OPERATORS = Set.of("-", "*", "/", "%");
+    /** A value that is just a variable, {@code "${name}"}, named bare inside arithmetic. */
+    private static final Pattern EXPANDED_VARIABLE = Pattern.compile("\"\\$\\{([A-Za-z_][A-Za-z0-9_]*)}\"");
     private static final String OUT_PARAM_NAME = "__gnash_out";
     private static final String RETURN_VAR_NAME = "__gnash_ret";
+    /** The status a {@code throw} leaves with, told apart from the {@code 1} of a false test. */
+    private static final int THROW_STATUS = 70;
 
-    String generate(ParseTree tree, Path sourcePath) {
-        Objects.requireNonNull(tree, "tree");
-        Objects.requireNonNull(sourcePath, "sourcePath");
+    private static final String SHELL_OPTIONS = """
+set -euo pipefail
+set -E
+IFS=$'\\n\\t'
 
-        // Walk the parse tree once to collect top-level metadata.
-        visit(tree);
-
-        boolean runnable = functions.stream().anyMatch(fn -> "main".equals(fn.name));
-
-        StringBuilder script = new StringBuilder();
-        if (runnable) {
-            script.append("#!/usr/bin/env bash\n");
-            script.append("# Generated from Gnash source ").append(sourcePath.getFileName()).append(" — DO NOT EDIT.\n");
-            script.append("set -euo pipefail\n");
-            script.append("set -E\n");
-            script.append("IFS=$'\\n\\t'\n");
-            script.append("\n");
-            script.append(SUPPORT_FUNCTIONS);
-            script.append("\n");
-            script.append("__gnash_list_init\n");
-            script.append("\n");
-            script.append("if ! command -v __gnash_invoke >/dev/null 2>&1; then\n");
-            script.append("  __gnash_invoke() {\n");
-            script.append("    local target=\"$1\"\n");
-            script.append("    shift\n");
-            script.append("    local fn=\"gnash_fn_${target//./_}\"\n");
-            script.append("    if ! command -v \"$fn\" >/dev/null 2>&1; then\n");
-            script.append("      __gnash_warn \"invoke stub: $target\"\n");
-            script.append("      return 1\n");
-            script.append("    fi\n");
-            script.append("    \"$fn\" \"\" \"$@\"\n");
-            script.append("  }\n");
-            script.append("fi\n\n");
-            script.append("if ! command -v __gnash_call >/dev/null 2>&1; then\n");
-            script.append("  __gnash_call() {\n");
-            script.append("    local target=\"$1\"\n");
-            script.append("    shift\n");
-            script.append("    local fn=\"gnash_fn_${target//./_}\"\n");
-            script.append("    if ! command -v \"$fn\" >/dev/null 2>&1; then\n");
-            script.append("      __gnash_warn \"call stub: $target\"\n");
-            script.append("      return 1\n");
-            script.append("    fi\n");
-            script.append("    local __gnash_result=\"\"\n");
-            script.append("    \"$fn\" __gnash_result \"$@\"\n");
-            script.append("    local rc=$?\n");
-            script.append("    printf '%s\\\\n' \"${__gnash_result}\"\n");
-            script.append("    return $rc\n");
-            script.append("  }\n");
-            script.append("fi\n\n");
-        } else {
-            script.append("# Library generated from Gnash source ")
-                  .append(sourcePath.getFileName())
-                  .append(" — requires runtime helpers to be sourced from a runnable script.\n\n");
-        }
+""";
+
+    /**
+     * The helpers every runnable script needs: {@link #SUPPORT_FUNCTIONS} and
+     * the dynamic dispatch stubs. Runnable scripts inline the
+     * part of it they reach (see {@link RuntimePrelude}) by default, or load all
+     * of it from a {@link SharedRuntime}.
+     */
+    static final String RUNTIME_BODY = SUPPORT_FUNCTIONS + """
+
+if ! command -v __gnash_invoke >/dev/null 2>&1; then
+  __gnash_invoke() {
+    local target="$1"
+    shift
+    local fn="gnash_fn_${target//./_}"
+    if ! command -v "$fn" >/dev/null 2>&1; then
+      __gnash_warn "invoke stub: $target"
+      return 1
+    fi
+    "$fn" "" "$@"
+  }
+fi
+
+if ! command -v __gnash_call >/dev/null 2>&1; then
+  __gnash_call() {
+    local target="$1"
+    shift
+    local fn="gnash_fn_${target//./_}"
+    if ! command -v "$fn" >/dev/null 2>&1; then
+      __gnash_warn "call stub: $target"
+      return 1
+    fi
+    local __gnash_result=""
+    "$fn" __gnash_result "$@"
+    local rc=$?
+    __gnash_export __gnash_result
+    printf '%s\\\\n' "${__gnash_result}"
+    return $rc
+  }
+fi
 
-        renderGlobalStatements(script);
+""";
 
-        for (FunctionInfo fn : functions) {
-            renderFunction(script, fn);
-        }
+    private static final RuntimePrelude PRELUDE = new RuntimePrelude(RUNTIME_BODY);
 
-        if (runnable) {
-            boolean hasMain = functions.stream().anyMatch(fn -> "main".equals(fn.name));
-            if (hasMain) {
-                script.append("gnash_fn_main \"\" \"$@\"\n");
+    String generate(ParseTree tree, Path sourcePath) {
+        Objects.requireNonNull(tree, "tree");
+        Objects.requireNonNull(sourcePath, "sourcePath");
+        return generate(IrLowering.lower(tree), sourcePath);
+    }
+
+    /** Renders {@code unit} into memory; prefer the channel form for anything written to disk. */
+    String generate(Ir.Unit unit, Path sourcePath) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try {
+            generate(unit, sourcePath, Channels.newChannel(buffer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Streams the Bash for {@code unit} into {@code channel} as it is rendered.
+     * The channel is flushed but not closed.
+     * <p>
+     * Runnable scripts are statically linked: every imported function they
+     * reach is emitted after their own functions (see {@link Linker}). When
+     * the runtime is inlined it carries only the helpers the rendered code
+     * mentions, so it follows the functions. Global statements run at load
+     * time and need everything above them; they are rendered aside and written
+     * last, imported modules' first.
+     *
+     * @throws LinkException when the unit refers to modules or functions that do not exist
+     */
+    void generate(Ir.Unit unit, Path sourcePath, WritableByteChannel channel) throws IOException {
+        Objects.requireNonNull(unit, "unit");
+        Objects.requireNonNull(sourcePath, "sourcePath");
+        Objects.requireNonNull(channel, "channel");
+
+        boolean runnable = unit.functions.stream().anyMatch(fn -> "main".equals(fn.name.text));
+        optimizer = new IrOptimizer(this::bakedTest);
+        unit = optimizer.unit(unit, runnable);
+        Module root = Module.root(sourcePath, unit, runnable);
+        linker = new Linker(modules, root, runnable);
+        signatures = new Signatures(linker);
+        Set<String> used = runnable && runtimeReference == null ? new HashSet<>() : null;
+
+        BashEmitter script = new BashEmitter(channel);
+        try {
+            if (runnable) {
+                script.append("#!/usr/bin/env bash\n");
+                script.append("# Generated from Gnash source ").append(sourcePath.getFileName().toString()).append(" — DO NOT EDIT.\n");
+                script.append(SHELL_OPTIONS);
+                if (runtimeReference != null) {
+                    script.append(SharedRuntime.loader(runtimeReference));
+                }
             } else {
-                script.append("# runnable script generated without main(); nothing to invoke\n");
+                script.append("# Library generated from Gnash source ")
+                      .append(sourcePath.getFileName().toString())
+                      .append(" — requires runtime helpers to be sourced from a runnable script.\n\n");
             }
-        }
 
-        return script.toString();
-    }
+            Map<Module, byte[]> globals = new HashMap<>();
+            globals.put(root, renderGlobalsAside(root, used));
 
-    @Override
-    public Void visitFunctionDecl(GnashParser.FunctionDeclContext ctx) {
-        String name = ctx.IDENTIFIER().getText();
-        List<String> params = new ArrayList<>();
-        GnashParser.ParameterListContext plist = ctx.parameterList();
-        if (plist != null) {
-            for (GnashParser.ParameterContext parameterContext : plist.parameter()) {
-                params.add(parameterContext.getText());
+            script.recordSymbols(used);
+            for (Ir.Function fn : unit.functions) {
+                renderFunction(script, root, fn, optimizer.resultRead(fn));
             }
-        }
-        functions.add(new FunctionInfo(name, params, ctx.block()));
-        return super.visitFunctionDecl(ctx);
-    }
+            int initialised = 0;
+            Linker.Pending next;
+            do {
+                List<Module> linked = linker.linkedModules();
+                while (initialised < linked.size()) {
+                    Module module = linked.get(initialised++);
+                    globals.put(module, renderGlobalsAside(module, used));
+                }
+                next = linker.next();
+                if (next != null) {
+                    renderFunction(script, next.module, optimizer.function(next.function), true);
+                }
+            } while (next != null || initialised < linker.linkedModules().size());
+            script.recordSymbols(null);
 
-    @Override
-    public Void visitGlobalStatement(GnashParser.GlobalStatementContext ctx) {
-        if (ctx.expressionStatement() != null) {
-            globalStatements.add(ctx.expressionStatement());
-        }
-        return super.visitGlobalStatement(ctx);
-    }
+            List<Module> initialization = linker.initializationOrder();
+            linker.check();
 
-    private void renderFunction(StringBuilder script, FunctionInfo fn) {
-        script.append("gnash_fn_").append(fn.name).append("() {\n");
+            if (used != null) {
+                PRELUDE.emit(script, used);
+            }
+            for (Module module : initialization) {
+                script.appendEncoded(ByteBuffer.wrap(globals.get(module)));
+            }
+            script.appendEncoded(ByteBuffer.wrap(globals.get(root)));
+
+            if (runnable) {
+                script.append("gnash_fn_main \"\" \"$@\"\n");
+            }
+            script.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private byte[] renderGlobalsAside(Module module, Set<String> used) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        BashEmitter aside = new BashEmitter(Channels.newChannel(buffer)).recordSymbols(used);
+        currentModule = module;
+        renderGlobalStatements(aside, module.unit.globals);
+        aside.flush();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Renders {@code fn}. When no caller uses its value ({@code resultRead}
+     * false) the function still takes the out-variable slot as {@code $1} but
+     * returns without storing anything in it.
+     */
+    private void renderFunction(BashEmitter script, Module module, Ir.Function fn, boolean resultRead) {
+        currentModule = module;
+        resultDiscarded = !resultRead;
+        kinds = signatures.function(module, fn, fn.body);
+        inFunction = true;
+        localTemps = !reentrant(module, fn);
+        script.append(module.symbol(fn)).append("() {\n");
         Set<String> locals = new HashSet<>();
-        indent(script, 1);
-        script.append("local ").append(OUT_PARAM_NAME).append("=\"${1:-}\"\n");
-        locals.add(OUT_PARAM_NAME);
-        indent(script, 1);
-        script.append("local ").append(RETURN_VAR_NAME).append("=\"\"\n");
-        locals.add(RETURN_VAR_NAME);
+        if (resultRead) {
+            script.indent(1);
+            script.append("local ").append(OUT_PARAM_NAME).append("=\"${1:-}\"\n");
+            locals.add(OUT_PARAM_NAME);
+            script.indent(1);
+            script.append("local ").append(RETURN_VAR_NAME).append("=\"\"\n");
+            locals.add(RETURN_VAR_NAME);
+        }
         int index = 2;
-        for (String param : fn.parameters) {
-            String bashParam = toBashIdentifier(param);
-            indent(script, 1);
-            script.append("local ").append(bashParam).append("=\"${").append(index).append(":-}\"\n");
-            locals.add(bashParam);
+        for (Ir.Name param : fn.parameters) {
+            script.indent(1);
+            script.append("local ").append(param.bash).append("=\"${").append(index).append(":-}\"\n");
+            locals.add(param.bash);
             index++;
         }
         if (fn.body != null) {
             renderBlock(script, fn.body, 1, locals);
         } else {
-            indent(script, 1);
+            script.indent(1);
             script.append("# TODO: missing function body\n");
         }
         script.append("}\n\n");
     }
 
-    private void renderGlobalStatements(StringBuilder script) {
-        if (globalStatements.isEmpty()) {
-            return;
+    /**
+     * Whether {@code fn} of {@code module} can be called again, through the
+     * Gnash functions it calls, before it returns. The inner call would
+     * declare the same out-variables as {@code local} again and then write its
+     * result into its own copy instead of its caller's, so those stay globals.
+     */
+    private boolean reentrant(Module module, Ir.Function fn) {
+        Ir.Function declared = module.function(fn.name.text);
+        if (declared == null) {
+            return true;
         }
-        for (GnashParser.ExpressionStatementContext ctx : globalStatements) {
-            if (!renderExpressionStatement(script, ctx, 0, null)) {
-                appendUnsupported(script, 0, ctx.getText());
+        Set<Ir.Function> seen = new HashSet<>();
+        Deque<Linker.Pending> pending = new ArrayDeque<>();
+        pending.push(new Linker.Pending(module, declared));
+        boolean[] reentered = {false};
+        while (!pending.isEmpty() && !reentered[0]) {
+            Linker.Pending caller = pending.pop();
+            if (caller.function.body == null) {
+                continue;
             }
+            new IrOptimizer.Walker() {
+                @Override
+                void visit(Ir.Expr node) {
+                    if (!(node instanceof Ir.Call)) {
+                        return;
+                    }
+                    Linker.Pending target = linker.target(caller.module, (Ir.Call) node);
+                    if (target == null) {
+                        return;
+                    }
+                    if (target.function == declared) {
+                        reentered[0] = true;
+                    } else if (seen.add(target.function)) {
+                        pending.push(target);
+                    }
+                }
+            }.walk(List.copyOf(caller.function.body));
+        }
+        return reentered[0];
+    }
+
+    /**
+     * Whether {@code call} runs a Gnash function that may throw: one with a
+     * {@code throw} in its body, or calling such a function. A throw it
+     * catches itself still counts.
+     */
+    private boolean mayThrow(Ir.Call call) {
+        Linker.Pending start = linker.target(currentModule, call);
+        if (start == null) {
+            return false;
+        }
+        Boolean known = throwing.get(start.function);
+        if (known != null) {
+            return known;
+        }
+        Set<Ir.Function> seen = new HashSet<>();
+        Deque<Linker.Pending> pending = new ArrayDeque<>();
+        seen.add(start.function);
+        pending.push(start);
+        boolean[] throwsHere = {false};
+        while (!pending.isEmpty() && !throwsHere[0]) {
+            Linker.Pending caller = pending.pop();
+            if (caller.function.body == null) {
+                continue;
+            }
+            new IrOptimizer.Walker() {
+                @Override
+                void visit(Ir.Expr node) {
+                    if (!(node instanceof Ir.Call)) {
+                        return;
+                    }
+                    Linker.Pending target = linker.target(caller.module, (Ir.Call) node);
+                    if (target != null && seen.add(target.function)) {
+                        pending.push(target);
+                    }
+                }
+
+                @Override
+                void thrown(Ir.Throw statement) {
+                    throwsHere[0] = true;
+                }
+            }.walk(List.copyOf(caller.function.body));
+        }
+        throwing.put(start.function, throwsHere[0]);
+        return throwsHere[0];
+    }
+
+    private void renderGlobalStatements(BashEmitter script, List<Ir.ExprStmt> globals) {
+        if (globals.isEmpty()) {
+            return;
+        }
+        kinds = signatures.globals(currentModule, globals);
+        localTemps = false;
+        inFunction = false;
+        for (Ir.ExprStmt statement : globals) {
+            hoisted = new ArrayList<>();
+            if (!renderExpressionStatement(script, statement.expr, 0, null)) {
+                appendUnsupported(script, 0, statement.sourceText());
+            }
+            hoisted = null;
         }
         script.append('\n');
     }
 
-    private void renderBlock(StringBuilder script, GnashParser.BlockContext block, int indentLevel, Set<String> locals) {
-        for (GnashParser.StatementContext statement : block.statement()) {
+    private void renderBlock(BashEmitter script, List<Ir.Stmt> block, int indentLevel, Set<String> locals) {
+        for (Ir.Stmt statement : block) {
             renderStatement(script, statement, indentLevel, locals);
         }
     }
 
-    private void renderStatement(StringBuilder script, GnashParser.StatementContext statement, int indentLevel, Set<String> locals) {
-        if (statement.expressionStatement() != null) {
-            boolean handled = renderExpressionStatement(script, statement.expressionStatement(), indentLevel, locals);
+    private void renderStatement(BashEmitter script, Ir.Stmt statement, int indentLevel, Set<String> locals) {
+        List<String> enclosing = hoisted;
+        hoisted = new ArrayList<>();
+        try {
+            renderStatementHoisting(script, statement, indentLevel, locals);
+        } finally {
+            hoisted = enclosing;
+        }
+    }
+
+    private void renderStatementHoisting(BashEmitter script, Ir.Stmt statement, int indentLevel, Set<String> locals) {
+        if (statement instanceof Ir.ExprStmt) {
+            boolean handled = renderExpressionStatement(script, ((Ir.ExprStmt) statement).expr, indentLevel, locals);
             if (!handled) {
-                appendUnsupported(script, indentLevel, statement.getText());
+                appendUnsupported(script, indentLevel, statement.sourceText());
             }
             return;
         }
-        if (statement.ifStatement() != null) {
-            renderIfStatement(script, statement.ifStatement(), indentLevel, locals);
+        if (statement instanceof Ir.If) {
+            renderIfStatement(script, (Ir.If) statement, indentLevel, locals);
             return;
         }
-        if (statement.tryStatement() != null) {
-            renderTryStatement(script, statement.tryStatement(), indentLevel, locals);
+        if (statement instanceof Ir.Try) {
+            renderTryStatement(script, (Ir.Try) statement, indentLevel, locals);
             return;
         }
-        if (statement.throwStatement() != null) {
-            renderThrowStatement(script, statement.throwStatement(), indentLevel);
+        if (statement instanceof Ir.Throw) {
+            renderThrowStatement(script, (Ir.Throw) statement, indentLevel);
             return;
         }
-        if (statement.continueStatement() != null) {
-            indent(script, indentLevel);
-            script.append("continue\n");
+        if (statement instanceof Ir.Continue) {
+            script.indent(indentLevel);
+            script.append(loopJump("continue")).append('\n');
             return;
         }
-        if (statement.forStatement() != null) {
-            renderForStatement(script, statement.forStatement(), indentLevel, locals);
+        if (statement instanceof Ir.Break) {
+            script.indent(indentLevel);
+            script.append(loopJump("break")).append('\n');
             return;
         }
-        if (statement.returnStatement() != null) {
-            renderReturnStatement(script, statement.returnStatement(), indentLevel);
+        if (statement instanceof Ir.For) {
+            renderForStatement(script, (Ir.For) statement, indentLevel, locals);
             return;
         }
-        appendUnsupported(script, indentLevel, statement.getText());
+        if (statement instanceof Ir.Return) {
+            renderReturnStatement(script, (Ir.Return) statement, indentLevel);
+            return;
+        }
+        appendUnsupported(script, indentLevel, statement.sourceText());
     }
 
-    private boolean renderExpressionStatement(StringBuilder script,
-                                              GnashParser.ExpressionStatementContext ctx,
+    private boolean renderExpressionStatement(BashEmitter script,
+                                              Ir.Expr expr,
                                               int indentLevel,
                                               Set<String> locals) {
-        GnashParser.ExpressionContext expr = ctx.expression();
         if (expr == null) {
             return false;
         }
-        GnashParser.AssignmentContext assignment = expr.assignment();
-        if (assignment != null && renderAssignment(script, assignment, indentLevel, locals)) {
-            return true;
+        if (expr instanceof Ir.Assign) {
+            return renderAssignment(script, (Ir.Assign) expr, indentLevel, locals);
         }
         Call call = tryRenderCall(expr);
         if (call != null) {
             String command = renderCallCommand(call);
             if (command != null) {
-                indent(script, indentLevel);
-                script.append(command).append('\n');
+                emitHoisted(script, indentLevel);
+                script.indent(indentLevel);
+                script.append(command);
+                if (!runsFunction(command)) {
+                    endCommand(script);
+                } else {
+                    script.append(callEnd(call.node));
+                    endCommand(script);
+                }
                 return true;
             }
         }
         return false;
     }
 
-    private void renderIfStatement(StringBuilder script,
-                                   GnashParser.IfStatementContext ctx,
+    private void renderIfStatement(BashEmitter script,
+                                   Ir.If ctx,
                                    int indentLevel,
                                    Set<String> locals) {
-        Condition condition = renderCondition(ctx.expression());
-        boolean placeholder = condition == null;
-        String conditionText = placeholder ? ":" : condition.format();
-        indent(script, indentLevel);
-        script.append("if ").append(conditionText).append("; then\n");
-        if (placeholder) {
-            indent(script, indentLevel + 1);
-            script.append("# TODO condition: ").append(truncate(ctx.expression().getText())).append('\n');
-        }
-
-        Set<String> thenLocals = new HashSet<>(locals);
-        renderBlock(script, ctx.block(0), indentLevel + 1, thenLocals);
-        locals.addAll(thenLocals);
-
-        if (ctx.ifStatement() != null) {
-            renderElseIf(script, ctx.ifStatement(), indentLevel, locals);
-        } else if (ctx.block().size() > 1) {
-            renderElseBlock(script, ctx.block(1), indentLevel, locals);
-        }
-
-        indent(script, indentLevel);
+        renderIfBranch(script, "if ", ctx, indentLevel, locals);
+        script.indent(indentLevel);
         script.append("fi\n");
     }
 
-    private void renderElseIf(StringBuilder script,
-                              GnashParser.IfStatementContext ctx,
-                              int indentLevel,
-                              Set<String> locals) {
-        Condition condition = renderCondition(ctx.expression());
+    private void renderIfBranch(BashEmitter script,
+                                String keyword,
+                                Ir.If ctx,
+                                int indentLevel,
+                                Set<String> locals) {
+        Condition condition;
+        if (keyword.startsWith("elif")) {
+            condition = renderDeferredCondition(ctx.condition, false);
+        } else {
+            condition = renderCondition(ctx.condition);
+            emitHoisted(script, indentLevel);
+        }
         boolean placeholder = condition == null;
         String conditionText = placeholder ? ":" : condition.format();
-        indent(script, indentLevel);
-        script.append("elif ").append(conditionText).append("; then\n");
+        script.indent(indentLevel);
+        script.append(keyword).append(conditionText).append("; then\n");
         if (placeholder) {
-            indent(script, indentLevel + 1);
-            script.append("# TODO condition: ").append(truncate(ctx.expression().getText())).append('\n');
+            script.indent(indentLevel + 1);
+            script.append("# TODO condition: ").append(truncate(ctx.condition.sourceText())).append('\n');
         }
 
         Set<String> branchLocals = new HashSet<>(locals);
-        renderBlock(script, ctx.block(0), indentLevel + 1, branchLocals);
+        renderBlock(script, ctx.thenBody, indentLevel + 1, branchLocals);
         locals.addAll(branchLocals);
 
-        if (ctx.ifStatement() != null) {
-            renderElseIf(script, ctx.ifStatement(), indentLevel, locals);
-        } else if (ctx.block().size() > 1) {
-            renderElseBlock(script, ctx.block(1), indentLevel, locals);
+        if (ctx.elseIf != null) {
+            renderIfBranch(script, "elif ", ctx.elseIf, indentLevel, locals);
+        } else if (ctx.elseBody != null) {
+            renderElseBlock(script, ctx.elseBody, indentLevel, locals);
         }
     }
 
-    private void renderElseBlock(StringBuilder script,
-                                 GnashParser.BlockContext block,
+    private void renderElseBlock(BashEmitter script,
+                                 List<Ir.Stmt> block,
                                  int indentLevel,
                                  Set<String> locals) {
-        indent(script, indentLevel);
+        script.indent(indentLevel);
         script.append("else\n");
         Set<String> elseLocals = new HashSet<>(locals);
         renderBlock(script, block, indentLevel + 1, elseLocals);
         locals.addAll(elseLocals);
     }
 
-    private void renderTryStatement(StringBuilder script,
-                                    GnashParser.TryStatementContext ctx,
+    /**
+     * Runs the body inside a loop that a failing command breaks out of,
+     * recording its status, so a throw reaches the catch without defining or
+     * calling a function for the block, and a return in the body returns from
+     * the enclosing function. The thrown value is read back from the error
+     * slot; a plain failed command leaves only its status. Bash runs the
+     * functions the body calls with errexit off, so only the throws they pass
+     * on (see {@link #callEnd}) and the statuses they return reach the catch.
+     * When there is a finally block the catch body is guarded the same way,
+     * so a throw from the catch runs the finally block before it carries on.
+     * A return, break or continue in the body or catch then breaks out of
+     * the loop too, leaving the jump pending, and is made after the finally
+     * block.
+     */
+    private void renderTryStatement(BashEmitter script,
+                                    Ir.Try ctx,
                                     int indentLevel,
                                     Set<String> locals) {
         String rcVar = nextTempVar("__gnash_try_rc");
-        String blockVar = nextTempVar("__gnash_try_block");
-        indent(script, indentLevel);
-        script.append(blockVar).append("() {\n");
-        renderBlock(script, ctx.block(), indentLevel + 1, locals == null ? null : new HashSet<>(locals));
-        indent(script, indentLevel);
-        script.append("}\n");
-        indent(script, indentLevel);
-        script.append(blockVar).append("\n");
-        indent(script, indentLevel);
-        script.append(rcVar).append("=$?\n");
-
-        List<GnashParser.CatchClauseContext> catches = ctx.catchClause();
-        if (!catches.isEmpty()) {
-            GnashParser.CatchClauseContext catchCtx = catches.get(0);
-            String catchVar = toBashIdentifier(catchCtx.IDENTIFIER().getText());
+        writeAssignment(script, indentLevel, locals, rcVar, "0");
+        String leave = null;
+        Set<String> jumps = new HashSet<>();
+        if (ctx.finallyBody != null && (jumpsOut(ctx.body, false)
+                || ctx.catches.stream().anyMatch(handler -> jumpsOut(handler.body, false)))) {
+            leave = nextTempVar("__gnash_leave");
+            writeAssignment(script, indentLevel, locals, leave, "\"\"");
+        }
+        script.indent(indentLevel);
+        script.append("__GNASH_ERROR=\"\"\n");
+        renderGuardedBlock(script, ctx.body, indentLevel, locals, rcVar, leave, jumps);
+
+        String failed = "(( " + rcVar + " != 0 ))";
+        String pending = ctx.catches.isEmpty() ? rcVar : null;
+        if (!ctx.catches.isEmpty()) {
+            Ir.Catch catchCtx = ctx.catches.get(0);
+            String catchVar = catchCtx.variable.bash;
             Set<String> catchLocals = locals == null ? null : new HashSet<>(locals);
-            indent(script, indentLevel);
-            script.append("[ $").append(rcVar).append(" -ne 0 ] && {\n");
-            indent(script, indentLevel + 1);
-            if (catchLocals != null && !catchLocals.contains(catchVar)) {
-                script.append("local ").append(catchVar).append("=$").append(rcVar).append('\n');
-                catchLocals.add(catchVar);
+            if (ctx.finallyBody != null) {
+                pending = nextTempVar("__gnash_catch_rc");
+                writeAssignment(script, indentLevel, locals, pending, "0");
+            }
+            script.indent(indentLevel);
+            script.append("if ").append(failed).append("; then\n");
+            writeAssignment(script, indentLevel + 1, catchLocals, catchVar,
+                    "\"${__GNASH_ERROR:-${" + rcVar + "}}\"");
+            script.indent(indentLevel + 1);
+            script.append("__GNASH_ERROR=\"\"\n");
+            if (pending != null) {
+                renderGuardedBlock(script, catchCtx.body, indentLevel + 1, catchLocals, pending, leave, jumps);
             } else {
-                script.append(catchVar).append("=$").append(rcVar).append('\n');
+                renderBlock(script, catchCtx.body, indentLevel + 1, catchLocals);
             }
-            renderBlock(script, catchCtx.block(), indentLevel + 1, catchLocals);
             if (locals != null) {
                 locals.add(catchVar);
             }
-            indent(script, indentLevel);
-            script.append("}\n");
-        }
-
-        if (ctx.finallyClause() != null) {
-            renderBlock(script, ctx.finallyClause().block(), indentLevel, locals);
-        }
-    }
-
-    private void renderForStatement(StringBuilder script,
-                                    GnashParser.ForStatementContext ctx,
-                                    int indentLevel,
-                                    Set<String> locals) {
-        String loopVar = toBashIdentifier(ctx.IDENTIFIER().getText());
-        String iterableValue = renderExpression(ctx.expression());
-        if (iterableValue == null) {
-            appendUnsupported(script, indentLevel, ctx.getText());
-            return;
-        }
-        String itemsVar = nextTempVar("__gnash_items");
-        indent(script, indentLevel);
-        script.append("local -a ").append(itemsVar).append("=()\n");
-        indent(script, indentLevel);
-        script.append("__gnash_list_to_array ").append('"').append(itemsVar).append('"').append(' ').append(iterableValue).append('\n');
-        indent(script, indentLevel);
-        script.append("for ").append(loopVar).append(" in \"${").append(itemsVar).append("[@]}\"; do\n");
-        Set<String> bodyLocals = locals == null ? null : new HashSet<>(locals);
-        if (bodyLocals != null) {
-            bodyLocals.add(loopVar);
-        }
-        renderBlock(script, ctx.block(), indentLevel + 1, bodyLocals);
-        if (locals != null && bodyLocals != null) {
-            locals.addAll(bodyLocals);
-        }
-        indent(script, indentLevel);
-        script.append("done\n");
-    }
-
-    private void renderReturnStatement(StringBuilder script,
-                                       GnashParser.ReturnStatementContext ctx,
-                                       int indentLevel) {
-        if (ctx.expression() == null) {
-            indent(script, indentLevel);
-            script.append("return\n");
-            return;
-        }
-        String value = renderExpression(ctx.expression());
-        value = unwrapIdentifier(value);
-        if (value != null) {
-            if (isExitCodeValue(value)) {
-                indent(script, indentLevel);
-                script.append("return ").append(value).append('\n');
+            script.indent(indentLevel);
+            script.append("fi\n");
+        }
+
+        if (ctx.finallyBody != null) {
+            renderBlock(script, ctx.finallyBody, indentLevel, locals);
+        }
+        if (pending != null) {
+            // A failure nothing caught, or one the catch raised, carries on
+            // to the enclosing try or caller.
+            script.indent(indentLevel);
+            script.append("if (( ").append(pending).append(" != 0 )); then\n");
+            script.indent(indentLevel + 1);
+            String status = "\"${" + pending + "}\"";
+            if (tryStatus != null) {
+                script.append(leaveTry(status));
             } else {
-                emitStringReturn(script, indentLevel, value);
+                script.append(leaveFunction(inFunction ? "return" : "exit", status));
             }
-        } else {
-            indent(script, indentLevel);
-            script.append("# TODO return ").append(truncate(ctx.expression().getText())).append('\n');
-        }
-    }
-
-    private void renderThrowStatement(StringBuilder script,
-                                      GnashParser.ThrowStatementContext ctx,
-                                      int indentLevel) {
-        String value = null;
-        if (ctx.expression() != null) {
-            value = renderExpression(ctx.expression());
-        }
-        if (value == null) {
-            appendUnsupported(script, indentLevel, ctx.getText());
-            return;
-        }
-        value = unwrapIdentifier(value);
-        emitStringReturn(script, indentLevel, value, 1);
-    }
-
-    private boolean renderAssignment(StringBuilder script,
-                                     GnashParser.AssignmentContext assignment,
-                                     int indentLevel,
-                                     Set<String> locals) {
-        if (assignment.destructuringPattern() == null) {
-            return false;
-        }
-        GnashParser.DestructuringPatternContext pattern = assignment.destructuringPattern();
-        List<TerminalNode> identifiers = pattern.IDENTIFIER();
-        if (identifiers.isEmpty()) {
-            return false;
-        }
-        GnashParser.AssignmentContext valueAssignment = assignment.assignment();
-        String rhs = renderAssignmentValue(valueAssignment);
-        if (identifiers.size() > 1) {
-                if (rhs != null && identifiers.size() == 2) {
-                String firstVar = toBashIdentifier(identifiers.get(0).getText());
-                String secondVar = toBashIdentifier(identifiers.get(1).getText());
-                writeAssignment(script, indentLevel, locals, firstVar, rhs);
-                writeAssignment(script, indentLevel, locals, secondVar, "$?");
-                return true;
+            script.append('\n');
+            script.indent(indentLevel);
+            script.append("fi\n");
+        }
+        if (!jumps.isEmpty()) {
+            // The jump the body or catch left pending, now that finally has run.
+            script.indent(indentLevel);
+            script.append("case ${").append(leave).append("} in\n");
+            for (String keyword : List.of("break", "continue")) {
+                if (jumps.contains(keyword)) {
+                    script.indent(indentLevel + 1);
+                    script.append(keyword).append(") ").append(loopJump(keyword)).append(" ;;\n");
+                }
             }
-            if (renderDestructuringAssignment(script, assignment, indentLevel, locals, identifiers)) {
-                return true;
+            if (jumps.contains("return")) {
+                script.indent(indentLevel + 1);
+                script.append("?*) ").append(leaveFunction(inFunction ? "return" : "exit", "\"${" + leave + "}\""))
+                      .append(" ;;\n");
             }
-            return false;
+            script.indent(indentLevel);
+            script.append("esac\n");
         }
-        String varName = identifiers.get(0).getText();
-        String bashVar = toBashIdentifier(varName);
-        if (rhs == null) {
-            Condition boolCondition = renderConditionFromAssignment(valueAssignment);
-            if (boolCondition != null) {
-                writeAssignment(script, indentLevel, locals, bashVar, "\"\"");
-                indent(script, indentLevel);
-                script.append("if ").append(boolCondition.format()).append("; then\n");
-                writeAssignment(script, indentLevel + 1, locals, bashVar, "\"true\"");
-                indent(script, indentLevel);
-                script.append("fi\n");
+    }
+
+    /**
+     * Whether {@code statements} may return, or, unless {@code inLoop}, break
+     * or continue a loop around them.
+     */
+    private static boolean jumpsOut(List<? extends Ir.Stmt> statements, boolean inLoop) {
+        for (Ir.Stmt statement : statements) {
+            if (statement instanceof Ir.Return) {
                 return true;
             }
-            return false;
-        }
-        if (EMPTY_MAP_SENTINEL.equals(rhs)) {
-            indent(script, indentLevel);
-            if (locals != null) {
-                if (!locals.contains(bashVar)) {
-                    script.append("local -A ");
-                    locals.add(bashVar);
-                } else {
-                    script.append(bashVar).append("=()\n");
+            if (statement instanceof Ir.Break || statement instanceof Ir.Continue) {
+                if (!inLoop) {
+                    return true;
+                }
+            } else if (statement instanceof Ir.If) {
+                for (Ir.If node = (Ir.If) statement; node != null; node = node.elseIf) {
+                    if (jumpsOut(node.thenBody, inLoop)
+                            || node.elseBody != null && jumpsOut(node.elseBody, inLoop)) {
+                        return true;
+                    }
+                }
+            } else if (statement instanceof Ir.For) {
+                if (jumpsOut(((Ir.For) statement).body, true)) {
+                    return true;
+                }
+            } else if (statement instanceof Ir.Try) {
+                Ir.Try node = (Ir.Try) statement;
+                if (jumpsOut(node.body, inLoop)
+                        || node.catches.stream().anyMatch(handler -> jumpsOut(handler.body, inLoop))
+                        || node.finallyBody != null && jumpsOut(node.finallyBody, inLoop)) {
+                    return true;
+                }
+            } else if (statement instanceof Ir.Nested) {
+                if (jumpsOut(((Ir.Nested) statement).body, inLoop)) {
                     return true;
                 }
-                script.append(bashVar).append("=()\n");
-            } else {
-                script.append("declare -A ").append(bashVar).append("=()\n");
             }
-            return true;
         }
-        writeAssignment(script, indentLevel, locals, bashVar, rhs);
-        return true;
+        return false;
     }
 
-    private Condition renderCondition(GnashParser.ExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+    /**
+     * Emits {@code block} inside a {@code while} loop that a failing command
+     * breaks out of, leaving its status in {@code rcVar}. The caller sets
+     * {@code rcVar} to 0 first. With a {@code leave} variable, returns and
+     * loop jumps break out as well, leaving the jump in it and its kind in
+     * {@code jumps}.
+     */
+    private void renderGuardedBlock(BashEmitter script,
+                                    List<Ir.Stmt> block,
+                                    int indentLevel,
+                                    Set<String> locals,
+                                    String rcVar,
+                                    String leave,
+                                    Set<String> jumps) {
+        script.indent(indentLevel);
+        script.append("while :; do\n");
+        String enclosingStatus = tryStatus;
+        int enclosingDepth = tryDepth;
+        loops.push(true);
+        tryStatus = rcVar;
+        tryDepth = loops.size();
+        if (leave != null) {
+            frames.push(new Frame(tryDepth, null, leave, jumps));
+        }
+        try {
+            renderBlock(script, block, indentLevel + 1, locals == null ? null : new HashSet<>(locals));
+        } finally {
+            if (leave != null) {
+                frames.pop();
+            }
+            loops.pop();
+            tryStatus = enclosingStatus;
+            tryDepth = enclosingDepth;
         }
-        return renderConditionFromAssignment(ctx.assignment());
+        script.indent(indentLevel + 1);
+        script.append("break\n");
+        script.indent(indentLevel);
+        script.append("done\n");
     }
 
-    private Condition renderConditionFromAssignment(GnashParser.AssignmentContext ctx) {
-        if (ctx == null) {
-            return null;
+    /**
+     * Ends a command line. Inside a try body a failure leaves the body with
+     * the command's status.
+     */
+    private void endCommand(BashEmitter script) {
+        if (tryStatus != null) {
+            script.append(" || ").append(leaveTry("$?"));
         }
-        if (ctx.destructuringPattern() != null) {
-            return null;
-        }
-        return renderConditionFromLogicOr(ctx.logicOrExpression());
+        script.append('\n');
     }
 
-    private Condition renderConditionFromLogicOr(GnashParser.LogicOrExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        List<GnashParser.LogicAndExpressionContext> parts = ctx.logicAndExpression();
-        Condition result = null;
-        for (GnashParser.LogicAndExpressionContext part : parts) {
-            Condition next = renderConditionFromLogicAnd(part);
-            if (next == null) {
-                return null;
-            }
-            if (result == null) {
-                result = next;
-            } else {
-                result = result.combine(next, "||");
-            }
+    /**
+     * What follows a call of {@code call}, a Gnash function, in front of
+     * {@link #endCommand}. A function passes a throw from the call on by
+     * itself: errexit would stop there, but Bash turns it off while the
+     * function runs as a test or inside a try body. The check follows the call
+     * instead of joining it with {@code ||}, which would turn errexit off in
+     * the callee too. A function that may return a test is the exception: it
+     * ends with status 1 when the test is false, which is no failure, so it
+     * runs as a condition and only a throw leaves.
+     */
+    private String callEnd(Ir.Call call) {
+        if (returnsTest(call)) {
+            return " || " + (mayThrow(call) ? rethrow() : ":");
+        }
+        return mayThrow(call) && tryStatus == null && inFunction ? "; " + rethrow() : "";
+    }
+
+    /** Whether {@code call} runs a Gnash function that may return a test. */
+    private boolean returnsTest(Ir.Call call) {
+        Linker.Pending target = linker.target(currentModule, call);
+        return target != null && signatures.tests(target.module, target.function);
+    }
+
+    /**
+     * Passes a throw, the {@link #THROW_STATUS} of the command before it, on:
+     * out of the innermost try, the function, or the script.
+     */
+    private String rethrow() {
+        String leave;
+        if (tryStatus != null) {
+            leave = leaveTry(Integer.toString(THROW_STATUS));
+        } else {
+            leave = leaveFunction(inFunction ? "return" : "exit", Integer.toString(THROW_STATUS));
         }
-        return result;
+        return "(( $? != " + THROW_STATUS + " )) || " + leave;
     }
 
-    private Condition renderConditionFromLogicAnd(GnashParser.LogicAndExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        List<GnashParser.EqualityExpressionContext> parts = ctx.equalityExpression();
-        Condition result = null;
-        for (GnashParser.EqualityExpressionContext part : parts) {
-            Condition next = renderConditionFromEquality(part);
-            if (next == null) {
-                return null;
-            }
-            if (result == null) {
-                result = next;
-            } else {
-                result = result.combine(next, "&&");
-            }
-        }
-        return result;
+    /** Whether {@code command}, as {@link #renderCallCommand} renders calls, runs a Gnash function. */
+    private static boolean runsFunction(String command) {
+        return command.startsWith("gnash_fn_") || command.contains(" || gnash_fn_");
     }
 
-    private Condition renderConditionFromEquality(GnashParser.EqualityExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        List<GnashParser.RelationalExpressionContext> parts = ctx.relationalExpression();
-        if (parts.size() == 1) {
-            return renderConditionFromRelational(parts.get(0));
-        }
-        if (parts.size() == 2 && ctx.getChildCount() >= 3) {
-            String left = renderRelationalExpression(parts.get(0));
-            String right = renderRelationalExpression(parts.get(1));
-            if (left == null || right == null) {
-                return null;
-            }
-            String op = ctx.getChild(1).getText();
-            if ("==".equals(op)) {
-                return new Condition("[[ " + left + " == " + right + " ]]");
-            }
-            if ("!=".equals(op)) {
-                return new Condition("[[ " + left + " != " + right + " ]]");
-            }
-        }
-        return null;
+    /** Breaks out of the innermost try's loop with {@code status} as the try's status. */
+    private String leaveTry(String status) {
+        int depth = loops.size() - tryDepth + 1;
+        return "{ " + tryStatus + "=" + status + "; " + closeStreams(tryDepth)
+                + "break" + (depth > 1 ? " " + depth : "") + "; }";
     }
 
-    private Condition renderConditionFromRelational(GnashParser.RelationalExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.additiveExpression().size() == 2 && ctx.getChildCount() == 3) {
-            String op = ctx.getChild(1).getText();
-            if ("is".equals(op)) {
-                String left = renderAdditiveExpression(ctx.additiveExpression(0));
-                if (left == null) {
-                    return null;
-                }
-                String typeText = ctx.additiveExpression(1).getText();
-                if ("List".equals(typeText)) {
-                    return new Condition("__gnash_is_list " + left);
-                }
+    /**
+     * {@code keyword} ({@code return} or {@code exit}) with {@code status},
+     * or none when {@code null}, preceded by closing the streaming loops
+     * around it. Inside a try with a finally block it instead leaves the
+     * status pending and breaks out to the finally block, which carries on
+     * from there.
+     */
+    private String leaveFunction(String keyword, String status) {
+        StringBuilder closes = new StringBuilder();
+        for (Frame frame : frames) {
+            if (frame.pending != null) {
+                frame.jumps.add("return");
+                return "{ " + frame.pending + "=" + (status == null ? "0" : status) + "; " + closes
+                        + breakOut(frame) + "; }";
+            }
+            closes.append(frame.close).append("; ");
+        }
+        String command = status == null ? keyword : keyword + " " + status;
+        return closes.length() == 0 ? command : "{ " + closes + command + "; }";
+    }
+
+    /**
+     * The commands closing the streaming loops that a jump out to the loop
+     * {@code depth} deep in {@link #loops} leaves, each followed by
+     * {@code "; "}.
+     */
+    private String closeStreams(int depth) {
+        StringBuilder closes = new StringBuilder();
+        for (Frame frame : frames) {
+            if (frame.depth <= depth) {
+                break;
+            }
+            if (frame.close != null) {
+                closes.append(frame.close).append("; ");
             }
         }
-        if (ctx.additiveExpression().size() != 1) {
-            return null;
-        }
-        return renderConditionFromAdditive(ctx.additiveExpression(0));
+        return closes.toString();
     }
 
-    private Condition renderConditionFromAdditive(GnashParser.AdditiveExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.multiplicativeExpression().size() != 1) {
-            return null;
-        }
-        return renderConditionFromMultiplicative(ctx.multiplicativeExpression(0));
+    /** The {@code break} from inside {@code frame} to just after its loop. */
+    private String breakOut(Frame frame) {
+        int depth = loops.size() - frame.depth + 1;
+        return "break" + (depth > 1 ? " " + depth : "");
     }
 
-    private Condition renderConditionFromMultiplicative(GnashParser.MultiplicativeExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.unaryExpression().size() != 1) {
-            return null;
-        }
-        return renderConditionFromUnary(ctx.unaryExpression(0));
-    }
-
-    private Condition renderConditionFromUnary(GnashParser.UnaryExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.postfixExpression() != null) {
-            return renderConditionFromPostfix(ctx.postfixExpression());
-        }
-        GnashParser.UnaryExpressionContext inner = ctx.unaryExpression();
-        if (inner != null && ctx.getChildCount() == 2) {
-            String op = ctx.getChild(0).getText();
-            Condition operand = renderConditionFromUnary(inner);
-            if (operand == null) {
-                return null;
-            }
-            if ("!".equals(op)) {
-                return operand.negate();
+    /**
+     * {@code keyword} ({@code break} or {@code continue}) for the innermost loop
+     * of the source, past the loops of any trys inside it. Out of a try with a
+     * finally block the jump is left pending instead, as in
+     * {@link #leaveFunction}.
+     */
+    private String loopJump(String keyword) {
+        int skipped = 0;
+        for (boolean own : loops) {
+            if (!own) {
+                break;
             }
+            skipped++;
         }
-        return null;
-    }
-
-    private Condition renderConditionFromPostfix(GnashParser.PostfixExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+        if (skipped == loops.size()) {
+            return keyword;
         }
-        if (!ctx.postfixOperator().isEmpty()) {
-            Call call = tryRenderCall(ctx);
-            if (call != null) {
-                String command = renderCallCommand(call);
-                if (command != null) {
-                    return new Condition(command);
-                }
+        int target = loops.size() - skipped;
+        for (Frame frame : frames) {
+            if (frame.depth <= target) {
+                break;
             }
-            String propertyValue = renderPropertyAccess(ctx);
-            if (propertyValue != null) {
-                return new Condition("[[ -n " + propertyValue + " ]]");
+            if (frame.pending != null) {
+                frame.jumps.add(keyword);
+                return "{ " + frame.pending + "=" + keyword + "; " + breakOut(frame) + "; }";
             }
-            return null;
-        }
-        return renderConditionFromPrimary(ctx.primaryExpression());
-    }
-
-    private Condition renderConditionFromPrimary(GnashParser.PrimaryExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.literal() != null) {
-            return renderConditionFromLiteral(ctx.literal());
-        }
-        if (ctx.IDENTIFIER() != null) {
-            String bashVar = toBashIdentifier(ctx.IDENTIFIER().getText());
-            return new Condition("[[ -n ${" + bashVar + ":-} ]]");
         }
-        if (ctx.expression() != null) {
-            return renderCondition(ctx.expression());
-        }
-        return null;
+        return skipped == 0 ? keyword : keyword + " " + (skipped + 1);
     }
 
-    private Condition renderConditionFromLiteral(GnashParser.LiteralContext literal) {
-        if (literal == null) {
-            return null;
+    private void renderForStatement(BashEmitter script,
+                                    Ir.For ctx,
+                                    int indentLevel,
+                                    Set<String> locals) {
+        String loopVar = ctx.variable.bash;
+        String command = streamedCommand(ctx.iterable);
+        if (command != null) {
+            renderStreamingFor(script, ctx, command, indentLevel, locals);
+            return;
         }
-        if ("true".equals(literal.getText())) {
-            return new Condition(":");
+        String iterableValue = renderExpression(ctx.iterable);
+        if (iterableValue == null) {
+            appendUnsupported(script, indentLevel, ctx.sourceText());
+            return;
         }
-        if ("false".equals(literal.getText())) {
-            return new Condition("false");
+        emitHoisted(script, indentLevel);
+        // Iterate the list's own array through a nameref rather than a copy;
+        // "${ref[@]}" is expanded once, so the body may still modify the list.
+        String itemsVar = nextTempVar("__gnash_items");
+        Matcher list = EXPANDED_VARIABLE.matcher(iterableValue);
+        if (kinds.kind(ctx.iterable) == ValueKinds.Kind.LIST && list.matches()) {
+            // Already a list of this shell: its token names the array.
+            script.indent(indentLevel);
+            script.append("local -n ").append(itemsVar).append("=\"${").append(list.group(1))
+                  .append("#$__GNASH_LIST_PREFIX}\"\n");
+        } else {
+            script.indent(indentLevel);
+            script.append("__gnash_list_ref ").append(iterableValue).append('\n');
+            script.indent(indentLevel);
+            script.append("local -n ").append(itemsVar).append("=\"${__GNASH_LIST_REF}\"\n");
         }
-        if ("null".equals(literal.getText())) {
-            return new Condition("false");
+        script.indent(indentLevel);
+        script.append("for ").append(loopVar).append(" in \"${").append(itemsVar).append("[@]}\"; do\n");
+        Set<String> bodyLocals = locals == null ? null : new HashSet<>(locals);
+        if (bodyLocals != null) {
+            bodyLocals.add(loopVar);
         }
-        if (literal.NUMBER() != null) {
-            return new Condition("(( " + literal.NUMBER().getText() + " ))");
+        loops.push(false);
+        try {
+            renderBlock(script, ctx.body, indentLevel + 1, bodyLocals);
+        } finally {
+            loops.pop();
         }
-        if (literal.STRING() != null) {
-            return new Condition("[[ -n " + literal.STRING().getText() + " ]]");
+        if (locals != null && bodyLocals != null) {
+            locals.addAll(bodyLocals);
         }
-        return null;
+        script.indent(indentLevel);
+        script.append("done\n");
     }
 
-    private String renderAssignmentValue(GnashParser.AssignmentContext assignment) {
-        if (assignment == null) {
-            return null;
+    /**
+     * The shell code of the command {@code iterable} is the output of: a
+     * {@code $"..."} literal, or a command string passed to a wrapper like the
+     * steps' {@code run}. {@code null} for anything else.
+     */
+    private String streamedCommand(Ir.Expr iterable) {
+        if (iterable instanceof Ir.Literal && ((Ir.Literal) iterable).kind == Ir.LiteralKind.SHELL) {
+            String command = shellLiteralToCommand(((Ir.Literal) iterable).text);
+            return command == null ? null : command.substring(2, command.length() - 1);
         }
-        if (assignment.destructuringPattern() != null) {
+        if (!(iterable instanceof Ir.Call)) {
             return null;
         }
-        return renderLogicOrExpression(assignment.logicOrExpression());
-    }
-
-    private String renderLogicOrExpression(GnashParser.LogicOrExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        List<GnashParser.LogicAndExpressionContext> parts = ctx.logicAndExpression();
-        if (parts.size() != 1) {
+        Ir.Call call = (Ir.Call) iterable;
+        if (call.root == null || call.method != null || call.args.size() != 1 || !(call.args.get(0) instanceof Ir.Str)) {
             return null;
         }
-        return renderLogicAndExpression(parts.get(0));
+        Ir.Function fn = currentModule.function(call.root.text);
+        return fn == null ? null : CommandRewrites.wrappedCommand(fn, (Ir.Str) call.args.get(0));
     }
 
-    private String renderLogicAndExpression(GnashParser.LogicAndExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        List<GnashParser.EqualityExpressionContext> parts = ctx.equalityExpression();
-        if (parts.size() != 1) {
-            return null;
+    /**
+     * Iterates the output of {@code command} line by line as it is printed,
+     * instead of capturing it and splitting it into a list first. Blank lines
+     * are skipped, as splitting would drop them. The loop reads from its own
+     * descriptor, so the body keeps its stdin, and afterwards the command's
+     * exit status is the status of the statement, like a failed {@code run}.
+     * Leaving the loop early cuts the command off with SIGPIPE, so it runs
+     * without the ERR trap; a return or throw from the body closes the
+     * descriptor and reaps the command first, as the end of the loop does.
+     */
+    private void renderStreamingFor(BashEmitter script,
+                                    Ir.For ctx,
+                                    String command,
+                                    int indentLevel,
+                                    Set<String> locals) {
+        String loopVar = ctx.variable.bash;
+        String fdVar = nextTempVar("__gnash_fd");
+        String pidVar = nextTempVar("__gnash_pid");
+        declareLocal(script, indentLevel, locals, fdVar);
+        script.indent(indentLevel);
+        script.append("exec {").append(fdVar).append("}< <(trap - ERR; ").append(command).append(")\n");
+        writeAssignment(script, indentLevel, locals, pidVar, "$!");
+        script.indent(indentLevel);
+        script.append("while IFS= read -r -u \"${").append(fdVar).append("}\" ").append(loopVar)
+              .append(" || [[ -n ${").append(loopVar).append("} ]]; do\n");
+        script.indent(indentLevel + 1);
+        script.append("[[ -n ${").append(loopVar).append("} ]] || continue\n");
+        Set<String> bodyLocals = locals == null ? null : new HashSet<>(locals);
+        if (bodyLocals != null) {
+            bodyLocals.add(loopVar);
         }
-        return renderEqualityExpression(parts.get(0));
-    }
-
-    private String renderEqualityExpression(GnashParser.EqualityExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+        loops.push(false);
+        frames.push(new Frame(loops.size(),
+                "exec {" + fdVar + "}<&-; wait \"${" + pidVar + "}\" || :", null, null));
+        try {
+            renderBlock(script, ctx.body, indentLevel + 1, bodyLocals);
+        } finally {
+            frames.pop();
+            loops.pop();
         }
-        if (ctx.relationalExpression().size() != 1) {
-            return null;
+        if (locals != null && bodyLocals != null) {
+            locals.addAll(bodyLocals);
         }
-        return renderRelationalExpression(ctx.relationalExpression(0));
+        script.indent(indentLevel);
+        script.append("done\n");
+        script.indent(indentLevel);
+        script.append("exec {").append(fdVar).append("}<&-\n");
+        script.indent(indentLevel);
+        script.append("__gnash_stream_wait \"${").append(pidVar).append("}\"");
+        endCommand(script);
     }
 
-    private String renderRelationalExpression(GnashParser.RelationalExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+    private void renderReturnStatement(BashEmitter script,
+                                       Ir.Return ctx,
+                                       int indentLevel) {
+        if (ctx.value == null) {
+            script.indent(indentLevel);
+            script.append(leaveFunction("return", null)).append('\n');
+            return;
         }
-        if (ctx.additiveExpression().size() != 1) {
-            return null;
+        boolean bool = kinds.kind(ctx.value) == ValueKinds.Kind.BOOL;
+        if (bool && ctx.value instanceof Ir.Literal) {
+            // Booleans are returned the way tests are, as the status.
+            boolean holds = ((Ir.Literal) ctx.value).kind == Ir.LiteralKind.TRUE;
+            emitStringReturn(script, indentLevel, Boolean.toString(holds), holds ? 0 : 1);
+            return;
         }
-        return renderAdditiveExpression(ctx.additiveExpression(0));
-    }
-
-    private String renderAdditiveExpression(GnashParser.AdditiveExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+        int mark = hoistMark();
+        String value = bool ? null : renderExpression(ctx.value);
+        value = unwrapIdentifier(value);
+        if (value != null) {
+            String status = passedStatus(ctx.value, mark);
+            emitHoisted(script, indentLevel);
+            if (isExitCodeValue(value)) {
+                script.indent(indentLevel);
+                script.append(leaveFunction("return", value)).append('\n');
+            } else if (status != null) {
+                emitStringReturn(script, indentLevel, value, status);
+            } else {
+                emitStringReturn(script, indentLevel, value);
+            }
+            return;
         }
-        if (ctx.multiplicativeExpression().size() != 1) {
-            return null;
+        Condition test = renderCondition(ctx.value);
+        if (test != null) {
+            // Callers test the status; values read back as the boolean.
+            emitHoisted(script, indentLevel);
+            script.indent(indentLevel);
+            script.append("if ").append(test.format()).append("; then\n");
+            emitStringReturn(script, indentLevel + 1, "true");
+            script.indent(indentLevel);
+            script.append("fi\n");
+            emitStringReturn(script, indentLevel, "false", 1);
+            return;
         }
-        return renderMultiplicativeExpression(ctx.multiplicativeExpression(0));
+        script.indent(indentLevel);
+        script.append("# TODO return ").append(truncate(ctx.value.sourceText())).append('\n');
     }
 
-    private String renderMultiplicativeExpression(GnashParser.MultiplicativeExpressionContext ctx) {
-        if (ctx == null) {
+    /**
+     * Makes the call hoisted for {@code value} keep its status when it calls a
+     * Gnash function that may return a test among other values, so returning
+     * its value also passes on whether it returned false. The expansion of
+     * the status, or {@code null} for any other value, for a callee whose
+     * status only ever reports a failure errexit already stops at, or inside a
+     * try, where a failure has to reach the catch.
+     */
+    private String passedStatus(Ir.Expr value, int mark) {
+        if (tryStatus != null || !(value instanceof Ir.Call) || hoisted == null || hoisted.size() <= mark) {
             return null;
         }
-        if (ctx.unaryExpression().size() != 1) {
+        Linker.Pending target = linker.target(currentModule, (Ir.Call) value);
+        if (target == null || signatures.result(target.module, target.function) != null) {
             return null;
         }
-        return renderUnaryExpression(ctx.unaryExpression(0));
+        String status = nextTempVar("__gnash_status");
+        int call = hoisted.size() - 1;
+        // The status is returned as it is, a throw included.
+        String line = hoisted.get(call);
+        line = line.substring(0, line.length() - callEnd((Ir.Call) value).length());
+        hoisted.set(call, line + " || " + status + "=$?");
+        hoisted.add(call, "local " + status + "=0");
+        return "\"${" + status + "}\"";
     }
 
-    private String renderUnaryExpression(GnashParser.UnaryExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+    private void renderThrowStatement(BashEmitter script,
+                                      Ir.Throw ctx,
+                                      int indentLevel) {
+        String value = renderExpression(ctx.value);
+        if (value == null) {
+            appendUnsupported(script, indentLevel, ctx.sourceText());
+            return;
         }
-        if (ctx.postfixExpression() == null || ctx.getChildCount() != 1) {
-            return null;
+        value = unwrapIdentifier(value);
+        emitHoisted(script, indentLevel);
+        script.indent(indentLevel);
+        script.append("__GNASH_ERROR=").append(value).append('\n');
+        if (tryStatus != null) {
+            script.indent(indentLevel);
+            script.append(leaveTry(Integer.toString(THROW_STATUS))).append('\n');
+            return;
         }
-        return renderPostfixExpression(ctx.postfixExpression());
+        emitStringReturn(script, indentLevel, value, THROW_STATUS);
     }
 
-    private String renderPostfixExpression(GnashParser.PostfixExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+    private boolean renderAssignment(BashEmitter script,
+                                     Ir.Assign assignment,
+                                     int indentLevel,
+                                     Set<String> locals) {
+        List<Ir.Name> identifiers = assignment.targets;
+        if (identifiers.isEmpty()) {
+            return false;
         }
-        if (!ctx.postfixOperator().isEmpty()) {
-            String callValue = renderCallValue(ctx);
-            if (callValue != null) {
-                return callValue;
-            }
-            String propertyValue = renderPropertyAccess(ctx);
-            if (propertyValue != null) {
-                return propertyValue;
+        if (identifiers.size() > 1) {
+            // The status of the call is read back through $?, so it stays a
+            // single command substitution.
+            String rhs = withoutHoisting(() -> renderExpression(assignment.value));
+            if (rhs != null && identifiers.size() == 2) {
+                String enclosingStatus = tryStatus;
+                tryStatus = null;
+                try {
+                    writeShellAssignment(script, indentLevel, locals, identifiers.get(0).bash, assignment.value, rhs);
+                } finally {
+                    tryStatus = enclosingStatus;
+                }
+                writeAssignment(script, indentLevel, locals, identifiers.get(1).bash, "$?");
+                return true;
             }
-            return null;
-        }
-        return renderPrimaryExpression(ctx.primaryExpression());
-    }
-
-    private String renderPropertyAccess(GnashParser.PostfixExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.postfixOperator().size() != 1) {
-            return null;
-        }
-        GnashParser.PostfixOperatorContext op = ctx.postfixOperator(0);
-        if (op.arguments() != null) {
-            return null;
-        }
-        if (op.IDENTIFIER() == null) {
-            return null;
+            return false;
         }
-        if (op.getChildCount() == 0 || !".".equals(op.getChild(0).getText())) {
-            return null;
+        String bashVar = identifiers.get(0).bash;
+        if (assignment.value instanceof Ir.Call && kinds.kind(assignment.value) == ValueKinds.Kind.BOOL
+                && writeTestAssignment(script, indentLevel, locals, bashVar, assignment.value)) {
+            // The call's status is the boolean, so it runs as the condition.
+            return true;
         }
-        String base = extractIdentifier(ctx.primaryExpression());
-        if (base == null) {
-            return null;
+        String rhs = renderExpression(assignment.value);
+        if (rhs == null) {
+            return writeTestAssignment(script, indentLevel, locals, bashVar, assignment.value);
         }
-        String bashVar = toBashIdentifier(base);
-        String property = op.IDENTIFIER().getText();
-        StringBuilder builder = new StringBuilder();
-        builder.append("\"$(__gnash_struct_get \\\"${")
-               .append(bashVar)
-               .append(":-}\\\" ")
-               .append(singleQuote(property))
-               .append(")\"");
-        return builder.toString();
+        emitHoisted(script, indentLevel);
+        writeShellAssignment(script, indentLevel, locals, bashVar, assignment.value, rhs);
+        return true;
     }
 
-    private String renderPrimaryExpression(GnashParser.PrimaryExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.literal() != null) {
-            return renderLiteral(ctx.literal());
-        }
-        if (ctx.IDENTIFIER() != null) {
-            String bashVar = toBashIdentifier(ctx.IDENTIFIER().getText());
-            return "\"${" + bashVar + "}\"";
-        }
-        if (ctx.expression() != null) {
-            return renderExpression(ctx.expression());
+    /**
+     * Stores the outcome of {@code test} in {@code bashVar} as {@code true} or
+     * {@code false}. Returns {@code false} when it has no condition form.
+     */
+    private boolean writeTestAssignment(BashEmitter script,
+                                        int indentLevel,
+                                        Set<String> locals,
+                                        String bashVar,
+                                        Ir.Expr test) {
+        Condition condition = renderCondition(test);
+        if (condition == null) {
+            return false;
         }
-        return null;
+        emitHoisted(script, indentLevel);
+        writeAssignment(script, indentLevel, locals, bashVar, "false");
+        script.indent(indentLevel);
+        script.append("if ").append(condition.format()).append("; then\n");
+        writeAssignment(script, indentLevel + 1, locals, bashVar, "true");
+        script.indent(indentLevel);
+        script.append("fi\n");
+        return true;
     }
 
-    private String renderExpression(GnashParser.ExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+    /**
+     * Renders {@code expr} as a Bash test command, or returns {@code null} when
+     * the expression has no condition form yet.
+     */
+    private Condition renderCondition(Ir.Expr expr) {
+        int mark = hoistMark();
+        Condition condition = renderTest(expr);
+        if (condition == null) {
+            rollBackHoisted(mark);
         }
-        return renderAssignmentValue(ctx.assignment());
+        return condition;
     }
 
-    private Call tryRenderCall(GnashParser.ExpressionContext ctx) {
-        if (ctx == null) {
+    private Condition renderTest(Ir.Expr expr) {
+        if (expr == null || expr instanceof Ir.Assign) {
             return null;
         }
-        return tryRenderCall(ctx.assignment());
-    }
-
-    private Call tryRenderCall(GnashParser.AssignmentContext ctx) {
-        if (ctx == null || ctx.destructuringPattern() != null) {
-            return null;
+        if (arithmeticTest(expr)) {
+            int mark = hoistMark();
+            String arithmetic = renderArithmetic(expr);
+            if (arithmetic != null) {
+                return new Condition("(( " + arithmetic + " ))");
+            }
+            rollBackHoisted(mark);
         }
-        return tryRenderCall(ctx.logicOrExpression());
-    }
-
-    private Call tryRenderCall(GnashParser.LogicOrExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+        if (expr instanceof Ir.Binary) {
+            return renderBinaryCondition((Ir.Binary) expr);
         }
-        List<GnashParser.LogicAndExpressionContext> parts = ctx.logicAndExpression();
-        if (parts.size() != 1) {
+        if (expr instanceof Ir.Unary) {
+            Ir.Unary unary = (Ir.Unary) expr;
+            Condition operand = renderCondition(unary.operand);
+            if (operand == null) {
+                return null;
+            }
+            if ("!".equals(unary.op)) {
+                return isLogical(unary.operand) ? operand.grouped().negate() : operand.negate();
+            }
             return null;
         }
-        return tryRenderCall(parts.get(0));
-    }
-
-    private Call tryRenderCall(GnashParser.LogicAndExpressionContext ctx) {
-        if (ctx == null) {
+        if (expr instanceof Ir.Call || expr instanceof Ir.Property) {
+            Call call = tryRenderCall(expr);
+            if (call != null) {
+                String command = renderCallCommand(call);
+                if (command != null && runsFunction(command) && mayThrow(call.node)) {
+                    // The status is the test, unless the function threw.
+                    return new Condition("{ " + command + " || { " + rethrow() + "; false; }; }");
+                }
+                if (command != null) {
+                    return new Condition(command);
+                }
+            }
+            String propertyValue = renderPropertyAccess(expr);
+            if (propertyValue != null) {
+                return truthy(propertyValue);
+            }
             return null;
         }
-        List<GnashParser.EqualityExpressionContext> parts = ctx.equalityExpression();
-        if (parts.size() != 1) {
-            return null;
+        if (expr instanceof Ir.Var) {
+            String name = ((Ir.Var) expr).name.bash;
+            if (kinds.kind(expr) == ValueKinds.Kind.BOOL) {
+                return new Condition("[[ ${" + name + "} == true ]]");
+            }
+            return truthy("${" + name + ":-}");
         }
-        return tryRenderCall(parts.get(0));
-    }
-
-    private Call tryRenderCall(GnashParser.EqualityExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+        if (expr instanceof Ir.Str) {
+            return new Condition("[[ -n " + ((Ir.Str) expr).raw + " ]]");
         }
-        if (ctx.relationalExpression().size() != 1) {
-            return null;
+        if (expr instanceof Ir.Literal) {
+            return renderConditionFromLiteral((Ir.Literal) expr);
         }
-        return tryRenderCall(ctx.relationalExpression(0));
+        return null;
     }
 
-    private Call tryRenderCall(GnashParser.RelationalExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.additiveExpression().size() != 1) {
-            return null;
-        }
-        return tryRenderCall(ctx.additiveExpression(0));
+    /**
+     * Tests {@code word} the way a value of unknown kind is tested: the empty
+     * string and the boolean {@code false} are false, anything else is true.
+     * The pattern is matched as if {@code extglob} were on.
+     */
+    private static Condition truthy(String word) {
+        return new Condition("[[ " + word + " != @(|false) ]]");
     }
 
-    private Call tryRenderCall(GnashParser.AdditiveExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.multiplicativeExpression().size() != 1) {
-            return null;
-        }
-        return tryRenderCall(ctx.multiplicativeExpression(0));
+    private static boolean isLogical(Ir.Expr expr) {
+        return expr instanceof Ir.Binary
+                && ("&&".equals(((Ir.Binary) expr).op) || "||".equals(((Ir.Binary) expr).op));
     }
 
-    private Call tryRenderCall(GnashParser.MultiplicativeExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.unaryExpression().size() != 1) {
-            return null;
+    private Condition renderBinaryCondition(Ir.Binary binary) {
+        switch (binary.op) {
+            case "||":
+            case "&&": {
+                Condition left = renderCondition(binary.left);
+                if (left == null) {
+                    return null;
+                }
+                Condition right = renderDeferredCondition(binary.right, true);
+                if (right == null) {
+                    return null;
+                }
+                return left.combine(right, binary.op);
+            }
+            case "==":
+            case "!=": {
+                String left = renderExpression(binary.left);
+                String right = renderExpression(binary.right);
+                if (left == null || right == null) {
+                    return null;
+                }
+                return new Condition("[[ " + left + " " + binary.op + " " + right + " ]]");
+            }
+            case "is": {
+                ValueKinds.Kind kind = kinds.kind(binary.left);
+                if (binary.left instanceof Ir.Var && binary.right instanceof Ir.Var && kind != null
+                        && kind != ValueKinds.Kind.STRING) {
+                    // Only a string could hold a list or map token without being known as one.
+                    String type = ((Ir.Var) binary.right).name.text;
+                    if ("List".equals(type) || "Map".equals(type)) {
+                        boolean holds = kind == ("List".equals(type) ? ValueKinds.Kind.LIST : ValueKinds.Kind.MAP);
+                        return new Condition(holds ? ":" : "false");
+                    }
+                }
+                if (binary.right instanceof Ir.Var && "Boolean".equals(((Ir.Var) binary.right).name.text)) {
+                    // Booleans are held as the words true/false, so only a value known to be one can be told apart.
+                    return new Condition(kind == ValueKinds.Kind.BOOL ? ":" : "false");
+                }
+                String left = renderExpression(binary.left);
+                if (left == null) {
+                    return null;
+                }
+                if (binary.right instanceof Ir.Var && "List".equals(((Ir.Var) binary.right).name.text)) {
+                    return new Condition("__gnash_is_list " + left);
+                }
+                if (binary.right instanceof Ir.Var && "Map".equals(((Ir.Var) binary.right).name.text)) {
+                    return new Condition("__gnash_is_map " + left);
+                }
+                return null;
+            }
+            default:
+                return null;
         }
-        return tryRenderCall(ctx.unaryExpression(0));
     }
 
-    private Call tryRenderCall(GnashParser.UnaryExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.postfixExpression() == null || ctx.getChildCount() != 1) {
-            return null;
+    private Condition renderConditionFromLiteral(Ir.Literal literal) {
+        switch (literal.kind) {
+            case TRUE:
+                return new Condition(":");
+            case FALSE:
+            case NULL:
+                return new Condition("false");
+            case NUMBER:
+                return new Condition("(( " + literal.text + " ))");
+            default:
+                return null;
         }
-        return tryRenderCall(ctx.postfixExpression());
     }
 
-    private Call tryRenderCall(GnashParser.PostfixExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+    /**
+     * Renders {@code expr} as a single Bash word, or returns {@code null} when
+     * the expression has no value form yet.
+     */
+    private String renderExpression(Ir.Expr expr) {
+        int mark = hoistMark();
+        String value = renderValue(expr);
+        if (value == null) {
+            rollBackHoisted(mark);
         }
-        String base = extractIdentifier(ctx.primaryExpression());
-        if (base == null) {
+        return value;
+    }
+
+    private String renderValue(Ir.Expr expr) {
+        if (expr == null || expr instanceof Ir.Assign) {
             return null;
         }
-        String currentTarget = base;
-        Call lastCall = null;
-        for (GnashParser.PostfixOperatorContext op : ctx.postfixOperator()) {
-            GnashParser.ArgumentsContext argsCtx = op.arguments();
-            if (op.getChildCount() > 0 && ".".equals(op.getChild(0).getText())) {
-                if (op.IDENTIFIER() != null) {
-                    currentTarget = currentTarget + "." + op.IDENTIFIER().getText();
-                }
-                if (argsCtx != null) {
-                    List<String> args = renderArguments(argsCtx);
-                    if (args == null) {
-                        return null;
-                    }
-                    lastCall = new Call(currentTarget, args);
-                }
-            } else if (argsCtx != null) {
-                List<String> args = renderArguments(argsCtx);
-                if (args == null) {
-                    return null;
-                }
-                lastCall = new Call(currentTarget, args);
+        if (expr instanceof Ir.Call || expr instanceof Ir.Property) {
+            Call call = tryRenderCall(expr);
+            if (call != null) {
+                return renderCallValue(call);
             }
+            return renderPropertyAccess(expr);
+        }
+        if (expr instanceof Ir.Var) {
+            return "\"${" + ((Ir.Var) expr).name.bash + "}\"";
         }
-        return lastCall;
+        if (expr instanceof Ir.Str) {
+            return rewriteStringLiteral((Ir.Str) expr);
+        }
+        if (expr instanceof Ir.Binary || expr instanceof Ir.Unary) {
+            return renderOperatorValue(expr);
+        }
+        if (expr instanceof Ir.Literal) {
+            return renderLiteral((Ir.Literal) expr);
+        }
+        if (expr instanceof Ir.ListLiteral) {
+            return renderListLiteral((Ir.ListLiteral) expr);
+        }
+        if (expr instanceof Ir.MapLiteral) {
+            return renderMapLiteral((Ir.MapLiteral) expr);
+        }
+        return null;
     }
 
-    private List<String> renderArguments(GnashParser.ArgumentsContext ctx) {
-        List<String> args = new ArrayList<>();
-        if (ctx == null) {
-            return args;
-        }
-        GnashParser.ArgumentListContext list = ctx.argumentList();
-        if (list != null) {
-            for (GnashParser.ExpressionContext expressionContext : list.expression()) {
-                String value = renderExpression(expressionContext);
-                if (value == null) {
+    /**
+     * Renders arithmetic as one {@code $(( ))} and {@code +} on a string as
+     * the two words run together. A {@code +} whose operands could be either
+     * decides at run time in {@code __gnash_plus}. Tests have no value form.
+     */
+    private String renderOperatorValue(Ir.Expr expr) {
+        if (expr instanceof Ir.Unary) {
+            String op = ((Ir.Unary) expr).op;
+            if (!"-".equals(op) && !"+".equals(op)) {
+                return null;
+            }
+        } else {
+            Ir.Binary binary = (Ir.Binary) expr;
+            if (!"+".equals(binary.op) && !ARITHMETIC_OPERATORS.contains(binary.op)) {
+                return null;
+            }
+            if ("+".equals(binary.op) && !kinds.numeric(binary)) {
+                String left = renderExpression(binary.left);
+                String right = left == null ? null : renderExpression(binary.right);
+                if (right == null) {
                     return null;
                 }
-                args.add(value);
+                if (kinds.string(binary)) {
+                    return concatenate(left, right);
+                }
+                String sum = hoistValue("__gnash_plus", List.of(left, right));
+                return sum != null ? sum : "\"$(__gnash_plus \"\" " + left + " " + right + ")\"";
             }
         }
-        return args;
+        String arithmetic = renderArithmetic(expr);
+        return arithmetic == null ? null : "$(( " + arithmetic + " ))";
     }
 
-    private String extractIdentifier(GnashParser.PrimaryExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.IDENTIFIER() != null) {
-            return ctx.IDENTIFIER().getText();
+    /** Two words as one: {@code "a""b"} is written {@code "ab"}. */
+    private static String concatenate(String left, String right) {
+        if (left.endsWith("\"") && right.startsWith("\"")) {
+            return left.substring(0, left.length() - 1) + right.substring(1);
         }
-        return null;
+        return left + right;
     }
 
-    private String extractIdentifier(GnashParser.ExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+    /**
+     * Whether {@code expr} is a test Bash can evaluate arithmetically:
+     * ordering comparisons, {@code ==}/{@code !=} with a number on either
+     * side, and {@code &&}, {@code ||} and {@code !} over such tests.
+     */
+    private boolean arithmeticTest(Ir.Expr expr) {
+        if (expr instanceof Ir.Unary) {
+            Ir.Unary unary = (Ir.Unary) expr;
+            return "!".equals(unary.op) && arithmeticTest(unary.operand);
         }
-        GnashParser.AssignmentContext assignment = ctx.assignment();
-        if (assignment == null || assignment.destructuringPattern() != null) {
-            return null;
+        if (!(expr instanceof Ir.Binary)) {
+            return false;
+        }
+        Ir.Binary binary = (Ir.Binary) expr;
+        switch (binary.op) {
+            case "&&":
+            case "||":
+                return arithmeticTest(binary.left) && arithmeticTest(binary.right);
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+                return true;
+            case "==":
+            case "!=":
+                return (kinds.numeric(binary.left) || kinds.numeric(binary.right))
+                        && !kinds.string(binary.left) && !kinds.string(binary.right)
+                        && !isKeyword(binary.left) && !isKeyword(binary.right);
+            default:
+                return false;
         }
-        return extractIdentifier(assignment.logicOrExpression());
     }
 
-    private String extractIdentifier(GnashParser.LogicOrExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        List<GnashParser.LogicAndExpressionContext> parts = ctx.logicAndExpression();
-        if (parts.size() != 1) {
-            return null;
-        }
-        return extractIdentifier(parts.get(0));
+    private static boolean isKeyword(Ir.Expr expr) {
+        return expr instanceof Ir.Literal && ((Ir.Literal) expr).kind != Ir.LiteralKind.NUMBER;
     }
 
-    private String extractIdentifier(GnashParser.LogicAndExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+    /**
+     * {@code expr} as the text of one Bash arithmetic expression, or
+     * {@code null}. Numbers and operators are written as they are and locals
+     * by name; any other operand is expanded in place. Parentheses are only
+     * added where Bash's C precedence would regroup the source.
+     */
+    private String renderArithmetic(Ir.Expr expr) {
+        if (expr instanceof Ir.Literal && ((Ir.Literal) expr).kind == Ir.LiteralKind.NUMBER) {
+            return ((Ir.Literal) expr).text;
         }
-        List<GnashParser.EqualityExpressionContext> parts = ctx.equalityExpression();
-        if (parts.size() != 1) {
-            return null;
+        if (expr instanceof Ir.Var) {
+            return ((Ir.Var) expr).name.bash;
         }
-        return extractIdentifier(parts.get(0));
-    }
-
-    private String extractIdentifier(GnashParser.EqualityExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+        if (expr instanceof Ir.Unary) {
+            Ir.Unary unary = (Ir.Unary) expr;
+            if (!"-".equals(unary.op) && !"+".equals(unary.op) && !"!".equals(unary.op)) {
+                return null;
+            }
+            String operand = renderArithmetic(unary.operand);
+            if (operand == null) {
+                return null;
+            }
+            return unary.operand instanceof Ir.Binary ? unary.op + "(" + operand + ")" : unary.op + operand;
+        }
+        if (expr instanceof Ir.Binary) {
+            Ir.Binary binary = (Ir.Binary) expr;
+            int precedence = precedence(binary.op);
+            if (precedence < 0 || ("+".equals(binary.op) && (kinds.string(binary.left) || kinds.string(binary.right)))) {
+                return null;
+            }
+            String left = renderArithmetic(binary.left);
+            if (left == null) {
+                return null;
+            }
+            // The right side of && and || is only evaluated on demand.
+            boolean lazy = "&&".equals(binary.op) || "||".equals(binary.op);
+            String right = lazy ? renderDeferredArithmetic(binary.right) : renderArithmetic(binary.right);
+            if (right == null) {
+                return null;
+            }
+            if (binary.left instanceof Ir.Binary && precedence(((Ir.Binary) binary.left).op) < precedence) {
+                left = "(" + left + ")";
+            }
+            if (binary.right instanceof Ir.Binary && precedence(((Ir.Binary) binary.right).op) <= precedence) {
+                right = "(" + right + ")";
+            }
+            return left + " " + binary.op + " " + right;
         }
-        if (ctx.relationalExpression().size() != 1) {
+        String value = renderExpression(expr);
+        if (value == null) {
             return null;
         }
-        return extractIdentifier(ctx.relationalExpression(0));
+        Matcher variable = EXPANDED_VARIABLE.matcher(value);
+        return variable.matches() ? variable.group(1) : value;
     }
 
-    private String extractIdentifier(GnashParser.RelationalExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (ctx.additiveExpression().size() != 1) {
-            return null;
+    private static int precedence(String op) {
+        switch (op) {
+            case "||":
+                return 1;
+            case "&&":
+                return 2;
+            case "==":
+            case "!=":
+                return 3;
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+                return 4;
+            case "+":
+            case "-":
+                return 5;
+            case "*":
+            case "/":
+            case "%":
+                return 6;
+            default:
+                return -1;
         }
-        return extractIdentifier(ctx.additiveExpression(0));
     }
 
-    private String extractIdentifier(GnashParser.AdditiveExpressionContext ctx) {
-        if (ctx == null) {
+    private String renderPropertyAccess(Ir.Expr expr) {
+        if (!(expr instanceof Ir.Property)) {
             return null;
         }
-        if (ctx.multiplicativeExpression().size() != 1) {
+        Ir.Property property = (Ir.Property) expr;
+        if (!(property.receiver instanceof Ir.Var)) {
             return null;
         }
-        return extractIdentifier(ctx.multiplicativeExpression(0));
+        return renderMapGet(((Ir.Var) property.receiver).name.bash, singleQuote(property.name.text));
     }
 
-    private String extractIdentifier(GnashParser.MultiplicativeExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
+    /**
+     * Finds the invocation a postfix chain ends in, looking through trailing
+     * member accesses, and renders its arguments. Returns {@code null} when the
+     * chain is not rooted at an identifier or an argument cannot be rendered.
+     */
+    private Call tryRenderCall(Ir.Expr expr) {
+        Ir.Expr node = expr;
+        while (node instanceof Ir.Property) {
+            node = ((Ir.Property) node).receiver;
         }
-        if (ctx.unaryExpression().size() != 1) {
+        if (!(node instanceof Ir.Call)) {
             return null;
         }
-        return extractIdentifier(ctx.unaryExpression(0));
-    }
-
-    private String extractIdentifier(GnashParser.UnaryExpressionContext ctx) {
-        if (ctx == null) {
+        Ir.Call call = (Ir.Call) node;
+        if (call.target == null) {
             return null;
         }
-        if (ctx.postfixExpression() == null || ctx.getChildCount() != 1) {
+        List<String> args = renderArguments(call.args);
+        if (args == null) {
             return null;
         }
-        return extractIdentifier(ctx.postfixExpression());
+        for (Ir.Expr inner = call.callee; !(inner instanceof Ir.Var); ) {
+            if (inner instanceof Ir.Call) {
+                // Only checks that the chain is renderable; nothing here is emitted.
+                List<Ir.Expr> innerExprs = ((Ir.Call) inner).args;
+                List<String> innerArgs = withoutHoisting(() -> renderArguments(innerExprs));
+                if (innerArgs == null) {
+                    return null;
+                }
+                inner = ((Ir.Call) inner).callee;
+            } else {
+                inner = ((Ir.Property) inner).receiver;
+            }
+        }
+        return new Call(call, args);
     }
 
-    private String extractIdentifier(GnashParser.PostfixExpressionContext ctx) {
-        if (ctx == null) {
-            return null;
-        }
-        if (!ctx.postfixOperator().isEmpty()) {
-            return null;
+    private List<String> renderArguments(List<Ir.Expr> exprs) {
+        List<String> args = new ArrayList<>(exprs.size());
+        for (Ir.Expr expr : exprs) {
+            String value = renderExpression(expr);
+            if (value == null) {
+                return null;
+            }
+            args.add(value);
         }
-        return extractIdentifier(ctx.primaryExpression());
+        return args;
     }
 
-    private String renderCallValue(GnashParser.PostfixExpressionContext ctx) {
-        Call call = tryRenderCall(ctx);
-        if (call == null) {
-            return null;
-        }
+    private String renderCallValue(Call call) {
         String listValue = renderListMethodValue(call);
         if (listValue != null) {
             return listValue;
@@ -1785,9 +2639,9 @@ __gnash_struct_get() {
         if (configValue != null) {
             return configValue;
         }
-        String structGet = renderStructGetCall(call);
-        if (structGet != null) {
-            return structGet;
+        String mapGet = renderMapGetCall(call);
+        if (mapGet != null) {
+            return mapGet;
         }
         if (call.target.startsWith("__gnash_")) {
             StringBuilder direct = new StringBuilder("$(");
@@ -1798,6 +2652,26 @@ __gnash_struct_get() {
             direct.append(')');
             return direct.toString();
         }
+        String function = linker.resolve(currentModule, call.node);
+        String outValue = function == null ? null : hoistValue(function, call.args, commandRewrite(call));
+        if (outValue != null) {
+            int line = hoisted.size() - 1;
+            hoisted.set(line, hoisted.get(line) + callEnd(call.node));
+            return outValue;
+        }
+        if (function != null) {
+            StringBuilder direct = new StringBuilder("$(__gnash_capture ");
+            direct.append(function);
+            for (String arg : call.args) {
+                direct.append(' ').append(arg);
+            }
+            direct.append(')');
+            return direct.toString();
+        }
+        String stringValue = renderStringValue(call);
+        if (stringValue != null) {
+            return stringValue;
+        }
         StringBuilder value = new StringBuilder("$(");
         value.append("__gnash_call ").append(singleQuote(call.target));
         for (String arg : call.args) {
@@ -1807,8 +2681,8 @@ __gnash_struct_get() {
         return value.toString();
     }
 
-    private String renderStructGetCall(Call call) {
-        if (call == null || call.args.size() != 1) {
+    private String renderMapGetCall(Call call) {
+        if (call.args.size() != 1) {
             return null;
         }
         if (!call.target.endsWith(".get")) {
@@ -1822,20 +2696,13 @@ __gnash_struct_get() {
         if (receiver.isEmpty() || !Character.isLowerCase(receiver.charAt(0))) {
             return null;
         }
-        String bashVar = toBashIdentifier(receiver);
-        StringBuilder builder = new StringBuilder();
-        builder.append("\"$(__gnash_struct_get \\\"${")
-               .append(bashVar)
-               .append(":-}\\\" ")
-               .append(call.args.get(0))
-               .append(")\"");
-        return builder.toString();
+        String bashVar = receiver.equals(call.node.root.text)
+                ? call.node.root.bash
+                : IrLowering.toBashIdentifier(receiver);
+        return renderMapGet(bashVar, call.args.get(0));
     }
 
     private String renderCallCommand(Call call) {
-        if (call == null) {
-            return null;
-        }
         String listCommand = renderListMethodCommand(call);
         if (listCommand != null) {
             return listCommand;
@@ -1864,6 +2731,26 @@ __gnash_struct_get() {
             }
             return echoCmd.toString();
         }
+        if ("die".equals(call.target)) {
+            return ("__gnash_die " + joinArguments(call.args)).trim();
+        }
+        String function = linker.resolve(currentModule, call.node);
+        if (function != null) {
+            StringBuilder direct = new StringBuilder(function);
+            direct.append(" \"\"");
+            for (String arg : call.args) {
+                direct.append(' ').append(arg);
+            }
+            CommandRewrites.Rewrite fast = commandRewrite(call);
+            if (fast != null) {
+                return "{ " + fast.command("\"\"") + " || " + direct + "; }";
+            }
+            return direct.toString();
+        }
+        String stringTest = renderStringTest(call);
+        if (stringTest != null) {
+            return stringTest;
+        }
         StringBuilder command = new StringBuilder("__gnash_invoke ");
         command.append(singleQuote(call.target));
         for (String arg : call.args) {
@@ -1872,44 +2759,178 @@ __gnash_struct_get() {
         return command.toString();
     }
 
-    private String renderListMethodCommand(Call call) {
-        if (call == null) {
+    /**
+     * The builtin fast path for {@code call} when it passes a command string
+     * to a function of this module that runs its argument, like the steps'
+     * {@code run}.
+     */
+    private CommandRewrites.Rewrite commandRewrite(Call call) {
+        Ir.Call node = call.node;
+        if (node.root == null || node.method != null || node.args.size() != 1 || !(node.args.get(0) instanceof Ir.Str)) {
             return null;
         }
-        int idx = call.target.indexOf('.');
-        if (idx <= 0) {
+        Ir.Function fn = currentModule.function(node.root.text);
+        if (fn == null || !CommandRewrites.runsArgument(fn)) {
             return null;
         }
-        String receiver = call.target.substring(0, idx);
-        String method = call.target.substring(idx + 1);
-        String bashVar = toBashIdentifier(receiver);
+        return CommandRewrites.forString((Ir.Str) node.args.get(0));
+    }
+
+    /**
+     * Renders a {@link StringMethods} chain as a value: in place where Bash has
+     * an expansion for the last method ({@code ${#v}}, {@code ${v,,}}),
+     * otherwise as a hoisted {@code __gnash_str_*} call. Chains ending in a
+     * test have no value form and return {@code null}.
+     */
+    private String renderStringValue(Call call) {
+        StringMethods.Chain chain = StringMethods.of(call.node);
+        if (chain == null || chain.last().result() == StringMethods.Result.TEST) {
+            return null;
+        }
+        String receiver = stringReceiver(chain);
+        if (receiver == null) {
+            return null;
+        }
+        switch (chain.last().method) {
+            case "toString":
+                return "\"${" + receiver + "}\"";
+            case "toLowerCase":
+                return "\"${" + receiver + ",,}\"";
+            case "toUpperCase":
+                return "\"${" + receiver + "^^}\"";
+            case "length":
+                return "${#" + receiver + "}";
+            default:
+                break;
+        }
+        List<String> args = new ArrayList<>();
+        args.add("\"${" + receiver + "}\"");
+        args.addAll(call.args);
+        String helper = stringHelper(chain.last().method);
+        String hoistedValue = hoistValue(helper, args);
+        return hoistedValue != null ? hoistedValue : "\"$(" + helper + " \"\" " + joinArguments(args) + ")\"";
+    }
+
+    /**
+     * Renders a {@link StringMethods} chain as a test: {@code [[ ... ]]}
+     * pattern matches for the tests and for the truth of a trimmed value,
+     * {@code -n} on the value otherwise.
+     */
+    private String renderStringTest(Call call) {
+        StringMethods.Chain chain = StringMethods.of(call.node);
+        if (chain == null || chain.last().result() == StringMethods.Result.NUMBER) {
+            return null;
+        }
+        String method = chain.last().method;
+        if (chain.last().result() == StringMethods.Result.STRING && !"trim".equals(method)) {
+            String value = renderStringValue(call);
+            return value == null ? null : "[[ -n " + value + " ]]";
+        }
+        String receiver = stringReceiver(chain);
+        if (receiver == null) {
+            return null;
+        }
+        String subject = "${" + receiver + "}";
+        switch (method) {
+            case "trim":
+                return "[[ " + subject + " == *[![:space:]]* ]]";
+            case "isEmpty":
+                return "[[ -z " + subject + " ]]";
+            case "contains":
+                return "[[ " + subject + " == *" + patternWord(call.args.get(0)) + "* ]]";
+            case "startsWith":
+                return "[[ " + subject + " == " + patternWord(call.args.get(0)) + "* ]]";
+            default:
+                return "[[ " + subject + " == *" + patternWord(call.args.get(0)) + " ]]";
+        }
+    }
+
+    /**
+     * The variable holding the value the last method of {@code chain} is
+     * called on. Links before it that need a statement are hoisted into
+     * temporaries, so this is {@code null} where nothing can be hoisted.
+     */
+    private String stringReceiver(StringMethods.Chain chain) {
+        String current = chain.root.bash;
+        for (StringMethods.Step step : chain.steps.subList(0, chain.steps.size() - 1)) {
+            if ("toString".equals(step.method)) {
+                continue;
+            }
+            if (hoisted == null) {
+                return null;
+            }
+            List<String> args = renderArguments(step.args);
+            if (args == null) {
+                return null;
+            }
+            String out = hoistedTemp();
+            if ("toLowerCase".equals(step.method)) {
+                hoisted.add(out + "=${" + current + ",,}");
+            } else if ("toUpperCase".equals(step.method)) {
+                hoisted.add(out + "=${" + current + "^^}");
+            } else {
+                args.add(0, "\"${" + current + "}\"");
+                hoisted.add(stringHelper(step.method) + " " + out + " " + joinArguments(args));
+            }
+            current = out;
+        }
+        return current;
+    }
+
+    private static String stringHelper(String method) {
+        switch (method) {
+            case "trim":
+                return "__gnash_str_trim";
+            case "replace":
+                return "__gnash_str_replace";
+            case "substring":
+                return "__gnash_str_substring";
+            default:
+                return "__gnash_str_index_of";
+        }
+    }
+
+    /** {@code arg} as part of a {@code [[ == ]]} pattern that matches it literally. */
+    private static String patternWord(String arg) {
+        return arg.startsWith("\"") || arg.startsWith("'") ? arg : "\"" + arg + "\"";
+    }
+
+    private String renderListMethodCommand(Call call) {
+        String method = call.node.method;
+        if (method == null) {
+            return null;
+        }
+        String bashVar = call.node.root.bash;
         if ("add".equals(method) && !call.args.isEmpty()) {
-            return "__gnash_list_append \"${" + bashVar + "}\" " + joinArguments(call.args);
+            return "__gnash_list_push " + bashVar + " " + joinArguments(call.args);
         }
         if ("contains".equals(method) && !call.args.isEmpty()) {
             return "__gnash_list_contains \"${" + bashVar + "}\" " + joinArguments(call.args);
         }
+        if ("containsKey".equals(method) && call.args.size() == 1) {
+            return "__gnash_map_contains \"${" + bashVar + ":-}\" " + call.args.get(0);
+        }
         return null;
     }
 
     private String renderListMethodValue(Call call) {
-        if (call == null) {
+        String method = call.node.method;
+        if (method == null) {
             return null;
         }
-        int idx = call.target.indexOf('.');
-        if (idx <= 0) {
-            return null;
+        String bashVar = call.node.root.bash;
+        if ("size".equals(method) && call.args.isEmpty()) {
+            List<String> args = List.of("\"${" + bashVar + "}\"");
+            String size = hoistValue("__gnash_size", args);
+            return size != null ? size : "\"$(__gnash_size \"\" " + args.get(0) + ")\"";
         }
-        String receiver = call.target.substring(0, idx);
-        String method = call.target.substring(idx + 1);
-        String bashVar = toBashIdentifier(receiver);
         if ("contains".equals(method) && !call.args.isEmpty()) {
             StringBuilder builder = new StringBuilder();
-            builder.append("$(__gnash_list_contains_value \"${")
+            builder.append("\"$(__gnash_list_contains_value \"${")
                    .append(bashVar)
                    .append("}\" ")
                    .append(joinArguments(call.args))
-                   .append(")");
+                   .append(")\"");
             return builder.toString();
         }
         return null;
@@ -1919,32 +2940,38 @@ __gnash_struct_get() {
         if (call == null) {
             return null;
         }
+        String baked = bakedValue(call);
+        if (baked != null) {
+            return baked;
+        }
         if ("Config.get".equals(call.target) && call.args.size() == 1) {
-            return "$(__gnash_config_get " + joinArguments(call.args) + ")";
+            return "\"$(__gnash_config_get " + joinArguments(call.args) + ")\"";
         }
         if ("Config.getOrDefault".equals(call.target) && call.args.size() == 2) {
-            return "$(__gnash_config_get_or_default " + joinArguments(call.args) + ")";
+            return "\"$(__gnash_config_get_or_default " + joinArguments(call.args) + ")\"";
         }
         if ("Config.list".equals(call.target) && call.args.size() == 1) {
-            return "$(__gnash_config_list " + joinArguments(call.args) + ")";
+            String list = hoistValue("__gnash_config_list", call.args);
+            return list != null ? list : "\"$(__gnash_config_list " + joinArguments(call.args) + ")\"";
         }
         if ("Config.isTrue".equals(call.target) && call.args.size() == 1) {
-            return "$(__gnash_config_is_true_value " + joinArguments(call.args) + ")";
+            return "\"$(__gnash_config_is_true_value " + joinArguments(call.args) + ")\"";
         }
         if ("Config.isTrueOrDefault".equals(call.target) && call.args.size() == 2) {
-            return "$(__gnash_config_is_true_value_or_default " + joinArguments(call.args) + ")";
+            return "\"$(__gnash_config_is_true_value_or_default " + joinArguments(call.args) + ")\"";
         }
         if ("Config.isSet".equals(call.target) && call.args.size() == 1) {
-            return "$(__gnash_config_is_set_value " + joinArguments(call.args) + ")";
+            return "\"$(__gnash_config_is_set_value " + joinArguments(call.args) + ")\"";
         }
         if ("Config.stepValue".equals(call.target) && call.args.size() == 2) {
-            return "$(__gnash_config_step_value " + joinArguments(call.args) + ")";
+            return "\"$(__gnash_config_step_value " + joinArguments(call.args) + ")\"";
         }
         if ("Config.stepList".equals(call.target) && call.args.size() == 2) {
-            return "$(__gnash_config_step_list " + joinArguments(call.args) + ")";
+            String list = hoistValue("__gnash_config_step_list", call.args);
+            return list != null ? list : "\"$(__gnash_config_step_list " + joinArguments(call.args) + ")\"";
         }
         if ("Config.boolean".equals(call.target) && (call.args.size() == 2 || call.args.size() == 3)) {
-            return "$(__gnash_config_step_boolean " + joinArguments(call.args) + ")";
+            return "\"$(__gnash_config_step_boolean " + joinArguments(call.args) + ")\"";
         }
         return null;
     }
@@ -1953,6 +2980,10 @@ __gnash_struct_get() {
         if (call == null) {
             return null;
         }
+        Boolean test = bakedTest(call.node);
+        if (test != null) {
+            return test.toString();
+        }
         if ("Config.isTrue".equals(call.target) && call.args.size() == 1) {
             return "__gnash_config_is_true " + joinArguments(call.args);
         }
@@ -1986,6 +3017,126 @@ __gnash_struct_get() {
         return null;
     }
 
+    /**
+     * {@code call} folded against the baked config into a Bash word, or
+     * {@code null} when it has to be resolved at run time: without a baked
+     * config, with a path that is not a literal, or for a {@code get} the
+     * config does not answer, which keeps its run-time failure.
+     */
+    private String bakedValue(Call call) {
+        Boolean test = bakedTest(call.node);
+        if (test != null) {
+            return Boolean.toString(test);
+        }
+        String path = bakedPath(call.node);
+        if (path == null) {
+            return null;
+        }
+        BakedConfig.Value value = config.resolve(path);
+        switch (call.target) {
+            case "Config.get":
+            case "Config.getOrDefault":
+            case "Config.stepValue":
+                if (value == null) {
+                    return null;
+                }
+                return value.list != null ? renderBakedList(value.list) : singleQuote(value.scalar);
+            case "Config.list":
+            case "Config.stepList":
+                if (value == null || value.list != null) {
+                    return renderBakedList(value == null ? List.of() : value.list);
+                }
+                if (value.scalar.indexOf('\n') >= 0) {
+                    return null;
+                }
+                return renderBakedList(value.scalar.isEmpty() ? List.of() : List.of(value.scalar));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The outcome of a boolean {@code Config} query under the baked config,
+     * following {@code __gnash_config_is_true_or_default}, or {@code null}
+     * when it cannot be decided at compile time.
+     */
+    private Boolean bakedTest(Ir.Call call) {
+        String path = bakedPath(call);
+        if (path == null) {
+            return null;
+        }
+        String fallback;
+        switch (call.target) {
+            case "Config.isSet":
+                return config.resolve(path) != null;
+            case "Config.isTrue":
+                fallback = "false";
+                break;
+            case "Config.stepEnabled":
+                fallback = "true";
+                break;
+            case "Config.isTrueOrDefault":
+                fallback = IrOptimizer.constantText(call.args.get(1));
+                break;
+            case "Config.boolean":
+                fallback = call.args.size() == 3 ? IrOptimizer.constantText(call.args.get(2)) : "false";
+                break;
+            default:
+                return null;
+        }
+        if (fallback == null) {
+            return null;
+        }
+        BakedConfig.Value value = config.resolve(path);
+        if (value == null || (value.scalar != null && value.scalar.isEmpty())) {
+            return BakedConfig.truthy(fallback);
+        }
+        // A list reads as its token, which is never empty.
+        return value.list != null || BakedConfig.truthy(value.scalar);
+    }
+
+    /** The config path {@code call} reads when it is spelled out literally, given a baked config. */
+    private String bakedPath(Ir.Call call) {
+        if (config == null || call.target == null || !call.target.startsWith("Config.")) {
+            return null;
+        }
+        switch (call.target) {
+            case "Config.get":
+            case "Config.list":
+            case "Config.isSet":
+            case "Config.isTrue":
+                return call.args.size() == 1 ? IrOptimizer.constantText(call.args.get(0)) : null;
+            case "Config.getOrDefault":
+            case "Config.isTrueOrDefault":
+                return call.args.size() == 2 ? IrOptimizer.constantText(call.args.get(0)) : null;
+            case "Config.stepEnabled":
+                if (call.args.size() != 1) {
+                    return null;
+                }
+                String step = IrOptimizer.constantText(call.args.get(0));
+                return step == null ? null : "steps." + step + ".enabled";
+            case "Config.stepValue":
+            case "Config.stepList":
+            case "Config.boolean":
+                if (call.args.size() < 2 || call.args.size() > (call.target.equals("Config.boolean") ? 3 : 2)) {
+                    return null;
+                }
+                String key = IrOptimizer.constantText(call.args.get(0));
+                String field = IrOptimizer.constantText(call.args.get(1));
+                return key == null || field == null ? null : "steps." + key + "." + field;
+            default:
+                return null;
+        }
+    }
+
+    private String renderBakedList(List<String> items) {
+        List<String> values = new ArrayList<>(items.size());
+        for (String item : items) {
+            values.add(singleQuote(item));
+        }
+        return renderListOf(values);
+    }
+
     private String joinArguments(List<String> args) {
         if (args == null || args.isEmpty()) {
             return "";
@@ -2004,118 +3155,262 @@ __gnash_struct_get() {
         return "'" + text.replace("'", "'\"'\"'") + "'";
     }
 
-    private String rewriteStringLiteral(String literal) {
-        if (literal == null || literal.length() < 2) {
-            return literal;
-        }
-        String inner = literal.substring(1, literal.length() - 1);
-        Matcher matcher = INTERPOLATION_PATTERN.matcher(inner);
-        StringBuffer buffer = new StringBuffer();
-        while (matcher.find()) {
-            String name = matcher.group(1);
-            String replacement = name.equals(name.toUpperCase()) ? name : toBashIdentifier(name);
-            matcher.appendReplacement(buffer, Matcher.quoteReplacement("${" + replacement + "}"));
+    private String rewriteStringLiteral(Ir.Str literal) {
+        StringBuilder builder = new StringBuilder(literal.raw.length() + 8);
+        builder.append('"');
+        for (Ir.Segment segment : literal.segments) {
+            if (segment.property != null) {
+                String field = renderMapGet(segment.ref.bash, singleQuote(segment.property));
+                // Unquote: the value lands inside this string's own quotes.
+                builder.append(field, 1, field.length() - 1);
+            } else if (segment.ref != null) {
+                builder.append("${").append(segment.ref.interpolated).append('}');
+            } else {
+                builder.append(segment.text);
+            }
         }
-        matcher.appendTail(buffer);
-        return "\"" + buffer + "\"";
+        builder.append('"');
+        return builder.toString();
     }
 
+    private String renderLiteral(Ir.Literal literal) {
+        switch (literal.kind) {
+            case SHELL:
+                return shellLiteralToCommand(literal.text);
+            case NUMBER:
+                return literal.text;
+            case TRUE:
+                return "true";
+            case FALSE:
+                return "false";
+            case NULL:
+                return "\"\"";
+            default:
+                return null;
+        }
+    }
 
-    private String renderLiteral(GnashParser.LiteralContext literal) {
-        if (literal == null) {
-            return null;
+    private String renderListLiteral(Ir.ListLiteral list) {
+        if (list.elements.isEmpty()) {
+            String hoistedList = hoistValue("__gnash_list_empty", List.of());
+            return hoistedList != null ? hoistedList : EMPTY_LIST_SENTINEL;
         }
-        String rawText = literal.getText();
-        if (rawText != null && rawText.startsWith("$\"") && rawText.endsWith("\"")) {
-            return shellLiteralToCommand(rawText);
+        List<String> values = renderArguments(list.elements);
+        return values == null ? null : renderListOf(values);
+    }
+
+    /** A new list holding {@code values}, which are already Bash words. */
+    private String renderListOf(List<String> values) {
+        if (values.isEmpty()) {
+            String hoistedList = hoistValue("__gnash_list_empty", List.of());
+            return hoistedList != null ? hoistedList : EMPTY_LIST_SENTINEL;
         }
-        if (literal.STRING() != null) {
-            return rewriteStringLiteral(literal.STRING().getText());
+        String hoistedList = hoistValue("__gnash_list_new", values);
+        if (hoistedList != null) {
+            return hoistedList;
         }
-        if (literal.NUMBER() != null) {
-            return literal.NUMBER().getText();
+        StringBuilder builder = new StringBuilder("\"$(__gnash_list_from_values");
+        for (String value : values) {
+            builder.append(' ').append(value);
         }
-        if (literal.listLiteral() != null) {
-            GnashParser.ListLiteralContext list = literal.listLiteral();
-            if (list.expression().isEmpty()) {
-                return EMPTY_LIST_SENTINEL;
-            }
-            List<String> values = new ArrayList<>();
-            for (GnashParser.ExpressionContext expressionContext : list.expression()) {
-                String value = renderExpression(expressionContext);
-                if (value == null) {
-                    return null;
-                }
-                values.add(value);
-            }
-            StringBuilder builder = new StringBuilder("$(__gnash_list_from_values");
-            for (String value : values) {
-                builder.append(' ').append(value);
+        builder.append(")\"");
+        return builder.toString();
+    }
+
+    private String renderMapLiteral(Ir.MapLiteral map) {
+        List<String> pairs = new ArrayList<>(map.entries.size() * 2);
+        for (Ir.MapEntry entry : map.entries) {
+            String key = renderMapKey(entry);
+            String value = renderExpression(entry.value);
+            if (value == null) {
+                return null;
             }
-            builder.append(')');
-            return builder.toString();
+            pairs.add(key);
+            pairs.add(value);
         }
-        if (literal.mapLiteral() != null) {
-            GnashParser.MapLiteralContext map = literal.mapLiteral();
-            if (map.mapEntry().isEmpty()) {
-                return EMPTY_MAP_SENTINEL;
-            }
-            return renderMapLiteral(map);
+        String hoistedMap = hoistValue("__gnash_map_new", pairs);
+        if (hoistedMap != null) {
+            return hoistedMap;
         }
-        if (literal.getText().equals("true")) {
-            return "1";
+        StringBuilder builder = new StringBuilder("\"$(__gnash_map_from_pairs");
+        for (String part : pairs) {
+            builder.append(' ').append(part);
         }
-        if (literal.getText().equals("false")) {
-            return "0";
+        builder.append(")\"");
+        return builder.toString();
+    }
+
+    /**
+     * Reads {@code key} of the map (or list index) in {@code bashVar}: hoisted
+     * into an out-variable where possible, captured otherwise.
+     */
+    private String renderMapGet(String bashVar, String key) {
+        String receiver = "\"${" + bashVar + ":-}\"";
+        String hoistedValue = hoistValue("__gnash_map_get", List.of(receiver, key));
+        if (hoistedValue != null) {
+            return hoistedValue;
         }
-        if (literal.getText().equals("null")) {
-            return "\"\"";
+        return "\"$(__gnash_map_get_value " + receiver + " " + key + ")\"";
+    }
+
+    private String renderMapKey(Ir.MapEntry entry) {
+        if (entry.key != null) {
+            return singleQuote(entry.key.text);
         }
-        return null;
+        return rewriteStringLiteral(entry.quotedKey);
     }
 
-    private String renderMapLiteral(GnashParser.MapLiteralContext map) {
-        if (map == null || map.mapEntry().isEmpty()) {
-            return "\"$(__gnash_struct_pack)\"";
+    private void appendUnsupported(BashEmitter script, int indentLevel, String sourceText) {
+        if (hoisted != null) {
+            hoisted.clear();
         }
-        StringBuilder builder = new StringBuilder();
-        builder.append("\"$(__gnash_struct_pack");
-        for (GnashParser.MapEntryContext entry : map.mapEntry()) {
-            String key = renderMapKey(entry.mapKey());
-            if (key == null) {
-                return null;
-            }
-            String value = renderExpression(entry.expression());
-            if (value == null) {
-                return null;
+        script.indent(indentLevel);
+        script.append("# TODO: unsupported construct: ").append(truncate(sourceText)).append('\n');
+    }
+
+    /**
+     * Writes the calls hoisted out of the statement about to be written, each
+     * after the {@code local} declaration of its out-variable where there is
+     * one. In a function that can be reentered the out-variables stay globals:
+     * a recursive callee that reaches the same call site must write its
+     * caller's copy, not a local of its own, and each value is read right
+     * after the statement's calls run.
+     */
+    private void emitHoisted(BashEmitter script, int indentLevel) {
+        if (hoisted == null) {
+            return;
+        }
+        for (String command : hoisted) {
+            script.indent(indentLevel);
+            script.append(command);
+            if (command.startsWith("local ")) {
+                script.append('\n');
+            } else {
+                endCommand(script);
             }
-            builder.append(' ').append(key).append(' ').append(value);
         }
-        builder.append(")\"");
-        return builder.toString();
+        hoisted.clear();
+    }
+
+    /**
+     * Hoists {@code command out args...} in front of the current statement and
+     * returns the expansion of {@code out}, or {@code null} when calls cannot
+     * be hoisted here.
+     */
+    private String hoistValue(String command, List<String> args) {
+        return hoistValue(command, args, null);
     }
 
-    private String renderMapKey(GnashParser.MapKeyContext keyCtx) {
-        if (keyCtx == null) {
+    /** As {@link #hoistValue(String, List)}, trying {@code fast} before the command when given. */
+    private String hoistValue(String command, List<String> args, CommandRewrites.Rewrite fast) {
+        if (hoisted == null) {
             return null;
         }
-        if (keyCtx.IDENTIFIER() != null) {
-            return singleQuote(keyCtx.IDENTIFIER().getText());
+        String out = hoistedTemp();
+        StringBuilder line = new StringBuilder(command);
+        line.append(' ').append(out);
+        for (String arg : args) {
+            line.append(' ').append(arg);
         }
-        if (keyCtx.STRING() != null) {
-            return rewriteStringLiteral(keyCtx.STRING().getText());
+        if (fast != null) {
+            line.insert(0, fast.command(out) + " || ");
         }
-        return null;
+        hoisted.add(line.toString());
+        return "\"${" + out + "}\"";
     }
 
-    private void appendUnsupported(StringBuilder script, int indentLevel, String sourceText) {
-        indent(script, indentLevel);
-        script.append("# TODO: unsupported construct: ").append(truncate(sourceText)).append('\n');
+    /** A new out-variable for a hoisted call, declared in front of it when it can be local. */
+    private String hoistedTemp() {
+        String out = nextTempVar("__gnash_tmp");
+        if (localTemps) {
+            hoisted.add("local " + out);
+        }
+        return out;
+    }
+
+    /**
+     * Renders a test that only runs on demand: the right side of {@code &&}
+     * or {@code ||} or an {@code elif} condition. What it hoists cannot run
+     * ahead of the whole statement, so it runs inside the test instead, as
+     * {@code { __gnash_map_get t "${m:-}" 'k'; [[ ${t} == x ]]; }}. Map reads
+     * cannot fail and change nothing, so where {@code hoistReads} allows they
+     * still go ahead of the statement. Either way no read is captured with
+     * {@code $(...)}. A logical test comes back as one command.
+     */
+    private Condition renderDeferredCondition(Ir.Expr expr, boolean hoistReads) {
+        List<String> enclosing = hoisted;
+        List<String> deferred = new ArrayList<>();
+        hoisted = deferred;
+        Condition condition;
+        try {
+            condition = renderCondition(expr);
+        } finally {
+            hoisted = enclosing;
+        }
+        if (condition == null) {
+            return null;
+        }
+        if (deferred.isEmpty() || (hoistReads && enclosing != null && onlyReads(deferred))) {
+            if (enclosing != null) {
+                enclosing.addAll(deferred);
+            }
+            return isLogical(expr) ? condition.grouped() : condition;
+        }
+        return new Condition("{ " + String.join("; ", deferred) + "; " + condition.text + "; }");
+    }
+
+    /**
+     * As {@link #renderDeferredCondition} inside {@code (( ))}, which cannot
+     * run commands: hoisted map reads are kept, anything else renders as
+     * before, without hoisting.
+     */
+    private String renderDeferredArithmetic(Ir.Expr expr) {
+        if (hoisted == null) {
+            return renderArithmetic(expr);
+        }
+        List<String> enclosing = hoisted;
+        List<String> deferred = new ArrayList<>();
+        hoisted = deferred;
+        String arithmetic;
+        try {
+            arithmetic = renderArithmetic(expr);
+        } finally {
+            hoisted = enclosing;
+        }
+        if (arithmetic != null && onlyReads(deferred)) {
+            enclosing.addAll(deferred);
+            return arithmetic;
+        }
+        return withoutHoisting(() -> renderArithmetic(expr));
+    }
+
+    /** Whether {@code lines}, as hoisted, only declare temporaries and read maps. */
+    private static boolean onlyReads(List<String> lines) {
+        for (String line : lines) {
+            if (!line.startsWith("local ") && !line.startsWith("__gnash_map_get ")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private <T> T withoutHoisting(Supplier<T> render) {
+        List<String> enclosing = hoisted;
+        hoisted = null;
+        try {
+            return render.get();
+        } finally {
+            hoisted = enclosing;
+        }
     }
 
-    private void indent(StringBuilder script, int level) {
-        for (int i = 0; i < level; i++) {
-            script.append("  ");
+    private int hoistMark() {
+        return hoisted == null ? 0 : hoisted.size();
+    }
+
+    private void rollBackHoisted(int mark) {
+        if (hoisted != null && hoisted.size() > mark) {
+            hoisted.subList(mark, hoisted.size()).clear();
         }
     }
 
@@ -2137,41 +3432,51 @@ __gnash_struct_get() {
         return value;
     }
 
-    private boolean renderDestructuringAssignment(StringBuilder script,
-                                                  GnashParser.AssignmentContext assignment,
-                                                  int indentLevel,
-                                                  Set<String> locals,
-                                                  List<TerminalNode> identifiers) {
-        if (identifiers.size() == 2) {
-            GnashParser.LogicOrExpressionContext exprCtx = assignment.logicOrExpression();
-            if (exprCtx != null) {
-                String exprText = exprCtx.getText();
-                if (exprText != null && exprText.startsWith("$\"") && exprText.endsWith("\"")) {
-                    String command = shellLiteralToCommand(exprText);
-                    String firstVar = toBashIdentifier(identifiers.get(0).getText());
-                    String secondVar = toBashIdentifier(identifiers.get(1).getText());
-                    writeAssignment(script, indentLevel, locals, firstVar, command);
-                    writeAssignment(script, indentLevel, locals, secondVar, "$?");
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private void writeAssignment(StringBuilder script,
+    private void writeAssignment(BashEmitter script,
                                  int indentLevel,
                                  Set<String> locals,
                                  String varName,
                                  String value) {
-        boolean newLocal = locals != null && !locals.contains(varName);
-        if (newLocal) {
+        declareLocal(script, indentLevel, locals, varName);
+        script.indent(indentLevel);
+        script.append(varName).append('=').append(value);
+        if (value.contains("$(")) {
+            endCommand(script);
+        } else {
+            script.append('\n');
+        }
+    }
+
+    /**
+     * Assigns {@code rendered}, the Bash for {@code value}. A {@code $"..."}
+     * command a builtin can answer is tried that way first; the assignment
+     * only runs when the builtin declines, so {@code $?} ends up the same.
+     */
+    private void writeShellAssignment(BashEmitter script,
+                                      int indentLevel,
+                                      Set<String> locals,
+                                      String varName,
+                                      Ir.Expr value,
+                                      String rendered) {
+        CommandRewrites.Rewrite fast = value instanceof Ir.Literal && ((Ir.Literal) value).kind == Ir.LiteralKind.SHELL
+                ? CommandRewrites.forShellLiteral(((Ir.Literal) value).text)
+                : null;
+        if (fast == null) {
+            writeAssignment(script, indentLevel, locals, varName, rendered);
+            return;
+        }
+        declareLocal(script, indentLevel, locals, varName);
+        script.indent(indentLevel);
+        script.append(fast.command(varName)).append(" || ").append(varName).append('=').append(rendered);
+        endCommand(script);
+    }
+
+    private void declareLocal(BashEmitter script, int indentLevel, Set<String> locals, String varName) {
+        if (locals != null && !locals.contains(varName)) {
             locals.add(varName);
-            indent(script, indentLevel);
+            script.indent(indentLevel);
             script.append("local ").append(varName).append('\n');
         }
-        indent(script, indentLevel);
-        script.append(varName).append('=').append(value).append('\n');
     }
 
     private String shellLiteralToCommand(String literal) {
@@ -2192,46 +3497,42 @@ __gnash_struct_get() {
         return value.matches("-?\\d+");
     }
 
-    private void emitStringReturn(StringBuilder script, int indentLevel, String value) {
+    private void emitStringReturn(BashEmitter script, int indentLevel, String value) {
         emitStringReturn(script, indentLevel, value, 0);
     }
 
-    private void emitStringReturn(StringBuilder script,
+    private void emitStringReturn(BashEmitter script,
                                   int indentLevel,
                                   String value,
                                   int exitCode) {
-        indent(script, indentLevel);
+        emitStringReturn(script, indentLevel, value, Integer.toString(exitCode));
+    }
+
+    private void emitStringReturn(BashEmitter script,
+                                  int indentLevel,
+                                  String value,
+                                  String exitCode) {
+        if (resultDiscarded) {
+            if (value.contains("$(")) {
+                // Keep the side effects of the discarded value.
+                script.indent(indentLevel);
+                script.append(": ").append(value).append('\n');
+            }
+            script.indent(indentLevel);
+            script.append(leaveFunction("return", exitCode)).append('\n');
+            return;
+        }
+        script.indent(indentLevel);
         script.append(RETURN_VAR_NAME).append('=').append(value).append('\n');
-        indent(script, indentLevel);
+        script.indent(indentLevel);
         script.append("if [[ -n ${").append(OUT_PARAM_NAME).append(":-} ]]; then\n");
-        indent(script, indentLevel + 1);
+        script.indent(indentLevel + 1);
         script.append("printf -v \"${").append(OUT_PARAM_NAME).append("}\" '%s' \"${")
               .append(RETURN_VAR_NAME).append("}\"\n");
-        indent(script, indentLevel);
+        script.indent(indentLevel);
         script.append("fi\n");
-        indent(script, indentLevel);
-        script.append("return ").append(exitCode).append('\n');
-    }
-
-    private String toBashIdentifier(String name) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < name.length(); i++) {
-            char ch = name.charAt(i);
-            if (Character.isUpperCase(ch)) {
-                if (result.length() > 0) {
-                    result.append('_');
-                }
-                result.append(Character.toLowerCase(ch));
-            } else if (Character.isLetterOrDigit(ch) || ch == '_') {
-                result.append(ch);
-            } else {
-                result.append('_');
-            }
-        }
-        if (result.length() == 0 || Character.isDigit(result.charAt(0))) {
-            result.insert(0, '_');
-        }
-        return result.toString();
+        script.indent(indentLevel);
+        script.append(leaveFunction("return", exitCode)).append('\n');
     }
 
     private String truncate(String text) {
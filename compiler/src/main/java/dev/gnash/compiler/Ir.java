@@ -0,0 +1,376 @@
+package dev.gnash.compiler;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.util.List;
+
+/**
+ * Typed intermediate representation produced by {@link IrLowering} and
+ * consumed by {@link GnashToBashGenerator}.
+ * <p>
+ * The ANTLR precedence chain ({@code logicOr → … → postfix → primary}) is
+ * collapsed while lowering: a bare identifier is an {@link Var} rather than
+ * nine nested single-child contexts, and operator chains become left-leaning
+ * {@link Binary} nodes. Identifiers are interned {@link Name}s that carry their
+ * Bash spelling, so code generation never re-derives names or re-reads token
+ * text. Every node keeps the context it was lowered from purely for
+ * diagnostics; {@link Node#sourceText()} is only called on unsupported paths.
+ */
+final class Ir {
+
+    private Ir() {
+    }
+
+    abstract static class Node {
+        final ParserRuleContext origin;
+
+        Node(ParserRuleContext origin) {
+            this.origin = origin;
+        }
+
+        String sourceText() {
+            return origin == null ? "" : origin.getText();
+        }
+    }
+
+    /** An interned source identifier with its precomputed Bash spellings. */
+    static final class Name {
+        final String text;
+        /** Variable/function-name form, e.g. {@code stepKey -> step_key}. */
+        final String bash;
+        /** Form used inside {@code ${...}} interpolation; CONSTANT_CASE names are kept as-is. */
+        final String interpolated;
+
+        Name(String text, String bash) {
+            this.text = text;
+            this.bash = bash;
+            this.interpolated = text.equals(text.toUpperCase()) ? text : bash;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    static final class Unit {
+        final String packageName;
+        final List<String> imports;
+        final List<Function> functions;
+        final List<ExprStmt> globals;
+
+        Unit(String packageName, List<String> imports, List<Function> functions, List<ExprStmt> globals) {
+            this.packageName = packageName;
+            this.imports = imports;
+            this.functions = functions;
+            this.globals = globals;
+        }
+    }
+
+    static final class Function extends Node {
+        final Name name;
+        /** Declared {@code private}: callable only from inside its own module. */
+        final boolean isPrivate;
+        final List<Name> parameters;
+        final List<Stmt> body;
+
+        Function(ParserRuleContext origin, Name name, boolean isPrivate, List<Name> parameters, List<Stmt> body) {
+            super(origin);
+            this.name = name;
+            this.isPrivate = isPrivate;
+            this.parameters = parameters;
+            this.body = body;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Statements
+    // -------------------------------------------------------------------------
+
+    abstract static class Stmt extends Node {
+        Stmt(ParserRuleContext origin) {
+            super(origin);
+        }
+    }
+
+    static final class ExprStmt extends Stmt {
+        final Expr expr;
+
+        ExprStmt(ParserRuleContext origin, Expr expr) {
+            super(origin);
+            this.expr = expr;
+        }
+    }
+
+    static final class If extends Stmt {
+        final Expr condition;
+        final List<Stmt> thenBody;
+        /** The chained {@code else if}, or {@code null}. */
+        final If elseIf;
+        /** The trailing {@code else} block, or {@code null}. */
+        final List<Stmt> elseBody;
+
+        If(ParserRuleContext origin, Expr condition, List<Stmt> thenBody, If elseIf, List<Stmt> elseBody) {
+            super(origin);
+            this.condition = condition;
+            this.thenBody = thenBody;
+            this.elseIf = elseIf;
+            this.elseBody = elseBody;
+        }
+    }
+
+    static final class For extends Stmt {
+        final Name variable;
+        final Expr iterable;
+        final List<Stmt> body;
+
+        For(ParserRuleContext origin, Name variable, Expr iterable, List<Stmt> body) {
+            super(origin);
+            this.variable = variable;
+            this.iterable = iterable;
+            this.body = body;
+        }
+    }
+
+    static final class Try extends Stmt {
+        final List<Stmt> body;
+        final List<Catch> catches;
+        /** The {@code finally} block, or {@code null}. */
+        final List<Stmt> finallyBody;
+
+        Try(ParserRuleContext origin, List<Stmt> body, List<Catch> catches, List<Stmt> finallyBody) {
+            super(origin);
+            this.body = body;
+            this.catches = catches;
+            this.finallyBody = finallyBody;
+        }
+    }
+
+    static final class Catch extends Node {
+        final Name variable;
+        final List<Stmt> body;
+
+        Catch(ParserRuleContext origin, Name variable, List<Stmt> body) {
+            super(origin);
+            this.variable = variable;
+            this.body = body;
+        }
+    }
+
+    static final class Return extends Stmt {
+        /** The returned value, or {@code null} for a bare {@code return}. */
+        final Expr value;
+
+        Return(ParserRuleContext origin, Expr value) {
+            super(origin);
+            this.value = value;
+        }
+    }
+
+    static final class Throw extends Stmt {
+        final Expr value;
+
+        Throw(ParserRuleContext origin, Expr value) {
+            super(origin);
+            this.value = value;
+        }
+    }
+
+    static final class Break extends Stmt {
+        Break(ParserRuleContext origin) {
+            super(origin);
+        }
+    }
+
+    static final class Continue extends Stmt {
+        Continue(ParserRuleContext origin) {
+            super(origin);
+        }
+    }
+
+    /** A bare {@code { ... }} block in statement position. */
+    static final class Nested extends Stmt {
+        final List<Stmt> body;
+
+        Nested(ParserRuleContext origin, List<Stmt> body) {
+            super(origin);
+            this.body = body;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Expressions
+    // -------------------------------------------------------------------------
+
+    abstract static class Expr extends Node {
+        Expr(ParserRuleContext origin) {
+            super(origin);
+        }
+    }
+
+    enum LiteralKind {
+        NUMBER,
+        SHELL,
+        TRUE,
+        FALSE,
+        NULL
+    }
+
+    /** Numbers, keywords and {@code $"..."} commands; {@link #text} is the raw token. */
+    static final class Literal extends Expr {
+        final LiteralKind kind;
+        final String text;
+
+        Literal(ParserRuleContext origin, LiteralKind kind, String text) {
+            super(origin);
+            this.kind = kind;
+            this.text = text;
+        }
+    }
+
+    /** A double-quoted string split into literal text and {@code ${name}} references. */
+    static final class Str extends Expr {
+        /** The token exactly as written, quotes included. */
+        final String raw;
+        final List<Segment> segments;
+
+        Str(ParserRuleContext origin, String raw, List<Segment> segments) {
+            super(origin);
+            this.raw = raw;
+            this.segments = segments;
+        }
+    }
+
+    /**
+     * Either a run of literal text or an interpolated name; exactly one of
+     * {@code text} and {@code ref} is set. {@code property} is set for
+     * {@code ${err.output}}, which reads a field of the map in {@code ref}.
+     */
+    static final class Segment {
+        final String text;
+        final Name ref;
+        final String property;
+
+        Segment(String text, Name ref) {
+            this(text, ref, null);
+        }
+
+        Segment(String text, Name ref, String property) {
+            this.text = text;
+            this.ref = ref;
+            this.property = property;
+        }
+    }
+
+    static final class Var extends Expr {
+        final Name name;
+
+        Var(ParserRuleContext origin, Name name) {
+            super(origin);
+            this.name = name;
+        }
+    }
+
+    static final class ListLiteral extends Expr {
+        final List<Expr> elements;
+
+        ListLiteral(ParserRuleContext origin, List<Expr> elements) {
+            super(origin);
+            this.elements = elements;
+        }
+    }
+
+    static final class MapLiteral extends Expr {
+        final List<MapEntry> entries;
+
+        MapLiteral(ParserRuleContext origin, List<MapEntry> entries) {
+            super(origin);
+            this.entries = entries;
+        }
+    }
+
+    /** A map entry keyed either by a bare identifier or by a string literal. */
+    static final class MapEntry {
+        final Name key;
+        final Str quotedKey;
+        final Expr value;
+
+        MapEntry(Name key, Str quotedKey, Expr value) {
+            this.key = key;
+            this.quotedKey = quotedKey;
+            this.value = value;
+        }
+    }
+
+    /** Member access {@code receiver.name}. */
+    static final class Property extends Expr {
+        final Expr receiver;
+        final Name name;
+
+        Property(ParserRuleContext origin, Expr receiver, Name name) {
+            super(origin);
+            this.receiver = receiver;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Invocation {@code callee(args)}. When the postfix chain is rooted at an
+     * identifier, {@link #target} holds its dotted member path with invocations
+     * skipped ({@code value.toString().trim()} → {@code value.toString.trim}),
+     * {@link #root} the leading identifier and {@link #method} the rest of the
+     * path; otherwise all three are {@code null}.
+     */
+    static final class Call extends Expr {
+        final Expr callee;
+        final List<Expr> args;
+        final String target;
+        final Name root;
+        final String method;
+
+        Call(ParserRuleContext origin, Expr callee, List<Expr> args, String target, Name root, String method) {
+            super(origin);
+            this.callee = callee;
+            this.args = args;
+            this.target = target;
+            this.root = root;
+            this.method = method;
+        }
+    }
+
+    static final class Unary extends Expr {
+        final String op;
+        final Expr operand;
+
+        Unary(ParserRuleContext origin, String op, Expr operand) {
+            super(origin);
+            this.op = op;
+            this.operand = operand;
+        }
+    }
+
+    static final class Binary extends Expr {
+        final String op;
+        final Expr left;
+        final Expr right;
+
+        Binary(ParserRuleContext origin, String op, Expr left, Expr right) {
+            super(origin);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /** {@code a = value} or {@code (a, b) = value}; the value may itself be an assignment. */
+    static final class Assign extends Expr {
+        final List<Name> targets;
+        final Expr value;
+
+        Assign(ParserRuleContext origin, List<Name> targets, Expr value) {
+            super(origin);
+            this.targets = targets;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package dev.gnash.compiler;
+
+import dev.gnash.antlr.GnashParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lowers a {@code compilationUnit} parse tree into {@link Ir} in a single
+ * descent. Each context is visited exactly once, single-operand levels of the
+ * precedence chain are passed through without allocating, and identifier text
+ * is read once per token and interned together with its Bash spelling.
+ * <p>
+ * Instances are single-use and not thread-safe; the intern tables live for one
+ * compilation unit.
+ */
+final class IrLowering {
+
+    private static final Pattern INTERPOLATION_PATTERN = Pattern.compile("\\$\\{([A-Za-z_][A-Za-z0-9_]*)(?:\\.([A-Za-z_][A-Za-z0-9_]*))?}");
+
+    private final Map<String, Ir.Name> names = new HashMap<>();
+    private final Map<String, String> targets = new HashMap<>();
+
+    static Ir.Unit lower(ParseTree tree) {
+        Objects.requireNonNull(tree, "tree");
+        if (!(tree instanceof GnashParser.CompilationUnitContext)) {
+            throw new IllegalArgumentException("expected a compilationUnit tree, got " + tree.getClass().getSimpleName());
+        }
+        return new IrLowering().lowerUnit((GnashParser.CompilationUnitContext) tree);
+    }
+
+    /**
+     * Maps a Gnash identifier to a Bash variable name: camelCase becomes
+     * snake_case and anything that is not a word character becomes {@code _}.
+     */
+    static String toBashIdentifier(String name) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (Character.isUpperCase(ch)) {
+                if (result.length() > 0) {
+                    result.append('_');
+                }
+                result.append(Character.toLowerCase(ch));
+            } else if (Character.isLetterOrDigit(ch) || ch == '_') {
+                result.append(ch);
+            } else {
+                result.append('_');
+            }
+        }
+        if (result.length() == 0 || Character.isDigit(result.charAt(0))) {
+            result.insert(0, '_');
+        }
+        return result.toString();
+    }
+
+    private Ir.Unit lowerUnit(GnashParser.CompilationUnitContext ctx) {
+        String packageName = null;
+        if (ctx.packageDecl() != null) {
+            packageName = ctx.packageDecl().qualifiedName().getText();
+        }
+        List<String> imports = new ArrayList<>();
+        for (GnashParser.ImportDeclContext importDecl : ctx.importDecl()) {
+            imports.add(importDecl.qualifiedName().getText());
+        }
+        List<Ir.Function> functions = new ArrayList<>();
+        List<Ir.ExprStmt> globals = new ArrayList<>();
+        for (GnashParser.TopLevelElementContext element : ctx.topLevelElement()) {
+            if (element.functionDecl() != null) {
+                functions.add(lowerFunction(element.functionDecl()));
+            } else if (element.globalStatement() != null && element.globalStatement().expressionStatement() != null) {
+                GnashParser.ExpressionStatementContext statement = element.globalStatement().expressionStatement();
+                globals.add(new Ir.ExprStmt(statement, lowerExpression(statement.expression())));
+            }
+        }
+        return new Ir.Unit(packageName, imports, functions, globals);
+    }
+
+    private Ir.Function lowerFunction(GnashParser.FunctionDeclContext ctx) {
+        List<Ir.Name> params = new ArrayList<>();
+        GnashParser.ParameterListContext plist = ctx.parameterList();
+        if (plist != null) {
+            for (GnashParser.ParameterContext parameter : plist.parameter()) {
+                params.add(name(parameter.IDENTIFIER()));
+            }
+        }
+        boolean isPrivate = false;
+        for (GnashParser.ModifierContext modifier : ctx.modifier()) {
+            isPrivate |= "private".equals(modifier.getText());
+        }
+        List<Ir.Stmt> body = ctx.block() == null ? null : lowerBlock(ctx.block());
+        return new Ir.Function(ctx, name(ctx.IDENTIFIER()), isPrivate, params, body);
+    }
+
+    private List<Ir.Stmt> lowerBlock(GnashParser.BlockContext block) {
+        List<GnashParser.StatementContext> statements = block.statement();
+        if (statements.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Ir.Stmt> lowered = new ArrayList<>(statements.size());
+        for (GnashParser.StatementContext statement : statements) {
+            lowered.add(lowerStatement(statement));
+        }
+        return lowered;
+    }
+
+    private Ir.Stmt lowerStatement(GnashParser.StatementContext ctx) {
+        if (ctx.expressionStatement() != null) {
+            return new Ir.ExprStmt(ctx, lowerExpression(ctx.expressionStatement().expression()));
+        }
+        if (ctx.ifStatement() != null) {
+            return lowerIf(ctx.ifStatement());
+        }
+        if (ctx.forStatement() != null) {
+            GnashParser.ForStatementContext loop = ctx.forStatement();
+            return new Ir.For(loop, name(loop.IDENTIFIER()), lowerExpression(loop.expression()), lowerBlock(loop.block()));
+        }
+        if (ctx.tryStatement() != null) {
+            return lowerTry(ctx.tryStatement());
+        }
+        if (ctx.returnStatement() != null) {
+            GnashParser.ReturnStatementContext ret = ctx.returnStatement();
+            return new Ir.Return(ret, ret.expression() == null ? null : lowerExpression(ret.expression()));
+        }
+        if (ctx.throwStatement() != null) {
+            GnashParser.ThrowStatementContext thrown = ctx.throwStatement();
+            return new Ir.Throw(thrown, lowerExpression(thrown.expression()));
+        }
+        if (ctx.breakStatement() != null) {
+            return new Ir.Break(ctx);
+        }
+        if (ctx.continueStatement() != null) {
+            return new Ir.Continue(ctx);
+        }
+        return new Ir.Nested(ctx, ctx.block() == null ? Collections.emptyList() : lowerBlock(ctx.block()));
+    }
+
+    private Ir.If lowerIf(GnashParser.IfStatementContext ctx) {
+        Ir.If elseIf = ctx.ifStatement() == null ? null : lowerIf(ctx.ifStatement());
+        List<Ir.Stmt> elseBody = ctx.block().size() > 1 ? lowerBlock(ctx.block(1)) : null;
+        return new Ir.If(ctx, lowerExpression(ctx.expression()), lowerBlock(ctx.block(0)), elseIf, elseBody);
+    }
+
+    private Ir.Try lowerTry(GnashParser.TryStatementContext ctx) {
+        List<Ir.Catch> catches = new ArrayList<>();
+        for (GnashParser.CatchClauseContext clause : ctx.catchClause()) {
+            catches.add(new Ir.Catch(clause, name(clause.IDENTIFIER()), lowerBlock(clause.block())));
+        }
+        List<Ir.Stmt> finallyBody = ctx.finallyClause() == null ? null : lowerBlock(ctx.finallyClause().block());
+        return new Ir.Try(ctx, lowerBlock(ctx.block()), catches, finallyBody);
+    }
+
+    // -------------------------------------------------------------------------
+    // Expressions
+    // -------------------------------------------------------------------------
+
+    private Ir.Expr lowerExpression(GnashParser.ExpressionContext ctx) {
+        if (ctx == null) {
+            return null;
+        }
+        return lowerAssignment(ctx.assignment());
+    }
+
+    private Ir.Expr lowerAssignment(GnashParser.AssignmentContext ctx) {
+        GnashParser.DestructuringPatternContext pattern = ctx.destructuringPattern();
+        if (pattern == null) {
+            return lowerLogicOr(ctx.logicOrExpression());
+        }
+        List<TerminalNode> identifiers = pattern.IDENTIFIER();
+        List<Ir.Name> targetNames = new ArrayList<>(identifiers.size());
+        for (TerminalNode identifier : identifiers) {
+            targetNames.add(name(identifier));
+        }
+        return new Ir.Assign(ctx, targetNames, lowerAssignment(ctx.assignment()));
+    }
+
+    private Ir.Expr lowerLogicOr(GnashParser.LogicOrExpressionContext ctx) {
+        List<GnashParser.LogicAndExpressionContext> parts = ctx.logicAndExpression();
+        Ir.Expr result = lowerLogicAnd(parts.get(0));
+        for (int i = 1; i < parts.size(); i++) {
+            result = new Ir.Binary(ctx, "||", result, lowerLogicAnd(parts.get(i)));
+        }
+        return result;
+    }
+
+    private Ir.Expr lowerLogicAnd(GnashParser.LogicAndExpressionContext ctx) {
+        List<GnashParser.EqualityExpressionContext> parts = ctx.equalityExpression();
+        Ir.Expr result = lowerEquality(parts.get(0));
+        for (int i = 1; i < parts.size(); i++) {
+            result = new Ir.Binary(ctx, "&&", result, lowerEquality(parts.get(i)));
+        }
+        return result;
+    }
+
+    private Ir.Expr lowerEquality(GnashParser.EqualityExpressionContext ctx) {
+        List<GnashParser.RelationalExpressionContext> parts = ctx.relationalExpression();
+        Ir.Expr result = lowerRelational(parts.get(0));
+        for (int i = 1; i < parts.size(); i++) {
+            result = new Ir.Binary(ctx, operator(ctx, i), result, lowerRelational(parts.get(i)));
+        }
+        return result;
+    }
+
+    private Ir.Expr lowerRelational(GnashParser.RelationalExpressionContext ctx) {
+        List<GnashParser.AdditiveExpressionContext> parts = ctx.additiveExpression();
+        Ir.Expr result = lowerAdditive(parts.get(0));
+        for (int i = 1; i < parts.size(); i++) {
+            result = new Ir.Binary(ctx, operator(ctx, i), result, lowerAdditive(parts.get(i)));
+        }
+        return result;
+    }
+
+    private Ir.Expr lowerAdditive(GnashParser.AdditiveExpressionContext ctx) {
+        List<GnashParser.MultiplicativeExpressionContext> parts = ctx.multiplicativeExpression();
+        Ir.Expr result = lowerMultiplicative(parts.get(0));
+        for (int i = 1; i < parts.size(); i++) {
+            result = new Ir.Binary(ctx, operator(ctx, i), result, lowerMultiplicative(parts.get(i)));
+        }
+        return result;
+    }
+
+    private Ir.Expr lowerMultiplicative(GnashParser.MultiplicativeExpressionContext ctx) {
+        List<GnashParser.UnaryExpressionContext> parts = ctx.unaryExpression();
+        Ir.Expr result = lowerUnary(parts.get(0));
+        for (int i = 1; i < parts.size(); i++) {
+            result = new Ir.Binary(ctx, operator(ctx, i), result, lowerUnary(parts.get(i)));
+        }
+        return result;
+    }
+
+    private Ir.Expr lowerUnary(GnashParser.UnaryExpressionContext ctx) {
+        if (ctx.postfixExpression() != null) {
+            return lowerPostfix(ctx.postfixExpression());
+        }
+        return new Ir.Unary(ctx, ctx.getChild(0).getText(), lowerUnary(ctx.unaryExpression()));
+    }
+
+    private Ir.Expr lowerPostfix(GnashParser.PostfixExpressionContext ctx) {
+        Ir.Expr result = lowerPrimary(ctx.primaryExpression());
+        List<GnashParser.PostfixOperatorContext> ops = ctx.postfixOperator();
+        if (ops.isEmpty()) {
+            return result;
+        }
+        Ir.Name root = result instanceof Ir.Var ? ((Ir.Var) result).name : null;
+        StringBuilder path = root == null ? null : new StringBuilder(root.text);
+        for (GnashParser.PostfixOperatorContext op : ops) {
+            if (op.IDENTIFIER() != null) {
+                Ir.Name member = name(op.IDENTIFIER());
+                result = new Ir.Property(op, result, member);
+                if (path != null) {
+                    path.append('.').append(member.text);
+                }
+            } else {
+                List<Ir.Expr> args = lowerArguments(op.arguments());
+                String target = path == null ? null : target(path.toString());
+                String method = null;
+                if (target != null && target.length() > root.text.length()) {
+                    method = target.substring(root.text.length() + 1);
+                }
+                result = new Ir.Call(op, result, args, target, target == null ? null : root, method);
+            }
+        }
+        return result;
+    }
+
+    private List<Ir.Expr> lowerArguments(GnashParser.ArgumentsContext ctx) {
+        GnashParser.ArgumentListContext list = ctx.argumentList();
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<Ir.Expr> args = new ArrayList<>();
+        for (GnashParser.ExpressionContext expression : list.expression()) {
+            args.add(lowerExpression(expression));
+        }
+        return args;
+    }
+
+    private Ir.Expr lowerPrimary(GnashParser.PrimaryExpressionContext ctx) {
+        if (ctx.IDENTIFIER() != null) {
+            return new Ir.Var(ctx, name(ctx.IDENTIFIER()));
+        }
+        if (ctx.literal() != null) {
+            return lowerLiteral(ctx.literal());
+        }
+        // Parentheses only group; the IR tree already encodes the precedence.
+        return lowerExpression(ctx.expression());
+    }
+
+    private Ir.Expr lowerLiteral(GnashParser.LiteralContext ctx) {
+        if (ctx.STRING() != null) {
+            return lowerString(ctx, ctx.STRING().getText());
+        }
+        if (ctx.NUMBER() != null) {
+            return new Ir.Literal(ctx, Ir.LiteralKind.NUMBER, ctx.NUMBER().getText());
+        }
+        if (ctx.SHELL_CMD() != null) {
+            return new Ir.Literal(ctx, Ir.LiteralKind.SHELL, ctx.SHELL_CMD().getText());
+        }
+        if (ctx.listLiteral() != null) {
+            List<Ir.Expr> elements = new ArrayList<>();
+            for (GnashParser.ExpressionContext expression : ctx.listLiteral().expression()) {
+                elements.add(lowerExpression(expression));
+            }
+            return new Ir.ListLiteral(ctx, elements);
+        }
+        if (ctx.mapLiteral() != null) {
+            List<Ir.MapEntry> entries = new ArrayList<>();
+            for (GnashParser.MapEntryContext entry : ctx.mapLiteral().mapEntry()) {
+                GnashParser.MapKeyContext key = entry.mapKey();
+                Ir.Expr value = lowerExpression(entry.expression());
+                if (key.IDENTIFIER() != null) {
+                    entries.add(new Ir.MapEntry(name(key.IDENTIFIER()), null, value));
+                } else {
+                    entries.add(new Ir.MapEntry(null, lowerString(key, key.STRING().getText()), value));
+                }
+            }
+            return new Ir.MapLiteral(ctx, entries);
+        }
+        String keyword = ctx.getText();
+        switch (keyword) {
+            case "true":
+                return new Ir.Literal(ctx, Ir.LiteralKind.TRUE, keyword);
+            case "false":
+                return new Ir.Literal(ctx, Ir.LiteralKind.FALSE, keyword);
+            default:
+                return new Ir.Literal(ctx, Ir.LiteralKind.NULL, keyword);
+        }
+    }
+
+    private Ir.Str lowerString(ParserRuleContext ctx, String raw) {
+        String inner = raw.length() < 2 ? "" : raw.substring(1, raw.length() - 1);
+        List<Ir.Segment> segments = new ArrayList<>();
+        Matcher matcher = INTERPOLATION_PATTERN.matcher(inner);
+        int last = 0;
+        while (matcher.find()) {
+            if (matcher.start() > last) {
+                segments.add(new Ir.Segment(inner.substring(last, matcher.start()), null));
+            }
+            segments.add(new Ir.Segment(null, name(matcher.group(1)), matcher.group(2)));
+            last = matcher.end();
+        }
+        if (last < inner.length()) {
+            segments.add(new Ir.Segment(inner.substring(last), null));
+        }
+        return new Ir.Str(ctx, raw, segments);
+    }
+
+    // -------------------------------------------------------------------------
+    // Interning
+    // -------------------------------------------------------------------------
+
+    private Ir.Name name(TerminalNode identifier) {
+        return name(identifier.getText());
+    }
+
+    private Ir.Name name(String text) {
+        Ir.Name existing = names.get(text);
+        if (existing == null) {
+            existing = new Ir.Name(text, toBashIdentifier(text));
+            names.put(text, existing);
+        }
+        return existing;
+    }
+
+    private String target(String path) {
+        String existing = targets.putIfAbsent(path, path);
+        return existing == null ? path : existing;
+    }
+
+    private static String operator(ParserRuleContext ctx, int operandIndex) {
+        // Operands and operators alternate, so operator i sits between operands i-1 and i.
+        return ctx.getChild(2 * operandIndex - 1).getText();
+    }
+}
@@ -0,0 +1,988 @@
+package dev.gnash.compiler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compile-time simplification of the IR between {@link IrLowering} and
+ * {@link GnashToBashGenerator}.
+ * <p>
+ * Within a function, a local assigned once, at the top level of the body, from
+ * a constant (a string without escapes or expansions, a number or a boolean)
+ * is propagated into the reads that follow, {@code ${name}} interpolations
+ * included. A map literal held in such a local answers {@code get} with a
+ * literal key the same way. Integer arithmetic and comparisons over constants
+ * are folded, and calls the {@link KnownTests} decide become {@code true} or
+ * {@code false}. An {@code if} whose test folds keeps only the branch that runs,
+ * a block ends at the first statement control cannot fall through, and
+ * assignments of side-effect-free values to locals nothing reads are dropped.
+ * <p>
+ * Across a unit, functions that neither {@code main} nor the global statements
+ * reach are dropped from runnable scripts, and {@link #resultRead} tells the
+ * generator which functions have a caller that uses their value; the others
+ * return without storing it.
+ * <p>
+ * Folding follows what the generated Bash computes rather than an idealised
+ * reading of the source. A propagated constant is the string the variable
+ * would have held ({@code true} is {@code 1}), so it stays a quoted word and
+ * tests as non-empty, exactly like the {@code "${name}"} it replaces.
+ */
+final class IrOptimizer {
+
+    /** Decides boolean calls at compile time, such as {@code Config} queries against a baked config. */
+    interface KnownTests {
+        /** The outcome of {@code call}, or {@code null} when it is only known at run time. */
+        Boolean outcome(Ir.Call call);
+    }
+
+    private static final Set<String> TESTS = Set.of("&&", "||", "==", "!=", "<", "<=", ">", ">=");
+
+    private final KnownTests tests;
+    /** Functions of the optimized unit whose value some caller uses. */
+    private final Set<String> valueCalls = new HashSet<>();
+    private boolean runnable;
+
+    IrOptimizer(KnownTests tests) {
+        this.tests = tests;
+    }
+
+    /**
+     * {@code unit} with every function optimized and, when it is
+     * {@code runnable}, without the functions it never calls.
+     */
+    Ir.Unit unit(Ir.Unit unit, boolean runnable) {
+        this.runnable = runnable;
+        List<Ir.Function> functions = new ArrayList<>(unit.functions.size());
+        for (Ir.Function fn : unit.functions) {
+            functions.add(function(fn));
+        }
+        if (runnable) {
+            functions = reachable(functions, unit.globals);
+        }
+        for (Ir.ExprStmt statement : unit.globals) {
+            collectValueCalls(statement, valueCalls);
+        }
+        for (Ir.Function fn : functions) {
+            if (fn.body != null) {
+                collectValueCalls(fn.body, valueCalls);
+            }
+        }
+        return new Ir.Unit(unit.packageName, unit.imports, functions, unit.globals);
+    }
+
+    /**
+     * Whether a caller may use the value {@code fn} returns. Always true for
+     * the public functions of a library, whose callers live in other units.
+     */
+    boolean resultRead(Ir.Function fn) {
+        return (!runnable && !fn.isPrivate) || valueCalls.contains(fn.name.text);
+    }
+
+    /** {@code fn} with its body simplified. */
+    Ir.Function function(Ir.Function fn) {
+        if (fn.body == null) {
+            return fn;
+        }
+        Body body = new Body(fn);
+        List<Ir.Stmt> statements = body.block(fn.body, true);
+        while (true) {
+            Set<String> reads = new HashSet<>();
+            collectReads(statements, reads);
+            List<Ir.Stmt> live = withoutDeadStores(statements, reads);
+            if (live == statements) {
+                break;
+            }
+            statements = live;
+        }
+        return new Ir.Function(fn.origin, fn.name, fn.isPrivate, fn.parameters, statements);
+    }
+
+    /**
+     * The value {@code expr} holds at run time when that is fixed: a string
+     * without interpolation, escapes or expansions, a number, or a keyword as
+     * the generator renders it. {@code null} for anything else.
+     */
+    static String constantText(Ir.Expr expr) {
+        if (expr instanceof Ir.Literal) {
+            Ir.Literal literal = (Ir.Literal) expr;
+            switch (literal.kind) {
+                case NUMBER:
+                    return literal.text;
+                case TRUE:
+                    return "true";
+                case FALSE:
+                    return "false";
+                case NULL:
+                    return "";
+                default:
+                    return null;
+            }
+        }
+        if (!(expr instanceof Ir.Str)) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        for (Ir.Segment segment : ((Ir.Str) expr).segments) {
+            if (segment.ref != null || !plain(segment.text)) {
+                return null;
+            }
+            text.append(segment.text);
+        }
+        return text.toString();
+    }
+
+    /** Text that means the same inside Bash double quotes as it does literally. */
+    private static boolean plain(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' || c == '$' || c == '`' || c == '"') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Long integer(String text) {
+        if (text == null || !text.matches("-?[0-9]{1,18}")) {
+            return null;
+        }
+        return Long.parseLong(text);
+    }
+
+    private static Ir.Literal bool(Ir.Node origin, boolean value) {
+        return value
+                ? new Ir.Literal(origin.origin, Ir.LiteralKind.TRUE, "true")
+                : new Ir.Literal(origin.origin, Ir.LiteralKind.FALSE, "false");
+    }
+
+    private static Boolean known(Ir.Expr condition) {
+        if (condition instanceof Ir.Literal) {
+            Ir.LiteralKind kind = ((Ir.Literal) condition).kind;
+            if (kind == Ir.LiteralKind.TRUE) {
+                return true;
+            }
+            if (kind == Ir.LiteralKind.FALSE) {
+                return false;
+            }
+        }
+        return null;
+    }
+
+    /** Whether evaluating {@code expr} can have no effect besides its value. */
+    private static boolean pure(Ir.Expr expr) {
+        if (expr instanceof Ir.Str || expr instanceof Ir.Var || expr instanceof Ir.Property) {
+            return true;
+        }
+        if (expr instanceof Ir.Literal) {
+            return ((Ir.Literal) expr).kind != Ir.LiteralKind.SHELL;
+        }
+        if (expr instanceof Ir.ListLiteral) {
+            return ((Ir.ListLiteral) expr).elements.stream().allMatch(IrOptimizer::pure);
+        }
+        if (expr instanceof Ir.MapLiteral) {
+            return ((Ir.MapLiteral) expr).entries.stream().allMatch(entry -> pure(entry.value));
+        }
+        if (expr instanceof Ir.Unary) {
+            return pure(((Ir.Unary) expr).operand);
+        }
+        if (expr instanceof Ir.Binary) {
+            return pure(((Ir.Binary) expr).left) && pure(((Ir.Binary) expr).right);
+        }
+        return false;
+    }
+
+    /**
+     * Whether control never falls through {@code statement}: a return, throw,
+     * break or continue, or an if whose every branch ends in one. A return inside a
+     * {@code try} only leaves the block the try is rendered as.
+     */
+    private static boolean exits(Ir.Stmt statement) {
+        if (statement instanceof Ir.Return || statement instanceof Ir.Throw
+                || statement instanceof Ir.Continue || statement instanceof Ir.Break) {
+            return true;
+        }
+        if (!(statement instanceof Ir.If)) {
+            return false;
+        }
+        Ir.If branch = (Ir.If) statement;
+        if (!exits(branch.thenBody)) {
+            return false;
+        }
+        if (branch.elseIf != null) {
+            return exits(branch.elseIf);
+        }
+        return branch.elseBody != null && exits(branch.elseBody);
+    }
+
+    private static boolean exits(List<Ir.Stmt> block) {
+        return !block.isEmpty() && exits(block.get(block.size() - 1));
+    }
+
+    /** One function body being rewritten, with what is known about its locals. */
+    private final class Body {
+        /** Assignments per local, parameters, loop and catch variables counting as one. */
+        private final Map<String, Integer> assignments = new HashMap<>();
+        private final Set<String> parameters = new HashSet<>();
+        /** Locals some method other than {@code get}/{@code containsKey} is called on. */
+        private final Set<String> mutated = new HashSet<>();
+        private final Map<String, String> constants = new HashMap<>();
+        /**
+         * The {@link #constants} assigned a number or boolean literal, substituted
+         * as that literal so arithmetic and tests still see one.
+         */
+        private final Map<String, Ir.Literal> literals = new HashMap<>();
+        private final Map<String, Ir.MapLiteral> maps = new HashMap<>();
+
+        Body(Ir.Function fn) {
+            for (Ir.Name parameter : fn.parameters) {
+                parameters.add(parameter.text);
+                assignments.merge(parameter.text, 1, Integer::sum);
+            }
+            scan(fn.body);
+        }
+
+        List<Ir.Stmt> block(List<Ir.Stmt> statements, boolean top) {
+            List<Ir.Stmt> out = new ArrayList<>(statements.size());
+            Deque<Ir.Stmt> pending = new ArrayDeque<>(statements);
+            while (!pending.isEmpty()) {
+                Ir.Stmt statement = pending.poll();
+                if (statement instanceof Ir.If) {
+                    List<Ir.Stmt> taken = new ArrayList<>();
+                    statement = ifStatement((Ir.If) statement, taken);
+                    if (statement == null) {
+                        // The test is decided: splice in the branch that runs.
+                        for (int i = taken.size() - 1; i >= 0; i--) {
+                            pending.addFirst(taken.get(i));
+                        }
+                        continue;
+                    }
+                } else {
+                    statement = statement(statement, top);
+                }
+                out.add(statement);
+                if (exits(statement)) {
+                    break;
+                }
+            }
+            return out;
+        }
+
+        /**
+         * The chain starting at {@code node} without the branches that cannot
+         * run, or {@code null} with the statements of the one branch that
+         * must run added to {@code taken}.
+         */
+        private Ir.If ifStatement(Ir.If node, List<Ir.Stmt> taken) {
+            Ir.Expr condition = condition(node.condition);
+            Boolean outcome = known(condition);
+            if (outcome != null && outcome) {
+                taken.addAll(node.thenBody);
+                return null;
+            }
+            if (outcome != null) {
+                if (node.elseIf != null) {
+                    return ifStatement(node.elseIf, taken);
+                }
+                if (node.elseBody != null) {
+                    taken.addAll(node.elseBody);
+                }
+                return null;
+            }
+            List<Ir.Stmt> thenBody = block(node.thenBody, false);
+            Ir.If elseIf = null;
+            List<Ir.Stmt> elseBody = null;
+            if (node.elseIf != null) {
+                List<Ir.Stmt> rest = new ArrayList<>();
+                elseIf = ifStatement(node.elseIf, rest);
+                if (elseIf == null) {
+                    elseBody = block(rest, false);
+                }
+            } else if (node.elseBody != null) {
+                elseBody = block(node.elseBody, false);
+            }
+            return new Ir.If(node.origin, condition, thenBody, elseIf, elseBody);
+        }
+
+        private Ir.Stmt statement(Ir.Stmt statement, boolean top) {
+            if (statement instanceof Ir.ExprStmt) {
+                Ir.ExprStmt node = (Ir.ExprStmt) statement;
+                Ir.Expr value = expr(node.expr);
+                if (top && value instanceof Ir.Assign) {
+                    remember((Ir.Assign) value);
+                }
+                return value == node.expr ? node : new Ir.ExprStmt(node.origin, value);
+            }
+            if (statement instanceof Ir.For) {
+                Ir.For node = (Ir.For) statement;
+                return new Ir.For(node.origin, node.variable, expr(node.iterable), block(node.body, false));
+            }
+            if (statement instanceof Ir.Try) {
+                Ir.Try node = (Ir.Try) statement;
+                List<Ir.Catch> catches = new ArrayList<>(node.catches.size());
+                for (Ir.Catch handler : node.catches) {
+                    catches.add(new Ir.Catch(handler.origin, handler.variable, block(handler.body, false)));
+                }
+                List<Ir.Stmt> finallyBody = node.finallyBody == null ? null : block(node.finallyBody, false);
+                return new Ir.Try(node.origin, block(node.body, false), catches, finallyBody);
+            }
+            if (statement instanceof Ir.Return) {
+                Ir.Return node = (Ir.Return) statement;
+                return node.value == null ? node : new Ir.Return(node.origin, expr(node.value));
+            }
+            if (statement instanceof Ir.Throw) {
+                Ir.Throw node = (Ir.Throw) statement;
+                return new Ir.Throw(node.origin, expr(node.value));
+            }
+            return statement;
+        }
+
+        /** Records {@code x = value} when {@code x} is assigned nowhere else and the value is fixed. */
+        private void remember(Ir.Assign assign) {
+            if (assign.targets.size() != 1) {
+                return;
+            }
+            String name = assign.targets.get(0).text;
+            if (assignments.getOrDefault(name, 0) != 1 || mutated.contains(name)) {
+                return;
+            }
+            String text = constantText(assign.value);
+            if (text != null) {
+                constants.put(name, text);
+                if (assign.value instanceof Ir.Literal && ((Ir.Literal) assign.value).kind != Ir.LiteralKind.SHELL) {
+                    literals.put(name, (Ir.Literal) assign.value);
+                }
+            } else if (assign.value instanceof Ir.MapLiteral) {
+                maps.put(name, (Ir.MapLiteral) assign.value);
+            }
+        }
+
+        Ir.Expr expr(Ir.Expr expr) {
+            if (expr instanceof Ir.Var) {
+                String name = ((Ir.Var) expr).name.text;
+                String text = constants.get(name);
+                Ir.Literal literal = literals.get(name);
+                if (text != null && literal != null) {
+                    return new Ir.Literal(expr.origin, literal.kind, literal.text);
+                }
+                return text == null ? expr : string(expr, text);
+            }
+            if (expr instanceof Ir.Str) {
+                return interpolate((Ir.Str) expr);
+            }
+            if (expr instanceof Ir.ListLiteral) {
+                Ir.ListLiteral node = (Ir.ListLiteral) expr;
+                return new Ir.ListLiteral(node.origin, exprs(node.elements));
+            }
+            if (expr instanceof Ir.MapLiteral) {
+                Ir.MapLiteral node = (Ir.MapLiteral) expr;
+                List<Ir.MapEntry> entries = new ArrayList<>(node.entries.size());
+                for (Ir.MapEntry entry : node.entries) {
+                    entries.add(new Ir.MapEntry(entry.key, entry.quotedKey, expr(entry.value)));
+                }
+                return new Ir.MapLiteral(node.origin, entries);
+            }
+            if (expr instanceof Ir.Call) {
+                return call((Ir.Call) expr);
+            }
+            if (expr instanceof Ir.Unary) {
+                Ir.Unary node = (Ir.Unary) expr;
+                Ir.Expr operand = expr(node.operand);
+                Long value = integer(constantText(operand));
+                if (value != null && operand instanceof Ir.Literal && ("-".equals(node.op) || "+".equals(node.op))) {
+                    return new Ir.Literal(node.origin, Ir.LiteralKind.NUMBER,
+                            Long.toString("-".equals(node.op) ? -value : value));
+                }
+                return operand == node.operand ? node : new Ir.Unary(node.origin, node.op, operand);
+            }
+            if (expr instanceof Ir.Binary) {
+                Ir.Binary node = (Ir.Binary) expr;
+                Ir.Expr left = expr(node.left);
+                Ir.Expr right = expr(node.right);
+                Ir.Expr folded = arithmetic(node, left, right);
+                if (folded != null) {
+                    return folded;
+                }
+                return left == node.left && right == node.right ? node : new Ir.Binary(node.origin, node.op, left, right);
+            }
+            if (expr instanceof Ir.Assign) {
+                Ir.Assign node = (Ir.Assign) expr;
+                Ir.Expr value = node.targets.size() == 1 ? assigned(node.value) : expr(node.value);
+                return value == node.value ? node : new Ir.Assign(node.origin, node.targets, value);
+            }
+            return expr;
+        }
+
+        /**
+         * The value of a single assignment. Tests are stored as the boolean
+         * they evaluate to, so one that folds becomes that literal.
+         */
+        private Ir.Expr assigned(Ir.Expr value) {
+            boolean test = value instanceof Ir.Unary
+                    ? "!".equals(((Ir.Unary) value).op)
+                    : value instanceof Ir.Binary && TESTS.contains(((Ir.Binary) value).op);
+            if (test) {
+                Boolean outcome = known(condition(value));
+                if (outcome != null) {
+                    return bool(value, outcome);
+                }
+            }
+            return expr(value);
+        }
+
+        /** {@code expr} in test position, folded to {@code true} or {@code false} when decided. */
+        Ir.Expr condition(Ir.Expr expr) {
+            if (expr instanceof Ir.Unary && "!".equals(((Ir.Unary) expr).op)) {
+                Ir.Unary node = (Ir.Unary) expr;
+                Ir.Expr operand = condition(node.operand);
+                Boolean outcome = known(operand);
+                return outcome != null ? bool(node, !outcome) : new Ir.Unary(node.origin, node.op, operand);
+            }
+            if (expr instanceof Ir.Binary) {
+                Ir.Binary node = (Ir.Binary) expr;
+                if ("&&".equals(node.op) || "||".equals(node.op)) {
+                    return logical(node);
+                }
+                Ir.Expr left = expr(node.left);
+                Ir.Expr right = expr(node.right);
+                Boolean outcome = comparison(node.op, constantText(left), constantText(right));
+                return outcome != null ? bool(node, outcome) : new Ir.Binary(node.origin, node.op, left, right);
+            }
+            if (expr instanceof Ir.Literal) {
+                Ir.Literal literal = (Ir.Literal) expr;
+                Long value = integer(literal.kind == Ir.LiteralKind.NUMBER ? literal.text : null);
+                if (value != null) {
+                    return bool(literal, value != 0);
+                }
+                return literal.kind == Ir.LiteralKind.NULL ? bool(literal, false) : literal;
+            }
+            Ir.Expr value = expr(expr);
+            if (value instanceof Ir.Str) {
+                // Strings and string-valued locals test as non-empty.
+                String text = constantText(value);
+                return text == null ? value : bool(value, !text.isEmpty());
+            }
+            return value;
+        }
+
+        private Ir.Expr logical(Ir.Binary node) {
+            boolean and = "&&".equals(node.op);
+            Ir.Expr left = condition(node.left);
+            Ir.Expr right = condition(node.right);
+            Boolean first = known(left);
+            if (first != null) {
+                // The right side only runs when the left does not decide.
+                return first == and ? right : bool(node, first);
+            }
+            Boolean second = known(right);
+            if (second != null && second == and) {
+                return left;
+            }
+            if (second != null && pure(left)) {
+                return bool(node, second);
+            }
+            return new Ir.Binary(node.origin, node.op, left, right);
+        }
+
+        private Ir.Expr arithmetic(Ir.Binary node, Ir.Expr left, Ir.Expr right) {
+            Long a = integer(constantText(left));
+            Long b = integer(constantText(right));
+            if (a == null || b == null) {
+                return null;
+            }
+            long result;
+            try {
+                switch (node.op) {
+                    case "+":
+                        result = Math.addExact(a, b);
+                        break;
+                    case "-":
+                        result = Math.subtractExact(a, b);
+                        break;
+                    case "*":
+                        result = Math.multiplyExact(a, b);
+                        break;
+                    case "/":
+                        if (b == 0) {
+                            return null;
+                        }
+                        result = a / b;
+                        break;
+                    case "%":
+                        if (b == 0) {
+                            return null;
+                        }
+                        result = a % b;
+                        break;
+                    default:
+                        return null;
+                }
+            } catch (ArithmeticException e) {
+                return null;
+            }
+            return new Ir.Literal(node.origin, Ir.LiteralKind.NUMBER, Long.toString(result));
+        }
+
+        private Boolean comparison(String op, String left, String right) {
+            if (left == null || right == null) {
+                return null;
+            }
+            switch (op) {
+                case "==":
+                    return left.equals(right);
+                case "!=":
+                    return !left.equals(right);
+                default:
+                    break;
+            }
+            Long a = integer(left);
+            Long b = integer(right);
+            if (a == null || b == null) {
+                return null;
+            }
+            switch (op) {
+                case "<":
+                    return a < b;
+                case "<=":
+                    return a <= b;
+                case ">":
+                    return a > b;
+                case ">=":
+                    return a >= b;
+                default:
+                    return null;
+            }
+        }
+
+        private Ir.Expr call(Ir.Call node) {
+            List<Ir.Expr> args = exprs(node.args);
+            Ir.Call folded = args == node.args
+                    ? node
+                    : new Ir.Call(node.origin, node.callee, args, node.target, node.root, node.method);
+            Boolean outcome = tests == null ? null : tests.outcome(folded);
+            if (outcome != null) {
+                // A decided query is its boolean, so a local holding it is one too.
+                return bool(node, outcome);
+            }
+            if (node.callee instanceof Ir.Property && args.isEmpty()
+                    && "length".equals(((Ir.Property) node.callee).name.text)) {
+                Ir.Expr receiver = expr(((Ir.Property) node.callee).receiver);
+                String text = receiver instanceof Ir.Str ? constantText(receiver) : null;
+                if (text != null) {
+                    return new Ir.Literal(node.origin, Ir.LiteralKind.NUMBER, Integer.toString(text.length()));
+                }
+            }
+            if (node.root != null && "get".equals(node.method) && args.size() == 1) {
+                Ir.MapLiteral map = maps.get(node.root.text);
+                String key = constantText(args.get(0));
+                if (map != null && key != null) {
+                    for (Ir.MapEntry entry : map.entries) {
+                        String entryKey = entry.key != null ? entry.key.text : constantText(entry.quotedKey);
+                        if (key.equals(entryKey) && stable(entry.value)) {
+                            return expr(entry.value);
+                        }
+                    }
+                }
+            }
+            return folded;
+        }
+
+        /** Whether {@code value} reads the same wherever in the function it is evaluated. */
+        private boolean stable(Ir.Expr value) {
+            if (value instanceof Ir.Var) {
+                String name = ((Ir.Var) value).name.text;
+                return constants.containsKey(name)
+                        || (parameters.contains(name) && assignments.get(name) == 1 && !mutated.contains(name));
+            }
+            return constantText(value) != null;
+        }
+
+        private List<Ir.Expr> exprs(List<Ir.Expr> exprs) {
+            List<Ir.Expr> out = null;
+            for (int i = 0; i < exprs.size(); i++) {
+                Ir.Expr rewritten = expr(exprs.get(i));
+                if (rewritten != exprs.get(i) && out == null) {
+                    out = new ArrayList<>(exprs.subList(0, i));
+                }
+                if (out != null) {
+                    out.add(rewritten);
+                }
+            }
+            return out == null ? exprs : out;
+        }
+
+        /** {@code literal} with the constants it interpolates spliced in. */
+        private Ir.Str interpolate(Ir.Str literal) {
+            List<Ir.Segment> segments = new ArrayList<>(literal.segments.size());
+            StringBuilder text = new StringBuilder();
+            boolean changed = false;
+            for (Ir.Segment segment : literal.segments) {
+                String constant = segment.ref != null && segment.property == null
+                        ? constants.get(segment.ref.text)
+                        : null;
+                if (constant != null) {
+                    text.append(constant);
+                    changed = true;
+                } else if (segment.ref == null) {
+                    text.append(segment.text);
+                } else {
+                    if (text.length() > 0) {
+                        segments.add(new Ir.Segment(text.toString(), null));
+                        text.setLength(0);
+                    }
+                    segments.add(segment);
+                }
+            }
+            if (!changed) {
+                return literal;
+            }
+            if (text.length() > 0 || segments.isEmpty()) {
+                segments.add(new Ir.Segment(text.toString(), null));
+            }
+            StringBuilder raw = new StringBuilder("\"");
+            for (Ir.Segment segment : segments) {
+                if (segment.ref == null) {
+                    raw.append(segment.text);
+                } else {
+                    raw.append("${").append(segment.ref.text);
+                    if (segment.property != null) {
+                        raw.append('.').append(segment.property);
+                    }
+                    raw.append('}');
+                }
+            }
+            return new Ir.Str(literal.origin, raw.append('"').toString(), segments);
+        }
+
+        private Ir.Str string(Ir.Node origin, String text) {
+            return new Ir.Str(origin.origin, "\"" + text + "\"", List.of(new Ir.Segment(text, null)));
+        }
+
+        private void scan(List<Ir.Stmt> statements) {
+            for (Ir.Stmt statement : statements) {
+                scan(statement);
+            }
+        }
+
+        private void scan(Ir.Stmt statement) {
+            if (statement instanceof Ir.ExprStmt) {
+                scan(((Ir.ExprStmt) statement).expr);
+            } else if (statement instanceof Ir.If) {
+                Ir.If node = (Ir.If) statement;
+                scan(node.condition);
+                scan(node.thenBody);
+                if (node.elseIf != null) {
+                    scan(node.elseIf);
+                }
+                if (node.elseBody != null) {
+                    scan(node.elseBody);
+                }
+            } else if (statement instanceof Ir.For) {
+                Ir.For node = (Ir.For) statement;
+                assignments.merge(node.variable.text, 1, Integer::sum);
+                scan(node.iterable);
+                scan(node.body);
+            } else if (statement instanceof Ir.Try) {
+                Ir.Try node = (Ir.Try) statement;
+                scan(node.body);
+                for (Ir.Catch handler : node.catches) {
+                    assignments.merge(handler.variable.text, 1, Integer::sum);
+                    scan(handler.body);
+                }
+                if (node.finallyBody != null) {
+                    scan(node.finallyBody);
+                }
+            } else if (statement instanceof Ir.Return && ((Ir.Return) statement).value != null) {
+                scan(((Ir.Return) statement).value);
+            } else if (statement instanceof Ir.Throw) {
+                scan(((Ir.Throw) statement).value);
+            } else if (statement instanceof Ir.Nested) {
+                scan(((Ir.Nested) statement).body);
+            }
+        }
+
+        private void scan(Ir.Expr expr) {
+            new Walker() {
+                @Override
+                void visit(Ir.Expr node) {
+                    if (node instanceof Ir.Assign) {
+                        for (Ir.Name target : ((Ir.Assign) node).targets) {
+                            assignments.merge(target.text, 1, Integer::sum);
+                        }
+                    } else if (node instanceof Ir.Call) {
+                        Ir.Call call = (Ir.Call) node;
+                        if (call.root != null && call.method != null
+                                && !"get".equals(call.method) && !"containsKey".equals(call.method)) {
+                            mutated.add(call.root.text);
+                        }
+                    }
+                }
+            }.walk(expr);
+        }
+    }
+
+    /** Visits every expression below a root, callees and receivers included. */
+    abstract static class Walker {
+        abstract void visit(Ir.Expr node);
+
+        /** Called for each {@code for} and {@code catch} variable the walk passes. */
+        void bind(Ir.Name variable) {
+        }
+
+        /** Called for each {@code throw} the walk passes, before its value. */
+        void thrown(Ir.Throw statement) {
+        }
+
+        final void walk(Ir.Expr expr) {
+            if (expr == null) {
+                return;
+            }
+            visit(expr);
+            if (expr instanceof Ir.ListLiteral) {
+                ((Ir.ListLiteral) expr).elements.forEach(this::walk);
+            } else if (expr instanceof Ir.MapLiteral) {
+                ((Ir.MapLiteral) expr).entries.forEach(entry -> walk(entry.value));
+            } else if (expr instanceof Ir.Property) {
+                walk(((Ir.Property) expr).receiver);
+            } else if (expr instanceof Ir.Call) {
+                walk(((Ir.Call) expr).callee);
+                ((Ir.Call) expr).args.forEach(this::walk);
+            } else if (expr instanceof Ir.Unary) {
+                walk(((Ir.Unary) expr).operand);
+            } else if (expr instanceof Ir.Binary) {
+                walk(((Ir.Binary) expr).left);
+                walk(((Ir.Binary) expr).right);
+            } else if (expr instanceof Ir.Assign) {
+                walk(((Ir.Assign) expr).value);
+            }
+        }
+
+        final void walk(List<Ir.Stmt> statements) {
+            for (Ir.Stmt statement : statements) {
+                walk(statement);
+            }
+        }
+
+        final void walk(Ir.Stmt statement) {
+            if (statement instanceof Ir.ExprStmt) {
+                walk(((Ir.ExprStmt) statement).expr);
+            } else if (statement instanceof Ir.If) {
+                Ir.If node = (Ir.If) statement;
+                walk(node.condition);
+                walk(node.thenBody);
+                if (node.elseIf != null) {
+                    walk(node.elseIf);
+                }
+                if (node.elseBody != null) {
+                    walk(node.elseBody);
+                }
+            } else if (statement instanceof Ir.For) {
+                bind(((Ir.For) statement).variable);
+                walk(((Ir.For) statement).iterable);
+                walk(((Ir.For) statement).body);
+            } else if (statement instanceof Ir.Try) {
+                Ir.Try node = (Ir.Try) statement;
+                walk(node.body);
+                for (Ir.Catch handler : node.catches) {
+                    bind(handler.variable);
+                    walk(handler.body);
+                }
+                if (node.finallyBody != null) {
+                    walk(node.finallyBody);
+                }
+            } else if (statement instanceof Ir.Return) {
+                walk(((Ir.Return) statement).value);
+            } else if (statement instanceof Ir.Throw) {
+                thrown((Ir.Throw) statement);
+                walk(((Ir.Throw) statement).value);
+            } else if (statement instanceof Ir.Nested) {
+                walk(((Ir.Nested) statement).body);
+            }
+        }
+    }
+
+    /** Adds every local {@code statements} read, interpolations and method receivers included. */
+    private static void collectReads(List<Ir.Stmt> statements, Set<String> reads) {
+        new Walker() {
+            @Override
+            void visit(Ir.Expr node) {
+                if (node instanceof Ir.Var) {
+                    reads.add(((Ir.Var) node).name.text);
+                } else if (node instanceof Ir.Str) {
+                    for (Ir.Segment segment : ((Ir.Str) node).segments) {
+                        if (segment.ref != null) {
+                            reads.add(segment.ref.text);
+                        }
+                    }
+                } else if (node instanceof Ir.Call && ((Ir.Call) node).root != null) {
+                    reads.add(((Ir.Call) node).root.text);
+                }
+            }
+        }.walk(statements);
+    }
+
+    /** {@code statements} without plain stores to locals outside {@code reads}; the same list when there are none. */
+    private static List<Ir.Stmt> withoutDeadStores(List<Ir.Stmt> statements, Set<String> reads) {
+        List<Ir.Stmt> out = new ArrayList<>(statements.size());
+        boolean changed = false;
+        for (Ir.Stmt statement : statements) {
+            Ir.Stmt live = withoutDeadStores(statement, reads);
+            changed |= live != statement;
+            if (live != null) {
+                out.add(live);
+            }
+        }
+        return changed ? out : statements;
+    }
+
+    private static Ir.Stmt withoutDeadStores(Ir.Stmt statement, Set<String> reads) {
+        if (statement instanceof Ir.ExprStmt && ((Ir.ExprStmt) statement).expr instanceof Ir.Assign) {
+            Ir.Assign assign = (Ir.Assign) ((Ir.ExprStmt) statement).expr;
+            if (assign.targets.size() == 1 && !reads.contains(assign.targets.get(0).text) && pure(assign.value)) {
+                return null;
+            }
+            return statement;
+        }
+        if (statement instanceof Ir.If) {
+            Ir.If node = (Ir.If) statement;
+            List<Ir.Stmt> thenBody = withoutDeadStores(node.thenBody, reads);
+            Ir.If elseIf = node.elseIf == null ? null : (Ir.If) withoutDeadStores(node.elseIf, reads);
+            List<Ir.Stmt> elseBody = node.elseBody == null ? null : withoutDeadStores(node.elseBody, reads);
+            if (thenBody == node.thenBody && elseIf == node.elseIf && elseBody == node.elseBody) {
+                return node;
+            }
+            return new Ir.If(node.origin, node.condition, thenBody, elseIf, elseBody);
+        }
+        if (statement instanceof Ir.For) {
+            Ir.For node = (Ir.For) statement;
+            List<Ir.Stmt> body = withoutDeadStores(node.body, reads);
+            return body == node.body ? node : new Ir.For(node.origin, node.variable, node.iterable, body);
+        }
+        if (statement instanceof Ir.Try) {
+            Ir.Try node = (Ir.Try) statement;
+            boolean changed = false;
+            List<Ir.Stmt> body = withoutDeadStores(node.body, reads);
+            changed |= body != node.body;
+            List<Ir.Catch> catches = new ArrayList<>(node.catches.size());
+            for (Ir.Catch handler : node.catches) {
+                List<Ir.Stmt> handlerBody = withoutDeadStores(handler.body, reads);
+                changed |= handlerBody != handler.body;
+                catches.add(handlerBody == handler.body ? handler : new Ir.Catch(handler.origin, handler.variable, handlerBody));
+            }
+            List<Ir.Stmt> finallyBody = node.finallyBody == null ? null : withoutDeadStores(node.finallyBody, reads);
+            changed |= finallyBody != node.finallyBody;
+            return changed ? new Ir.Try(node.origin, body, catches, finallyBody) : node;
+        }
+        return statement;
+    }
+
+    /**
+     * The functions {@code main} and the global statements reach, in their
+     * original order. Dotted call targets also count under their underscored
+     * spelling, the name {@code __gnash_invoke} would look up.
+     */
+    private static List<Ir.Function> reachable(List<Ir.Function> functions, List<Ir.ExprStmt> globals) {
+        Map<String, Ir.Function> byName = new HashMap<>();
+        for (Ir.Function fn : functions) {
+            byName.putIfAbsent(fn.name.text, fn);
+        }
+        Set<String> seen = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add("main");
+        Walker calls = new Walker() {
+            @Override
+            void visit(Ir.Expr node) {
+                if (node instanceof Ir.Call) {
+                    Ir.Call call = (Ir.Call) node;
+                    if (call.root != null && call.method == null) {
+                        pending.add(call.root.text);
+                    }
+                    if (call.target != null) {
+                        pending.add(call.target.replace('.', '_'));
+                    }
+                }
+            }
+        };
+        globals.forEach(calls::walk);
+        while (!pending.isEmpty()) {
+            String name = pending.poll();
+            Ir.Function fn = byName.get(name);
+            if (fn != null && seen.add(name) && fn.body != null) {
+                calls.walk(fn.body);
+            }
+        }
+        List<Ir.Function> kept = new ArrayList<>();
+        for (Ir.Function fn : functions) {
+            if (seen.contains(fn.name.text)) {
+                kept.add(fn);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Adds the functions called for their value: everywhere except as a
+     * statement of their own or as a test, where only the status counts.
+     */
+    private static void collectValueCalls(List<Ir.Stmt> statements, Set<String> sink) {
+        for (Ir.Stmt statement : statements) {
+            collectValueCalls(statement, sink);
+        }
+    }
+
+    private static void collectValueCalls(Ir.Stmt statement, Set<String> sink) {
+        Walker values = new Walker() {
+            @Override
+            void visit(Ir.Expr node) {
+                if (node instanceof Ir.Call && ((Ir.Call) node).root != null) {
+                    Ir.Call call = (Ir.Call) node;
+                    sink.add(call.method == null ? call.root.text : call.target.replace('.', '_'));
+                }
+            }
+        };
+        if (statement instanceof Ir.ExprStmt && ((Ir.ExprStmt) statement).expr instanceof Ir.Call) {
+            ((Ir.Call) ((Ir.ExprStmt) statement).expr).args.forEach(values::walk);
+        } else if (statement instanceof Ir.If) {
+            Ir.If node = (Ir.If) statement;
+            collectTestCalls(node.condition, values);
+            collectValueCalls(node.thenBody, sink);
+            if (node.elseIf != null) {
+                collectValueCalls(node.elseIf, sink);
+            }
+            if (node.elseBody != null) {
+                collectValueCalls(node.elseBody, sink);
+            }
+        } else if (statement instanceof Ir.For) {
+            values.walk(((Ir.For) statement).iterable);
+            collectValueCalls(((Ir.For) statement).body, sink);
+        } else if (statement instanceof Ir.Try) {
+            Ir.Try node = (Ir.Try) statement;
+            collectValueCalls(node.body, sink);
+            node.catches.forEach(handler -> collectValueCalls(handler.body, sink));
+            if (node.finallyBody != null) {
+                collectValueCalls(node.finallyBody, sink);
+            }
+        } else {
+            values.walk(statement);
+        }
+    }
+
+    private static void collectTestCalls(Ir.Expr condition, Walker values) {
+        if (condition instanceof Ir.Unary && "!".equals(((Ir.Unary) condition).op)) {
+            collectTestCalls(((Ir.Unary) condition).operand, values);
+        } else if (condition instanceof Ir.Binary
+                && ("&&".equals(((Ir.Binary) condition).op) || "||".equals(((Ir.Binary) condition).op))) {
+            collectTestCalls(((Ir.Binary) condition).left, values);
+            collectTestCalls(((Ir.Binary) condition).right, values);
+        } else if (condition instanceof Ir.Call) {
+            ((Ir.Call) condition).args.forEach(values::walk);
+        } else {
+            values.walk(condition);
+        }
+    }
+}
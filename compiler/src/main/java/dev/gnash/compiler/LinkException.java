@@ -0,0 +1,24 @@
+package dev.gnash.compiler;
+
+import java.util.List;
+
+/**
+ * Raised when a unit refers to modules or functions that do not exist. Carries
+ * every problem found in the unit, one {@code file:line:column: message} per
+ * entry.
+ */
+final class LinkException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> problems;
+
+    LinkException(List<String> problems) {
+        super(String.join("\n", problems));
+        this.problems = List.copyOf(problems);
+    }
+
+    List<String> problems() {
+        return problems;
+    }
+}
@@ -0,0 +1,228 @@
+package dev.gnash.compiler;
+
+import org.antlr.v4.runtime.Token;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Whole-program symbol resolution for one compilation unit.
+ * <p>
+ * A bare call {@code f(x)} binds to a function of the calling module, or else
+ * to the one public function named {@code f} among the modules it imports; a
+ * qualified call {@code Config.f(x)} binds to {@code f} in the imported module
+ * whose last name segment is {@code Config}. Either way the generator emits a
+ * direct call to {@code gnash_fn_<module>_<name>} instead of going through
+ * {@code __gnash_invoke}. Calls rooted at anything else are method calls on
+ * values and are left to the generator.
+ * <p>
+ * When the unit is runnable, every imported function that gets bound is queued
+ * for emission into the same script, together with the global statements of
+ * its module, so the script is self-contained. Libraries only bind names; the
+ * runnable scripts that import them link their code.
+ * <p>
+ * Unknown modules, unknown functions, ambiguous bare names and calls to
+ * another module's private functions are collected and reported together by
+ * {@link #check()}.
+ */
+final class Linker {
+
+    /** A function with the module its calls resolve in; queued ones are waiting to be emitted. */
+    static final class Pending {
+        final Module module;
+        final Ir.Function function;
+
+        Pending(Module module, Ir.Function function) {
+            this.module = module;
+            this.function = function;
+        }
+    }
+
+    private final ModuleLoader loader;
+    private final Module root;
+    private final boolean linkImports;
+    private final Map<Module, Map<String, Module>> imports = new HashMap<>();
+    private final Set<Ir.Function> bound = new HashSet<>();
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final List<Module> linked = new ArrayList<>();
+    private final Set<String> problems = new LinkedHashSet<>();
+
+    Linker(ModuleLoader loader, Module root, boolean linkImports) {
+        this.loader = loader;
+        this.root = root;
+        this.linkImports = linkImports;
+        importsOf(root);
+    }
+
+    /**
+     * The Bash function {@code call} invokes, or {@code null} when it is not a
+     * call to a Gnash function (or could not be resolved, which is recorded).
+     */
+    String resolve(Module scope, Ir.Call call) {
+        Pending target = find(scope, call, true);
+        return target == null ? null : bind(target.module, target.function);
+    }
+
+    /**
+     * The function {@code call} binds to and its module, or {@code null} when
+     * it is not a call to a Gnash function. Nothing is linked or reported.
+     */
+    Pending target(Module scope, Ir.Call call) {
+        return find(scope, call, false);
+    }
+
+    /** The next imported function to emit, or {@code null} when the queue is drained. */
+    Pending next() {
+        return pending.poll();
+    }
+
+    /** Imported modules that have had a function linked, in the order they were first linked. */
+    List<Module> linkedModules() {
+        return linked;
+    }
+
+    /**
+     * The linked modules ordered so that a module comes after everything it
+     * imports; their global statements run in this order.
+     */
+    List<Module> initializationOrder() {
+        List<Module> order = new ArrayList<>();
+        visit(root, new HashSet<>(), order);
+        order.remove(root);
+        for (Module module : linked) {
+            if (!order.contains(module)) {
+                order.add(module);
+            }
+        }
+        return order;
+    }
+
+    /** Throws a {@link LinkException} listing every problem found so far. */
+    void check() {
+        if (!problems.isEmpty()) {
+            throw new LinkException(new ArrayList<>(problems));
+        }
+    }
+
+    private Pending find(Module scope, Ir.Call call, boolean report) {
+        if (call.root == null) {
+            return null;
+        }
+        if (call.method == null) {
+            return findBare(scope, call, report);
+        }
+        Module module = importsOf(scope).get(call.root.text);
+        if (module == null || call.method.indexOf('.') >= 0) {
+            return null;
+        }
+        Ir.Function fn = module.function(call.method);
+        if (fn == null) {
+            if (report) {
+                report(scope, call, "unresolved symbol '" + call.target + "': " + module + " has no function '" + call.method + "'");
+            }
+            return null;
+        }
+        if (fn.isPrivate && module != scope) {
+            if (report) {
+                report(scope, call, "'" + call.target + "' is private to " + module);
+            }
+            return null;
+        }
+        return new Pending(module, fn);
+    }
+
+    private Pending findBare(Module scope, Ir.Call call, boolean report) {
+        String name = call.root.text;
+        Ir.Function local = scope.function(name);
+        if (local != null) {
+            return new Pending(scope, local);
+        }
+        Module owner = null;
+        Ir.Function found = null;
+        for (Module module : importsOf(scope).values()) {
+            Ir.Function candidate = module.function(name);
+            if (candidate == null || candidate.isPrivate) {
+                continue;
+            }
+            if (owner != null) {
+                if (report) {
+                    report(scope, call, "ambiguous symbol '" + name + "': defined in " + owner + " and " + module);
+                }
+                return null;
+            }
+            owner = module;
+            found = candidate;
+        }
+        if (found == null) {
+            if (report) {
+                report(scope, call, "unresolved symbol '" + name + "'");
+            }
+            return null;
+        }
+        return new Pending(owner, found);
+    }
+
+    private String bind(Module module, Ir.Function fn) {
+        if (linkImports && module != root && bound.add(fn)) {
+            if (!linked.contains(module)) {
+                linked.add(module);
+            }
+            pending.add(new Pending(module, fn));
+        }
+        return module.symbol(fn);
+    }
+
+    private Map<String, Module> importsOf(Module module) {
+        Map<String, Module> resolved = imports.get(module);
+        if (resolved != null) {
+            return resolved;
+        }
+        resolved = new LinkedHashMap<>();
+        imports.put(module, resolved);
+        for (String name : module.unit.imports) {
+            try {
+                Module imported = loader.load(module.sourceRoot, name);
+                resolved.put(imported.simpleName(), imported);
+            } catch (NoSuchFileException e) {
+                problems.add(module.source.getFileName() + ": cannot find module '" + name + "' (looked for "
+                        + Module.sourceFile(module.sourceRoot, name) + ")");
+            } catch (IOException e) {
+                problems.add(module.source.getFileName() + ": cannot load module '" + name + "': " + e.getMessage());
+            }
+        }
+        return resolved;
+    }
+
+    private void visit(Module module, Set<Module> seen, List<Module> order) {
+        if (!seen.add(module)) {
+            return;
+        }
+        for (Module imported : importsOf(module).values()) {
+            if (linked.contains(imported)) {
+                visit(imported, seen, order);
+            }
+        }
+        order.add(module);
+    }
+
+    private void report(Module scope, Ir.Call call, String message) {
+        // Point at the name being called, not at the argument list that made it a call.
+        Ir.Expr callee = call;
+        while (callee instanceof Ir.Call || callee instanceof Ir.Property) {
+            callee = callee instanceof Ir.Call ? ((Ir.Call) callee).callee : ((Ir.Property) callee).receiver;
+        }
+        Token start = callee.origin == null ? null : callee.origin.getStart();
+        String location = start == null ? " " : start.getLine() + ":" + start.getCharPositionInLine() + ": ";
+        problems.add(scope.source.getFileName() + ":" + location + message);
+    }
+}
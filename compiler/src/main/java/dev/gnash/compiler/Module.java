@@ -0,0 +1,115 @@
+package dev.gnash.compiler;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A lowered compilation unit together with the name other units import it by
+ * ({@code lib.Config} for {@code src/gnash/lib/Config.gnash}) and the prefix
+ * its functions are emitted under.
+ * <p>
+ * Runnable scripts keep the plain {@code gnash_fn_<name>} spelling for their
+ * own functions; everything else is qualified as
+ * {@code gnash_fn_<module>_<name>} ({@code gnash_fn_lib_Config_get}) so that
+ * modules linked into one script cannot collide.
+ */
+final class Module {
+
+    static final String SOURCE_SUFFIX = ".gnash";
+    private static final String FUNCTION_PREFIX = "gnash_fn_";
+
+    final String name;
+    final Path source;
+    /** Directory that package names are resolved against. */
+    final Path sourceRoot;
+    final Ir.Unit unit;
+    private final String functionPrefix;
+    private final Map<String, Ir.Function> functions = new HashMap<>();
+
+    private Module(String name, Path source, Path sourceRoot, Ir.Unit unit, String functionPrefix) {
+        this.name = name;
+        this.source = source;
+        this.sourceRoot = sourceRoot;
+        this.unit = unit;
+        this.functionPrefix = functionPrefix;
+        for (Ir.Function fn : unit.functions) {
+            functions.putIfAbsent(fn.name.text, fn);
+        }
+    }
+
+    /** The unit being compiled; {@code runnable} units keep unqualified function names. */
+    static Module root(Path source, Ir.Unit unit, boolean runnable) {
+        Path sourceRoot = sourceRoot(source, unit.packageName);
+        String name = qualifiedName(unit.packageName, source);
+        return new Module(name, source, sourceRoot, unit, runnable ? FUNCTION_PREFIX : qualifiedPrefix(name));
+    }
+
+    /** A unit loaded to satisfy an import. */
+    static Module imported(String name, Path source, Path sourceRoot, Ir.Unit unit) {
+        return new Module(name, source, sourceRoot, unit, qualifiedPrefix(name));
+    }
+
+    /** The source file {@code name} lives in below {@code sourceRoot}. */
+    static Path sourceFile(Path sourceRoot, String name) {
+        return sourceRoot.resolve(name.replace(".", sourceRoot.getFileSystem().getSeparator()) + SOURCE_SUFFIX);
+    }
+
+    /**
+     * The directory packages are relative to: {@code source}'s directory with
+     * the package segments taken off. Sources whose directory only mirrors a
+     * leading part of their package ({@code package scripts.demo} in
+     * {@code scripts/}) strip that part; with no match at all the directory
+     * itself is the root.
+     */
+    static Path sourceRoot(Path source, String packageName) {
+        Path directory = source.toAbsolutePath().normalize().getParent();
+        if (packageName == null || packageName.isEmpty()) {
+            return directory;
+        }
+        String[] segments = packageName.split("\\.");
+        for (int length = segments.length; length > 0; length--) {
+            Path root = directory;
+            for (int i = length - 1; i >= 0 && root != null; i--) {
+                Path name = root.getFileName();
+                root = name != null && name.toString().equals(segments[i]) ? root.getParent() : null;
+            }
+            if (root != null) {
+                return root;
+            }
+        }
+        return directory;
+    }
+
+    /** The last segment of {@link #name}, which qualified calls use ({@code Config.get}). */
+    String simpleName() {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    /** The function declared as {@code name}, or {@code null}. */
+    Ir.Function function(String name) {
+        return functions.get(name);
+    }
+
+    /** The Bash function {@code fn} is emitted as. */
+    String symbol(Ir.Function fn) {
+        return functionPrefix + fn.name.text;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static String qualifiedName(String packageName, Path source) {
+        String fileName = source.getFileName().toString();
+        String stem = fileName.endsWith(SOURCE_SUFFIX)
+                ? fileName.substring(0, fileName.length() - SOURCE_SUFFIX.length())
+                : fileName;
+        return packageName == null || packageName.isEmpty() ? stem : packageName + "." + stem;
+    }
+
+    private static String qualifiedPrefix(String name) {
+        return FUNCTION_PREFIX + name.replaceAll("[^A-Za-z0-9_]", "_") + "_";
+    }
+}
@@ -0,0 +1,131 @@
+package dev.gnash.compiler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds, parses and lowers the modules a unit imports. {@code import lib.Config}
+ * resolves to {@code lib/Config.gnash} below the importing unit's source root.
+ * <p>
+ * Loaded modules are kept for the lifetime of the loader and shared between
+ * threads, so a batch build or the compile server parses {@code lib/Config}
+ * once rather than once per step that imports it. An entry is reloaded when
+ * its file's size or modification time changes.
+ */
+final class ModuleLoader {
+
+    /** Turns a module source file into IR; syntax errors are reported as {@link IOException}s. */
+    interface Parser {
+        Ir.Unit parse(Path source) throws IOException;
+    }
+
+    private static final Pattern PACKAGE = Pattern.compile("(?m)^\\s*package\\s+([A-Za-z_][A-Za-z0-9_.]*)");
+    private static final Pattern IMPORT = Pattern.compile("(?m)^\\s*import\\s+([A-Za-z_][A-Za-z0-9_.]*)");
+
+    private static final class Entry {
+        final FileTime modified;
+        final long size;
+        final Module module;
+
+        Entry(FileTime modified, long size, Module module) {
+            this.modified = modified;
+            this.size = size;
+            this.module = module;
+        }
+    }
+
+    private final Parser parser;
+    private final ConcurrentMap<Path, Entry> modules = new ConcurrentHashMap<>();
+
+    ModuleLoader() {
+        this(GnashCompiler::parseModule);
+    }
+
+    ModuleLoader(Parser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Loads module {@code name} from below {@code sourceRoot}.
+     *
+     * @throws NoSuchFileException when no source file exists for it
+     */
+    Module load(Path sourceRoot, String name) throws IOException {
+        Path source = Module.sourceFile(sourceRoot, name);
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        Entry entry = modules.get(source);
+        if (entry != null
+                && entry.modified.equals(attributes.lastModifiedTime())
+                && entry.size == attributes.size()) {
+            return entry.module;
+        }
+        Module module = Module.imported(name, source, sourceRoot, parser.parse(source));
+        modules.put(source, new Entry(attributes.lastModifiedTime(), attributes.size(), module));
+        return module;
+    }
+
+    /**
+     * Digest over every module {@code text} imports, directly or transitively,
+     * or the empty string when it imports nothing. Imports are found with a
+     * line scan rather than a parse so that build-cache lookups stay cheap;
+     * linked output depends on these files, so they belong in the cache key.
+     */
+    static String importsFingerprint(Path source, String text) throws IOException {
+        Deque<String> pending = new ArrayDeque<>();
+        scanImports(text, pending);
+        if (pending.isEmpty()) {
+            return "";
+        }
+        Matcher packageName = PACKAGE.matcher(text);
+        Path sourceRoot = Module.sourceRoot(source, packageName.find() ? packageName.group(1) : null);
+        MessageDigest digest = sha256();
+        Set<String> seen = new HashSet<>();
+        while (!pending.isEmpty()) {
+            String name = pending.pop();
+            if (!seen.add(name)) {
+                continue;
+            }
+            digest.update(name.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            Path file = Module.sourceFile(sourceRoot, name);
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            digest.update(bytes);
+            scanImports(new String(bytes, StandardCharsets.UTF_8), pending);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void scanImports(String text, Deque<String> sink) {
+        Matcher matcher = IMPORT.matcher(text);
+        while (matcher.find()) {
+            sink.add(matcher.group(1));
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
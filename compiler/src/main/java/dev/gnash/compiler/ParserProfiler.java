@@ -0,0 +1,139 @@
+package dev.gnash.compiler;
+
+import dev.gnash.antlr.GnashParser;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.AmbiguityInfo;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.atn.ParseInfo;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs {@link GnashParser} under ANTLR's profiling ATN simulator and renders a
+ * per-decision prediction-cost report: invocations, SLL and LL lookahead depth,
+ * how often SLL fell back to full-context LL, ambiguities and time spent.
+ * Decisions are listed most expensive first so grammar hot spots stand out.
+ */
+final class ParserProfiler {
+
+    private static final int MAX_AMBIGUITY_SAMPLES = 3;
+    private static final int SAMPLE_TEXT_LIMIT = 60;
+
+    private final GnashParser parser;
+    private long parseNanos;
+
+    ParserProfiler(GnashParser parser) {
+        this.parser = parser;
+    }
+
+    ParseTree parse() {
+        parser.setProfile(true);
+        long start = System.nanoTime();
+        ParseTree tree = parser.compilationUnit();
+        parseNanos = System.nanoTime() - start;
+        return tree;
+    }
+
+    void writeReport(Path report, Path source) throws IOException {
+        Path parent = report.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.writeString(report, render(source));
+    }
+
+    String render(Path source) {
+        ParseInfo info = parser.getParseInfo();
+        TokenStream tokens = parser.getTokenStream();
+        List<DecisionInfo> decisions = new ArrayList<>();
+        for (DecisionInfo decision : info.getDecisionInfo()) {
+            if (decision.invocations > 0) {
+                decisions.add(decision);
+            }
+        }
+        decisions.sort(Comparator.comparingLong((DecisionInfo d) -> d.timeInPrediction).reversed()
+                                 .thenComparingInt(d -> d.decision));
+
+        StringWriter buffer = new StringWriter();
+        PrintWriter out = new PrintWriter(buffer);
+        out.println("# Gnash parser decision profile");
+        out.println("# source: " + source);
+        out.printf(Locale.ROOT, "# tokens: %d, parse: %.3f ms, prediction: %.3f ms, LL decisions: %s%n",
+                tokens.size(), millis(parseNanos), millis(info.getTotalTimeInPrediction()), info.getLLDecisions());
+        out.printf(Locale.ROOT, "# lookahead ops: SLL %d, LL %d, ATN %d; DFA states: %d%n",
+                info.getTotalSLLLookaheadOps(), info.getTotalLLLookaheadOps(),
+                info.getTotalATNLookaheadOps(), info.getDFASize());
+        out.println();
+        out.printf(Locale.ROOT, "%-8s %-26s %11s %9s %9s %11s %9s %9s %6s %6s %10s%n",
+                "decision", "rule", "invocations", "SLL-avg", "SLL-max",
+                "LL-fallback", "LL-avg", "LL-max", "ambig", "ctxsen", "time-ms");
+        for (DecisionInfo d : decisions) {
+            out.printf(Locale.ROOT, "%-8d %-26s %11d %9.2f %9d %11d %9.2f %9d %6d %6d %10.3f%n",
+                    d.decision,
+                    ruleName(d.decision),
+                    d.invocations,
+                    average(d.SLL_TotalLook, d.invocations),
+                    d.SLL_MaxLook,
+                    d.LL_Fallback,
+                    average(d.LL_TotalLook, d.LL_Fallback),
+                    d.LL_MaxLook,
+                    d.ambiguities.size(),
+                    d.contextSensitivities.size(),
+                    millis(d.timeInPrediction));
+        }
+
+        for (DecisionInfo d : decisions) {
+            if (d.ambiguities.isEmpty()) {
+                continue;
+            }
+            out.println();
+            out.println("## ambiguities in decision " + d.decision + " (" + ruleName(d.decision) + ")");
+            int shown = 0;
+            for (AmbiguityInfo ambiguity : d.ambiguities) {
+                if (shown++ == MAX_AMBIGUITY_SAMPLES) {
+                    out.println("  ... " + (d.ambiguities.size() - MAX_AMBIGUITY_SAMPLES) + " more");
+                    break;
+                }
+                Token start = tokens.get(ambiguity.startIndex);
+                out.printf(Locale.ROOT, "  line %d:%d alts %s: %s%n",
+                        start.getLine(), start.getCharPositionInLine(), ambiguity.ambigAlts,
+                        sample(tokens, ambiguity.startIndex, ambiguity.stopIndex));
+            }
+        }
+        out.flush();
+        return buffer.toString();
+    }
+
+    private String ruleName(int decision) {
+        DecisionState state = parser.getATN().getDecisionState(decision);
+        return parser.getRuleNames()[state.ruleIndex];
+    }
+
+    private static String sample(TokenStream tokens, int startIndex, int stopIndex) {
+        String text = tokens.getText(Interval.of(startIndex, stopIndex)).replaceAll("\\s+", " ");
+        if (text.length() > SAMPLE_TEXT_LIMIT) {
+            return text.substring(0, SAMPLE_TEXT_LIMIT - 3) + "...";
+        }
+        return text;
+    }
+
+    private static double average(long total, long count) {
+        return count == 0 ? 0.0 : (double) total / count;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,169 @@
+package dev.gnash.compiler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The Bash runtime split into top-level fragments so that a script only
+ * carries the helpers it can reach.
+ * <p>
+ * Each fragment is a function definition (with its leading comment), a block of
+ * {@code __GNASH_*} variables, a guarded {@code if ... fi} definition, or a
+ * bare top-level command such as {@code trap ... ERR}. The dependency graph is
+ * read off the runtime text itself: a fragment depends on every runtime symbol
+ * its code (not its comments) mentions, so {@code __gnash_config_list} pulls in
+ * {@code __gnash_config_resolve} and the list helpers without a hand-kept
+ * table. Commands are kept when everything they mention is kept, so the
+ * {@code trap ... ERR} line goes wherever {@code __gnash_trap_err} does.
+ * <p>
+ * Fragments are encoded once per JVM and emitted in their original order;
+ * keeping every fragment reproduces the runtime byte for byte.
+ */
+final class RuntimePrelude {
+
+    /** Prefix shared by every runtime helper; generated code is scanned for it. */
+    static final String SYMBOL_PREFIX = "__gnash_";
+    /** Prefix shared by the runtime's variables, such as the error slot generated code assigns. */
+    static final String VARIABLE_PREFIX = "__GNASH_";
+
+    /** Helpers kept regardless of use: the ERR trace is script-wide behaviour. */
+    private static final Set<String> ALWAYS = Set.of("__gnash_trap_err");
+
+    private static final Pattern SYMBOL = Pattern.compile("__(?:gnash|GNASH)_[A-Za-z0-9_]*");
+    private static final Pattern FUNCTION = Pattern.compile("(?m)^\\s*(__gnash_[A-Za-z0-9_]*)\\(\\) \\{");
+    private static final Pattern VARIABLE = Pattern.compile("(?m)^(?:declare -[gaA]+ )?(__GNASH_[A-Za-z0-9_]*)=");
+    private static final Pattern COMMENT_LINE = Pattern.compile("(?m)^\\s*#.*$");
+
+    private static final class Fragment {
+        final ByteBuffer encoded;
+        final Set<String> defines = new HashSet<>();
+        final Set<String> references = new HashSet<>();
+
+        Fragment(String text) {
+            this.encoded = BashEmitter.preEncode(text);
+            collect(FUNCTION, text, defines);
+            collect(VARIABLE, text, defines);
+            // A helper named in a comment is not a dependency.
+            Matcher symbols = SYMBOL.matcher(COMMENT_LINE.matcher(text).replaceAll(""));
+            while (symbols.find()) {
+                references.add(symbols.group());
+            }
+            references.removeAll(defines);
+        }
+
+        private static void collect(Pattern pattern, String text, Set<String> sink) {
+            Matcher matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                sink.add(matcher.group(1));
+            }
+        }
+    }
+
+    private final List<Fragment> fragments = new ArrayList<>();
+    private final Map<String, Fragment> definitions = new HashMap<>();
+
+    RuntimePrelude(String runtime) {
+        for (String text : split(runtime)) {
+            Fragment fragment = new Fragment(text);
+            fragments.add(fragment);
+            for (String symbol : fragment.defines) {
+                definitions.put(symbol, fragment);
+            }
+        }
+        // Only runtime symbols count as dependencies; temporaries such as
+        // __gnash_value share the prefix but are defined nowhere.
+        for (Fragment fragment : fragments) {
+            fragment.references.retainAll(definitions.keySet());
+        }
+    }
+
+    /**
+     * Writes the fragments reachable from {@code used} (symbols the generated
+     * code mentions) plus {@link #ALWAYS}, in runtime order.
+     */
+    void emit(BashEmitter script, Set<String> used) {
+        Set<Fragment> kept = reachable(used);
+        for (Fragment fragment : fragments) {
+            if (kept.contains(fragment)) {
+                script.appendEncoded(fragment.encoded);
+            }
+        }
+    }
+
+    private Set<Fragment> reachable(Set<String> used) {
+        Set<Fragment> kept = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>(ALWAYS);
+        pending.addAll(used);
+        Set<String> seen = new HashSet<>();
+        while (!pending.isEmpty()) {
+            String symbol = pending.pop();
+            if (!seen.add(symbol)) {
+                continue;
+            }
+            Fragment fragment = definitions.get(symbol);
+            if (fragment != null && kept.add(fragment)) {
+                pending.addAll(fragment.references);
+            }
+        }
+        // Top-level commands define nothing; run them only when every helper
+        // they touch made it in. Their own references are already closed over
+        // by the definitions they depend on.
+        for (Fragment fragment : fragments) {
+            if (fragment.defines.isEmpty() && !fragment.references.isEmpty()
+                    && fragment.references.stream().allMatch(symbol -> kept.contains(definitions.get(symbol)))) {
+                kept.add(fragment);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Cuts the runtime into top-level units. A unit starts at the first line
+     * after a blank line (comments included) and, when it opens a block at
+     * column 0, runs to the matching {@code }} or {@code fi}. Trailing blank
+     * lines stay with the unit before them.
+     */
+    private static List<String> split(String runtime) {
+        List<String> units = new ArrayList<>();
+        String[] lines = runtime.split("\n", -1);
+        StringBuilder current = new StringBuilder();
+        boolean open = false;
+        boolean afterBlank = true;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            boolean last = i == lines.length - 1;
+            if (last && line.isEmpty()) {
+                break;
+            }
+            boolean blank = line.isBlank();
+            if (!open && !blank && afterBlank && !current.isEmpty()) {
+                units.add(current.toString());
+                current.setLength(0);
+            }
+            current.append(line);
+            if (!last) {
+                current.append('\n');
+            }
+            if (!open && !blank && (line.endsWith("{") || line.endsWith("then")) && !line.startsWith(" ")) {
+                open = true;
+            } else if (open && (line.equals("}") || line.equals("fi"))) {
+                open = false;
+            }
+            afterBlank = blank && !open;
+        }
+        if (!current.isEmpty()) {
+            units.add(current.toString());
+        }
+        return units;
+    }
+}
@@ -0,0 +1,96 @@
+package dev.gnash.compiler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * The Bash runtime ({@link GnashToBashGenerator#RUNTIME_BODY}) emitted once as
+ * {@code gnash-runtime-<hash>.sh} instead of being inlined into every runnable
+ * script.
+ * <p>
+ * The hash is taken over the runtime text, so scripts and runtime can only pair
+ * up when they came from the same generator. Scripts locate the file relative
+ * to themselves (or under {@code $GNASH_RUNTIME_DIR} when set) and source it
+ * unless that exact version is already loaded; the runtime refuses to load on
+ * top of a different version.
+ */
+final class SharedRuntime {
+
+    static final String VERSION = hash(GnashToBashGenerator.RUNTIME_BODY);
+    static final String FILE_NAME = "gnash-runtime-" + VERSION + ".sh";
+
+    private static final String TEXT = String.join("\n",
+            "# Gnash runtime " + VERSION + ", sourced by scripts compiled with --shared-runtime — DO NOT EDIT.",
+            "if [[ -n \"${__GNASH_RUNTIME_VERSION:-}\" ]]; then",
+            "  [[ \"$__GNASH_RUNTIME_VERSION\" == \"" + VERSION + "\" ]] && return 0",
+            "  printf 'error: gnash runtime %s already loaded, %s needs %s\\n' \"$__GNASH_RUNTIME_VERSION\" \"${BASH_SOURCE[1]:-?}\" '"
+                    + VERSION + "' >&2",
+            "  return 1",
+            "fi",
+            "__GNASH_RUNTIME_VERSION=\"" + VERSION + "\"",
+            "",
+            "") + GnashToBashGenerator.RUNTIME_BODY;
+
+    private final Path directory;
+
+    SharedRuntime(Path directory) {
+        this.directory = directory;
+    }
+
+    Path file() {
+        return directory.resolve(FILE_NAME);
+    }
+
+    /** Writes the runtime into its directory unless an identical copy is already there. */
+    void install() throws IOException {
+        BuildCache.writeIfChanged(file(), TEXT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Path of the runtime relative to the directory {@code target} is written to. */
+    String referenceFrom(Path target) {
+        Path scriptDir = target.toAbsolutePath().normalize().getParent();
+        Path relative = scriptDir.relativize(file().toAbsolutePath().normalize());
+        return relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * The block a runnable script uses in place of the inlined runtime. It
+     * resolves {@code reference} against the script's own directory without
+     * forking and exits when the runtime cannot be loaded.
+     */
+    static String loader(String reference) {
+        String quoted = "'" + reference.replace("'", "'\"'\"'") + "'";
+        return String.join("\n",
+                "if [[ \"${__GNASH_RUNTIME_VERSION:-}\" != \"" + VERSION + "\" ]]; then",
+                "  if [[ -n \"${GNASH_RUNTIME_DIR:-}\" ]]; then",
+                "    __gnash_runtime=\"${GNASH_RUNTIME_DIR}/" + FILE_NAME + "\"",
+                "  elif [[ \"${BASH_SOURCE[0]}\" == */* ]]; then",
+                "    __gnash_runtime=\"${BASH_SOURCE[0]%/*}/\"" + quoted,
+                "  else",
+                "    __gnash_runtime=" + quoted,
+                "  fi",
+                "  # shellcheck disable=SC1090",
+                "  source \"$__gnash_runtime\" || {",
+                "    printf 'error: cannot load gnash runtime %s\\n' \"$__gnash_runtime\" >&2",
+                "    exit 1",
+                "  }",
+                "  unset __gnash_runtime",
+                "fi",
+                "",
+                "");
+    }
+
+    private static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(bytes, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package dev.gnash.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The {@link ValueKinds} of values crossing function boundaries in one
+ * compilation unit: the kind each function returns, whether it may return a
+ * test, and the kinds the private functions of a module are always passed.
+ * <p>
+ * Calls are bound the way the {@link Linker} binds them. A function's result
+ * kind comes from the kinds of its own locals, which may in turn depend on the
+ * functions it calls; a private function's parameter kinds come from the
+ * arguments at every call site in its module, since no other module can call
+ * it. Public functions may be called from anywhere and get no parameter kinds.
+ * <p>
+ * A module is solved the first time one of its functions is asked about:
+ * starting from nothing known, every function is analysed again until no
+ * result or parameter kind changes, so a kind passed down a chain of private
+ * calls reaches the end of it. A function found to return a test stays one,
+ * which at worst runs a call as a condition needlessly. A module still being
+ * solved when another one calls into it answers with what it has found so far.
+ */
+final class Signatures {
+
+    private final Linker linker;
+    private final Set<Module> solved = new HashSet<>();
+    private final Map<Ir.Function, ValueKinds.Kind> results = new HashMap<>();
+    /** The functions that may end with status 1 for a false test. */
+    private final Set<Ir.Function> tests = new HashSet<>();
+    private final Map<Ir.Function, List<ValueKinds.Kind>> parameters = new HashMap<>();
+
+    Signatures(Linker linker) {
+        this.linker = linker;
+    }
+
+    /** The kinds of {@code body}, the code rendered for {@code fn} of {@code module}. */
+    ValueKinds function(Module module, Ir.Function fn, List<Ir.Stmt> body) {
+        solve(module);
+        Ir.Function declared = module.function(fn.name.text);
+        return new ValueKinds(fn.parameters, parameters.getOrDefault(declared, List.of()), body,
+                call -> result(module, call));
+    }
+
+    /** The kind of every value {@code fn} of {@code module} returns, as its callers see it. */
+    ValueKinds.Kind result(Module module, Ir.Function fn) {
+        solve(module);
+        return results.get(module.function(fn.name.text));
+    }
+
+    /**
+     * Whether {@code fn} of {@code module} may return a test, ending with
+     * status 1 when it is false, so callers run it as a condition.
+     */
+    boolean tests(Module module, Ir.Function fn) {
+        solve(module);
+        return tests.contains(module.function(fn.name.text));
+    }
+
+    /** The kinds of the global statements of {@code module}. */
+    ValueKinds globals(Module module, List<Ir.ExprStmt> globals) {
+        solve(module);
+        return new ValueKinds(globals, call -> result(module, call));
+    }
+
+    private ValueKinds.Kind result(Module scope, Ir.Call call) {
+        Linker.Pending target = linker.target(scope, call);
+        if (target == null) {
+            return null;
+        }
+        solve(target.module);
+        return results.get(target.function);
+    }
+
+    private boolean tests(Module scope, Ir.Call call) {
+        Linker.Pending target = linker.target(scope, call);
+        if (target == null) {
+            return false;
+        }
+        solve(target.module);
+        return tests.contains(target.function);
+    }
+
+    private void solve(Module module) {
+        if (!solved.add(module)) {
+            return;
+        }
+        List<Ir.Function> functions = module.unit.functions;
+        // Each round carries kinds at least one call further; the bound only
+        // guards against kinds that keep trading places.
+        for (int round = 0; round <= functions.size(); round++) {
+            Map<Ir.Function, List<ValueKinds.Kind>> passed = new HashMap<>();
+            boolean changed = false;
+            for (Ir.Function fn : functions) {
+                ValueKinds kinds = new ValueKinds(fn.parameters, parameters.getOrDefault(fn, List.of()), fn.body,
+                        call -> result(module, call));
+                ValueKinds.Kind kind = kinds.result();
+                if (kind != results.get(fn)) {
+                    results.put(fn, kind);
+                    changed = true;
+                }
+                if (kinds.returnsTest(call -> tests(module, call)) && tests.add(fn)) {
+                    changed = true;
+                }
+                if (fn.body != null) {
+                    arguments(module, fn.body, kinds, passed);
+                }
+            }
+            arguments(module, module.unit.globals, new ValueKinds(module.unit.globals, call -> result(module, call)), passed);
+            for (Ir.Function fn : functions) {
+                List<ValueKinds.Kind> kinds = fn.isPrivate ? passed.getOrDefault(fn, List.of()) : List.of();
+                if (!Objects.equals(kinds, parameters.getOrDefault(fn, List.of()))) {
+                    parameters.put(fn, kinds);
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Meets the kinds of the arguments of every call in {@code body} to a
+     * function of {@code module} into {@code passed}.
+     */
+    private void arguments(Module module,
+                           List<? extends Ir.Stmt> body,
+                           ValueKinds kinds,
+                           Map<Ir.Function, List<ValueKinds.Kind>> passed) {
+        new IrOptimizer.Walker() {
+            @Override
+            void visit(Ir.Expr node) {
+                if (!(node instanceof Ir.Call)) {
+                    return;
+                }
+                Ir.Call call = (Ir.Call) node;
+                Linker.Pending target = linker.target(module, call);
+                if (target == null || target.module != module) {
+                    return;
+                }
+                Ir.Function callee = target.function;
+                List<ValueKinds.Kind> site = new ArrayList<>();
+                for (int i = 0; i < callee.parameters.size(); i++) {
+                    site.add(i < call.args.size() ? argument(kinds, call.args.get(i)) : null);
+                }
+                passed.merge(callee, site, Signatures::meet);
+            }
+        }.walk(List.copyOf(body));
+    }
+
+    /**
+     * The kind of {@code arg}. A list or map built in the argument list itself
+     * may have been built in a subshell, where calls without a statement to
+     * hoist them into run, so only locals holding one count.
+     */
+    private static ValueKinds.Kind argument(ValueKinds kinds, Ir.Expr arg) {
+        ValueKinds.Kind kind = kinds.kind(arg);
+        if ((kind == ValueKinds.Kind.LIST || kind == ValueKinds.Kind.MAP) && !(arg instanceof Ir.Var)) {
+            return null;
+        }
+        return kind;
+    }
+
+    /** The kinds {@code a} and {@code b} agree on. */
+    private static List<ValueKinds.Kind> meet(List<ValueKinds.Kind> a, List<ValueKinds.Kind> b) {
+        List<ValueKinds.Kind> met = new ArrayList<>(a.size());
+        for (int i = 0; i < a.size(); i++) {
+            met.add(a.get(i) == b.get(i) ? a.get(i) : null);
+        }
+        return met;
+    }
+}
@@ -0,0 +1,371 @@
+package dev.gnash.compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the provisioning steps compiled into an output root
+ * ({@code <output-root>/steps/*.sh}), starting each one as soon as the steps it
+ * depends on have succeeded.
+ * <p>
+ * A step's metadata is the comment block after the {@code package} and
+ * {@code import} lines of its source, {@code <source-root>/steps/<Step>.gnash}:
+ * {@code // RUN_AS_ROOT} marks a step that must run as root, and
+ * {@code // Depends on: A, B} names the steps that must succeed first. A
+ * manifest given with {@code --manifest} adds the same lines, without the
+ * {@code //}, under a {@code [Step]} heading per step, for steps compiled from
+ * elsewhere or ordering kept outside the sources.
+ * <p>
+ * Ready steps run on a fixed pool of {@code jobs} threads, each supervising one
+ * {@code bash} child and collecting its combined output. Results are printed
+ * from the calling thread as steps finish, so output of concurrent steps never
+ * interleaves. A step exits 0 when it changed nothing and {@value #CHANGED}
+ * when it changed something; any other status fails it, and the steps that
+ * depend on it are skipped.
+ */
+final class StepOrchestrator {
+
+    /** Exit status of a step that changed the host, and of a run in which one did. */
+    static final int CHANGED = 10;
+
+    private static final String STEPS_DIRECTORY = "steps";
+    private static final String SOURCE_SUFFIX = ".gnash";
+    private static final String TARGET_SUFFIX = ".sh";
+    private static final String RUN_AS_ROOT = "RUN_AS_ROOT";
+    private static final String DEPENDS_ON = "Depends on:";
+
+    enum Status {
+        UNCHANGED, CHANGED, FAILED, SKIPPED;
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final class Step {
+        final String name;
+        final Path script;
+        boolean runAsRoot;
+        final Set<String> dependencies = new LinkedHashSet<>();
+        final List<Step> dependents = new ArrayList<>();
+        /** Dependencies that have not succeeded yet. */
+        int waiting;
+
+        Step(String name, Path script) {
+            this.name = name;
+            this.script = script;
+        }
+    }
+
+    private static final class Outcome {
+        final Step step;
+        final Status status;
+        final String detail;
+        final long nanos;
+        final byte[] output;
+
+        Outcome(Step step, Status status, String detail, long nanos, byte[] output) {
+            this.step = step;
+            this.status = status;
+            this.detail = detail;
+            this.nanos = nanos;
+            this.output = output;
+        }
+    }
+
+    private final int jobs;
+    private final PrintStream out;
+
+    StepOrchestrator(int jobs) {
+        this(jobs, System.out);
+    }
+
+    StepOrchestrator(int jobs, PrintStream out) {
+        this.jobs = jobs;
+        this.out = out;
+    }
+
+    /**
+     * Runs every step compiled into {@code targetRoot}, reading metadata from
+     * {@code sourceRoot} and {@code manifest} when it is not {@code null}.
+     *
+     * @return 1 when a step failed or was skipped, {@value #CHANGED} when one
+     *         changed something, 0 otherwise
+     * @throws IOException when the steps cannot be read or their dependencies
+     *         name unknown steps or form a cycle
+     */
+    int runSteps(Path sourceRoot, Path targetRoot, Path manifest) throws IOException {
+        Map<String, Step> steps = discover(targetRoot.resolve(STEPS_DIRECTORY));
+        for (Step step : steps.values()) {
+            Path source = sourceRoot.resolve(STEPS_DIRECTORY).resolve(step.name + SOURCE_SUFFIX);
+            if (Files.isRegularFile(source)) {
+                readHeader(Files.readAllLines(source, StandardCharsets.UTF_8), step);
+            }
+        }
+        if (manifest != null) {
+            readManifest(manifest, steps);
+        }
+        link(steps);
+        return run(steps);
+    }
+
+    private static Map<String, Step> discover(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IOException("no compiled steps in " + directory);
+        }
+        Map<String, Step> steps = new TreeMap<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.filter(Files::isRegularFile)
+                .filter(path -> path.getFileName().toString().endsWith(TARGET_SUFFIX))
+                .forEach(path -> {
+                    String fileName = path.getFileName().toString();
+                    String name = fileName.substring(0, fileName.length() - TARGET_SUFFIX.length());
+                    steps.put(name, new Step(name, path));
+                });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return steps;
+    }
+
+    /** Applies the first comment block after the {@code package} and {@code import} lines. */
+    private static void readHeader(List<String> lines, Step step) {
+        boolean inHeader = false;
+        for (String line : lines) {
+            String text = line.strip();
+            if (text.startsWith("//")) {
+                inHeader = true;
+                applyMetadata(step, text.substring(2).strip());
+                continue;
+            }
+            if (inHeader) {
+                return;
+            }
+            if (!text.isEmpty() && !text.startsWith("#!") && !text.startsWith("package ") && !text.startsWith("import ")) {
+                return;
+            }
+        }
+    }
+
+    private static void readManifest(Path manifest, Map<String, Step> steps) throws IOException {
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        Step current = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String text = lines.get(i).strip();
+            if (text.isEmpty() || text.startsWith("#")) {
+                continue;
+            }
+            if (text.startsWith("[") && text.endsWith("]")) {
+                String name = text.substring(1, text.length() - 1).strip();
+                current = steps.get(name);
+                if (current == null) {
+                    throw new IOException(manifest + ":" + (i + 1) + ": no compiled step " + name);
+                }
+                continue;
+            }
+            if (current == null) {
+                throw new IOException(manifest + ":" + (i + 1) + ": metadata before the first [Step] heading");
+            }
+            applyMetadata(current, text);
+        }
+    }
+
+    private static void applyMetadata(Step step, String text) {
+        if (text.equals(RUN_AS_ROOT)) {
+            step.runAsRoot = true;
+        } else if (text.startsWith(DEPENDS_ON)) {
+            for (String name : text.substring(DEPENDS_ON.length()).split(",")) {
+                if (!name.isBlank()) {
+                    step.dependencies.add(name.strip());
+                }
+            }
+        }
+    }
+
+    /** Wires each step to its dependencies, rejecting unknown names and cycles. */
+    private static void link(Map<String, Step> steps) throws IOException {
+        for (Step step : steps.values()) {
+            for (String name : step.dependencies) {
+                Step dependency = steps.get(name);
+                if (dependency == null) {
+                    throw new IOException(step.name + " depends on unknown step " + name);
+                }
+                dependency.dependents.add(step);
+            }
+            step.waiting = step.dependencies.size();
+        }
+        Map<Step, Integer> waiting = new HashMap<>();
+        Deque<Step> ready = new ArrayDeque<>();
+        for (Step step : steps.values()) {
+            waiting.put(step, step.waiting);
+            if (step.waiting == 0) {
+                ready.add(step);
+            }
+        }
+        Set<Step> ordered = new HashSet<>();
+        while (!ready.isEmpty()) {
+            Step step = ready.poll();
+            ordered.add(step);
+            for (Step dependent : step.dependents) {
+                if (waiting.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (ordered.size() < steps.size()) {
+            List<String> cycle = new ArrayList<>();
+            for (Step step : steps.values()) {
+                if (!ordered.contains(step)) {
+                    cycle.add(step.name);
+                }
+            }
+            throw new IOException("steps depend on each other: " + String.join(", ", cycle));
+        }
+    }
+
+    private int run(Map<String, Step> steps) throws IOException {
+        boolean root = runningAsRoot();
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        Set<Step> skipped = new HashSet<>();
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(jobs);
+        CompletionService<Outcome> finished = new ExecutorCompletionService<>(pool);
+        try {
+            int running = 0;
+            for (Step step : steps.values()) {
+                if (step.waiting == 0) {
+                    finished.submit(() -> execute(step, root));
+                    running++;
+                }
+            }
+            while (running > 0) {
+                Outcome outcome = finished.take().get();
+                running--;
+                report(outcome, counts);
+                if (outcome.status == Status.FAILED) {
+                    skipDependents(outcome.step, skipped, counts);
+                    continue;
+                }
+                for (Step dependent : outcome.step.dependents) {
+                    if (--dependent.waiting == 0 && !skipped.contains(dependent)) {
+                        finished.submit(() -> execute(dependent, root));
+                        running++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("step run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("step run failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        out.printf("%d steps in %.2fs: %d changed, %d unchanged, %d failed, %d skipped%n",
+                steps.size(), seconds(System.nanoTime() - started),
+                counts.getOrDefault(Status.CHANGED, 0), counts.getOrDefault(Status.UNCHANGED, 0),
+                counts.getOrDefault(Status.FAILED, 0), counts.getOrDefault(Status.SKIPPED, 0));
+        if (counts.containsKey(Status.FAILED) || counts.containsKey(Status.SKIPPED)) {
+            return 1;
+        }
+        return counts.containsKey(Status.CHANGED) ? CHANGED : 0;
+    }
+
+    /**
+     * Runs one step in a child {@code bash}. The child gets an empty stdin, so
+     * steps running side by side never compete for the terminal.
+     */
+    private static Outcome execute(Step step, boolean root) throws InterruptedException {
+        if (step.runAsRoot && !root) {
+            return new Outcome(step, Status.FAILED, "must run as root", 0, new byte[0]);
+        }
+        long started = System.nanoTime();
+        Process process;
+        try {
+            process = new ProcessBuilder("bash", step.script.toString()).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            return new Outcome(step, Status.FAILED, e.getMessage(), System.nanoTime() - started, new byte[0]);
+        }
+        byte[] output;
+        int status;
+        try (InputStream in = process.getInputStream()) {
+            process.getOutputStream().close();
+            output = in.readAllBytes();
+            status = process.waitFor();
+        } catch (IOException e) {
+            process.destroyForcibly();
+            return new Outcome(step, Status.FAILED, e.getMessage(), System.nanoTime() - started, new byte[0]);
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        long nanos = System.nanoTime() - started;
+        if (status == 0) {
+            return new Outcome(step, Status.UNCHANGED, null, nanos, output);
+        }
+        if (status == CHANGED) {
+            return new Outcome(step, Status.CHANGED, null, nanos, output);
+        }
+        return new Outcome(step, Status.FAILED, "exit " + status, nanos, output);
+    }
+
+    private void skipDependents(Step failed, Set<Step> skipped, Map<Status, Integer> counts) {
+        Deque<Step> pending = new ArrayDeque<>(failed.dependents);
+        while (!pending.isEmpty()) {
+            Step step = pending.poll();
+            if (skipped.add(step)) {
+                report(new Outcome(step, Status.SKIPPED, "after " + failed.name, 0, new byte[0]), counts);
+                pending.addAll(step.dependents);
+            }
+        }
+    }
+
+    private void report(Outcome outcome, Map<Status, Integer> counts) {
+        counts.merge(outcome.status, 1, Integer::sum);
+        out.write(outcome.output, 0, outcome.output.length);
+        StringBuilder line = new StringBuilder(outcome.step.name).append(": ").append(outcome.status.label());
+        if (outcome.detail != null) {
+            line.append(" (").append(outcome.detail).append(')');
+        }
+        if (outcome.status != Status.SKIPPED) {
+            line.append(String.format(" in %.2fs", seconds(outcome.nanos)));
+        }
+        out.println(line);
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    /** Whether this JVM runs as root: {@code /proc/self} is owned by the effective user. */
+    private static boolean runningAsRoot() {
+        try {
+            return Integer.valueOf(0).equals(Files.getAttribute(Path.of("/proc/self"), "unix:uid"));
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return "root".equals(System.getProperty("user.name"));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package dev.gnash.compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The built-in methods of string values that the generator lowers to Bash
+ * parameter expansion instead of dispatching them through
+ * {@code __gnash_call}.
+ * <p>
+ * A method chain qualifies when it is rooted at a local and every link is one
+ * of these methods with a matching number of arguments, as in
+ * {@code value.toString().trim()}. Only the last link may produce something
+ * other than a string. {@code contains} and {@code isEmpty} also exist on lists
+ * and maps, so a chain only starts with them after a link that made the
+ * receiver a string; bare {@code items.contains(x)} stays with the list
+ * helpers, whose fallback for plain values is the substring test.
+ */
+final class StringMethods {
+
+    /** What a method returns, which decides where in a chain it may stand. */
+    enum Result {
+        STRING,
+        NUMBER,
+        TEST
+    }
+
+    private static final class Method {
+        final Result result;
+        final int minArgs;
+        final int maxArgs;
+
+        Method(Result result, int minArgs, int maxArgs) {
+            this.result = result;
+            this.minArgs = minArgs;
+            this.maxArgs = maxArgs;
+        }
+    }
+
+    private static final Map<String, Method> METHODS = Map.ofEntries(
+            Map.entry("toString", new Method(Result.STRING, 0, 0)),
+            Map.entry("trim", new Method(Result.STRING, 0, 0)),
+            Map.entry("toLowerCase", new Method(Result.STRING, 0, 0)),
+            Map.entry("toUpperCase", new Method(Result.STRING, 0, 0)),
+            Map.entry("replace", new Method(Result.STRING, 2, 2)),
+            Map.entry("substring", new Method(Result.STRING, 1, 2)),
+            Map.entry("length", new Method(Result.NUMBER, 0, 0)),
+            Map.entry("indexOf", new Method(Result.NUMBER, 1, 1)),
+            Map.entry("isEmpty", new Method(Result.TEST, 0, 0)),
+            Map.entry("contains", new Method(Result.TEST, 1, 1)),
+            Map.entry("startsWith", new Method(Result.TEST, 1, 1)),
+            Map.entry("endsWith", new Method(Result.TEST, 1, 1)));
+
+    private StringMethods() {
+    }
+
+    /** One link of a chain: {@code .method(args)}. */
+    static final class Step {
+        final String method;
+        final List<Ir.Expr> args;
+
+        private Step(String method, List<Ir.Expr> args) {
+            this.method = method;
+            this.args = args;
+        }
+
+        Result result() {
+            return METHODS.get(method).result;
+        }
+    }
+
+    /** A chain of string methods called on the local {@link #root}. */
+    static final class Chain {
+        final Ir.Name root;
+        /** The links in call order; the last one is the call the chain was read from. */
+        final List<Step> steps;
+
+        private Chain(Ir.Name root, List<Step> steps) {
+            this.root = root;
+            this.steps = steps;
+        }
+
+        Step last() {
+            return steps.get(steps.size() - 1);
+        }
+    }
+
+    /** The string method chain {@code call} ends, or {@code null} when it is not one. */
+    static Chain of(Ir.Call call) {
+        List<Step> steps = new ArrayList<>();
+        Ir.Expr node = call;
+        while (node instanceof Ir.Call) {
+            Ir.Call link = (Ir.Call) node;
+            if (!(link.callee instanceof Ir.Property)) {
+                return null;
+            }
+            Ir.Property member = (Ir.Property) link.callee;
+            Method method = METHODS.get(member.name.text);
+            if (method == null || link.args.size() < method.minArgs || link.args.size() > method.maxArgs) {
+                return null;
+            }
+            steps.add(new Step(member.name.text, link.args));
+            node = member.receiver;
+        }
+        if (!(node instanceof Ir.Var)) {
+            return null;
+        }
+        Collections.reverse(steps);
+        for (int i = 0; i < steps.size() - 1; i++) {
+            if (steps.get(i).result() != Result.STRING) {
+                return null;
+            }
+        }
+        String first = steps.get(0).method;
+        if ("contains".equals(first) || "isEmpty".equals(first)) {
+            return null;
+        }
+        return new Chain(((Ir.Var) node).name, steps);
+    }
+}
@@ -0,0 +1,60 @@
+package dev.gnash.compiler;
+
+import dev.gnash.antlr.GnashParser;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Production parse strategy: try the cheap SLL prediction mode with a bailing
+ * error strategy first, and only re-parse with full-context LL prediction and
+ * normal error recovery when SLL gives up.
+ * <p>
+ * SLL never accepts input that LL rejects, so a successful first stage is a
+ * valid parse, but not necessarily the tree LL would have built: an ambiguous
+ * decision is settled for its lowest alternative without the full context.
+ * The grammar orders the alternatives of its remaining ambiguous decisions
+ * (a {@code return} or postfix expression running on into the next statement)
+ * so that this greedy choice is the intended reading. Real code practically
+ * never needs the second stage; {@link #fallbacks()} counts how often it does.
+ */
+final class TwoStageParser {
+
+    private static final AtomicLong FALLBACKS = new AtomicLong();
+
+    private TwoStageParser() {
+    }
+
+    static ParseTree compilationUnit(GnashParser parser) {
+        List<ANTLRErrorListener> listeners = new ArrayList<>(parser.getErrorListeners());
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            return parser.compilationUnit();
+        } catch (ParseCancellationException e) {
+            FALLBACKS.incrementAndGet();
+            parser.reset();
+            listeners.forEach(parser::addErrorListener);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            return parser.compilationUnit();
+        } finally {
+            if (parser.getErrorListeners().isEmpty()) {
+                listeners.forEach(parser::addErrorListener);
+            }
+        }
+    }
+
+    /** Number of parses in this JVM that had to fall back to LL prediction. */
+    static long fallbacks() {
+        return FALLBACKS.get();
+    }
+}
@@ -0,0 +1,421 @@
+package dev.gnash.compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * What the expressions of one function are known to evaluate to: a number,
+ * a string, a boolean, a list, a map, or any of them.
+ * <p>
+ * Literals, operators, the {@link StringMethods} and the boolean
+ * {@code Config} queries decide the kind of an expression on their own:
+ * comparisons, {@code is}, {@code &&}, {@code ||} and {@code !} are tests
+ * and so booleans. Calls to Gnash functions have the kind {@link Calls}
+ * reports for them. A local has a kind when every assignment to
+ * it has that kind; assignments reading the local itself, as in
+ * {@code total = total + n}, are taken to keep it. Parameters have the kind
+ * the caller supplies unless the body assigns them. Loop and catch variables
+ * have no kind.
+ * <p>
+ * The kinds describe how values are represented, not just what they mean:
+ * booleans are the words {@code true} and {@code false}, and lists and maps
+ * are tokens naming an array of this shell. Those three are only claimed for
+ * reads the local has certainly been assigned before, since an unset local is
+ * none of them.
+ */
+final class ValueKinds {
+
+    /** The kinds a value can be known to have; strings are decided first. */
+    enum Kind {
+        STRING,
+        NUMBER,
+        BOOL,
+        LIST,
+        MAP
+    }
+
+    /** The kinds of the values Gnash functions return. */
+    interface Calls {
+        /** The kind of every value {@code call} returns, or {@code null} when unknown. */
+        Kind result(Ir.Call call);
+    }
+
+    private static final Set<String> ARITHMETIC = Set.of("-", "*", "/", "%");
+    /** The binary operators that test, evaluating to a boolean. */
+    private static final Set<String> TESTS = Set.of("==", "!=", "<", ">", "<=", ">=", "is", "&&", "||");
+    /** The {@code Config} queries the generator answers with a boolean. */
+    private static final Set<String> CONFIG_TESTS = Set.of(
+            "Config.isTrue", "Config.isTrueOrDefault", "Config.isSet", "Config.stepEnabled", "Config.boolean");
+
+    private final Calls calls;
+    private final Map<String, Kind> locals = new HashMap<>();
+    /** Reads of locals that every path to them has assigned. */
+    private final Set<Ir.Var> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** The values of the {@code return}s of the body. */
+    private final List<Ir.Expr> returns = new ArrayList<>();
+    private final Kind result;
+
+    /** The kinds of top-level code, which has no parameters. */
+    ValueKinds(List<? extends Ir.Stmt> body, Calls calls) {
+        this(List.of(), List.of(), body, calls);
+    }
+
+    /**
+     * The kinds of the locals of a function. {@code parameterKinds} holds a
+     * kind, or {@code null}, for each of {@code parameters}.
+     */
+    ValueKinds(List<Ir.Name> parameters, List<Kind> parameterKinds, List<? extends Ir.Stmt> body, Calls calls) {
+        this.calls = calls;
+        Map<String, List<Ir.Expr>> stores = new HashMap<>();
+        Set<String> unknown = new HashSet<>();
+        if (body != null) {
+            new IrOptimizer.Walker() {
+                @Override
+                void visit(Ir.Expr node) {
+                    if (!(node instanceof Ir.Assign)) {
+                        return;
+                    }
+                    Ir.Assign assign = (Ir.Assign) node;
+                    if (assign.targets.size() == 2) {
+                        // (output, exitCode) = $"..."
+                        unknown.add(assign.targets.get(0).text);
+                        stores.computeIfAbsent(assign.targets.get(1).text, name -> new ArrayList<>())
+                              .add(new Ir.Literal(null, Ir.LiteralKind.NUMBER, "0"));
+                        return;
+                    }
+                    for (Ir.Name target : assign.targets) {
+                        stores.computeIfAbsent(target.text, name -> new ArrayList<>()).add(assign.value);
+                    }
+                }
+
+                @Override
+                void bind(Ir.Name variable) {
+                    unknown.add(variable.text);
+                }
+            }.walk(List.copyOf(body));
+        }
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < parameters.size(); i++) {
+            String name = parameters.get(i).text;
+            names.add(name);
+            Kind kind = i < parameterKinds.size() ? parameterKinds.get(i) : null;
+            if (kind != null && !stores.containsKey(name)) {
+                locals.put(name, kind);
+            }
+            unknown.add(name);
+        }
+        stores.keySet().removeAll(unknown);
+        if (body != null) {
+            assign(body, names);
+        }
+        // Start from every candidate and drop the ones with a store of another
+        // kind until nothing changes. Strings first: whether + adds depends on
+        // them, whether it concatenates does not depend on numbers.
+        for (Kind kind : Kind.values()) {
+            narrow(stores, kind);
+        }
+        if (body != null) {
+            collectReturns(body, returns);
+        }
+        result = body != null && exits(body) ? returned() : null;
+    }
+
+    private void narrow(Map<String, List<Ir.Expr>> stores, Kind kind) {
+        for (String name : stores.keySet()) {
+            locals.putIfAbsent(name, kind);
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, List<Ir.Expr>> entry : stores.entrySet()) {
+                if (locals.get(entry.getKey()) != kind) {
+                    continue;
+                }
+                for (Ir.Expr value : entry.getValue()) {
+                    if (kind(value) != kind) {
+                        locals.remove(entry.getKey());
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the reads in {@code statements} that come after an assignment
+     * on every path, given the locals in {@code names} assigned on entry.
+     * Adds the locals the statements certainly assign to {@code names}.
+     */
+    private void assign(List<? extends Ir.Stmt> statements, Set<String> names) {
+        for (Ir.Stmt statement : statements) {
+            if (statement instanceof Ir.ExprStmt) {
+                Ir.Expr expr = ((Ir.ExprStmt) statement).expr;
+                read(expr, names);
+                while (expr instanceof Ir.Assign) {
+                    for (Ir.Name target : ((Ir.Assign) expr).targets) {
+                        names.add(target.text);
+                    }
+                    expr = ((Ir.Assign) expr).value;
+                }
+            } else if (statement instanceof Ir.If) {
+                names.addAll(branches((Ir.If) statement, names));
+            } else if (statement instanceof Ir.For) {
+                Ir.For node = (Ir.For) statement;
+                read(node.iterable, names);
+                Set<String> body = new HashSet<>(names);
+                body.add(node.variable.text);
+                assign(node.body, body);
+            } else if (statement instanceof Ir.Try) {
+                Ir.Try node = (Ir.Try) statement;
+                assign(node.body, new HashSet<>(names));
+                for (Ir.Catch handler : node.catches) {
+                    Set<String> body = new HashSet<>(names);
+                    body.add(handler.variable.text);
+                    assign(handler.body, body);
+                }
+                if (node.finallyBody != null) {
+                    assign(node.finallyBody, names);
+                }
+            } else if (statement instanceof Ir.Return) {
+                read(((Ir.Return) statement).value, names);
+            } else if (statement instanceof Ir.Throw) {
+                read(((Ir.Throw) statement).value, names);
+            } else if (statement instanceof Ir.Nested) {
+                assign(((Ir.Nested) statement).body, names);
+            }
+        }
+    }
+
+    /** The locals every branch of {@code node} assigns; none unless it has an {@code else}. */
+    private Set<String> branches(Ir.If node, Set<String> names) {
+        read(node.condition, names);
+        Set<String> then = new HashSet<>(names);
+        assign(node.thenBody, then);
+        Set<String> otherwise;
+        if (node.elseIf != null) {
+            otherwise = new HashSet<>(names);
+            otherwise.addAll(branches(node.elseIf, names));
+        } else if (node.elseBody != null) {
+            otherwise = new HashSet<>(names);
+            assign(node.elseBody, otherwise);
+        } else {
+            return Set.of();
+        }
+        then.retainAll(otherwise);
+        return then;
+    }
+
+    private void read(Ir.Expr expr, Set<String> names) {
+        new IrOptimizer.Walker() {
+            @Override
+            void visit(Ir.Expr node) {
+                if (node instanceof Ir.Var && names.contains(((Ir.Var) node).name.text)) {
+                    assigned.add((Ir.Var) node);
+                }
+            }
+        }.walk(expr);
+    }
+
+    /** Whether running off the end of {@code statements} is impossible. */
+    private static boolean exits(List<? extends Ir.Stmt> statements) {
+        if (statements.isEmpty()) {
+            return false;
+        }
+        Ir.Stmt last = statements.get(statements.size() - 1);
+        if (last instanceof Ir.Return || last instanceof Ir.Throw) {
+            return true;
+        }
+        if (last instanceof Ir.Nested) {
+            return exits(((Ir.Nested) last).body);
+        }
+        if (last instanceof Ir.If) {
+            Ir.If node = (Ir.If) last;
+            boolean otherwise = node.elseIf != null
+                    ? exits(List.of(node.elseIf))
+                    : node.elseBody != null && exits(node.elseBody);
+            return otherwise && exits(node.thenBody);
+        }
+        if (last instanceof Ir.Try) {
+            Ir.Try node = (Ir.Try) last;
+            if (node.finallyBody != null && exits(node.finallyBody)) {
+                return true;
+            }
+            return exits(node.body) && node.catches.stream().allMatch(handler -> exits(handler.body));
+        }
+        return false;
+    }
+
+    /**
+     * The kind every {@code return} of the body has, or {@code null}.
+     * Numbers are not results, since a returned number is the exit status. A
+     * returned boolean is the status of a test as well as the value.
+     */
+    private Kind returned() {
+        List<Kind> found = new ArrayList<>();
+        for (Ir.Expr value : returns) {
+            found.add(value == null ? null : kind(value));
+        }
+        Kind kind = found.isEmpty() ? null : found.get(0);
+        if (kind == Kind.NUMBER) {
+            return null;
+        }
+        for (Kind other : found) {
+            if (other != kind) {
+                return null;
+            }
+        }
+        return kind;
+    }
+
+    private static void collectReturns(List<? extends Ir.Stmt> statements, List<Ir.Expr> found) {
+        for (Ir.Stmt statement : statements) {
+            if (statement instanceof Ir.Return) {
+                found.add(((Ir.Return) statement).value);
+            } else if (statement instanceof Ir.If) {
+                for (Ir.If node = (Ir.If) statement; node != null; node = node.elseIf) {
+                    collectReturns(node.thenBody, found);
+                    if (node.elseBody != null) {
+                        collectReturns(node.elseBody, found);
+                    }
+                }
+            } else if (statement instanceof Ir.For) {
+                collectReturns(((Ir.For) statement).body, found);
+            } else if (statement instanceof Ir.Try) {
+                Ir.Try node = (Ir.Try) statement;
+                collectReturns(node.body, found);
+                for (Ir.Catch handler : node.catches) {
+                    collectReturns(handler.body, found);
+                }
+                if (node.finallyBody != null) {
+                    collectReturns(node.finallyBody, found);
+                }
+            } else if (statement instanceof Ir.Nested) {
+                collectReturns(((Ir.Nested) statement).body, found);
+            }
+        }
+    }
+
+    /**
+     * The kind of every value the function returns, or {@code null} when it
+     * may return different kinds, a number, or nothing at all.
+     */
+    Kind result() {
+        return result;
+    }
+
+    /**
+     * Whether a {@code return} of the function may end it with status 1 for
+     * a false test: one returning a boolean, or the value of a call
+     * {@code testing} says may.
+     */
+    boolean returnsTest(Predicate<Ir.Call> testing) {
+        for (Ir.Expr value : returns) {
+            if (value != null && (kind(value) == Kind.BOOL
+                    || value instanceof Ir.Call && kind(value) == null && testing.test((Ir.Call) value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** What {@code expr} always evaluates to, or {@code null} when that is not known. */
+    Kind kind(Ir.Expr expr) {
+        if (expr instanceof Ir.Assign) {
+            return kind(((Ir.Assign) expr).value);
+        }
+        if (expr instanceof Ir.Str) {
+            return Kind.STRING;
+        }
+        if (expr instanceof Ir.Literal) {
+            switch (((Ir.Literal) expr).kind) {
+                case SHELL:
+                    return Kind.STRING;
+                case NUMBER:
+                    return Kind.NUMBER;
+                case TRUE:
+                case FALSE:
+                    return Kind.BOOL;
+                default:
+                    return null;
+            }
+        }
+        if (expr instanceof Ir.ListLiteral) {
+            return Kind.LIST;
+        }
+        if (expr instanceof Ir.MapLiteral) {
+            return Kind.MAP;
+        }
+        if (expr instanceof Ir.Var) {
+            Kind kind = locals.get(((Ir.Var) expr).name.text);
+            if (kind == Kind.STRING || kind == Kind.NUMBER || assigned.contains(expr)) {
+                return kind;
+            }
+            return null;
+        }
+        if (expr instanceof Ir.Unary) {
+            String op = ((Ir.Unary) expr).op;
+            if ("!".equals(op)) {
+                return Kind.BOOL;
+            }
+            return "-".equals(op) || "+".equals(op) ? Kind.NUMBER : null;
+        }
+        if (expr instanceof Ir.Binary) {
+            Ir.Binary binary = (Ir.Binary) expr;
+            if (ARITHMETIC.contains(binary.op)) {
+                return Kind.NUMBER;
+            }
+            if (TESTS.contains(binary.op)) {
+                return Kind.BOOL;
+            }
+            if (!"+".equals(binary.op)) {
+                return null;
+            }
+            Kind left = kind(binary.left);
+            Kind right = kind(binary.right);
+            if (left == Kind.STRING || right == Kind.STRING) {
+                return Kind.STRING;
+            }
+            return left == Kind.NUMBER || right == Kind.NUMBER ? Kind.NUMBER : null;
+        }
+        if (expr instanceof Ir.Call) {
+            Ir.Call call = (Ir.Call) expr;
+            if ("size".equals(call.method) && call.args.isEmpty()) {
+                return Kind.NUMBER;
+            }
+            if (CONFIG_TESTS.contains(call.target)) {
+                return Kind.BOOL;
+            }
+            StringMethods.Chain chain = StringMethods.of(call);
+            if (chain != null) {
+                switch (chain.last().result()) {
+                    case STRING:
+                        return Kind.STRING;
+                    case NUMBER:
+                        return Kind.NUMBER;
+                    default:
+                        return null;
+                }
+            }
+            return calls.result(call);
+        }
+        return null;
+    }
+
+    /** Whether {@code expr} always evaluates to an integer. */
+    boolean numeric(Ir.Expr expr) {
+        return kind(expr) == Kind.NUMBER;
+    }
+
+    /** Whether {@code expr} always evaluates to a string, so {@code +} on it concatenates. */
+    boolean string(Ir.Expr expr) {
+        return kind(expr) == Kind.STRING;
+    }
+}
@@ -0,0 +1,1746 @@
+# Library generated from Gnash source Config.gnash — requires runtime helpers to be sourced from a runnable script.
+
+gnash_fn_lib_Config_reload() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  gnash_fn_lib_Config_ensureLoaded ""
+}
+
+gnash_fn_lib_Config_get() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  local __gnash_tmp2
+  local __gnash_status3=0
+  gnash_fn_lib_Config_resolve __gnash_tmp2 "${path}" "" || __gnash_status3=$?
+  __gnash_ret=$__gnash_tmp2
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return "${__gnash_status3}"
+}
+
+gnash_fn_lib_Config_getOrDefault() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  local default_value="${3:-}"
+  local __gnash_tmp4
+  local __gnash_status5=0
+  gnash_fn_lib_Config_resolve __gnash_tmp4 "${path}" "${default_value}" || __gnash_status5=$?
+  __gnash_ret=$__gnash_tmp4
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return "${__gnash_status5}"
+}
+
+gnash_fn_lib_Config_isTrue() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  local __gnash_tmp6
+  local __gnash_status7=0
+  gnash_fn_lib_Config_isTrueOrDefault __gnash_tmp6 "${path}" false || __gnash_status7=$?
+  __gnash_ret=$__gnash_tmp6
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return "${__gnash_status7}"
+}
+
+gnash_fn_lib_Config_isTrueOrDefault() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  local default_value="${3:-}"
+  local __gnash_tmp8
+  gnash_fn_lib_Config_resolve __gnash_tmp8 "${path}" ""
+  local value
+  value="${__gnash_tmp8}"
+  local __gnash_tmp9
+  local __gnash_status10=0
+  gnash_fn_lib_Config_coerceBoolean __gnash_tmp9 "${value}" "${default_value}" || __gnash_status10=$?
+  __gnash_ret=$__gnash_tmp9
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return "${__gnash_status10}"
+}
+
+gnash_fn_lib_Config_isSet() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  local __gnash_tmp11
+  gnash_fn_lib_Config_resolve __gnash_tmp11 "${path}" ""
+  local value
+  value="${__gnash_tmp11}"
+  if [[ "${value}" != "" ]]; then
+    __gnash_ret=true
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_ret=false
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 1
+}
+
+gnash_fn_lib_Config_list() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  local __gnash_tmp12
+  gnash_fn_lib_Config_resolve __gnash_tmp12 "${path}" ""
+  local value
+  value="${__gnash_tmp12}"
+  if ! [[ ${value:-} != @(|false) ]]; then
+    local __gnash_tmp13
+    __gnash_list_empty __gnash_tmp13
+    __gnash_ret=$__gnash_tmp13
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if __gnash_is_list "${value}"; then
+    local __gnash_tmp14
+    gnash_fn_lib_Config_cloneList __gnash_tmp14 "${value}"
+    __gnash_ret=$__gnash_tmp14
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp15
+  __gnash_list_new __gnash_tmp15 "${value}"
+  __gnash_ret=$__gnash_tmp15
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_stepEnabled() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local step_key="${2:-}"
+  local __gnash_tmp16
+  local __gnash_status17=0
+  gnash_fn_lib_Config_isTrueOrDefault __gnash_tmp16 "steps.${step_key}.enabled" true || __gnash_status17=$?
+  __gnash_ret=$__gnash_tmp16
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return "${__gnash_status17}"
+}
+
+gnash_fn_lib_Config_stepValue() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local step_key="${2:-}"
+  local field="${3:-}"
+  local __gnash_tmp18
+  local __gnash_status19=0
+  gnash_fn_lib_Config_get __gnash_tmp18 "steps.${step_key}.${field}" || __gnash_status19=$?
+  __gnash_ret=$__gnash_tmp18
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return "${__gnash_status19}"
+}
+
+gnash_fn_lib_Config_stepList() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local step_key="${2:-}"
+  local field="${3:-}"
+  local __gnash_tmp20
+  gnash_fn_lib_Config_list __gnash_tmp20 "steps.${step_key}.${field}"
+  __gnash_ret=$__gnash_tmp20
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_boolean() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local step_key="${2:-}"
+  local field="${3:-}"
+  local default_value="${4:-}"
+  local __gnash_tmp21
+  local __gnash_status22=0
+  gnash_fn_lib_Config_isTrueOrDefault __gnash_tmp21 "steps.${step_key}.${field}" "${default_value}" || __gnash_status22=$?
+  __gnash_ret=$__gnash_tmp21
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return "${__gnash_status22}"
+}
+
+gnash_fn_lib_Config_string() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local step_key="${2:-}"
+  local field="${3:-}"
+  local default_value="${4:-}"
+  local __gnash_tmp23
+  gnash_fn_lib_Config_get __gnash_tmp23 "steps.${step_key}.${field}"
+  local value
+  value="${__gnash_tmp23}"
+  if ! [[ ${value:-} != @(|false) ]]; then
+    __gnash_ret=$default_value
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_ret=$value
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_resolve() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  local default_value="${3:-}"
+  gnash_fn_lib_Config_ensureLoaded ""
+  if ! [[ ${path:-} != @(|false) ]]; then
+    __gnash_ret=$default_value
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp24
+  __gnash_str_trim __gnash_tmp24 "${path}"
+  local trimmed
+  trimmed="${__gnash_tmp24}"
+  if ! [[ ${trimmed:-} != @(|false) ]]; then
+    __gnash_ret=$default_value
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local scope_requested
+  scope_requested=false
+  if [[ ${trimmed} == *"." ]]; then
+    scope_requested=true
+    local __gnash_tmp25
+    __gnash_str_substring __gnash_tmp25 "${trimmed}" 0 $(( ${#trimmed} - 1 ))
+    trimmed="${__gnash_tmp25}"
+  fi
+  local __gnash_tmp26
+  gnash_fn_lib_Config_splitPath __gnash_tmp26 "${trimmed}"
+  local segments
+  segments="${__gnash_tmp26}"
+  if ! [[ ${segments:-} != @(|false) ]]; then
+    __gnash_ret=$default_value
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp27
+  gnash_fn_lib_Config_resolveSegments __gnash_tmp27 "${segments}" "${scope_requested}" || :
+  local value
+  value="${__gnash_tmp27}"
+  if [[ "${value}" == "" ]]; then
+    __gnash_ret=$default_value
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_ret=$value
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_resolveSegments() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local segments="${2:-}"
+  local scope_requested="${3:-}"
+  if ! [[ ${segments:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp28
+  __gnash_map_get __gnash_tmp28 "${segments:-}" 0
+  local head
+  head="${__gnash_tmp28}"
+  if [[ "${head}" == "steps" ]]; then
+    local __gnash_tmp29
+    local __gnash_status30=0
+    gnash_fn_lib_Config_resolveSteps __gnash_tmp29 "${segments}" "${scope_requested}" || __gnash_status30=$?
+    __gnash_ret=$__gnash_tmp29
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return "${__gnash_status30}"
+  fi
+  if [[ "${head}" == "globals" ]]; then
+    local __gnash_tmp31
+    local __gnash_status32=0
+    gnash_fn_lib_Config_resolveGlobals __gnash_tmp31 "${segments}" "${scope_requested}" true || __gnash_status32=$?
+    __gnash_ret=$__gnash_tmp31
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return "${__gnash_status32}"
+  fi
+  local __gnash_tmp33
+  local __gnash_status34=0
+  gnash_fn_lib_Config_resolveGlobals __gnash_tmp33 "${segments}" "${scope_requested}" false || __gnash_status34=$?
+  __gnash_ret=$__gnash_tmp33
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return "${__gnash_status34}"
+}
+
+gnash_fn_lib_Config_resolveSteps() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local segments="${2:-}"
+  local scope_requested="${3:-}"
+  local __gnash_tmp35
+  __gnash_map_get __gnash_tmp35 "${config_data:-}" "steps"
+  local steps
+  steps="${__gnash_tmp35}"
+  if ! [[ ${steps:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp36
+  __gnash_size __gnash_tmp36 "${segments}"
+  if (( __gnash_tmp36 == 1 )); then
+    local __gnash_tmp37
+    gnash_fn_lib_Config_cloneStepsMap __gnash_tmp37
+    __gnash_ret=$__gnash_tmp37
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp38
+  __gnash_map_get __gnash_tmp38 "${segments:-}" 1
+  local step_key
+  step_key="${__gnash_tmp38}"
+  local __gnash_tmp39
+  __gnash_map_get __gnash_tmp39 "${steps:-}" "${step_key}"
+  local entry
+  entry="${__gnash_tmp39}"
+  if ! [[ ${entry:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp40
+  __gnash_size __gnash_tmp40 "${segments}"
+  if (( __gnash_tmp40 == 2 )); then
+    local __gnash_tmp41
+    gnash_fn_lib_Config_stepView __gnash_tmp41 "${entry}"
+    __gnash_ret=$__gnash_tmp41
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp42
+  gnash_fn_lib_Config_joinSegments __gnash_tmp42 "${segments}" 2
+  local field_name
+  field_name="${__gnash_tmp42}"
+  if ! [[ ${field_name:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ "${field_name}" == "enabled" ]]; then
+    local __gnash_tmp43
+    __gnash_map_get __gnash_tmp43 "${entry:-}" "enabled"
+    local enabled
+    enabled="${__gnash_tmp43}"
+    if [[ "${enabled}" == "" ]]; then
+      __gnash_ret=true
+      if [[ -n ${__gnash_out:-} ]]; then
+        printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+      fi
+      return 0
+    fi
+    __gnash_ret=$enabled
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp44
+  __gnash_map_get __gnash_tmp44 "${entry:-}" "values"
+  local values_map
+  values_map="${__gnash_tmp44}"
+  if [[ ${values_map:-} != @(|false) ]] && __gnash_map_contains "${values_map:-}" "${field_name}"; then
+    local __gnash_tmp45
+    __gnash_map_get __gnash_tmp45 "${values_map:-}" "${field_name}"
+    __gnash_ret=$__gnash_tmp45
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp46
+  __gnash_map_get __gnash_tmp46 "${entry:-}" "lists"
+  local lists_map
+  lists_map="${__gnash_tmp46}"
+  if [[ ${lists_map:-} != @(|false) ]] && __gnash_map_contains "${lists_map:-}" "${field_name}"; then
+    local __gnash_tmp47
+    __gnash_map_get __gnash_tmp47 "${lists_map:-}" "${field_name}"
+    local __gnash_tmp48
+    gnash_fn_lib_Config_cloneList __gnash_tmp48 "${__gnash_tmp47}"
+    __gnash_ret=$__gnash_tmp48
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ "${field_name}" == "values" ]] && [[ ${scope_requested} == true ]]; then
+    local __gnash_tmp49
+    gnash_fn_lib_Config_cloneMap __gnash_tmp49 "${values_map}"
+    __gnash_ret=$__gnash_tmp49
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ "${field_name}" == "lists" ]] && [[ ${scope_requested} == true ]]; then
+    local __gnash_tmp50
+    gnash_fn_lib_Config_cloneListMap __gnash_tmp50 "${lists_map}"
+    __gnash_ret=$__gnash_tmp50
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_ret=""
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_resolveGlobals() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local segments="${2:-}"
+  local scope_requested="${3:-}"
+  local explicit_namespace="${4:-}"
+  local __gnash_tmp51
+  __gnash_map_get __gnash_tmp51 "${config_data:-}" "globals"
+  local globals
+  globals="${__gnash_tmp51}"
+  if ! [[ ${globals:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ ${explicit_namespace} == true ]]; then
+    local __gnash_tmp52
+    __gnash_size __gnash_tmp52 "${segments}"
+    if (( __gnash_tmp52 == 1 )); then
+      local __gnash_tmp53
+      gnash_fn_lib_Config_cloneMap __gnash_tmp53 "${globals}"
+      __gnash_ret=$__gnash_tmp53
+      if [[ -n ${__gnash_out:-} ]]; then
+        printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+      fi
+      return 0
+    fi
+    local __gnash_tmp54
+    gnash_fn_lib_Config_joinSegments __gnash_tmp54 "${segments}" 1
+    local key
+    key="${__gnash_tmp54}"
+    local __gnash_tmp55
+    __gnash_map_get __gnash_tmp55 "${globals:-}" "${key}"
+    __gnash_ret=$__gnash_tmp55
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp56
+  __gnash_map_get __gnash_tmp56 "${segments:-}" 0
+  key="${__gnash_tmp56}"
+  local __gnash_tmp57
+  __gnash_size __gnash_tmp57 "${segments}"
+  if (( __gnash_tmp57 == 1 )); then
+    local __gnash_tmp58
+    __gnash_map_get __gnash_tmp58 "${globals:-}" "${key}"
+    __gnash_ret=$__gnash_tmp58
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_ret=""
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_coerceBoolean() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local value="${2:-}"
+  local default_value="${3:-}"
+  if [[ "${value}" == "" ]]; then
+    __gnash_ret=$default_value
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if false; then
+    __gnash_ret=$value
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp59
+  __gnash_str_trim __gnash_tmp59 "${value}"
+  local text
+  text="${__gnash_tmp59,,}"
+  if ! [[ ${text:-} != @(|false) ]]; then
+    __gnash_ret=$default_value
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ "${text}" == "true" ]] || [[ "${text}" == "yes" ]] || [[ "${text}" == "on" ]] || [[ "${text}" == "1" ]]; then
+    __gnash_ret=true
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ "${text}" == "false" ]] || [[ "${text}" == "no" ]] || [[ "${text}" == "off" ]] || [[ "${text}" == "0" ]]; then
+    __gnash_ret=false
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 1
+  fi
+  __gnash_ret=$default_value
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_ensureLoaded() {
+  if [[ ${config_loaded:-} != @(|false) ]]; then
+    return
+  fi
+  local __gnash_tmp60
+  gnash_fn_lib_Config_createEmptyConfig __gnash_tmp60
+  local config_data
+  config_data="${__gnash_tmp60}"
+  local __gnash_tmp61
+  gnash_fn_lib_Config_discoverConfigPaths __gnash_tmp61
+  local paths
+  paths="${__gnash_tmp61}"
+  local -n __gnash_items62="${paths#$__GNASH_LIST_PREFIX}"
+  for path in "${__gnash_items62[@]}"; do
+    gnash_fn_lib_Config_applyConfigFile "" "${path}"
+  done
+  local config_loaded
+  config_loaded=true
+}
+
+gnash_fn_lib_Config_createEmptyConfig() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local __gnash_tmp63
+  __gnash_map_new __gnash_tmp63
+  local __gnash_tmp64
+  __gnash_map_new __gnash_tmp64
+  local __gnash_tmp65
+  __gnash_map_new __gnash_tmp65 'steps' "${__gnash_tmp63}" 'globals' "${__gnash_tmp64}"
+  __gnash_ret=$__gnash_tmp65
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_discoverConfigPaths() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local __gnash_tmp66
+  __gnash_list_empty __gnash_tmp66
+  local paths
+  paths="${__gnash_tmp66}"
+  if gnash_fn_lib_Config_isNoRc ""; then
+    __gnash_ret=$paths
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp67
+  gnash_fn_lib_Config_getenv __gnash_tmp67 "GNASH_RC_OVERRIDE"
+  local override_path
+  override_path="${__gnash_tmp67}"
+  if gnash_fn_lib_Config_isReadableFile "" "${override_path}"; then
+    __gnash_list_push paths "${override_path}"
+    __gnash_ret=$paths
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp68
+  gnash_fn_lib_Config_getenv __gnash_tmp68 "GNASH_RC"
+  local rc_path
+  rc_path="${__gnash_tmp68}"
+  if gnash_fn_lib_Config_isReadableFile "" "${rc_path}"; then
+    __gnash_list_push paths "${rc_path}"
+    __gnash_ret=$paths
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if gnash_fn_lib_Config_isReadableFile "" "config/provision.rc"; then
+    __gnash_list_push paths "config/provision.rc"
+  fi
+  local __gnash_tmp69
+  gnash_fn_lib_Config_hostname __gnash_tmp69
+  local host_name
+  host_name="${__gnash_tmp69}"
+  if [[ ${host_name:-} != @(|false) ]]; then
+    local host_path
+    host_path="config/${host_name}.rc"
+    if gnash_fn_lib_Config_isReadableFile "" "${host_path}"; then
+      __gnash_list_push paths "${host_path}"
+    fi
+  fi
+  __gnash_ret=$paths
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_isNoRc() {
+  local __gnash_tmp70
+  gnash_fn_lib_Config_getenv __gnash_tmp70 "GNASH_NO_RC"
+  local flag
+  flag="${__gnash_tmp70}"
+  if ! [[ ${flag:-} != @(|false) ]]; then
+    return 1
+  fi
+  local __gnash_tmp71
+  local __gnash_status72=0
+  gnash_fn_lib_Config_coerceBoolean __gnash_tmp71 "${flag}" false || __gnash_status72=$?
+  return "${__gnash_status72}"
+}
+
+gnash_fn_lib_Config_getenv() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local name="${2:-}"
+  if ! [[ ${name:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp73
+  gnash_fn_lib_Config_escapeSingleQuotes __gnash_tmp73 "${name}"
+  local escaped
+  escaped="${__gnash_tmp73}"
+  local output
+  output=$(printenv '${escaped}')
+  local exit_code
+  exit_code=$?
+  if (( exit_code != 0 )); then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp74
+  __gnash_str_trim __gnash_tmp74 "${output}"
+  __gnash_ret=$__gnash_tmp74
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_hostname() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local output
+  __gnash_fast_hostname output || output=$(hostname)
+  local exit_code
+  exit_code=$?
+  if (( exit_code != 0 )); then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp75
+  __gnash_str_trim __gnash_tmp75 "${output}"
+  __gnash_ret=$__gnash_tmp75
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_isReadableFile() {
+  local path="${2:-}"
+  if ! [[ ${path:-} != @(|false) ]]; then
+    return 1
+  fi
+  local __gnash_tmp76
+  gnash_fn_lib_Config_escapeSingleQuotes __gnash_tmp76 "${path}"
+  local escaped
+  escaped="${__gnash_tmp76}"
+  local _
+  _=$(test -r '${escaped}')
+  local exit_code
+  exit_code=$?
+  if (( exit_code == 0 )); then
+    return 0
+  fi
+  return 1
+}
+
+gnash_fn_lib_Config_readFile() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  if ! [[ ${path:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp77
+  gnash_fn_lib_Config_escapeSingleQuotes __gnash_tmp77 "${path}"
+  local escaped
+  escaped="${__gnash_tmp77}"
+  local output
+  output=$(cat '${escaped}')
+  local exit_code
+  exit_code=$?
+  if (( exit_code != 0 )); then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_ret=$output
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_applyConfigFile() {
+  local path="${2:-}"
+  local __gnash_tmp78
+  gnash_fn_lib_Config_readFile __gnash_tmp78 "${path}"
+  local content
+  content="${__gnash_tmp78}"
+  if ! [[ ${content:-} != @(|false) ]]; then
+    return
+  fi
+  local lines
+  lines=$(__gnash_call 'content.split' "\n")
+  local mode
+  mode="default"
+  local current_name
+  current_name=""
+  local __gnash_tmp79
+  __gnash_list_empty __gnash_tmp79
+  local buffer
+  buffer="${__gnash_tmp79}"
+  __gnash_list_ref "${lines}"
+  local -n __gnash_items80="${__GNASH_LIST_REF}"
+  for raw_line in "${__gnash_items80[@]}"; do
+    local __gnash_tmp81
+    __gnash_str_trim __gnash_tmp81 "${raw_line}"
+    local line
+    line="${__gnash_tmp81}"
+    if [[ "${mode}" == "map" ]]; then
+      if ! [[ ${line:-} != @(|false) ]] || [[ ${line} == "#"* ]]; then
+        continue
+      fi
+      local __gnash_tmp82
+      __gnash_str_index_of __gnash_tmp82 "${line}" ")"
+      local closing_index
+      closing_index="${__gnash_tmp82}"
+      if (( closing_index >= 0 )); then
+        local __gnash_tmp83
+        __gnash_str_substring __gnash_tmp83 "${line}" 0 "${closing_index}"
+        local __gnash_tmp84
+        __gnash_str_trim __gnash_tmp84 "${__gnash_tmp83}"
+        local segment
+        segment="${__gnash_tmp84}"
+        if [[ ${segment:-} != @(|false) ]]; then
+          __gnash_list_push buffer "${segment}"
+        fi
+        gnash_fn_lib_Config_applyAssoc "" "${current_name}" "${buffer}"
+        mode="default"
+        current_name=""
+        local __gnash_tmp85
+        __gnash_list_empty __gnash_tmp85
+        buffer="${__gnash_tmp85}"
+        continue
+      fi
+      __gnash_list_push buffer "${line}"
+      continue
+    fi
+    if [[ "${mode}" == "list" ]]; then
+      if ! [[ ${line:-} != @(|false) ]] || [[ ${line} == "#"* ]]; then
+        continue
+      fi
+      local __gnash_tmp86
+      __gnash_str_index_of __gnash_tmp86 "${line}" ")"
+      closing_index="${__gnash_tmp86}"
+      if (( closing_index >= 0 )); then
+        local __gnash_tmp87
+        __gnash_str_substring __gnash_tmp87 "${line}" 0 "${closing_index}"
+        local __gnash_tmp88
+        __gnash_str_trim __gnash_tmp88 "${__gnash_tmp87}"
+        segment="${__gnash_tmp88}"
+        if [[ ${segment:-} != @(|false) ]]; then
+          __gnash_list_push buffer "${segment}"
+        fi
+        gnash_fn_lib_Config_applyListContent "" "${current_name}" "${buffer}"
+        mode="default"
+        current_name=""
+        local __gnash_tmp89
+        __gnash_list_empty __gnash_tmp89
+        buffer="${__gnash_tmp89}"
+        continue
+      fi
+      __gnash_list_push buffer "${line}"
+      continue
+    fi
+    if ! [[ ${line:-} != @(|false) ]] || [[ ${line} == "#"* ]]; then
+      continue
+    fi
+    if [[ ${line} == "declare -A "* ]]; then
+      local prefix
+      prefix="declare -A "
+      local __gnash_tmp90
+      __gnash_str_substring __gnash_tmp90 "${line}" ${#prefix}
+      local __gnash_tmp91
+      __gnash_str_trim __gnash_tmp91 "${__gnash_tmp90}"
+      local body
+      body="${__gnash_tmp91}"
+      local name
+      name="${body}"
+      local remainder
+      remainder=""
+      local __gnash_tmp92
+      __gnash_str_index_of __gnash_tmp92 "${body}" "="
+      local eq_index
+      eq_index="${__gnash_tmp92}"
+      if (( eq_index >= 0 )); then
+        local __gnash_tmp93
+        __gnash_str_substring __gnash_tmp93 "${body}" 0 "${eq_index}"
+        local __gnash_tmp94
+        __gnash_str_trim __gnash_tmp94 "${__gnash_tmp93}"
+        name="${__gnash_tmp94}"
+        local __gnash_tmp95
+        __gnash_str_substring __gnash_tmp95 "${body}" $(( eq_index + 1 ))
+        local __gnash_tmp96
+        __gnash_str_trim __gnash_tmp96 "${__gnash_tmp95}"
+        remainder="${__gnash_tmp96}"
+      fi
+      if ! [[ ${remainder:-} != @(|false) ]]; then
+        local __gnash_tmp97
+        __gnash_list_empty __gnash_tmp97
+        gnash_fn_lib_Config_applyAssoc "" "${name}" "${__gnash_tmp97}"
+        continue
+      fi
+      if ! [[ ${remainder} == "("* ]]; then
+        local __gnash_tmp98
+        __gnash_list_empty __gnash_tmp98
+        gnash_fn_lib_Config_applyAssoc "" "${name}" "${__gnash_tmp98}"
+        continue
+      fi
+      local __gnash_tmp99
+      __gnash_str_substring __gnash_tmp99 "${remainder}" 1
+      remainder="${__gnash_tmp99}"
+      local __gnash_tmp100
+      __gnash_str_index_of __gnash_tmp100 "${remainder}" ")"
+      closing_index="${__gnash_tmp100}"
+      if (( closing_index >= 0 )); then
+        local __gnash_tmp101
+        __gnash_str_substring __gnash_tmp101 "${remainder}" 0 "${closing_index}"
+        segment="${__gnash_tmp101}"
+        local __gnash_tmp102
+        gnash_fn_lib_Config_splitLines __gnash_tmp102 "${segment}"
+        local rows
+        rows="${__gnash_tmp102}"
+        gnash_fn_lib_Config_applyAssoc "" "${name}" "${rows}"
+        continue
+      fi
+      current_name="${name}"
+      mode="map"
+      local __gnash_tmp103
+      __gnash_list_empty __gnash_tmp103
+      buffer="${__gnash_tmp103}"
+      local __gnash_tmp104
+      __gnash_str_trim __gnash_tmp104 "${remainder}"
+      local initial
+      initial="${__gnash_tmp104}"
+      if [[ ${initial:-} != @(|false) ]]; then
+        __gnash_list_push buffer "${initial}"
+      fi
+      continue
+    fi
+    local __gnash_tmp105
+    __gnash_str_index_of __gnash_tmp105 "${line}" "="
+    eq_index="${__gnash_tmp105}"
+    if (( eq_index < 0 )); then
+      continue
+    fi
+    local __gnash_tmp106
+    __gnash_str_substring __gnash_tmp106 "${line}" 0 "${eq_index}"
+    local __gnash_tmp107
+    __gnash_str_trim __gnash_tmp107 "${__gnash_tmp106}"
+    name="${__gnash_tmp107}"
+    local __gnash_tmp108
+    __gnash_str_substring __gnash_tmp108 "${line}" $(( eq_index + 1 ))
+    local __gnash_tmp109
+    __gnash_str_trim __gnash_tmp109 "${__gnash_tmp108}"
+    local value_part
+    value_part="${__gnash_tmp109}"
+    if [[ ${value_part} == "("* ]]; then
+      local __gnash_tmp110
+      __gnash_str_substring __gnash_tmp110 "${value_part}" 1
+      remainder="${__gnash_tmp110}"
+      local __gnash_tmp111
+      __gnash_str_index_of __gnash_tmp111 "${remainder}" ")"
+      closing_index="${__gnash_tmp111}"
+      if (( closing_index >= 0 )); then
+        local __gnash_tmp112
+        __gnash_str_substring __gnash_tmp112 "${remainder}" 0 "${closing_index}"
+        segment="${__gnash_tmp112}"
+        local __gnash_tmp113
+        gnash_fn_lib_Config_parseListContent __gnash_tmp113 "${segment}"
+        local values
+        values="${__gnash_tmp113}"
+        gnash_fn_lib_Config_applyListValues "" "${name}" "${values}"
+        continue
+      fi
+      current_name="${name}"
+      mode="list"
+      local __gnash_tmp114
+      __gnash_list_empty __gnash_tmp114
+      buffer="${__gnash_tmp114}"
+      local __gnash_tmp115
+      __gnash_str_trim __gnash_tmp115 "${remainder}"
+      initial="${__gnash_tmp115}"
+      if [[ ${initial:-} != @(|false) ]]; then
+        __gnash_list_push buffer "${initial}"
+      fi
+      continue
+    fi
+    local __gnash_tmp116
+    gnash_fn_lib_Config_parseScalar __gnash_tmp116 "${value_part}" || :
+    local value
+    value="${__gnash_tmp116}"
+    gnash_fn_lib_Config_applyScalarValue "" "${name}" "${value}"
+  done
+}
+
+gnash_fn_lib_Config_applyAssoc() {
+  local name="${2:-}"
+  local rows="${3:-}"
+  if ! [[ ${name:-} != @(|false) ]]; then
+    return
+  fi
+  local __gnash_tmp117
+  gnash_fn_lib_Config_ensureStepEntry __gnash_tmp117 "${name}"
+  local entry
+  entry="${__gnash_tmp117}"
+  local __gnash_tmp118
+  __gnash_map_get __gnash_tmp118 "${entry:-}" "values"
+  local values_map
+  values_map="${__gnash_tmp118}"
+  __gnash_list_ref "${rows}"
+  local -n __gnash_items119="${__GNASH_LIST_REF}"
+  for row in "${__gnash_items119[@]}"; do
+    local __gnash_tmp120
+    __gnash_str_trim __gnash_tmp120 "${row}"
+    local trimmed
+    trimmed="${__gnash_tmp120}"
+    if ! [[ ${trimmed:-} != @(|false) ]]; then
+      continue
+    fi
+    if [[ ${trimmed} == *"," ]]; then
+      local __gnash_tmp121
+      __gnash_str_substring __gnash_tmp121 "${trimmed}" 0 $(( ${#trimmed} - 1 ))
+      local __gnash_tmp122
+      __gnash_str_trim __gnash_tmp122 "${__gnash_tmp121}"
+      trimmed="${__gnash_tmp122}"
+    fi
+    if ! [[ ${trimmed} == "["* ]]; then
+      continue
+    fi
+    local __gnash_tmp123
+    __gnash_str_index_of __gnash_tmp123 "${trimmed}" "]"
+    local close_index
+    close_index="${__gnash_tmp123}"
+    if (( close_index < 0 )); then
+      continue
+    fi
+    local __gnash_tmp124
+    __gnash_str_substring __gnash_tmp124 "${trimmed}" 1 "${close_index}"
+    local __gnash_tmp125
+    __gnash_str_trim __gnash_tmp125 "${__gnash_tmp124}"
+    local key
+    key="${__gnash_tmp125}"
+    local __gnash_tmp126
+    __gnash_str_substring __gnash_tmp126 "${trimmed}" $(( close_index + 1 ))
+    local __gnash_tmp127
+    __gnash_str_trim __gnash_tmp127 "${__gnash_tmp126}"
+    local remainder
+    remainder="${__gnash_tmp127}"
+    if [[ ${remainder} == "="* ]]; then
+      local __gnash_tmp128
+      __gnash_str_substring __gnash_tmp128 "${remainder}" 1
+      local __gnash_tmp129
+      __gnash_str_trim __gnash_tmp129 "${__gnash_tmp128}"
+      remainder="${__gnash_tmp129}"
+    fi
+    local __gnash_tmp130
+    gnash_fn_lib_Config_parseScalar __gnash_tmp130 "${remainder}" || :
+    local value
+    value="${__gnash_tmp130}"
+    __gnash_invoke 'valuesMap.put' "${key}" "${value}"
+  done
+}
+
+gnash_fn_lib_Config_applyListContent() {
+  local name="${2:-}"
+  local rows="${3:-}"
+  local content
+  content=""
+  local -n __gnash_items131="${rows#$__GNASH_LIST_PREFIX}"
+  for row in "${__gnash_items131[@]}"; do
+    local __gnash_tmp132
+    __gnash_str_trim __gnash_tmp132 "${row}"
+    local trimmed
+    trimmed="${__gnash_tmp132}"
+    if ! [[ ${trimmed:-} != @(|false) ]] || [[ ${trimmed} == "#"* ]]; then
+      continue
+    fi
+    if [[ ${content:-} != @(|false) ]]; then
+      content="${content}\n"
+    fi
+    content="${content}${trimmed}"
+  done
+  local __gnash_tmp133
+  gnash_fn_lib_Config_parseListContent __gnash_tmp133 "${content}"
+  local values
+  values="${__gnash_tmp133}"
+  gnash_fn_lib_Config_applyListValues "" "${name}" "${values}"
+}
+
+gnash_fn_lib_Config_applyScalarValue() {
+  local name="${2:-}"
+  local value="${3:-}"
+  if ! [[ ${name:-} != @(|false) ]]; then
+    return
+  fi
+  if [[ ${name} == *"_enabled" ]]; then
+    local __gnash_tmp134
+    __gnash_str_substring __gnash_tmp134 "${name}" 0 $(( ${#name} - 8 ))
+    local step_key
+    step_key="${__gnash_tmp134}"
+    local __gnash_tmp135
+    gnash_fn_lib_Config_ensureStepEntry __gnash_tmp135 "${step_key}"
+    local entry
+    entry="${__gnash_tmp135}"
+    local __gnash_tmp136
+    gnash_fn_lib_Config_coerceBoolean __gnash_tmp136 "${value}" true || :
+    __gnash_invoke 'entry.put' "enabled" "${__gnash_tmp136}"
+    return
+  fi
+  local __gnash_tmp137
+  gnash_fn_lib_Config_splitStepAndField __gnash_tmp137 "${name}"
+  local split
+  split="${__gnash_tmp137}"
+  if [[ ${split:-} != @(|false) ]]; then
+    local __gnash_tmp138
+    __gnash_map_get __gnash_tmp138 "${split:-}" 0
+    step_key="${__gnash_tmp138}"
+    local __gnash_tmp139
+    __gnash_map_get __gnash_tmp139 "${split:-}" 1
+    local field
+    field="${__gnash_tmp139}"
+    local __gnash_tmp140
+    gnash_fn_lib_Config_ensureStepEntry __gnash_tmp140 "${step_key}"
+    entry="${__gnash_tmp140}"
+    __gnash_invoke 'entry.get.put' "${field}" "${value}"
+    return
+  fi
+  __gnash_invoke 'configData.get.put' "${name}" "${value}"
+}
+
+gnash_fn_lib_Config_applyListValues() {
+  local name="${2:-}"
+  local values="${3:-}"
+  if ! [[ ${name:-} != @(|false) ]]; then
+    return
+  fi
+  local __gnash_tmp141
+  gnash_fn_lib_Config_splitStepAndField __gnash_tmp141 "${name}"
+  local split
+  split="${__gnash_tmp141}"
+  if [[ ${split:-} != @(|false) ]]; then
+    local __gnash_tmp142
+    __gnash_map_get __gnash_tmp142 "${split:-}" 0
+    local step_key
+    step_key="${__gnash_tmp142}"
+    local __gnash_tmp143
+    __gnash_map_get __gnash_tmp143 "${split:-}" 1
+    local field
+    field="${__gnash_tmp143}"
+    local __gnash_tmp144
+    gnash_fn_lib_Config_ensureStepEntry __gnash_tmp144 "${step_key}"
+    local entry
+    entry="${__gnash_tmp144}"
+    local __gnash_tmp145
+    gnash_fn_lib_Config_cloneList __gnash_tmp145 "${values}"
+    __gnash_invoke 'entry.get.put' "${field}" "${__gnash_tmp145}"
+    return
+  fi
+  local __gnash_tmp146
+  gnash_fn_lib_Config_cloneList __gnash_tmp146 "${values}"
+  __gnash_invoke 'configData.get.put' "${name}" "${__gnash_tmp146}"
+}
+
+gnash_fn_lib_Config_ensureStepEntry() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local step_key="${2:-}"
+  local __gnash_tmp147
+  __gnash_map_get __gnash_tmp147 "${config_data:-}" "steps"
+  local steps
+  steps="${__gnash_tmp147}"
+  if ! __gnash_map_contains "${steps:-}" "${step_key}"; then
+    local __gnash_tmp148
+    __gnash_map_new __gnash_tmp148
+    local __gnash_tmp149
+    __gnash_map_new __gnash_tmp149
+    local __gnash_tmp150
+    __gnash_map_new __gnash_tmp150 'enabled' "" 'values' "${__gnash_tmp148}" 'lists' "${__gnash_tmp149}"
+    __gnash_invoke 'steps.put' "${step_key}" "${__gnash_tmp150}"
+  fi
+  local __gnash_tmp151
+  __gnash_map_get __gnash_tmp151 "${steps:-}" "${step_key}"
+  __gnash_ret=$__gnash_tmp151
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_splitStepAndField() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local name="${2:-}"
+  local __gnash_tmp152
+  __gnash_str_index_of __gnash_tmp152 "${name}" "_"
+  local index
+  index="${__gnash_tmp152}"
+  if (( index <= 0 )); then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp153
+  __gnash_str_substring __gnash_tmp153 "${name}" 0 "${index}"
+  local step_key
+  step_key="${__gnash_tmp153}"
+  local __gnash_tmp154
+  __gnash_str_substring __gnash_tmp154 "${name}" $(( index + 1 ))
+  local field
+  field="${__gnash_tmp154}"
+  if ! [[ ${field:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp155
+  __gnash_list_empty __gnash_tmp155
+  local parts
+  parts="${__gnash_tmp155}"
+  __gnash_list_push parts "${step_key}"
+  __gnash_list_push parts "${field}"
+  __gnash_ret=$parts
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_parseScalar() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local text="${2:-}"
+  if ! [[ ${text:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp156
+  __gnash_str_trim __gnash_tmp156 "${text}"
+  local trimmed
+  trimmed="${__gnash_tmp156}"
+  if ! [[ ${trimmed:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ ${trimmed} == "'"* ]] && [[ ${trimmed} == *"'" ]]; then
+    local __gnash_tmp157
+    __gnash_str_substring __gnash_tmp157 "${trimmed}" 1 $(( ${#trimmed} - 1 ))
+    local inner
+    inner="${__gnash_tmp157}"
+    local __gnash_tmp158
+    gnash_fn_lib_Config_unescape __gnash_tmp158 "${inner}"
+    __gnash_ret=$__gnash_tmp158
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ ${trimmed} == "\""* ]] && [[ ${trimmed} == *"\"" ]]; then
+    local __gnash_tmp159
+    __gnash_str_substring __gnash_tmp159 "${trimmed}" 1 $(( ${#trimmed} - 1 ))
+    inner="${__gnash_tmp159}"
+    local __gnash_tmp160
+    gnash_fn_lib_Config_unescape __gnash_tmp160 "${inner}"
+    __gnash_ret=$__gnash_tmp160
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local lower
+  lower="${trimmed,,}"
+  if [[ "${lower}" == "true" ]]; then
+    __gnash_ret=true
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ "${lower}" == "false" ]]; then
+    __gnash_ret=false
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 1
+  fi
+  __gnash_ret=$trimmed
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_parseListContent() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local content="${2:-}"
+  local __gnash_tmp161
+  __gnash_list_empty __gnash_tmp161
+  local values
+  values="${__gnash_tmp161}"
+  if ! [[ ${content:-} != @(|false) ]]; then
+    __gnash_ret=$values
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local chars
+  chars=$(__gnash_call 'content.split' "")
+  local buffer
+  buffer=""
+  local quote
+  quote=""
+  local escape
+  escape=false
+  __gnash_list_ref "${chars}"
+  local -n __gnash_items162="${__GNASH_LIST_REF}"
+  for ch in "${__gnash_items162[@]}"; do
+    if ! [[ ${ch:-} != @(|false) ]]; then
+      continue
+    fi
+    if [[ ${escape} == true ]]; then
+      buffer="${buffer}${ch}"
+      escape=false
+      continue
+    fi
+    if [[ ${quote:-} != @(|false) ]]; then
+      if [[ "${ch}" == "\\" ]]; then
+        escape=true
+        continue
+      fi
+      if [[ "${ch}" == "${quote}" ]]; then
+        __gnash_list_push values "${buffer}"
+        buffer=""
+        quote=""
+        continue
+      fi
+      buffer="${buffer}${ch}"
+      continue
+    fi
+    if [[ "${ch}" == "'" ]] || [[ "${ch}" == "\"" ]]; then
+      if [[ ${buffer} == *[![:space:]]* ]]; then
+        local __gnash_tmp163
+        __gnash_str_trim __gnash_tmp163 "${buffer}"
+        __gnash_list_push values "${__gnash_tmp163}"
+        buffer=""
+      else
+        buffer=""
+      fi
+      quote="${ch}"
+      continue
+    fi
+    if [[ "${ch}" == " " ]] || [[ "${ch}" == "\t" ]] || [[ "${ch}" == "\n" ]] || [[ "${ch}" == "," ]]; then
+      if [[ ${buffer} == *[![:space:]]* ]]; then
+        local __gnash_tmp164
+        __gnash_str_trim __gnash_tmp164 "${buffer}"
+        __gnash_list_push values "${__gnash_tmp164}"
+        buffer=""
+      else
+        buffer=""
+      fi
+      continue
+    fi
+    buffer="${buffer}${ch}"
+  done
+  if [[ ${buffer} == *[![:space:]]* ]]; then
+    local __gnash_tmp165
+    __gnash_str_trim __gnash_tmp165 "${buffer}"
+    __gnash_list_push values "${__gnash_tmp165}"
+  fi
+  local __gnash_tmp166
+  __gnash_list_empty __gnash_tmp166
+  local cleaned
+  cleaned="${__gnash_tmp166}"
+  local -n __gnash_items167="${values#$__GNASH_LIST_PREFIX}"
+  for value in "${__gnash_items167[@]}"; do
+    local __gnash_tmp168
+    gnash_fn_lib_Config_unescape __gnash_tmp168 "${value}"
+    __gnash_list_push cleaned "${__gnash_tmp168}"
+  done
+  __gnash_ret=$cleaned
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_unescape() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local text="${2:-}"
+  if ! [[ ${text:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp169
+  __gnash_str_replace __gnash_tmp169 "${text}" "\\'" "'"
+  local result
+  result="${__gnash_tmp169}"
+  local __gnash_tmp170
+  __gnash_str_replace __gnash_tmp170 "${result}" "\\\"" "\""
+  result="${__gnash_tmp170}"
+  local __gnash_tmp171
+  __gnash_str_replace __gnash_tmp171 "${result}" "\\n" "\n"
+  result="${__gnash_tmp171}"
+  local __gnash_tmp172
+  __gnash_str_replace __gnash_tmp172 "${result}" "\\t" "\t"
+  result="${__gnash_tmp172}"
+  __gnash_ret=$result
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_splitLines() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local content="${2:-}"
+  local __gnash_tmp173
+  __gnash_list_empty __gnash_tmp173
+  local rows
+  rows="${__gnash_tmp173}"
+  if ! [[ ${content:-} != @(|false) ]]; then
+    __gnash_ret=$rows
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_list_ref $(__gnash_call 'content.split' "\n")
+  local -n __gnash_items174="${__GNASH_LIST_REF}"
+  for line in "${__gnash_items174[@]}"; do
+    local __gnash_tmp175
+    __gnash_str_trim __gnash_tmp175 "${line}"
+    local trimmed
+    trimmed="${__gnash_tmp175}"
+    if ! [[ ${trimmed:-} != @(|false) ]] || [[ ${trimmed} == "#"* ]]; then
+      continue
+    fi
+    __gnash_list_push rows "${trimmed}"
+  done
+  __gnash_ret=$rows
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_cloneList() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local source="${2:-}"
+  local __gnash_tmp176
+  __gnash_list_empty __gnash_tmp176
+  local copy
+  copy="${__gnash_tmp176}"
+  if ! [[ ${source:-} != @(|false) ]]; then
+    __gnash_ret=$copy
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_list_ref "${source}"
+  local -n __gnash_items177="${__GNASH_LIST_REF}"
+  for item in "${__gnash_items177[@]}"; do
+    __gnash_list_push copy "${item}"
+  done
+  __gnash_ret=$copy
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_cloneMap() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local source="${2:-}"
+  local __gnash_tmp178
+  __gnash_map_new __gnash_tmp178
+  local copy
+  copy="${__gnash_tmp178}"
+  if ! [[ ${source:-} != @(|false) ]]; then
+    __gnash_ret=$copy
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_list_ref $(__gnash_call 'source.keySet')
+  local -n __gnash_items179="${__GNASH_LIST_REF}"
+  for key in "${__gnash_items179[@]}"; do
+    local __gnash_tmp180
+    __gnash_map_get __gnash_tmp180 "${source:-}" "${key}"
+    __gnash_invoke 'copy.put' "${key}" "${__gnash_tmp180}"
+  done
+  __gnash_ret=$copy
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_cloneListMap() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local source="${2:-}"
+  local __gnash_tmp181
+  __gnash_map_new __gnash_tmp181
+  local copy
+  copy="${__gnash_tmp181}"
+  if ! [[ ${source:-} != @(|false) ]]; then
+    __gnash_ret=$copy
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_list_ref $(__gnash_call 'source.keySet')
+  local -n __gnash_items182="${__GNASH_LIST_REF}"
+  for key in "${__gnash_items182[@]}"; do
+    local __gnash_tmp183
+    __gnash_map_get __gnash_tmp183 "${source:-}" "${key}"
+    local __gnash_tmp184
+    gnash_fn_lib_Config_cloneList __gnash_tmp184 "${__gnash_tmp183}"
+    __gnash_invoke 'copy.put' "${key}" "${__gnash_tmp184}"
+  done
+  __gnash_ret=$copy
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_cloneStepsMap() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local __gnash_tmp185
+  __gnash_map_new __gnash_tmp185
+  local copy
+  copy="${__gnash_tmp185}"
+  local __gnash_tmp186
+  __gnash_map_get __gnash_tmp186 "${config_data:-}" "steps"
+  local steps
+  steps="${__gnash_tmp186}"
+  if ! [[ ${steps:-} != @(|false) ]]; then
+    __gnash_ret=$copy
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_list_ref $(__gnash_call 'steps.keySet')
+  local -n __gnash_items187="${__GNASH_LIST_REF}"
+  for key in "${__gnash_items187[@]}"; do
+    local __gnash_tmp188
+    __gnash_map_get __gnash_tmp188 "${steps:-}" "${key}"
+    local __gnash_tmp189
+    gnash_fn_lib_Config_stepView __gnash_tmp189 "${__gnash_tmp188}"
+    __gnash_invoke 'copy.put' "${key}" "${__gnash_tmp189}"
+  done
+  __gnash_ret=$copy
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_stepView() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local entry="${2:-}"
+  local __gnash_tmp190
+  __gnash_map_new __gnash_tmp190
+  local view
+  view="${__gnash_tmp190}"
+  if ! [[ ${entry:-} != @(|false) ]]; then
+    __gnash_ret=$view
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp191
+  __gnash_map_get __gnash_tmp191 "${entry:-}" "enabled"
+  local enabled
+  enabled="${__gnash_tmp191}"
+  if [[ "${enabled}" == "" ]]; then
+    enabled=true
+  fi
+  __gnash_invoke 'view.put' "enabled" "${enabled}"
+  local __gnash_tmp192
+  __gnash_map_get __gnash_tmp192 "${entry:-}" "values"
+  local values_map
+  values_map="${__gnash_tmp192}"
+  if [[ ${values_map:-} != @(|false) ]]; then
+    __gnash_list_ref $(__gnash_call 'valuesMap.keySet')
+    local -n __gnash_items193="${__GNASH_LIST_REF}"
+    for key in "${__gnash_items193[@]}"; do
+      local __gnash_tmp194
+      __gnash_map_get __gnash_tmp194 "${values_map:-}" "${key}"
+      __gnash_invoke 'view.put' "${key}" "${__gnash_tmp194}"
+    done
+  fi
+  local __gnash_tmp195
+  __gnash_map_get __gnash_tmp195 "${entry:-}" "lists"
+  local lists_map
+  lists_map="${__gnash_tmp195}"
+  if [[ ${lists_map:-} != @(|false) ]]; then
+    __gnash_list_ref $(__gnash_call 'listsMap.keySet')
+    local -n __gnash_items196="${__GNASH_LIST_REF}"
+    for key in "${__gnash_items196[@]}"; do
+      local __gnash_tmp197
+      __gnash_map_get __gnash_tmp197 "${lists_map:-}" "${key}"
+      local __gnash_tmp198
+      gnash_fn_lib_Config_cloneList __gnash_tmp198 "${__gnash_tmp197}"
+      __gnash_invoke 'view.put' "${key}" "${__gnash_tmp198}"
+    done
+  fi
+  __gnash_ret=$view
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_splitPath() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  local tokens
+  tokens=$(__gnash_call 'path.split' "\\.")
+  local __gnash_tmp199
+  __gnash_list_empty __gnash_tmp199
+  local pieces
+  pieces="${__gnash_tmp199}"
+  __gnash_list_ref "${tokens}"
+  local -n __gnash_items200="${__GNASH_LIST_REF}"
+  for token in "${__gnash_items200[@]}"; do
+    local __gnash_tmp201
+    __gnash_str_trim __gnash_tmp201 "${token}"
+    local part
+    part="${__gnash_tmp201}"
+    if ! [[ ${part:-} != @(|false) ]]; then
+      continue
+    fi
+    __gnash_list_push pieces "${part}"
+  done
+  if ! [[ ${pieces:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_ret=$pieces
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_joinSegments() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local segments="${2:-}"
+  local start="${3:-}"
+  if ! [[ ${segments:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp202
+  __gnash_size __gnash_tmp202 "${segments}"
+  if (( start >= __gnash_tmp202 )); then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local value
+  value=""
+  local index
+  index=0
+  __gnash_list_ref "${segments}"
+  local -n __gnash_items203="${__GNASH_LIST_REF}"
+  for segment in "${__gnash_items203[@]}"; do
+    if (( index >= start )); then
+      if [[ ${value:-} != @(|false) ]]; then
+        value="${value}."
+      fi
+      value="${value}${segment}"
+    fi
+    index=$(( index + 1 ))
+  done
+  __gnash_ret=$value
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Config_escapeSingleQuotes() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local text="${2:-}"
+  if ! [[ ${text:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp204
+  __gnash_str_replace __gnash_tmp204 "${text}" "'" "'\"'\"'"
+  __gnash_ret=$__gnash_tmp204
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+config_loaded=false
+gnash_fn_lib_Config_createEmptyConfig __gnash_tmp1
+config_data="${__gnash_tmp1}"
+
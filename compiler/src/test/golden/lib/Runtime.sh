@@ -0,0 +1,28 @@
+# Library generated from Gnash source Runtime.gnash — requires runtime helpers to be sourced from a runnable script.
+
+gnash_fn_lib_Runtime_invoke() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local target="${2:-}"
+  local args="${3:-}"
+  echo "invoke stub: ${target} -> ${args}"
+  __gnash_ret=""
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_lib_Runtime_call() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local target="${2:-}"
+  local args="${3:-}"
+  echo "call stub: ${target} -> ${args}"
+  __gnash_ret=""
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
@@ -0,0 +1,410 @@
+#!/usr/bin/env bash
+# Generated from Gnash source InspectConfig.gnash — DO NOT EDIT.
+set -euo pipefail
+set -E
+IFS=$'\n\t'
+
+gnash_fn_main() {
+  local args="${2:-}"
+  echo "== Step Status =="
+  gnash_fn_dumpStepStatus "" "adminGroupNopass"
+  gnash_fn_dumpStepStatus "" "dockerGroup"
+  gnash_fn_dumpStepStatus "" "essentials"
+  gnash_fn_dumpStepStatus "" "sdkmanJava"
+  echo "\n== Admin Group Settings =="
+  gnash_fn_dumpStepValue "" "adminGroupNopass" "adminGroup"
+  gnash_fn_dumpStepValue "" "adminGroupNopass" "addCurrentUser"
+  gnash_fn_dumpList "" "adminGroupNopass" "users"
+  echo "\n== Essentials Packages =="
+  gnash_fn_dumpList "" "essentials" "packages"
+  echo "\n== Docker Group Users =="
+  gnash_fn_dumpList "" "dockerGroup" "users"
+  echo "\n== SDKMAN Java Versions =="
+  gnash_fn_dumpStepValue "" "sdkmanJava" "defaultJava"
+  gnash_fn_dumpList "" "sdkmanJava" "javaVersions"
+}
+
+gnash_fn_dumpStepStatus() {
+  local step_key="${2:-}"
+  local status
+  status="disabled"
+  if __gnash_config_is_true_or_default "steps.${step_key}.enabled" true; then
+    status="enabled"
+  fi
+  echo "${step_key}: ${status}"
+}
+
+gnash_fn_dumpStepValue() {
+  local step_key="${2:-}"
+  local field="${3:-}"
+  local value
+  value="$(__gnash_config_get "steps.${step_key}.${field}")"
+  if ! [[ ${value:-} != @(|false) ]]; then
+    echo "${step_key}.${field}: <empty>"
+    return
+  fi
+  echo "${step_key}.${field}: ${value}"
+}
+
+gnash_fn_dumpList() {
+  local step_key="${2:-}"
+  local field="${3:-}"
+  local value
+  value="$(__gnash_config_get "steps.${step_key}.${field}")"
+  if ! [[ ${value:-} != @(|false) ]]; then
+    echo "${step_key}.${field} raw: []"
+    echo "  (no entries)"
+    return
+  fi
+  if __gnash_is_list "${value}"; then
+    echo "${step_key}.${field} raw: <list>"
+    local entry_printed
+    entry_printed=""
+    __gnash_list_ref "${value}"
+    local -n __gnash_items1="${__GNASH_LIST_REF}"
+    for entry in "${__gnash_items1[@]}"; do
+      echo "  - ${entry}"
+      entry_printed="yes"
+    done
+    if ! [[ ${entry_printed:-} != @(|false) ]]; then
+      echo "  (no entries)"
+    fi
+    return
+  fi
+  echo "${step_key}.${field} raw: [${value}]"
+  echo "  - ${value}"
+}
+
+__gnash_die() {
+  trap - ERR
+  printf 'error: %s\n' "$*" >&2
+  exit 1
+}
+
+# Emits a terse trace when an unexpected command failure triggers ERR.
+__gnash_trap_err() {
+  local rc=$?
+  local line="${BASH_LINENO[0]:-?}"
+  local src="${BASH_SOURCE[1]:-${BASH_SOURCE[0]}}"
+  printf 'error: command failed (exit %s) at %s:%s\n' "$rc" "$src" "$line" >&2
+}
+
+trap '__gnash_trap_err' ERR
+
+__gnash_bool_truthy() {
+  local value="${1:-}"
+  case "${value,,}" in
+    1|y|yes|true|on) return 0 ;;
+    0|n|no|false|off) return 1 ;;
+    *) [[ -n "$value" ]] && return 0 || return 1 ;;
+  esac
+}
+
+# Fills the array named first with the names of the shell variables other than
+# the runtime's own, or only the arrays when the second argument is arrayvar.
+# One compgen read lists them all; ${!prefix@} per letter rescans every variable
+# each time and is slower once the environment is large.
+__gnash_variable_names() {
+  local -n __gnash_names_ref="$1"
+  local -a __gnash_all=()
+  mapfile -t __gnash_all < <(compgen -A "${2:-variable}")
+  __gnash_names_ref=()
+  local __gnash_name
+  for __gnash_name in "${__gnash_all[@]}"; do
+    [[ "$__gnash_name" == __gnash_* || "$__gnash_name" == __GNASH_* ]] && continue
+    __gnash_names_ref+=("$__gnash_name")
+  done
+}
+
+# Config paths are answered from an index built once from the shell variables:
+# __GNASH_CONFIG_KIND maps a dotted path to scalar or list and
+# __GNASH_CONFIG_REF to the variable behind it, read through ${!ref}. A step
+# map entry steps.<step>.<key> refers to <step>[<key>]; the arrays and scalars
+# <step>_<field> index as steps.<step>.<field>, which is how dots in a field are
+# folded to underscores; every scalar is also a global under its own name. The
+# index is built on first use and again after an RC file is loaded.
+declare -gA __GNASH_CONFIG_KIND=()
+declare -gA __GNASH_CONFIG_REF=()
+__GNASH_CONFIG_INDEXED=0
+
+__gnash_config_index() {
+  __GNASH_CONFIG_KIND=()
+  __GNASH_CONFIG_REF=()
+  __GNASH_CONFIG_INDEXED=1
+  # ${var@a} trips nounset on variables declared without a value.
+  local -
+  set +u
+  local -a __gnash_names=()
+  __gnash_variable_names __gnash_names
+  local -a __gnash_maps=()
+  local __gnash_name __gnash_kind __gnash_step __gnash_rest __gnash_key
+  for __gnash_name in "${__gnash_names[@]}"; do
+    local -n __gnash_var="$__gnash_name"
+    case "${__gnash_var@a}" in
+      *A*)
+        __gnash_maps+=("$__gnash_name")
+        continue
+        ;;
+      *a*)
+        __gnash_kind=list
+        ;;
+      *)
+        __gnash_kind=scalar
+        __GNASH_CONFIG_KIND["$__gnash_name"]=scalar
+        __GNASH_CONFIG_REF["$__gnash_name"]="$__gnash_name"
+        ;;
+    esac
+    __gnash_step="${__gnash_name%%_*}"
+    __gnash_rest="${__gnash_name#*_}"
+    while [[ "$__gnash_step" != "$__gnash_name" ]]; do
+      if [[ -n "$__gnash_step" && -n "$__gnash_rest" ]]; then
+        __GNASH_CONFIG_KIND["steps.${__gnash_step}.${__gnash_rest}"]="$__gnash_kind"
+        __GNASH_CONFIG_REF["steps.${__gnash_step}.${__gnash_rest}"]="$__gnash_name"
+      fi
+      [[ "$__gnash_rest" == *_* ]] || break
+      __gnash_step+="_${__gnash_rest%%_*}"
+      __gnash_rest="${__gnash_rest#*_}"
+    done
+  done
+  # Map entries go last: they take precedence over <step>_<field> variables.
+  for __gnash_name in "${__gnash_maps[@]}"; do
+    local -n __gnash_map="$__gnash_name"
+    for __gnash_key in "${!__gnash_map[@]}"; do
+      __GNASH_CONFIG_KIND["steps.${__gnash_name}.${__gnash_key}"]=scalar
+      __GNASH_CONFIG_REF["steps.${__gnash_name}.${__gnash_key}"]="${__gnash_name}[${__gnash_key}]"
+    done
+  done
+}
+
+__gnash_config_resolve() {
+  local __gnash_dest="$1"
+  local path="${2:-}"
+  if [[ -z "$__gnash_dest" || -z "$path" ]]; then
+    return 1
+  fi
+  if (( !__GNASH_CONFIG_INDEXED )); then
+    __gnash_config_index
+  fi
+
+  local key="$path"
+  local field=""
+  case "$path" in
+    steps.*.?*)
+      field="${path#steps.*.}"
+      if [[ -z "${__GNASH_CONFIG_KIND[$key]+_}" ]]; then
+        key="${path%"$field"}${field//./_}"
+      fi
+      ;;
+    steps.*)
+      return 1
+      ;;
+    globals.*)
+      key="${path#globals.}"
+      key="${key//./_}"
+      ;;
+    *)
+      key="${path//./_}"
+      ;;
+  esac
+
+  local ref="${__GNASH_CONFIG_REF[$key]:-}"
+  if [[ "${__GNASH_CONFIG_KIND[$key]:-}" == list ]]; then
+    __gnash_list_from_array "$__gnash_dest" "$ref"
+    return 0
+  fi
+  if [[ -n "$ref" && -n "${!ref+_}" ]]; then
+    printf -v "$__gnash_dest" '%s' "${!ref}"
+    return 0
+  fi
+  if [[ "$field" == "enabled" ]]; then
+    printf -v "$__gnash_dest" '%s' "true"
+    return 0
+  fi
+  return 1
+}
+
+__gnash_config_get() {
+  local path="$1"
+  local default_value="${2:-}"
+  local have_default=0
+  if (( $# >= 2 )); then
+    have_default=1
+  fi
+  local __gnash_value=""
+  if __gnash_config_resolve "__gnash_value" "$path"; then
+    __gnash_export __gnash_value
+    printf '%s' "$__gnash_value"
+    return 0
+  fi
+  if (( have_default )); then
+    printf '%s' "$default_value"
+  fi
+  return 1
+}
+
+__gnash_config_is_true_or_default() {
+  local path="$1"
+  local default_value="${2:-false}"
+  local __gnash_value=""
+  if __gnash_config_resolve "__gnash_value" "$path"; then
+    if [[ -z "$__gnash_value" ]]; then
+      __gnash_bool_truthy "$default_value"
+      return
+    fi
+    __gnash_bool_truthy "$__gnash_value"
+    return
+  fi
+  __gnash_bool_truthy "$default_value"
+}
+
+# Lists live in global arrays named __gnash_list_<n>; a list value is the token
+# __gnash_list::<array>. A list built in a subshell dies with it, so one handed
+# back through $(...) travels as __gnash_list::=<items> instead, each item quoted
+# with printf %q by __gnash_export. Those values read like any other list and
+# are copied into an array of their own when they are first modified.
+__GNASH_LIST_PREFIX="__gnash_list::"
+__GNASH_LIST_COUNTER=0
+__GNASH_LIST_REF=""
+
+__gnash_list_alloc() {
+  local __gnash_alloc_name="__gnash_list_$((++__GNASH_LIST_COUNTER))"
+  declare -ga "$__gnash_alloc_name"
+  local -n __gnash_alloc_items="$__gnash_alloc_name"
+  __gnash_alloc_items=()
+  local __gnash_alloc_token="${__GNASH_LIST_PREFIX}${__gnash_alloc_name}"
+  if (( $# >= 1 )); then
+    printf -v "$1" '%s' "$__gnash_alloc_token"
+    return
+  fi
+  __gnash_export __gnash_alloc_token
+  printf '%s' "$__gnash_alloc_token"
+}
+
+__gnash_is_list() {
+  local token="${1:-}"
+  [[ "$token" == "$__GNASH_LIST_PREFIX"* ]]
+}
+
+__gnash_list_write() {
+  local token="$1"
+  shift
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$token" || [[ "$name" == "="* ]]; then
+    __gnash_die "not a writable list: ${token}"
+  fi
+  local -n write_ref="$name"
+  write_ref=("$@")
+}
+
+__gnash_list_read() {
+  local token="$1"
+  local -n out_ref="$2"
+  out_ref=()
+  if ! __gnash_is_list "$token"; then
+    return
+  fi
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if [[ "$name" == "="* ]]; then
+    # Only __gnash_export builds these, from printf %q output.
+    eval "out_ref=(${name#=})"
+    return
+  fi
+  local -n src_ref="$name"
+  out_ref=("${src_ref[@]}")
+}
+
+__gnash_list_from_array() {
+  local dest="$1"
+  local -n src_ref="$2"
+  local token=""
+  __gnash_list_alloc token
+  __gnash_list_write "$token" "${src_ref[@]}"
+  printf -v "$dest" '%s' "$token"
+}
+
+__gnash_list_from_value() {
+  local dest="$1"
+  local value="${2:-}"
+  local token=""
+  __gnash_list_alloc token
+  if __gnash_is_list "$value"; then
+    __gnash_list_read "$value" "${token#$__GNASH_LIST_PREFIX}"
+  elif [[ -z "$value" ]]; then
+    :
+  elif [[ "$value" == *$'\n'* ]]; then
+    local -a __gnash_tmp_split=()
+    IFS=$'\n' read -r -a __gnash_tmp_split <<<"$value"
+    __gnash_list_write "$token" "${__gnash_tmp_split[@]}"
+  else
+    __gnash_list_write "$token" "$value"
+  fi
+  printf -v "$dest" '%s' "$token"
+}
+
+# Points __GNASH_LIST_REF at the array holding the items of a value so that
+# loops can iterate it through a nameref instead of copying it. Values without
+# an array of their own are copied into a new list first.
+__gnash_list_ref() {
+  local value="${1:-}"
+  local name="${value#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$value" || [[ "$name" == "="* ]]; then
+    local __gnash_ref_token=""
+    __gnash_list_from_value __gnash_ref_token "$value"
+    name="${__gnash_ref_token#$__GNASH_LIST_PREFIX}"
+  fi
+  __GNASH_LIST_REF="$name"
+}
+
+# Maps live in global associative arrays named __gnash_map_<n>; a map value is
+# the token __gnash_map::<array>. Like lists, a map printed from a subshell
+# travels as __gnash_map::=<key value ...>, quoted with printf %q.
+__GNASH_MAP_PREFIX="__gnash_map::"
+__GNASH_MAP_COUNTER=0
+
+# Rewrites the list or map in the named variable into its self-contained form
+# when running in a subshell, so that printing it hands the contents to the
+# parent shell.
+__gnash_export() {
+  if (( BASH_SUBSHELL == 0 )); then
+    return 0
+  fi
+  local -n __gnash_export_ref="$1"
+  __gnash_export_value "$__gnash_export_ref"
+  __gnash_export_ref="$__GNASH_EXPORTED"
+}
+
+# Leaves the self-contained form of a value in __GNASH_EXPORTED, converting the
+# lists and maps nested in it as well.
+__gnash_export_value() {
+  local value="${1:-}"
+  local -a parts=()
+  local item
+  case "$value" in
+    "$__GNASH_LIST_PREFIX="* | "$__GNASH_MAP_PREFIX="*)
+      ;;
+    "$__GNASH_LIST_PREFIX"*)
+      local -n list_ref="${value#$__GNASH_LIST_PREFIX}"
+      for item in "${list_ref[@]}"; do
+        __gnash_export_value "$item"
+        parts+=("$__GNASH_EXPORTED")
+      done
+      value="${__GNASH_LIST_PREFIX}="
+      ;;
+    "$__GNASH_MAP_PREFIX"*)
+      local -n map_ref="${value#$__GNASH_MAP_PREFIX}"
+      for item in "${!map_ref[@]}"; do
+        __gnash_export_value "${map_ref[$item]}"
+        parts+=("$item" "$__GNASH_EXPORTED")
+      done
+      value="${__GNASH_MAP_PREFIX}="
+      ;;
+  esac
+  if (( ${#parts[@]} > 0 )); then
+    local encoded=""
+    printf -v encoded '%q ' "${parts[@]}"
+    value+="$encoded"
+  fi
+  __GNASH_EXPORTED="$value"
+}
+
+gnash_fn_main "" "$@"
@@ -0,0 +1,565 @@
+#!/usr/bin/env bash
+# Generated from Gnash source SyntaxShowcase.gnash — DO NOT EDIT.
+set -euo pipefail
+set -E
+IFS=$'\n\t'
+
+gnash_fn_main() {
+  local args="${2:-}"
+  echo "== Gnash Syntax Showcase =="
+  local __gnash_tmp3
+  __gnash_map_get __gnash_tmp3 "${demo_state:-}" "enabled"
+  gnash_fn_optionalAnnouncement "" "${__gnash_tmp3}"
+  local __gnash_tmp4
+  gnash_fn_computeBaseline __gnash_tmp4 5
+  local baseline
+  baseline="${__gnash_tmp4}"
+  echo "Baseline from static helper: ${baseline}"
+  gnash_fn_showConditionals "" "${baseline}"
+  gnash_fn_showLooping ""
+  gnash_fn_showCollections ""
+  gnash_fn_showLogicOperators ""
+  gnash_fn_showShellIntegration ""
+  gnash_fn_showTryCatch ""; (( $? != 70 )) || return 70
+  gnash_fn_emphasise "" "Demonstration complete"
+  local __gnash_tmp5
+  __gnash_list_new __gnash_tmp5 "argument"
+  local __gnash_tmp6
+  gnash_fn_lib_Runtime_invoke __gnash_tmp6 "noop" "${__gnash_tmp5}"
+  local response
+  response="${__gnash_tmp6}"
+  echo "Runtime.invoke stub returns: ${response}"
+  return 0
+}
+
+gnash_fn_computeBaseline() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local seed="${2:-}"
+  local result
+  result=$(( seed + 2 ))
+  __gnash_ret=$result
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_showConditionals() {
+  local seed="${2:-}"
+  echo "-- Conditionals --"
+  if (( seed > 10 )); then
+    echo "Seed greater than ten"
+  elif (( seed == 10 )); then
+    echo "Seed equals ten"
+  else
+    echo "Seed less than ten"
+  fi
+  local in_range
+  in_range=false
+  if (( seed >= 5 && seed < 20 )); then
+    in_range=true
+  fi
+  echo "Seed between 5 and 20: ${in_range}"
+  local double_seed
+  double_seed=$(( seed * 2 ))
+  local half_seed
+  half_seed=$(( seed / 2 ))
+  echo "Arithmetic: double = ${double_seed}, half = ${half_seed}"
+  local remainder
+  remainder=$(( seed % 3 ))
+  echo "Modulo example: ${remainder}"
+  local negative
+  negative=$(( -seed ))
+  local positive
+  positive=$(( +seed ))
+  echo "Unary operators: negative = ${negative}, positive = ${positive}"
+  return 0
+}
+
+gnash_fn_showLooping() {
+  echo "-- Looping --"
+  local __gnash_tmp7
+  __gnash_list_new __gnash_tmp7 1 2 3 4 5
+  local numbers
+  numbers="${__gnash_tmp7}"
+  local total
+  total=0
+  local -n __gnash_items8="${numbers#$__GNASH_LIST_PREFIX}"
+  for number in "${__gnash_items8[@]}"; do
+    if (( number % 2 == 0 )); then
+      continue
+    fi
+    total=$(( total + number ))
+    if (( total >= 7 )); then
+      break
+    fi
+  done
+  echo "Odd total before break: ${total}"
+}
+
+gnash_fn_showCollections() {
+  echo "-- Collections --"
+  local __gnash_tmp9
+  __gnash_map_new __gnash_tmp9 'note' "Nested map literal"
+  local __gnash_tmp10
+  __gnash_map_new __gnash_tmp10 'count' 3 'extras' "${__gnash_tmp9}"
+  local nested_map
+  nested_map="${__gnash_tmp10}"
+  local __gnash_tmp11
+  __gnash_map_get __gnash_tmp11 "${demo_state:-}" "tags"
+  local tags
+  tags="${__gnash_tmp11}"
+  if __gnash_is_list "${tags}"; then
+    __gnash_list_push tags "walkthrough"
+    if ! __gnash_list_contains "${tags}" "syntax"; then
+      __gnash_list_push tags "syntax"
+    fi
+  fi
+  local __gnash_tmp12
+  __gnash_list_empty __gnash_tmp12
+  local empty_list
+  empty_list="${__gnash_tmp12}"
+  local __gnash_tmp13
+  __gnash_map_new __gnash_tmp13
+  local empty_map
+  empty_map="${__gnash_tmp13}"
+  echo "Empty list literal: ${empty_list}, empty map literal: ${empty_map}"
+  local __gnash_tmp14
+  __gnash_map_get __gnash_tmp14 "${nested_map:-}" "extras"
+  local extras
+  extras="${__gnash_tmp14}"
+  local __gnash_tmp15
+  __gnash_map_get __gnash_tmp15 "${extras:-}" "note"
+  local note
+  note="${__gnash_tmp15}"
+  echo "Nested map extras note: ${note}"
+  if __gnash_map_contains "${demo_state:-}" "display.name"; then
+    local __gnash_tmp16
+    __gnash_map_get __gnash_tmp16 "${demo_state:-}" "display.name"
+    local display_name
+    display_name="${__gnash_tmp16}"
+    echo "Display name from global map: ${display_name}"
+  fi
+  echo "Tags list: ${tags}"
+}
+
+gnash_fn_showLogicOperators() {
+  echo "-- Logic Operators --"
+  echo "Boolean result: true"
+  echo "Equality: true, inequality: true"
+}
+
+gnash_fn_showShellIntegration() {
+  echo "-- Shell Commands --"
+  local output
+  __gnash_fast_printf output 'gnash shell literal demo\n' || output=$(printf 'gnash shell literal demo\n')
+  local exit_code
+  exit_code=$?
+  echo "Shell exit code: ${exit_code}"
+  echo "Shell output: ${output.trim()}"
+}
+
+gnash_fn_showTryCatch() {
+  echo "-- Try/Catch/Finally --"
+  local __gnash_try_rc17
+  __gnash_try_rc17=0
+  __GNASH_ERROR=""
+  while :; do
+    gnash_fn_riskyOperation "" "" || { __gnash_try_rc17=$?; break; }
+    break
+  done
+  local __gnash_catch_rc18
+  __gnash_catch_rc18=0
+  if (( __gnash_try_rc17 != 0 )); then
+    local err
+    err="${__GNASH_ERROR:-${__gnash_try_rc17}}"
+    __GNASH_ERROR=""
+    while :; do
+      echo "Caught error message: ${err.get(messageKey)}" || { __gnash_catch_rc18=$?; break; }
+      break
+    done
+  fi
+  echo "Finally block executed."
+  if (( __gnash_catch_rc18 != 0 )); then
+    return "${__gnash_catch_rc18}"
+  fi
+}
+
+gnash_fn_riskyOperation() {
+  local value="${2:-}"
+  if ! [[ ${value:-} != @(|false) ]]; then
+    local __gnash_tmp19
+    __gnash_map_new __gnash_tmp19 'kind' "DemoError" 'message' "Missing value for riskyOperation"
+    __GNASH_ERROR=$__gnash_tmp19
+    return 70
+  fi
+  local __gnash_tmp20
+  __gnash_str_trim __gnash_tmp20 "${value}"
+  local trimmed
+  trimmed="${__gnash_tmp20}"
+  if [[ "${trimmed}" == "" ]]; then
+    local __gnash_tmp21
+    __gnash_map_new __gnash_tmp21 'kind' "DemoError" 'message' "Blank value for riskyOperation"
+    __GNASH_ERROR=$__gnash_tmp21
+    return 70
+  fi
+  return 0
+}
+
+gnash_fn_optionalAnnouncement() {
+  local enabled="${2:-}"
+  if ! [[ ${enabled:-} != @(|false) ]]; then
+    echo "Announcements disabled"
+    return
+  fi
+  echo "Announcements enabled"
+}
+
+gnash_fn_emphasise() {
+  local text="${2:-}"
+  echo "** ${text} **"
+}
+
+gnash_fn_lib_Runtime_invoke() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local target="${2:-}"
+  local args="${3:-}"
+  echo "invoke stub: ${target} -> ${args}"
+  __gnash_ret=""
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+__gnash_die() {
+  trap - ERR
+  printf 'error: %s\n' "$*" >&2
+  exit 1
+}
+
+# Emits a terse trace when an unexpected command failure triggers ERR.
+__gnash_trap_err() {
+  local rc=$?
+  local line="${BASH_LINENO[0]:-?}"
+  local src="${BASH_SOURCE[1]:-${BASH_SOURCE[0]}}"
+  printf 'error: command failed (exit %s) at %s:%s\n' "$rc" "$src" "$line" >&2
+}
+
+trap '__gnash_trap_err' ERR
+
+# The value of the last throw, read back by the catch of a try. A command that
+# fails without throwing leaves it empty, and the catch gets its status instead.
+__GNASH_ERROR=""
+
+# Lists live in global arrays named __gnash_list_<n>; a list value is the token
+# __gnash_list::<array>. A list built in a subshell dies with it, so one handed
+# back through $(...) travels as __gnash_list::=<items> instead, each item quoted
+# with printf %q by __gnash_export. Those values read like any other list and
+# are copied into an array of their own when they are first modified.
+__GNASH_LIST_PREFIX="__gnash_list::"
+__GNASH_LIST_COUNTER=0
+__GNASH_LIST_REF=""
+
+__gnash_list_alloc() {
+  local __gnash_alloc_name="__gnash_list_$((++__GNASH_LIST_COUNTER))"
+  declare -ga "$__gnash_alloc_name"
+  local -n __gnash_alloc_items="$__gnash_alloc_name"
+  __gnash_alloc_items=()
+  local __gnash_alloc_token="${__GNASH_LIST_PREFIX}${__gnash_alloc_name}"
+  if (( $# >= 1 )); then
+    printf -v "$1" '%s' "$__gnash_alloc_token"
+    return
+  fi
+  __gnash_export __gnash_alloc_token
+  printf '%s' "$__gnash_alloc_token"
+}
+
+__gnash_is_list() {
+  local token="${1:-}"
+  [[ "$token" == "$__GNASH_LIST_PREFIX"* ]]
+}
+
+__gnash_list_write() {
+  local token="$1"
+  shift
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$token" || [[ "$name" == "="* ]]; then
+    __gnash_die "not a writable list: ${token}"
+  fi
+  local -n write_ref="$name"
+  write_ref=("$@")
+}
+
+__gnash_list_read() {
+  local token="$1"
+  local -n out_ref="$2"
+  out_ref=()
+  if ! __gnash_is_list "$token"; then
+    return
+  fi
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if [[ "$name" == "="* ]]; then
+    # Only __gnash_export builds these, from printf %q output.
+    eval "out_ref=(${name#=})"
+    return
+  fi
+  local -n src_ref="$name"
+  out_ref=("${src_ref[@]}")
+}
+
+__gnash_list_from_value() {
+  local dest="$1"
+  local value="${2:-}"
+  local token=""
+  __gnash_list_alloc token
+  if __gnash_is_list "$value"; then
+    __gnash_list_read "$value" "${token#$__GNASH_LIST_PREFIX}"
+  elif [[ -z "$value" ]]; then
+    :
+  elif [[ "$value" == *$'\n'* ]]; then
+    local -a __gnash_tmp_split=()
+    IFS=$'\n' read -r -a __gnash_tmp_split <<<"$value"
+    __gnash_list_write "$token" "${__gnash_tmp_split[@]}"
+  else
+    __gnash_list_write "$token" "$value"
+  fi
+  printf -v "$dest" '%s' "$token"
+}
+
+# Points __GNASH_LIST_REF at the array holding the items of a value so that
+# loops can iterate it through a nameref instead of copying it. Values without
+# an array of their own are copied into a new list first.
+__gnash_list_ref() {
+  local value="${1:-}"
+  local name="${value#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$value" || [[ "$name" == "="* ]]; then
+    local __gnash_ref_token=""
+    __gnash_list_from_value __gnash_ref_token "$value"
+    name="${__gnash_ref_token#$__GNASH_LIST_PREFIX}"
+  fi
+  __GNASH_LIST_REF="$name"
+}
+
+__gnash_list_empty() {
+  __gnash_list_alloc "$@"
+}
+
+# Builds a list from the remaining arguments into the variable named first.
+__gnash_list_new() {
+  local dest="$1"
+  shift
+  local token=""
+  __gnash_list_alloc token
+  __gnash_list_write "$token" "$@"
+  printf -v "$dest" '%s' "$token"
+}
+
+# Appends to the list held in the named variable. A value that is not a list of
+# this shell (a plain string, or a list returned from a subshell) is copied into
+# one first and the variable pointed at it.
+__gnash_list_push() {
+  local -n __gnash_push_ref="$1"
+  local __gnash_push_token="${__gnash_push_ref:-}"
+  local __gnash_push_name="${__gnash_push_token#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$__gnash_push_token" || [[ "$__gnash_push_name" == "="* ]]; then
+    __gnash_list_from_value __gnash_push_token "$__gnash_push_token"
+    __gnash_push_ref="$__gnash_push_token"
+    __gnash_push_name="${__gnash_push_token#$__GNASH_LIST_PREFIX}"
+  fi
+  local -n __gnash_push_items="$__gnash_push_name"
+  __gnash_push_items+=("${2:-}")
+}
+
+__gnash_list_contains() {
+  local token="${1:-}"
+  local needle="${2:-}"
+  if __gnash_is_list "$token"; then
+    local name="${token#$__GNASH_LIST_PREFIX}"
+    local -a __gnash_items=()
+    if [[ "$name" == "="* ]]; then
+      __gnash_list_read "$token" "__gnash_items"
+      name="__gnash_items"
+    fi
+    local -n contains_ref="$name"
+    local item
+    for item in "${contains_ref[@]}"; do
+      if [[ "$item" == "$needle" ]]; then
+        return 0
+      fi
+    done
+    return 1
+  fi
+  # Anything else is a string, searched like String.contains.
+  [[ "$token" == *"$needle"* ]] || return 1
+}
+
+__gnash_fast_store() {
+  local __gnash_text="$2"
+  while [[ "$__gnash_text" == *$'\n' ]]; do
+    __gnash_text="${__gnash_text%$'\n'}"
+  done
+  if [[ -n "$1" ]]; then
+    printf -v "$1" '%s' "$__gnash_text"
+  fi
+}
+
+# printf <format> <args...> with literal arguments.
+__gnash_fast_printf() {
+  local __gnash_printed
+  printf -v __gnash_printed "${@:2}" 2>/dev/null || return 1
+  __gnash_fast_store "$1" "$__gnash_printed"
+}
+
+# String methods the generator cannot expand in place, called as
+# `__gnash_str_<method> DEST VALUE ARGS`. Each stores its result in the
+# variable named first, or prints it when that is empty.
+__gnash_str_result() {
+  if [[ -n "$1" ]]; then
+    printf -v "$1" '%s' "$2"
+  else
+    printf '%s' "$2"
+  fi
+}
+
+# trim(): drops leading and trailing whitespace.
+__gnash_str_trim() {
+  local __gnash_text="${2:-}"
+  __gnash_text="${__gnash_text#"${__gnash_text%%[![:space:]]*}"}"
+  __gnash_text="${__gnash_text%"${__gnash_text##*[![:space:]]}"}"
+  __gnash_str_result "$1" "$__gnash_text"
+}
+
+# Maps live in global associative arrays named __gnash_map_<n>; a map value is
+# the token __gnash_map::<array>. Like lists, a map printed from a subshell
+# travels as __gnash_map::=<key value ...>, quoted with printf %q.
+__GNASH_MAP_PREFIX="__gnash_map::"
+__GNASH_MAP_COUNTER=0
+
+__gnash_is_map() {
+  [[ "${1:-}" == "$__GNASH_MAP_PREFIX"* ]]
+}
+
+# Builds a map from the key/value pairs that follow into the variable named first.
+__gnash_map_new() {
+  if (( $# % 2 == 0 )); then
+    __gnash_die "__gnash_map_new requires a destination and key/value pairs"
+  fi
+  local __gnash_map_name="__gnash_map_$((++__GNASH_MAP_COUNTER))"
+  declare -gA "$__gnash_map_name"
+  local -n __gnash_map_entries="$__gnash_map_name"
+  __gnash_map_entries=()
+  printf -v "$1" '%s' "${__GNASH_MAP_PREFIX}${__gnash_map_name}"
+  shift
+  while (( $# > 0 )); do
+    __gnash_map_entries["$1"]="$2"
+    shift 2
+  done
+}
+
+# Stores the value under a key of a map (or an index of a list) in the variable
+# named first; missing entries and non-map values yield the empty string.
+__gnash_map_get() {
+  local __gnash_get_dest="$1"
+  local value="${2:-}"
+  local key="${3:-}"
+  local found=""
+  if __gnash_is_map "$value" && [[ -n "$key" ]]; then
+    local name="${value#$__GNASH_MAP_PREFIX}"
+    if [[ "$name" == "="* ]]; then
+      local -a pairs=()
+      eval "pairs=(${name#=})"
+      local i
+      for (( i = 0; i + 1 < ${#pairs[@]}; i += 2 )); do
+        if [[ "${pairs[i]}" == "$key" ]]; then
+          found="${pairs[i + 1]}"
+        fi
+      done
+    else
+      local -n entries_ref="$name"
+      found="${entries_ref[$key]-}"
+    fi
+  elif __gnash_is_list "$value" && [[ "$key" =~ ^[0-9]+$ ]]; then
+    __gnash_list_ref "$value"
+    local -n items_ref="$__GNASH_LIST_REF"
+    found="${items_ref[key]-}"
+  fi
+  printf -v "$__gnash_get_dest" '%s' "$found"
+}
+
+__gnash_map_contains() {
+  local value="${1:-}"
+  local key="${2:-}"
+  if ! __gnash_is_map "$value" || [[ -z "$key" ]]; then
+    return 1
+  fi
+  local name="${value#$__GNASH_MAP_PREFIX}"
+  if [[ "$name" == "="* ]]; then
+    local -a pairs=()
+    eval "pairs=(${name#=})"
+    local i
+    for (( i = 0; i < ${#pairs[@]}; i += 2 )); do
+      if [[ "${pairs[i]}" == "$key" ]]; then
+        return 0
+      fi
+    done
+    return 1
+  fi
+  local -n entries_ref="$name"
+  [[ -n "${entries_ref[$key]+_}" ]]
+}
+
+# Rewrites the list or map in the named variable into its self-contained form
+# when running in a subshell, so that printing it hands the contents to the
+# parent shell.
+__gnash_export() {
+  if (( BASH_SUBSHELL == 0 )); then
+    return 0
+  fi
+  local -n __gnash_export_ref="$1"
+  __gnash_export_value "$__gnash_export_ref"
+  __gnash_export_ref="$__GNASH_EXPORTED"
+}
+
+# Leaves the self-contained form of a value in __GNASH_EXPORTED, converting the
+# lists and maps nested in it as well.
+__gnash_export_value() {
+  local value="${1:-}"
+  local -a parts=()
+  local item
+  case "$value" in
+    "$__GNASH_LIST_PREFIX="* | "$__GNASH_MAP_PREFIX="*)
+      ;;
+    "$__GNASH_LIST_PREFIX"*)
+      local -n list_ref="${value#$__GNASH_LIST_PREFIX}"
+      for item in "${list_ref[@]}"; do
+        __gnash_export_value "$item"
+        parts+=("$__GNASH_EXPORTED")
+      done
+      value="${__GNASH_LIST_PREFIX}="
+      ;;
+    "$__GNASH_MAP_PREFIX"*)
+      local -n map_ref="${value#$__GNASH_MAP_PREFIX}"
+      for item in "${!map_ref[@]}"; do
+        __gnash_export_value "${map_ref[$item]}"
+        parts+=("$item" "$__GNASH_EXPORTED")
+      done
+      value="${__GNASH_MAP_PREFIX}="
+      ;;
+  esac
+  if (( ${#parts[@]} > 0 )); then
+    local encoded=""
+    printf -v encoded '%q ' "${parts[@]}"
+    value+="$encoded"
+  fi
+  __GNASH_EXPORTED="$value"
+}
+
+echo "scripts.demo.SyntaxShowcase initialising"
+__gnash_list_new __gnash_tmp1 "syntax" "demo" "examples"
+__gnash_map_new __gnash_tmp2 'title' "Gnash Syntax Showcase" 'enabled' true 'tags' "${__gnash_tmp1}" "display.name" "Gnash Syntax Showcase"
+demo_state="${__gnash_tmp2}"
+
+gnash_fn_main "" "$@"
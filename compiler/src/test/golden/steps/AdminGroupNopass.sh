@@ -0,0 +1,1143 @@
+#!/usr/bin/env bash
+# Generated from Gnash source AdminGroupNopass.gnash — DO NOT EDIT.
+set -euo pipefail
+set -E
+IFS=$'\n\t'
+
+gnash_fn_main() {
+  local args="${2:-}"
+  if ! __gnash_config_is_true_or_default "steps.adminGroupNopass.enabled" true; then
+    echo "adminGroupNopass disabled via configuration"
+    return 0
+  fi
+  local __gnash_tmp1
+  gnash_fn_normalizedString __gnash_tmp1 "$(__gnash_config_get "steps.adminGroupNopass.adminGroup")"
+  local admin_group
+  admin_group="${__gnash_tmp1}"
+  if ! [[ ${admin_group:-} != @(|false) ]]; then
+    admin_group="admin"
+  fi
+  local add_current_user
+  add_current_user=false
+  if __gnash_config_is_true_or_default "steps.adminGroupNopass.addCurrentUser" true; then
+    add_current_user=true
+  fi
+  local __gnash_tmp2
+  __gnash_config_list __gnash_tmp2 "steps.adminGroupNopass.users"
+  local __gnash_tmp3
+  gnash_fn_collectUsers __gnash_tmp3 "${__gnash_tmp2}"
+  local users
+  users="${__gnash_tmp3}"
+  if [[ ${add_current_user} == true ]]; then
+    local __gnash_tmp4
+    gnash_fn_env __gnash_tmp4 "SUDO_USER"; (( $? != 70 )) || return 70
+    local __gnash_tmp5
+    gnash_fn_env __gnash_tmp5 "USER"; (( $? != 70 )) || return 70
+    local __gnash_tmp6
+    gnash_fn_firstNonBlank __gnash_tmp6 "${__gnash_tmp4}" "${__gnash_tmp5}"
+    local current_user
+    current_user="${__gnash_tmp6}"
+    if [[ ${current_user:-} != @(|false) ]] && [[ "${current_user}" != "root" ]] && ! __gnash_list_contains "${users}" "${current_user}"; then
+      __gnash_list_push users "${current_user}"
+    fi
+  fi
+  local changed
+  changed=false
+  if { gnash_fn_ensureGroupExists "" "${admin_group}" || { (( $? != 70 )) || return 70; false; }; }; then
+    changed=true
+  fi
+  if { gnash_fn_ensureSudoDefaults "" || { (( $? != 70 )) || return 70; false; }; }; then
+    changed=true
+  fi
+  if { gnash_fn_removeLegacySudoers "" || { (( $? != 70 )) || return 70; false; }; }; then
+    changed=true
+  fi
+  if { gnash_fn_ensureAdminDropIn "" "${admin_group}" || { (( $? != 70 )) || return 70; false; }; }; then
+    changed=true
+  fi
+  if { gnash_fn_ensureUsersInGroup "" "${admin_group}" "${users}" || { (( $? != 70 )) || return 70; false; }; }; then
+    changed=true
+  fi
+  local __gnash_try_rc7
+  __gnash_try_rc7=0
+  __GNASH_ERROR=""
+  while :; do
+    gnash_fn_run "" "visudo -c" || { __gnash_try_rc7=$?; break; }
+    break
+  done
+  if (( __gnash_try_rc7 != 0 )); then
+    local err
+    err="${__GNASH_ERROR:-${__gnash_try_rc7}}"
+    __GNASH_ERROR=""
+    if gnash_fn_isCommandError "" "${err}"; then
+      local __gnash_tmp8
+      __gnash_map_get __gnash_tmp8 "${err:-}" 'output'
+      __gnash_die "visudo -c failed:\n${__gnash_tmp8}"
+    fi
+    __GNASH_ERROR=$err
+    return 70
+  fi
+  if [[ ${changed} == true ]]; then
+    return 10
+  fi
+  return 0
+}
+
+gnash_fn_ensureGroupExists() {
+  local group_name="${2:-}"
+  local __gnash_try_rc9
+  __gnash_try_rc9=0
+  __GNASH_ERROR=""
+  while :; do
+    gnash_fn_run "" "getent group ${group_name}" || { __gnash_try_rc9=$?; break; }
+    return 1
+    break
+  done
+  if (( __gnash_try_rc9 != 0 )); then
+    local err
+    err="${__GNASH_ERROR:-${__gnash_try_rc9}}"
+    __GNASH_ERROR=""
+    if ! gnash_fn_isCommandError "" "${err}"; then
+      __GNASH_ERROR=$err
+      return 70
+    fi
+    if ! gnash_fn_missingLookup "" "${err}"; then
+      __GNASH_ERROR=$err
+      return 70
+    fi
+  fi
+  gnash_fn_run "" "groupadd ${group_name}"; (( $? != 70 )) || return 70
+  return 0
+}
+
+gnash_fn_ensureSudoDefaults() {
+  if ! { gnash_fn_fileExists "" "/etc/sudoers" || { (( $? != 70 )) || return 70; false; }; }; then
+    return 1
+  fi
+  local __gnash_try_rc10
+  __gnash_try_rc10=0
+  __GNASH_ERROR=""
+  while :; do
+    gnash_fn_run "" "grep -Eq '^%sudo\\s+ALL=\\(ALL(:ALL)?\\)\\s+ALL$' /etc/sudoers" || { __gnash_try_rc10=$?; break; }
+    return 1
+    break
+  done
+  if (( __gnash_try_rc10 != 0 )); then
+    local err
+    err="${__GNASH_ERROR:-${__gnash_try_rc10}}"
+    __GNASH_ERROR=""
+    if ! gnash_fn_isCommandError "" "${err}"; then
+      __GNASH_ERROR=$err
+      return 70
+    fi
+    local __gnash_tmp11
+    __gnash_map_get __gnash_tmp11 "${err:-}" 'exitCode'
+    if (( __gnash_tmp11 != 1 )); then
+      __GNASH_ERROR=$err
+      return 70
+    fi
+  fi
+  local content
+  content="%sudo ALL=(ALL:ALL) ALL\n"
+  if { gnash_fn_ensureFileContent "" "/etc/sudoers.d/00-sudo-group" "${content}" "0440" || { (( $? != 70 )) || return 70; false; }; }; then
+    return 0
+  fi
+  return 1
+}
+
+gnash_fn_removeLegacySudoers() {
+  if ! { gnash_fn_fileExists "" "/etc/sudoers.d/nopass" || { (( $? != 70 )) || return 70; false; }; }; then
+    return 1
+  fi
+  local __gnash_tmp12
+  __gnash_fast_cat __gnash_tmp12 '/etc/sudoers.d/nopass' || gnash_fn_run __gnash_tmp12 "cat /etc/sudoers.d/nopass"; (( $? != 70 )) || return 70
+  local content
+  content="${__gnash_tmp12}"
+  if ! __gnash_list_contains "${content}" "%sysadmin"; then
+    return 1
+  fi
+  gnash_fn_backupFile "" "/etc/sudoers.d/nopass"; (( $? != 70 )) || return 70
+  local __gnash_try_rc13
+  __gnash_try_rc13=0
+  __GNASH_ERROR=""
+  while :; do
+    gnash_fn_run "" "rm -f /etc/sudoers.d/nopass" || { __gnash_try_rc13=$?; break; }
+    break
+  done
+  if (( __gnash_try_rc13 != 0 )); then
+    local err
+    err="${__GNASH_ERROR:-${__gnash_try_rc13}}"
+    __GNASH_ERROR=""
+    if gnash_fn_isCommandError "" "${err}"; then
+      local __gnash_tmp14
+      __gnash_map_get __gnash_tmp14 "${err:-}" 'output'
+      __gnash_die "Unable to remove legacy sudoers file: /etc/sudoers.d/nopass\n${__gnash_tmp14}"
+    fi
+    __GNASH_ERROR=$err
+    return 70
+  fi
+  return 0
+}
+
+gnash_fn_ensureAdminDropIn() {
+  local admin_group="${2:-}"
+  local content
+  content="%${admin_group} ALL=(ALL) NOPASSWD: ALL\n"
+  if { gnash_fn_ensureFileContent "" "/etc/sudoers.d/99-admin-nopass" "${content}" "0440" || { (( $? != 70 )) || return 70; false; }; }; then
+    return 0
+  fi
+  return 1
+}
+
+gnash_fn_ensureUsersInGroup() {
+  local group="${2:-}"
+  local users="${3:-}"
+  local changed
+  changed=false
+  __gnash_list_ref "${users}"
+  local -n __gnash_items15="${__GNASH_LIST_REF}"
+  for user in "${__gnash_items15[@]}"; do
+    if ! { gnash_fn_userExists "" "${user}" || { (( $? != 70 )) || return 70; false; }; }; then
+      echo "Skipping user ${user}; account not found. ⚠️"
+      continue
+    fi
+    local __gnash_try_rc16
+    __gnash_try_rc16=0
+    __GNASH_ERROR=""
+    while :; do
+      { __gnash_fast_in_group "" "${user}" "${group}" || gnash_fn_run "" "id -nG ${user} | tr ' ' '\\n' | grep -qx ${group}"; } || { __gnash_try_rc16=$?; break; }
+      break
+    done
+    if (( __gnash_try_rc16 != 0 )); then
+      local err
+      err="${__GNASH_ERROR:-${__gnash_try_rc16}}"
+      __GNASH_ERROR=""
+      if ! gnash_fn_isCommandError "" "${err}"; then
+        __GNASH_ERROR=$err
+        return 70
+      fi
+      local __gnash_tmp17
+      __gnash_map_get __gnash_tmp17 "${err:-}" 'exitCode'
+      if (( __gnash_tmp17 != 1 )); then
+        __GNASH_ERROR=$err
+        return 70
+      fi
+      gnash_fn_run "" "usermod -aG ${group} ${user}"; (( $? != 70 )) || return 70
+      echo "Added ${user} to ${group}. Please log out and back in for group membership to apply. 🎉"
+      changed=true
+      continue
+    fi
+  done
+  if [[ ${changed} == true ]]; then
+    return 0
+  fi
+  return 1
+}
+
+gnash_fn_userExists() {
+  local user="${2:-}"
+  local __gnash_try_rc18
+  __gnash_try_rc18=0
+  __GNASH_ERROR=""
+  while :; do
+    gnash_fn_run "" "id -u ${user}" || { __gnash_try_rc18=$?; break; }
+    return 0
+    break
+  done
+  if (( __gnash_try_rc18 != 0 )); then
+    local err
+    err="${__GNASH_ERROR:-${__gnash_try_rc18}}"
+    __GNASH_ERROR=""
+    if ! gnash_fn_isCommandError "" "${err}"; then
+      __GNASH_ERROR=$err
+      return 70
+    fi
+    local __gnash_tmp19
+    __gnash_map_get __gnash_tmp19 "${err:-}" 'exitCode'
+    if (( __gnash_tmp19 == 1 )); then
+      return 1
+    fi
+    __GNASH_ERROR=$err
+    return 70
+  fi
+}
+
+gnash_fn_ensureFileContent() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local path="${2:-}"
+  local expected="${3:-}"
+  local mode="${4:-}"
+  if { gnash_fn_fileExists "" "${path}" || { (( $? != 70 )) || return 70; false; }; }; then
+    local __gnash_tmp20
+    __gnash_fast_cat __gnash_tmp20 "${path}" || gnash_fn_run __gnash_tmp20 "cat ${path}"; (( $? != 70 )) || return 70
+    local current
+    current="${__gnash_tmp20}"
+    if [[ "${current}" == "${expected}" ]]; then
+      __gnash_ret=false
+      if [[ -n ${__gnash_out:-} ]]; then
+        printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+      fi
+      return 1
+    fi
+  fi
+  gnash_fn_backupFile "" "${path}"; (( $? != 70 )) || return 70
+  gnash_fn_writeFile "" "${path}" "${expected}"; (( $? != 70 )) || return 70
+  gnash_fn_run "" "chmod ${mode} ${path}"; (( $? != 70 )) || return 70
+  __gnash_ret=true
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_writeFile() {
+  local path="${2:-}"
+  local content="${3:-}"
+  local __gnash_tmp21
+  gnash_fn_escapeSingleQuotes __gnash_tmp21 "${content}"
+  local payload
+  payload="${__gnash_tmp21}"
+  gnash_fn_run "" "printf '%s' '${payload}' > ${path}"; (( $? != 70 )) || return 70
+}
+
+gnash_fn_fileExists() {
+  local path="${2:-}"
+  local __gnash_try_rc22
+  __gnash_try_rc22=0
+  __GNASH_ERROR=""
+  while :; do
+    { __gnash_fast_test "" -e "${path}" || gnash_fn_run "" "test -e ${path}"; } || { __gnash_try_rc22=$?; break; }
+    return 0
+    break
+  done
+  if (( __gnash_try_rc22 != 0 )); then
+    local err
+    err="${__GNASH_ERROR:-${__gnash_try_rc22}}"
+    __GNASH_ERROR=""
+    if ! gnash_fn_isCommandError "" "${err}"; then
+      __GNASH_ERROR=$err
+      return 70
+    fi
+    local __gnash_tmp23
+    __gnash_map_get __gnash_tmp23 "${err:-}" 'exitCode'
+    if (( __gnash_tmp23 == 1 )); then
+      return 1
+    fi
+    __GNASH_ERROR=$err
+    return 70
+  fi
+}
+
+gnash_fn_backupFile() {
+  local path="${2:-}"
+  if ! { gnash_fn_fileExists "" "${path}" || { (( $? != 70 )) || return 70; false; }; }; then
+    return
+  fi
+  local __gnash_tmp24
+  __gnash_fast_epoch __gnash_tmp24 || gnash_fn_run __gnash_tmp24 "date +%s"; (( $? != 70 )) || return 70
+  local stamp
+  stamp="${__gnash_tmp24}"
+  local __gnash_tmp25
+  __gnash_str_trim __gnash_tmp25 "${stamp}"
+  local ts
+  ts="${__gnash_tmp25}"
+  gnash_fn_run "" "cp ${path} ${path}.bak.${ts}"; (( $? != 70 )) || return 70
+}
+
+gnash_fn_collectUsers() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local value="${2:-}"
+  local __gnash_tmp26
+  __gnash_list_empty __gnash_tmp26
+  local users
+  users="${__gnash_tmp26}"
+  if ! [[ ${value:-} != @(|false) ]]; then
+    __gnash_ret=$users
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if __gnash_is_list "${value}"; then
+    __gnash_list_ref "${value}"
+    local -n __gnash_items27="${__GNASH_LIST_REF}"
+    for entry in "${__gnash_items27[@]}"; do
+      gnash_fn_addNormalizedUser "" "${users}" "${entry}"
+    done
+  else
+    gnash_fn_addNormalizedUser "" "${users}" "${value}"
+  fi
+  __gnash_ret=$users
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_addNormalizedUser() {
+  local users="${2:-}"
+  local value="${3:-}"
+  if ! [[ ${value:-} != @(|false) ]]; then
+    return
+  fi
+  local __gnash_tmp28
+  __gnash_str_trim __gnash_tmp28 "${value}"
+  local name
+  name="${__gnash_tmp28}"
+  if ! [[ ${name:-} != @(|false) ]]; then
+    return
+  fi
+  if ! __gnash_list_contains "${users}" "${name}"; then
+    __gnash_list_push users "${name}"
+  fi
+}
+
+gnash_fn_normalizedString() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local value="${2:-}"
+  if ! [[ ${value:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  local __gnash_tmp29
+  __gnash_str_trim __gnash_tmp29 "${value}"
+  local result
+  result="${__gnash_tmp29}"
+  if ! [[ ${result:-} != @(|false) ]]; then
+    __gnash_ret=""
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_ret=$result
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_firstNonBlank() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local a="${2:-}"
+  local b="${3:-}"
+  if [[ ${a:-} != @(|false) ]] && [[ ${a} == *[![:space:]]* ]]; then
+    local __gnash_tmp30
+    __gnash_str_trim __gnash_tmp30 "${a}"
+    __gnash_ret=$__gnash_tmp30
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  if [[ ${b:-} != @(|false) ]] && [[ ${b} == *[![:space:]]* ]]; then
+    local __gnash_tmp31
+    __gnash_str_trim __gnash_tmp31 "${b}"
+    __gnash_ret=$__gnash_tmp31
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+  fi
+  __gnash_ret=""
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_env() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local name="${2:-}"
+  local __gnash_try_rc32
+  __gnash_try_rc32=0
+  __GNASH_ERROR=""
+  while :; do
+    local __gnash_tmp33
+    __gnash_fast_printenv __gnash_tmp33 "${name}" || gnash_fn_run __gnash_tmp33 "printenv ${name}" || { __gnash_try_rc32=$?; break; }
+    local value
+    value="${__gnash_tmp33}"
+    local __gnash_tmp34
+    __gnash_str_trim __gnash_tmp34 "${value}" || { __gnash_try_rc32=$?; break; }
+    __gnash_ret=$__gnash_tmp34
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 0
+    break
+  done
+  if (( __gnash_try_rc32 != 0 )); then
+    local err
+    err="${__GNASH_ERROR:-${__gnash_try_rc32}}"
+    __GNASH_ERROR=""
+    if ! gnash_fn_isCommandError "" "${err}"; then
+      __GNASH_ERROR=$err
+      __gnash_ret=$err
+      if [[ -n ${__gnash_out:-} ]]; then
+        printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+      fi
+      return 70
+    fi
+    local __gnash_tmp35
+    __gnash_map_get __gnash_tmp35 "${err:-}" 'exitCode'
+    if (( __gnash_tmp35 == 1 )); then
+      __gnash_ret=""
+      if [[ -n ${__gnash_out:-} ]]; then
+        printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+      fi
+      return 0
+    fi
+    __GNASH_ERROR=$err
+    __gnash_ret=$err
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 70
+  fi
+}
+
+gnash_fn_escapeSingleQuotes() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local text="${2:-}"
+  local __gnash_tmp36
+  __gnash_str_replace __gnash_tmp36 "${text}" "'" "'\"'\"'"
+  __gnash_ret=$__gnash_tmp36
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_run() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local command="${2:-}"
+  local output
+  output=$(${command} 2>&1)
+  local exit_code
+  exit_code=$?
+  if (( exit_code != 0 )); then
+    local __gnash_tmp37
+    gnash_fn_commandError __gnash_tmp37 "${command}" "${exit_code}" "${output}"
+    __GNASH_ERROR=$__gnash_tmp37
+    __gnash_ret=$__gnash_tmp37
+    if [[ -n ${__gnash_out:-} ]]; then
+      printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+    fi
+    return 70
+  fi
+  __gnash_ret=$output
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_missingLookup() {
+  local err="${2:-}"
+  local __gnash_tmp38
+  __gnash_map_get __gnash_tmp38 "${err:-}" 'exitCode'
+  local __gnash_tmp39
+  __gnash_map_get __gnash_tmp39 "${err:-}" 'exitCode'
+  if (( __gnash_tmp38 == 1 || __gnash_tmp39 == 2 )); then
+    return 0
+  fi
+  return 1
+}
+
+gnash_fn_commandError() {
+  local __gnash_out="${1:-}"
+  local __gnash_ret=""
+  local command="${2:-}"
+  local exit_code="${3:-}"
+  local output="${4:-}"
+  local __gnash_tmp40
+  __gnash_map_new __gnash_tmp40 'kind' "CommandError" 'command' "${command}" 'exitCode' "${exit_code}" 'output' "${output}"
+  __gnash_ret=$__gnash_tmp40
+  if [[ -n ${__gnash_out:-} ]]; then
+    printf -v "${__gnash_out}" '%s' "${__gnash_ret}"
+  fi
+  return 0
+}
+
+gnash_fn_isCommandError() {
+  local err="${2:-}"
+  local __gnash_tmp41
+  __gnash_map_get __gnash_tmp41 "${err:-}" "kind"
+  if __gnash_is_map "${err}" && [[ "${__gnash_tmp41}" == "CommandError" ]]; then
+    return 0
+  fi
+  return 1
+}
+
+__gnash_die() {
+  trap - ERR
+  printf 'error: %s\n' "$*" >&2
+  exit 1
+}
+
+# Emits a terse trace when an unexpected command failure triggers ERR.
+__gnash_trap_err() {
+  local rc=$?
+  local line="${BASH_LINENO[0]:-?}"
+  local src="${BASH_SOURCE[1]:-${BASH_SOURCE[0]}}"
+  printf 'error: command failed (exit %s) at %s:%s\n' "$rc" "$src" "$line" >&2
+}
+
+trap '__gnash_trap_err' ERR
+
+# The value of the last throw, read back by the catch of a try. A command that
+# fails without throwing leaves it empty, and the catch gets its status instead.
+__GNASH_ERROR=""
+
+__gnash_bool_truthy() {
+  local value="${1:-}"
+  case "${value,,}" in
+    1|y|yes|true|on) return 0 ;;
+    0|n|no|false|off) return 1 ;;
+    *) [[ -n "$value" ]] && return 0 || return 1 ;;
+  esac
+}
+
+# Fills the array named first with the names of the shell variables other than
+# the runtime's own, or only the arrays when the second argument is arrayvar.
+# One compgen read lists them all; ${!prefix@} per letter rescans every variable
+# each time and is slower once the environment is large.
+__gnash_variable_names() {
+  local -n __gnash_names_ref="$1"
+  local -a __gnash_all=()
+  mapfile -t __gnash_all < <(compgen -A "${2:-variable}")
+  __gnash_names_ref=()
+  local __gnash_name
+  for __gnash_name in "${__gnash_all[@]}"; do
+    [[ "$__gnash_name" == __gnash_* || "$__gnash_name" == __GNASH_* ]] && continue
+    __gnash_names_ref+=("$__gnash_name")
+  done
+}
+
+# Config paths are answered from an index built once from the shell variables:
+# __GNASH_CONFIG_KIND maps a dotted path to scalar or list and
+# __GNASH_CONFIG_REF to the variable behind it, read through ${!ref}. A step
+# map entry steps.<step>.<key> refers to <step>[<key>]; the arrays and scalars
+# <step>_<field> index as steps.<step>.<field>, which is how dots in a field are
+# folded to underscores; every scalar is also a global under its own name. The
+# index is built on first use and again after an RC file is loaded.
+declare -gA __GNASH_CONFIG_KIND=()
+declare -gA __GNASH_CONFIG_REF=()
+__GNASH_CONFIG_INDEXED=0
+
+__gnash_config_index() {
+  __GNASH_CONFIG_KIND=()
+  __GNASH_CONFIG_REF=()
+  __GNASH_CONFIG_INDEXED=1
+  # ${var@a} trips nounset on variables declared without a value.
+  local -
+  set +u
+  local -a __gnash_names=()
+  __gnash_variable_names __gnash_names
+  local -a __gnash_maps=()
+  local __gnash_name __gnash_kind __gnash_step __gnash_rest __gnash_key
+  for __gnash_name in "${__gnash_names[@]}"; do
+    local -n __gnash_var="$__gnash_name"
+    case "${__gnash_var@a}" in
+      *A*)
+        __gnash_maps+=("$__gnash_name")
+        continue
+        ;;
+      *a*)
+        __gnash_kind=list
+        ;;
+      *)
+        __gnash_kind=scalar
+        __GNASH_CONFIG_KIND["$__gnash_name"]=scalar
+        __GNASH_CONFIG_REF["$__gnash_name"]="$__gnash_name"
+        ;;
+    esac
+    __gnash_step="${__gnash_name%%_*}"
+    __gnash_rest="${__gnash_name#*_}"
+    while [[ "$__gnash_step" != "$__gnash_name" ]]; do
+      if [[ -n "$__gnash_step" && -n "$__gnash_rest" ]]; then
+        __GNASH_CONFIG_KIND["steps.${__gnash_step}.${__gnash_rest}"]="$__gnash_kind"
+        __GNASH_CONFIG_REF["steps.${__gnash_step}.${__gnash_rest}"]="$__gnash_name"
+      fi
+      [[ "$__gnash_rest" == *_* ]] || break
+      __gnash_step+="_${__gnash_rest%%_*}"
+      __gnash_rest="${__gnash_rest#*_}"
+    done
+  done
+  # Map entries go last: they take precedence over <step>_<field> variables.
+  for __gnash_name in "${__gnash_maps[@]}"; do
+    local -n __gnash_map="$__gnash_name"
+    for __gnash_key in "${!__gnash_map[@]}"; do
+      __GNASH_CONFIG_KIND["steps.${__gnash_name}.${__gnash_key}"]=scalar
+      __GNASH_CONFIG_REF["steps.${__gnash_name}.${__gnash_key}"]="${__gnash_name}[${__gnash_key}]"
+    done
+  done
+}
+
+__gnash_config_resolve() {
+  local __gnash_dest="$1"
+  local path="${2:-}"
+  if [[ -z "$__gnash_dest" || -z "$path" ]]; then
+    return 1
+  fi
+  if (( !__GNASH_CONFIG_INDEXED )); then
+    __gnash_config_index
+  fi
+
+  local key="$path"
+  local field=""
+  case "$path" in
+    steps.*.?*)
+      field="${path#steps.*.}"
+      if [[ -z "${__GNASH_CONFIG_KIND[$key]+_}" ]]; then
+        key="${path%"$field"}${field//./_}"
+      fi
+      ;;
+    steps.*)
+      return 1
+      ;;
+    globals.*)
+      key="${path#globals.}"
+      key="${key//./_}"
+      ;;
+    *)
+      key="${path//./_}"
+      ;;
+  esac
+
+  local ref="${__GNASH_CONFIG_REF[$key]:-}"
+  if [[ "${__GNASH_CONFIG_KIND[$key]:-}" == list ]]; then
+    __gnash_list_from_array "$__gnash_dest" "$ref"
+    return 0
+  fi
+  if [[ -n "$ref" && -n "${!ref+_}" ]]; then
+    printf -v "$__gnash_dest" '%s' "${!ref}"
+    return 0
+  fi
+  if [[ "$field" == "enabled" ]]; then
+    printf -v "$__gnash_dest" '%s' "true"
+    return 0
+  fi
+  return 1
+}
+
+__gnash_config_get() {
+  local path="$1"
+  local default_value="${2:-}"
+  local have_default=0
+  if (( $# >= 2 )); then
+    have_default=1
+  fi
+  local __gnash_value=""
+  if __gnash_config_resolve "__gnash_value" "$path"; then
+    __gnash_export __gnash_value
+    printf '%s' "$__gnash_value"
+    return 0
+  fi
+  if (( have_default )); then
+    printf '%s' "$default_value"
+  fi
+  return 1
+}
+
+__gnash_config_list() {
+  local __gnash_out_var=""
+  local path=""
+  if (( $# == 2 )); then
+    __gnash_out_var="$1"
+    path="$2"
+  else
+    path="$1"
+  fi
+  local __gnash_token=""
+  local __gnash_value=""
+  if __gnash_config_resolve "__gnash_value" "$path"; then
+    if __gnash_is_list "$__gnash_value"; then
+      __gnash_token="$__gnash_value"
+    elif [[ -z "$__gnash_value" ]]; then
+      __gnash_list_empty __gnash_token
+    else
+      __gnash_list_from_value __gnash_token "$__gnash_value"
+    fi
+  else
+    __gnash_list_empty __gnash_token
+  fi
+  if [[ -n "$__gnash_out_var" ]]; then
+    printf -v "$__gnash_out_var" '%s' "$__gnash_token"
+  else
+    __gnash_export __gnash_token
+    printf '%s' "$__gnash_token"
+  fi
+}
+
+__gnash_config_is_true_or_default() {
+  local path="$1"
+  local default_value="${2:-false}"
+  local __gnash_value=""
+  if __gnash_config_resolve "__gnash_value" "$path"; then
+    if [[ -z "$__gnash_value" ]]; then
+      __gnash_bool_truthy "$default_value"
+      return
+    fi
+    __gnash_bool_truthy "$__gnash_value"
+    return
+  fi
+  __gnash_bool_truthy "$default_value"
+}
+
+# Lists live in global arrays named __gnash_list_<n>; a list value is the token
+# __gnash_list::<array>. A list built in a subshell dies with it, so one handed
+# back through $(...) travels as __gnash_list::=<items> instead, each item quoted
+# with printf %q by __gnash_export. Those values read like any other list and
+# are copied into an array of their own when they are first modified.
+__GNASH_LIST_PREFIX="__gnash_list::"
+__GNASH_LIST_COUNTER=0
+__GNASH_LIST_REF=""
+
+__gnash_list_alloc() {
+  local __gnash_alloc_name="__gnash_list_$((++__GNASH_LIST_COUNTER))"
+  declare -ga "$__gnash_alloc_name"
+  local -n __gnash_alloc_items="$__gnash_alloc_name"
+  __gnash_alloc_items=()
+  local __gnash_alloc_token="${__GNASH_LIST_PREFIX}${__gnash_alloc_name}"
+  if (( $# >= 1 )); then
+    printf -v "$1" '%s' "$__gnash_alloc_token"
+    return
+  fi
+  __gnash_export __gnash_alloc_token
+  printf '%s' "$__gnash_alloc_token"
+}
+
+__gnash_is_list() {
+  local token="${1:-}"
+  [[ "$token" == "$__GNASH_LIST_PREFIX"* ]]
+}
+
+__gnash_list_write() {
+  local token="$1"
+  shift
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$token" || [[ "$name" == "="* ]]; then
+    __gnash_die "not a writable list: ${token}"
+  fi
+  local -n write_ref="$name"
+  write_ref=("$@")
+}
+
+__gnash_list_read() {
+  local token="$1"
+  local -n out_ref="$2"
+  out_ref=()
+  if ! __gnash_is_list "$token"; then
+    return
+  fi
+  local name="${token#$__GNASH_LIST_PREFIX}"
+  if [[ "$name" == "="* ]]; then
+    # Only __gnash_export builds these, from printf %q output.
+    eval "out_ref=(${name#=})"
+    return
+  fi
+  local -n src_ref="$name"
+  out_ref=("${src_ref[@]}")
+}
+
+__gnash_list_from_array() {
+  local dest="$1"
+  local -n src_ref="$2"
+  local token=""
+  __gnash_list_alloc token
+  __gnash_list_write "$token" "${src_ref[@]}"
+  printf -v "$dest" '%s' "$token"
+}
+
+__gnash_list_from_value() {
+  local dest="$1"
+  local value="${2:-}"
+  local token=""
+  __gnash_list_alloc token
+  if __gnash_is_list "$value"; then
+    __gnash_list_read "$value" "${token#$__GNASH_LIST_PREFIX}"
+  elif [[ -z "$value" ]]; then
+    :
+  elif [[ "$value" == *$'\n'* ]]; then
+    local -a __gnash_tmp_split=()
+    IFS=$'\n' read -r -a __gnash_tmp_split <<<"$value"
+    __gnash_list_write "$token" "${__gnash_tmp_split[@]}"
+  else
+    __gnash_list_write "$token" "$value"
+  fi
+  printf -v "$dest" '%s' "$token"
+}
+
+# Points __GNASH_LIST_REF at the array holding the items of a value so that
+# loops can iterate it through a nameref instead of copying it. Values without
+# an array of their own are copied into a new list first.
+__gnash_list_ref() {
+  local value="${1:-}"
+  local name="${value#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$value" || [[ "$name" == "="* ]]; then
+    local __gnash_ref_token=""
+    __gnash_list_from_value __gnash_ref_token "$value"
+    name="${__gnash_ref_token#$__GNASH_LIST_PREFIX}"
+  fi
+  __GNASH_LIST_REF="$name"
+}
+
+__gnash_list_empty() {
+  __gnash_list_alloc "$@"
+}
+
+# Appends to the list held in the named variable. A value that is not a list of
+# this shell (a plain string, or a list returned from a subshell) is copied into
+# one first and the variable pointed at it.
+__gnash_list_push() {
+  local -n __gnash_push_ref="$1"
+  local __gnash_push_token="${__gnash_push_ref:-}"
+  local __gnash_push_name="${__gnash_push_token#$__GNASH_LIST_PREFIX}"
+  if ! __gnash_is_list "$__gnash_push_token" || [[ "$__gnash_push_name" == "="* ]]; then
+    __gnash_list_from_value __gnash_push_token "$__gnash_push_token"
+    __gnash_push_ref="$__gnash_push_token"
+    __gnash_push_name="${__gnash_push_token#$__GNASH_LIST_PREFIX}"
+  fi
+  local -n __gnash_push_items="$__gnash_push_name"
+  __gnash_push_items+=("${2:-}")
+}
+
+__gnash_list_contains() {
+  local token="${1:-}"
+  local needle="${2:-}"
+  if __gnash_is_list "$token"; then
+    local name="${token#$__GNASH_LIST_PREFIX}"
+    local -a __gnash_items=()
+    if [[ "$name" == "="* ]]; then
+      __gnash_list_read "$token" "__gnash_items"
+      name="__gnash_items"
+    fi
+    local -n contains_ref="$name"
+    local item
+    for item in "${contains_ref[@]}"; do
+      if [[ "$item" == "$needle" ]]; then
+        return 0
+      fi
+    done
+    return 1
+  fi
+  # Anything else is a string, searched like String.contains.
+  [[ "$token" == *"$needle"* ]] || return 1
+}
+
+# Builtin answers for the commands CommandRewrites recognises, called as
+# `__gnash_fast_<cmd> DEST ARGS || <the command itself>`. Each one stores what
+# the command would print, trailing newlines dropped as by $(...), in the
+# variable named first (none when empty) and succeeds, or returns 1 without
+# side effects when the command would fail or an argument is not a plain word.
+__gnash_fast_word() {
+  [[ -n "${1:-}" && "$1" != -* && "$1" != *[!A-Za-z0-9_./@%+,:=-]* ]]
+}
+
+__gnash_fast_store() {
+  local __gnash_text="$2"
+  while [[ "$__gnash_text" == *$'\n' ]]; do
+    __gnash_text="${__gnash_text%$'\n'}"
+  done
+  if [[ -n "$1" ]]; then
+    printf -v "$1" '%s' "$__gnash_text"
+  fi
+}
+
+# test -<op> <path>
+__gnash_fast_test() {
+  __gnash_fast_word "${3:-}" || return 1
+  case "$2" in
+    -e) [[ -e "$3" ]] ;;
+    -f) [[ -f "$3" ]] ;;
+    -d) [[ -d "$3" ]] ;;
+    -r) [[ -r "$3" ]] ;;
+    -w) [[ -w "$3" ]] ;;
+    -x) [[ -x "$3" ]] ;;
+    -s) [[ -s "$3" ]] ;;
+    *) false ;;
+  esac || return 1
+  __gnash_fast_store "$1" ""
+}
+
+# cat <file>. A NUL ends the read early where cat would go on, so files holding
+# one are left to cat.
+__gnash_fast_cat() {
+  __gnash_fast_word "${2:-}" && [[ -f "$2" && -r "$2" ]] || return 1
+  local __gnash_content=""
+  if IFS= read -r -d '' __gnash_content <"$2"; then
+    return 1
+  fi
+  __gnash_fast_store "$1" "$__gnash_content"
+}
+
+# printenv <name>: only exported scalars are in the environment.
+__gnash_fast_printenv() {
+  local __gnash_name="${2:-}"
+  [[ "$__gnash_name" =~ ^[A-Za-z_][A-Za-z0-9_]*$ && "$__gnash_name" != __gnash_* ]] || return 1
+  [[ -v "$__gnash_name" ]] || return 1
+  local __gnash_attrs="${!__gnash_name@a}"
+  [[ "$__gnash_attrs" == *x* && "$__gnash_attrs" != *[aA]* ]] || return 1
+  __gnash_fast_store "$1" "${!__gnash_name}"
+}
+
+# date +%s
+__gnash_fast_epoch() {
+  local __gnash_now
+  printf -v __gnash_now '%(%s)T' -1
+  __gnash_fast_store "$1" "$__gnash_now"
+}
+
+# id -nG <user> | tr ' ' '\n' | grep -qx <group>, with one fork instead of
+# three. An exact match is always a match of grep's pattern too.
+__gnash_fast_in_group() {
+  __gnash_fast_word "${2:-}" && __gnash_fast_word "${3:-}" || return 1
+  local __gnash_groups
+  __gnash_groups=$(id -nG "$2" 2>/dev/null) || return 1
+  [[ " ${__gnash_groups} " == *" $3 "* ]] || return 1
+  __gnash_fast_store "$1" ""
+}
+
+# String methods the generator cannot expand in place, called as
+# `__gnash_str_<method> DEST VALUE ARGS`. Each stores its result in the
+# variable named first, or prints it when that is empty.
+__gnash_str_result() {
+  if [[ -n "$1" ]]; then
+    printf -v "$1" '%s' "$2"
+  else
+    printf '%s' "$2"
+  fi
+}
+
+# trim(): drops leading and trailing whitespace.
+__gnash_str_trim() {
+  local __gnash_text="${2:-}"
+  __gnash_text="${__gnash_text#"${__gnash_text%%[![:space:]]*}"}"
+  __gnash_text="${__gnash_text%"${__gnash_text##*[![:space:]]}"}"
+  __gnash_str_result "$1" "$__gnash_text"
+}
+
+# replace(target, replacement): every occurrence, both taken literally.
+__gnash_str_replace() {
+  local __gnash_text="${2:-}"
+  if [[ -n "${3:-}" ]]; then
+    __gnash_text=${__gnash_text//"$3"/"${4:-}"}
+  fi
+  __gnash_str_result "$1" "$__gnash_text"
+}
+
+# Maps live in global associative arrays named __gnash_map_<n>; a map value is
+# the token __gnash_map::<array>. Like lists, a map printed from a subshell
+# travels as __gnash_map::=<key value ...>, quoted with printf %q.
+__GNASH_MAP_PREFIX="__gnash_map::"
+__GNASH_MAP_COUNTER=0
+
+__gnash_is_map() {
+  [[ "${1:-}" == "$__GNASH_MAP_PREFIX"* ]]
+}
+
+# Builds a map from the key/value pairs that follow into the variable named first.
+__gnash_map_new() {
+  if (( $# % 2 == 0 )); then
+    __gnash_die "__gnash_map_new requires a destination and key/value pairs"
+  fi
+  local __gnash_map_name="__gnash_map_$((++__GNASH_MAP_COUNTER))"
+  declare -gA "$__gnash_map_name"
+  local -n __gnash_map_entries="$__gnash_map_name"
+  __gnash_map_entries=()
+  printf -v "$1" '%s' "${__GNASH_MAP_PREFIX}${__gnash_map_name}"
+  shift
+  while (( $# > 0 )); do
+    __gnash_map_entries["$1"]="$2"
+    shift 2
+  done
+}
+
+# Stores the value under a key of a map (or an index of a list) in the variable
+# named first; missing entries and non-map values yield the empty string.
+__gnash_map_get() {
+  local __gnash_get_dest="$1"
+  local value="${2:-}"
+  local key="${3:-}"
+  local found=""
+  if __gnash_is_map "$value" && [[ -n "$key" ]]; then
+    local name="${value#$__GNASH_MAP_PREFIX}"
+    if [[ "$name" == "="* ]]; then
+      local -a pairs=()
+      eval "pairs=(${name#=})"
+      local i
+      for (( i = 0; i + 1 < ${#pairs[@]}; i += 2 )); do
+        if [[ "${pairs[i]}" == "$key" ]]; then
+          found="${pairs[i + 1]}"
+        fi
+      done
+    else
+      local -n entries_ref="$name"
+      found="${entries_ref[$key]-}"
+    fi
+  elif __gnash_is_list "$value" && [[ "$key" =~ ^[0-9]+$ ]]; then
+    __gnash_list_ref "$value"
+    local -n items_ref="$__GNASH_LIST_REF"
+    found="${items_ref[key]-}"
+  fi
+  printf -v "$__gnash_get_dest" '%s' "$found"
+}
+
+# Rewrites the list or map in the named variable into its self-contained form
+# when running in a subshell, so that printing it hands the contents to the
+# parent shell.
+__gnash_export() {
+  if (( BASH_SUBSHELL == 0 )); then
+    return 0
+  fi
+  local -n __gnash_export_ref="$1"
+  __gnash_export_value "$__gnash_export_ref"
+  __gnash_export_ref="$__GNASH_EXPORTED"
+}
+
+# Leaves the self-contained form of a value in __GNASH_EXPORTED, converting the
+# lists and maps nested in it as well.
+__gnash_export_value() {
+  local value="${1:-}"
+  local -a parts=()
+  local item
+  case "$value" in
+    "$__GNASH_LIST_PREFIX="* | "$__GNASH_MAP_PREFIX="*)
+      ;;
+    "$__GNASH_LIST_PREFIX"*)
+      local -n list_ref="${value#$__GNASH_LIST_PREFIX}"
+      for item in "${list_ref[@]}"; do
+        __gnash_export_value "$item"
+        parts+=("$__GNASH_EXPORTED")
+      done
+      value="${__GNASH_LIST_PREFIX}="
+      ;;
+    "$__GNASH_MAP_PREFIX"*)
+      local -n map_ref="${value#$__GNASH_MAP_PREFIX}"
+      for item in "${!map_ref[@]}"; do
+        __gnash_export_value "${map_ref[$item]}"
+        parts+=("$item" "$__GNASH_EXPORTED")
+      done
+      value="${__GNASH_MAP_PREFIX}="
+      ;;
+  esac
+  if (( ${#parts[@]} > 0 )); then
+    local encoded=""
+    printf -v encoded '%q ' "${parts[@]}"
+    value+="$encoded"
+  fi
+  __GNASH_EXPORTED="$value"
+}
+
+gnash_fn_main "" "$@"
@@ -0,0 +1,147 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Loads {@code --bake-config} files and folds {@code Config} calls against them. */
+class BakedConfigTest {
+
+    @TempDir
+    Path root;
+
+    private Path write(String name, String text) throws IOException {
+        Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private BakedConfig layered() throws IOException {
+        Path defaults = write("config/config.groovy", """
+                user {
+                  name = "defaults"
+                  shell = "bash"
+                }
+                steps {
+                  build {
+                    enabled = false
+                    target = "debug"
+                    flags = ["-O0", "-g"]
+                  }
+                }
+                """);
+        Path provision = write("config/provision.rc", """
+                # comments and declare prefixes are understood
+                export user_name='provisioned'
+                declare -A deploy=([enabled]=yes [region]="eu west")
+                """);
+        Path host = write("config/host.rc", """
+                build_flags=(-O2 "-march=native")
+                declare -A build=([enabled]=true [target]=release)
+                """);
+        return BakedConfig.load(List.of(defaults, provision, host));
+    }
+
+    @Test
+    void laterFilesOverrideEarlierOnes() throws Exception {
+        BakedConfig config = layered();
+        assertEquals("provisioned", config.resolve("user.name").scalar);
+        assertEquals("provisioned", config.resolve("globals.user.name").scalar);
+        assertEquals("bash", config.resolve("user.shell").scalar);
+        assertEquals("release", config.resolve("steps.build.target").scalar);
+        assertEquals("true", config.resolve("steps.build.enabled").scalar);
+        assertEquals(List.of("-O2", "-march=native"), config.resolve("steps.build.flags").list);
+        assertEquals("eu west", config.resolve("steps.deploy.region").scalar);
+        // A step that sets nothing is enabled, like at run time.
+        assertEquals("true", config.resolve("steps.test.enabled").scalar);
+        assertNull(config.resolve("steps.test.target"));
+        assertNull(config.resolve("user.home"));
+    }
+
+    @Test
+    void shellThatNeedsEvaluatingIsRejected() throws Exception {
+        Path rc = write("config/bad.rc", """
+                user_name=plain
+                user_home="$HOME/gnash"
+                """);
+        IOException e = assertThrows(IOException.class, () -> BakedConfig.load(List.of(rc)));
+        assertTrue(e.getMessage().contains("bad.rc:2"), e.getMessage());
+    }
+
+    @Test
+    void fingerprintFollowsTheFileContents() throws Exception {
+        Path rc = write("config/host.rc", "user_name=one\n");
+        String first = BakedConfig.load(List.of(rc)).fingerprint();
+        assertEquals(first, BakedConfig.load(List.of(rc)).fingerprint());
+        Files.writeString(rc, "user_name=two\n");
+        assertNotEquals(first, BakedConfig.load(List.of(rc)).fingerprint());
+    }
+
+    @Test
+    void configCallsFoldIntoLiterals() throws Exception {
+        BakedConfig config = layered();
+        Path source = write("steps/Baked.gnash", """
+                def main() {
+                  name = Config.get("user.name")
+                  target = Config.stepValue("build", "target")
+                  flags = Config.stepList("build", "flags")
+                  count = flags.size()
+                  println("${name} ${target} ${count}")
+                  build = Config.stepEnabled("build")
+                  tests = Config.stepEnabled("test")
+                  verbose = Config.isTrue("steps.build.verbose")
+                  println("build=${build} tests=${tests} verbose=${verbose}")
+                  if (Config.isTrue("steps.deploy.enabled")) {
+                    println("deploying")
+                  }
+                  return 0
+                }
+                """);
+        Path target = root.resolve("out/Baked.sh");
+        DiagnosticCollector diagnostics = new DiagnosticCollector();
+        GnashCompiler.compileFile(source, target, null, null, config, diagnostics);
+        assertTrue(diagnostics.isEmpty(), diagnostics.messages()::toString);
+
+        String bash = Files.readString(target);
+        assertFalse(bash.contains("__gnash_config_get"), bash);
+        assertFalse(bash.contains("__gnash_config_is_true"), bash);
+        assertTrue(bash.contains("'provisioned'"), bash);
+
+        // No config files are around at run time; every answer was baked in.
+        TestScripts.Run run = TestScripts.bash(target.toString());
+        assertEquals(0, run.status(), run::stderr);
+        assertEquals("""
+                provisioned release 2
+                build=true tests=true verbose=false
+                deploying
+                """, run.stdout());
+    }
+
+    @Test
+    void unansweredLookupsAreLeftToTheRuntime() throws Exception {
+        BakedConfig config = layered();
+        Path source = write("steps/Late.gnash", """
+                def main() {
+                  home = Config.get("user.home")
+                  println(home)
+                  return 0
+                }
+                """);
+        Path target = root.resolve("out/Late.sh");
+        GnashCompiler.compileFile(source, target, null, null, config, new DiagnosticCollector());
+        assertTrue(Files.readString(target).contains("__gnash_config_get"));
+    }
+}
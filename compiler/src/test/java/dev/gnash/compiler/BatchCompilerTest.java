@@ -0,0 +1,92 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Compiles whole source trees with {@code --batch}. */
+class BatchCompilerTest {
+
+    @TempDir
+    Path root;
+
+    private Path tree() throws IOException {
+        Path sources = root.resolve("gnash");
+        write(sources.resolve("lib/Greeting.gnash"), """
+                package lib
+
+                public def greet(name) {
+                  return "hello ${name}"
+                }
+                """);
+        write(sources.resolve("steps/Hello.gnash"), """
+                package steps
+
+                import lib.Greeting
+
+                def main() {
+                  greeting = Greeting.greet("batch")
+                  println(greeting)
+                  return 0
+                }
+                """);
+        write(sources.resolve("steps/Broken.gnash"), """
+                package steps
+
+                def main() {
+                  missing()
+                  return 0
+                }
+                """);
+        return sources;
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void compilesTheTreeIntoAMirroredOutputTree() throws Exception {
+        Path sources = tree();
+        Path out = root.resolve("out");
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        int failures = new BatchCompiler(4, null, null, null, new PrintStream(log, true, StandardCharsets.UTF_8))
+                .compileTree(sources, out);
+
+        assertEquals(1, failures);
+        String errors = log.toString(StandardCharsets.UTF_8);
+        assertTrue(errors.contains("Broken.gnash:4:2: unresolved symbol 'missing'"), errors);
+        assertFalse(Files.exists(out.resolve("steps/Broken.sh")));
+        assertTrue(Files.exists(out.resolve("lib/Greeting.sh")));
+
+        Path hello = out.resolve("steps/Hello.sh");
+        TestScripts.assertSyntax(hello);
+        TestScripts.Run run = TestScripts.bash(hello.toString());
+        assertEquals(0, run.status(), run::stderr);
+        assertEquals("hello batch\n", run.stdout());
+    }
+
+    @Test
+    void outputDoesNotDependOnTheNumberOfWorkers() throws Exception {
+        Path sources = tree();
+        PrintStream quiet = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        new BatchCompiler(1, null, null, null, quiet).compileTree(sources, root.resolve("serial"));
+        new BatchCompiler(4, null, null, null, quiet).compileTree(sources, root.resolve("parallel"));
+        for (String name : new String[] {"steps/Hello.sh", "lib/Greeting.sh"}) {
+            assertArrayEquals(Files.readAllBytes(root.resolve("serial").resolve(name)),
+                    Files.readAllBytes(root.resolve("parallel").resolve(name)), name);
+        }
+    }
+}
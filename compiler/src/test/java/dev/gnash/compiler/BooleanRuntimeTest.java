@@ -0,0 +1,107 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Runs compiled programs that store, pass and compare booleans. */
+class BooleanRuntimeTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void booleansKeepOneFormOnEveryPath() throws Exception {
+        String output = TestScripts.output(root, "Booleans", """
+                def label(n) {
+                  if (n > 0) {
+                    return "positive"
+                  }
+                  return false
+                }
+
+                private def check(flag) {
+                  if (flag) {
+                    return "on"
+                  }
+                  return "off"
+                }
+
+                def main() {
+                  yes = true
+                  no = false
+                  println("yes=${yes} no=${no}")
+                  x = label(0)
+                  println("x=${x}")
+                  if (x == false) {
+                    println("x is false")
+                  }
+                  y = label(2)
+                  println("y=${y}")
+                  a = check(no)
+                  b = check(yes)
+                  c = check("")
+                  println("${a} ${b} ${c}")
+                  return 0
+                }
+                """);
+        assertEquals("""
+                yes=true no=false
+                x=false
+                x is false
+                y=positive
+                off on off
+                """, output);
+    }
+
+    @Test
+    void callsReturningATestAreBooleans() throws Exception {
+        String output = TestScripts.output(root, "Tests", """
+                def eq(a, b) {
+                  return a == b
+                }
+
+                def isPos(n) {
+                  return n > 0
+                }
+
+                def isMap(v) {
+                  return v is Map
+                }
+
+                def main() {
+                  x = eq("a", "b")
+                  y = eq("a", "a")
+                  println("x=${x} y=${y}")
+                  if (x == false) {
+                    println("x is false")
+                  }
+                  if (isPos(3) == true) {
+                    println("3 is positive")
+                  }
+                  if (!isPos(-1)) {
+                    println("-1 is not positive")
+                  }
+                  m = {}
+                  z = isMap(m)
+                  w = isMap("m")
+                  println("z=${z} w=${w}")
+                  if (z is Boolean) {
+                    println("z is a boolean")
+                  }
+                  return 0
+                }
+                """);
+        assertEquals("""
+                x=false y=true
+                x is false
+                3 is positive
+                -1 is not positive
+                z=true w=false
+                z is a boolean
+                """, output);
+    }
+}
@@ -0,0 +1,160 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Compiles through the content-addressed cache the way the CLI does. */
+class BuildCacheTest {
+
+    @TempDir
+    Path root;
+
+    private boolean compile(BuildCache cache, Path source, Path target) throws IOException {
+        DiagnosticCollector diagnostics = new DiagnosticCollector();
+        boolean hit = GnashCompiler.compileFile(source, target, cache, null, null, diagnostics);
+        assertTrue(diagnostics.isEmpty(), () -> source + ": " + diagnostics.messages());
+        return hit;
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+    }
+
+    private static String greeting(String word) {
+        return """
+                package steps
+
+                def main() {
+                  println("%s")
+                  return 0
+                }
+                """.formatted(word);
+    }
+
+    @Test
+    void unchangedSourcesAreServedFromTheCache() throws Exception {
+        BuildCache cache = new BuildCache(root.resolve("cache"));
+        Path source = root.resolve("gnash/steps/Hello.gnash");
+        Path target = root.resolve("out/Hello.sh");
+        write(source, greeting("hello"));
+
+        assertFalse(compile(cache, source, target));
+        String first = Files.readString(target);
+        assertTrue(compile(cache, source, target));
+        assertEquals(first, Files.readString(target));
+
+        // A fresh cache over the same directory still hits.
+        assertTrue(compile(new BuildCache(root.resolve("cache")), source, root.resolve("out/Other.sh")));
+        assertEquals(first, Files.readString(root.resolve("out/Other.sh")));
+
+        write(source, greeting("changed"));
+        assertFalse(compile(cache, source, target));
+        assertEquals("changed\n", TestScripts.bash(target.toString()).stdout());
+    }
+
+    @Test
+    void hitsLeaveAnUpToDateTargetUntouched() throws Exception {
+        BuildCache cache = new BuildCache(root.resolve("cache"));
+        Path source = root.resolve("gnash/steps/Hello.gnash");
+        Path target = root.resolve("out/Hello.sh");
+        write(source, greeting("hello"));
+        compile(cache, source, target);
+        FileTime old = FileTime.fromMillis(1_000_000_000L);
+        Files.setLastModifiedTime(target, old);
+
+        assertTrue(compile(cache, source, target));
+        assertEquals(old, Files.getLastModifiedTime(target));
+    }
+
+    @Test
+    void equalSourcesUnderOtherNamesDoNotShareAnEntry() throws Exception {
+        BuildCache cache = new BuildCache(root.resolve("cache"));
+        Path first = root.resolve("gnash/steps/First.gnash");
+        Path second = root.resolve("gnash/steps/Second.gnash");
+        write(first, greeting("same"));
+        write(second, greeting("same"));
+
+        assertFalse(compile(cache, first, root.resolve("out/First.sh")));
+        assertFalse(compile(cache, second, root.resolve("out/Second.sh")));
+        assertNotEquals(Files.readString(root.resolve("out/First.sh")),
+                Files.readString(root.resolve("out/Second.sh")));
+    }
+
+    @Test
+    void editingAnImportedModuleInvalidatesItsImporters() throws Exception {
+        BuildCache cache = new BuildCache(root.resolve("cache"));
+        Path module = root.resolve("gnash/lib/Words.gnash");
+        Path source = root.resolve("gnash/steps/Hello.gnash");
+        Path target = root.resolve("out/Hello.sh");
+        write(module, """
+                package lib
+
+                public def word() {
+                  return "before"
+                }
+                """);
+        write(source, """
+                package steps
+
+                import lib.Words
+
+                def main() {
+                  w = Words.word()
+                  println(w)
+                  return 0
+                }
+                """);
+
+        assertFalse(compile(cache, source, target));
+        assertTrue(compile(cache, source, target));
+
+        write(module, """
+                package lib
+
+                public def word() {
+                  return "after"
+                }
+                """);
+        assertFalse(compile(cache, source, target));
+        TestScripts.Run run = TestScripts.bash(target.toString());
+        assertEquals(0, run.status(), run::stderr);
+        assertEquals("after\n", run.stdout());
+    }
+
+    @Test
+    void unitsWithSyntaxErrorsAreNeverStored() throws Exception {
+        Path directory = root.resolve("cache");
+        BuildCache cache = new BuildCache(directory);
+        Path source = root.resolve("gnash/steps/Broken.gnash");
+        Path target = root.resolve("out/Broken.sh");
+        write(source, """
+                def main() {
+                  println("unterminated"
+                }
+                """);
+
+        for (int run = 0; run < 2; run++) {
+            DiagnosticCollector diagnostics = new DiagnosticCollector();
+            assertFalse(GnashCompiler.compileFile(source, target, cache, null, null, diagnostics));
+            assertFalse(diagnostics.isEmpty());
+        }
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> entries = Files.walk(directory)) {
+                assertTrue(entries.noneMatch(Files::isRegularFile));
+            }
+        }
+    }
+}
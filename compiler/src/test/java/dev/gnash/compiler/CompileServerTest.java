@@ -0,0 +1,98 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/** Drives {@code --serve} over its socket the way the shell client does. */
+class CompileServerTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void compilesRequestsUntilShutdown() throws Exception {
+        Path socket = root.resolve("gnash.sock");
+        Thread server = new Thread(() -> {
+            try {
+                new CompileServer(socket, null, null, null).serve();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        server.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!Files.exists(socket)) {
+            if (System.nanoTime() > deadline) {
+                fail("server did not bind " + socket);
+            }
+            Thread.sleep(20);
+        }
+
+        Path good = root.resolve("steps/Good.gnash");
+        Path bad = root.resolve("steps/Bad.gnash");
+        Files.createDirectories(good.getParent());
+        Files.writeString(good, """
+                def main() {
+                  println("served")
+                  return 0
+                }
+                """);
+        Files.writeString(bad, """
+                def main() {
+                  missing()
+                }
+                """);
+        Path goodOut = root.resolve("out/Good.sh");
+        Path badOut = root.resolve("out/Bad.sh");
+        Files.createDirectories(goodOut.getParent());
+
+        try (SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            client.connect(UnixDomainSocketAddress.of(socket));
+            BufferedReader in = new BufferedReader(Channels.newReader(client, StandardCharsets.UTF_8));
+            Writer out = Channels.newWriter(client, StandardCharsets.UTF_8);
+
+            out.write(good + "\t" + goodOut + "\n");
+            out.flush();
+            assertEquals("ok\t" + goodOut, in.readLine());
+
+            out.write("steps/Good.gnash\tGood.sh\n");
+            out.flush();
+            assertEquals("fail\tpaths must be absolute", in.readLine());
+
+            out.write(bad + "\t" + badOut + "\n");
+            out.flush();
+            String failure = in.readLine();
+            assertTrue(failure.startsWith("fail\t" + bad + ": LinkException: "), failure);
+            assertTrue(failure.contains("unresolved symbol 'missing'"), failure);
+            assertFalse(Files.exists(badOut));
+
+            out.write("!shutdown\n");
+            out.flush();
+            assertEquals("ok\tshutdown", in.readLine());
+        }
+        server.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(server.isAlive());
+        assertFalse(Files.exists(socket));
+
+        TestScripts.Run run = TestScripts.bash(goodOut.toString());
+        assertEquals(0, run.status(), run::stderr);
+        assertEquals("served\n", run.stdout());
+    }
+}
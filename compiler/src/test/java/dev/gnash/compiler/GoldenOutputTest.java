@@ -0,0 +1,65 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Compiles every source under {@code src/gnash} and compares the Bash with the
+ * copy kept under {@code compiler/src/test/golden}, mirrored the way
+ * {@code --batch} lays out its output. Each script must also pass
+ * {@code bash -n}.
+ * <p>
+ * After an intended change to the generated code, run the tests with
+ * {@code -Dgnash.updateGolden=true} to rewrite the golden files, review the
+ * diff and bump {@link GnashToBashGenerator#VERSION}.
+ */
+class GoldenOutputTest {
+
+    private static final Path SOURCES = Path.of("src/gnash");
+    private static final Path GOLDEN = Path.of("compiler/src/test/golden");
+    private static final boolean UPDATE = Boolean.getBoolean("gnash.updateGolden");
+
+    @TempDir
+    Path scratch;
+
+    @TestFactory
+    Stream<DynamicTest> generatedBashMatchesGoldenFiles() throws IOException {
+        List<Path> sources;
+        try (Stream<Path> walk = Files.walk(SOURCES)) {
+            sources = walk.filter(path -> path.toString().endsWith(".gnash")).sorted().toList();
+        }
+        assertFalse(sources.isEmpty(), "no sources under " + SOURCES.toAbsolutePath());
+        return sources.stream().map(source -> DynamicTest.dynamicTest(
+                SOURCES.relativize(source).toString(), () -> check(source)));
+    }
+
+    private void check(Path source) throws IOException, InterruptedException {
+        String relative = SOURCES.relativize(source).toString().replaceFirst("\\.gnash$", ".sh");
+        String bash = TestScripts.compile(source);
+
+        Path script = scratch.resolve(relative);
+        Files.createDirectories(script.getParent());
+        Files.writeString(script, bash, StandardCharsets.UTF_8);
+        TestScripts.assertSyntax(script);
+
+        Path golden = GOLDEN.resolve(relative);
+        if (UPDATE) {
+            Files.createDirectories(golden.getParent());
+            Files.writeString(golden, bash, StandardCharsets.UTF_8);
+            return;
+        }
+        assertEquals(Files.readString(golden, StandardCharsets.UTF_8), bash,
+                () -> golden + " is out of date; rerun with -Dgnash.updateGolden=true");
+    }
+}
@@ -0,0 +1,121 @@
+package dev.gnash.compiler;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Resolves calls across modules and reports what does not link. */
+class LinkerTest {
+
+    @TempDir
+    Path root;
+
+    private Path write(String name, String text) throws IOException {
+        Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private void modules() throws IOException {
+        write("lib/Greeting.gnash", """
+                package lib
+
+                public def greet(name) {
+                  return "hello ${name}"
+                }
+
+                private def secret() {
+                  return "hidden"
+                }
+                """);
+        write("lib/Farewell.gnash", """
+                package lib
+
+                public def greet(name) {
+                  return "bye ${name}"
+                }
+                """);
+    }
+
+    private List<String> problems(Path source) {
+        LinkException e = assertThrows(LinkException.class, () -> GnashCompiler.compile(
+                CharStreams.fromPath(source, StandardCharsets.UTF_8), source, new DiagnosticCollector()));
+        return e.problems();
+    }
+
+    @Test
+    void importedFunctionsAreLinkedIntoTheScript() throws Exception {
+        modules();
+        Path source = write("steps/Hello.gnash", """
+                package steps
+
+                import lib.Greeting
+
+                def main() {
+                  a = greet("bare")
+                  b = Greeting.greet("qualified")
+                  println("${a}, ${b}")
+                  return 0
+                }
+                """);
+        String bash = TestScripts.compile(source);
+        assertTrue(bash.contains("gnash_fn_lib_Greeting_greet"), bash);
+        Path script = root.resolve("steps/Hello.sh");
+        Files.writeString(script, bash, StandardCharsets.UTF_8);
+        TestScripts.Run run = TestScripts.bash(script.toString());
+        assertEquals(0, run.status(), run::stderr);
+        assertEquals("hello bare, hello qualified\n", run.stdout());
+    }
+
+    @Test
+    void unresolvedCallsPointAtTheCalledName() throws Exception {
+        Path source = write("steps/Broken.gnash", """
+                package steps
+
+                def main() {
+                  missing()
+                  return 0
+                }
+                """);
+        assertEquals(List.of("Broken.gnash:4:2: unresolved symbol 'missing'"), problems(source));
+    }
+
+    @Test
+    void everyProblemInTheUnitIsReportedTogether() throws Exception {
+        modules();
+        Path source = write("steps/Broken.gnash", """
+                package steps
+
+                import lib.Greeting
+                import lib.Farewell
+                import lib.Absent
+
+                def main() {
+                  a = greet("who")
+                  b = Greeting.wave("who")
+                  c = Greeting.secret()
+                  return 0
+                }
+                """);
+        List<String> problems = problems(source);
+        assertEquals(4, problems.size(), problems::toString);
+        assertTrue(problems.get(0).startsWith("Broken.gnash: cannot find module 'lib.Absent' (looked for "),
+                problems.get(0));
+        assertEquals("Broken.gnash:8:6: ambiguous symbol 'greet': defined in lib.Greeting and lib.Farewell",
+                problems.get(1));
+        assertEquals("Broken.gnash:9:6: unresolved symbol 'Greeting.wave': lib.Greeting has no function 'wave'",
+                problems.get(2));
+        assertEquals("Broken.gnash:10:6: 'Greeting.secret' is private to lib.Greeting", problems.get(3));
+    }
+}
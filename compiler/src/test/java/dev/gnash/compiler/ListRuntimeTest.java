@@ -0,0 +1,91 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Runs compiled programs against the array-backed list runtime. */
+class ListRuntimeTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void listsGrowAndCrossFunctionReturns() throws Exception {
+        String output = TestScripts.output(root, "Lists", """
+                private def collect(prefix) {
+                  items = []
+                  if (!prefix) {
+                    return items
+                  }
+                  items.add("${prefix}-one")
+                  items.add("${prefix} two")
+                  return items
+                }
+
+                def main() {
+                  names = collect("x")
+                  for (name in names) {
+                    println("name=${name}")
+                  }
+                  for (item in collect("")) {
+                    println("never ${item}")
+                  }
+                  count = names.size()
+                  println("size=${count}")
+                  if (names.contains("x two")) {
+                    println("contains x two")
+                  }
+                  if (!names.contains("x")) {
+                    println("no bare x")
+                  }
+                  if (names is List) {
+                    println("names is a list")
+                  }
+                  if (names is Map) {
+                    println("names is a map")
+                  }
+                  for (n in [1, 2]) {
+                    println("n=${n}")
+                  }
+                  return 0
+                }
+                """);
+        assertEquals("""
+                name=x-one
+                name=x two
+                size=2
+                contains x two
+                no bare x
+                names is a list
+                n=1
+                n=2
+                """, output);
+    }
+
+    @Test
+    void listsBuiltInSubshellsSurviveTheTrip() throws Exception {
+        String output = TestScripts.output(root, "Crossing", """
+                private def words() {
+                  items = ["a b", "c"]
+                  items.add("it's")
+                  return items
+                }
+
+                def main() {
+                  for (word in words()) {
+                    println("[${word}]")
+                  }
+                  return 0
+                }
+                """);
+        assertEquals("""
+                [a b]
+                [c]
+                [it's]
+                """, output);
+    }
+}
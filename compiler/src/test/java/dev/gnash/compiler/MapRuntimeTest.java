@@ -0,0 +1,118 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/** Runs compiled programs against the associative-array map runtime. */
+class MapRuntimeTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void mapsAnswerGetAndContainsKey() throws Exception {
+        String output = TestScripts.output(root, "Maps", """
+                def main() {
+                  settings = {
+                    title: "Demo map",
+                    tags: ["a", "b"],
+                    extras: { note: "nested", },
+                    "display.name": "Dotted key",
+                  }
+                  title = settings.get("title")
+                  println("title=${title}")
+                  extras = settings.get("extras")
+                  note = extras.get("note")
+                  println("note=${note}")
+                  key = "display.name"
+                  if (settings.containsKey(key)) {
+                    display = settings.get(key)
+                    println("display=${display}")
+                  }
+                  if (!settings.containsKey("missing")) {
+                    println("no missing key")
+                  }
+                  for (tag in settings.get("tags")) {
+                    println("tag=${tag}")
+                  }
+                  if (settings is Map) {
+                    println("settings is a map")
+                  }
+                  return 0
+                }
+                """);
+        assertEquals("""
+                title=Demo map
+                note=nested
+                display=Dotted key
+                no missing key
+                tag=a
+                tag=b
+                settings is a map
+                """, output);
+    }
+
+    @Test
+    void readsInCompoundTestsDoNotFork() throws Exception {
+        Path source = root.resolve("steps/Compound.gnash");
+        TestScripts.Run run = TestScripts.compileAndRun(source, """
+                def missing(err) {
+                  return err.exitCode == 1 || err.exitCode == 2
+                }
+
+                def isCommandError(err) {
+                  return err is Map && err.get("kind") == "CommandError"
+                }
+
+                def describe(err) {
+                  if (err.exitCode == 0) {
+                    return "ok"
+                  } else if (err.get("kind") == "CommandError") {
+                    return "command"
+                  }
+                  return "other"
+                }
+
+                def main() {
+                  miss = { kind: "CommandError", exitCode: 2, }
+                  other = { kind: "Other", exitCode: 3, }
+                  if (missing(miss)) {
+                    println("miss is missing")
+                  }
+                  if (!missing(other)) {
+                    println("other is not missing")
+                  }
+                  if (isCommandError(miss)) {
+                    println("miss is a command error")
+                  }
+                  if (!isCommandError(other)) {
+                    println("other is not a command error")
+                  }
+                  if (!isCommandError("plain")) {
+                    println("plain is not a command error")
+                  }
+                  first = describe(miss)
+                  second = describe(other)
+                  println("${first} ${second}")
+                  return 0
+                }
+                """);
+        assertEquals(0, run.status(), run::stderr);
+        assertEquals("""
+                miss is missing
+                other is not missing
+                miss is a command error
+                other is not a command error
+                plain is not a command error
+                command other
+                """, run.stdout());
+        String bash = Files.readString(root.resolve("steps/Compound.sh"));
+        assertFalse(bash.contains("$(__gnash_map_get"), bash);
+    }
+}
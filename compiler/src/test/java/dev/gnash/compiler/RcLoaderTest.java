@@ -0,0 +1,63 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Runs {@code __gnash_load_rc} from the shared runtime against a small RC file. */
+class RcLoaderTest {
+
+    @TempDir
+    Path root;
+
+    private TestScripts.Run load(String environment) throws Exception {
+        Path rc = root.resolve("host.rc");
+        Files.writeString(rc, """
+                region="eu-west"
+                declare -A web=([port]=8080 [enabled]=true)
+                web_hosts=(a b)
+                """);
+        Path script = root.resolve("load.sh");
+        Files.writeString(script, "set -euo pipefail\n"
+                + GnashToBashGenerator.RUNTIME_BODY
+                + "\n" + environment + "\n"
+                + "GNASH_RC='" + rc + "'\n"
+                + """
+                __gnash_load_rc
+                printf 'region=%s\\n' "${region:-}"
+                if declare -p web >/dev/null 2>&1; then
+                  printf 'port=%s\\n' "${web[port]}"
+                else
+                  printf 'port=\\n'
+                fi
+                printf 'config=%s\\n' "$(__gnash_config_get steps.web.port)"
+                """);
+        return TestScripts.bash(script.toString());
+    }
+
+    @Test
+    void mapsDeclaredInTheRcFileStayGlobal() throws Exception {
+        TestScripts.Run run = load("");
+        assertEquals(0, run.status(), run::stderr);
+        assertEquals("""
+                region=eu-west
+                port=8080
+                config=8080
+                """, run.stdout());
+    }
+
+    @Test
+    void noRcSkipsLoading() throws Exception {
+        TestScripts.Run run = load("GNASH_NO_RC=1");
+        assertEquals(0, run.status(), run::stderr);
+        assertEquals("""
+                region=
+                port=
+                config=
+                """, run.stdout());
+    }
+}
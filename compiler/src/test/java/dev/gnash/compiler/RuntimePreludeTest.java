@@ -0,0 +1,71 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Checks which runtime helpers a compiled script carries. */
+class RuntimePreludeTest {
+
+    @TempDir
+    Path root;
+
+    private String compile(String name, String text) throws Exception {
+        Path source = root.resolve("steps").resolve(name + ".gnash");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, text);
+        return TestScripts.compile(source);
+    }
+
+    @Test
+    void configLookupsDoNotPullInTheRcLoader() throws Exception {
+        String bash = compile("ConfigOnly", """
+                def main() {
+                  name = Config.get("user.name")
+                  println("name=${name}")
+                }
+                """);
+        assertTrue(bash.contains("__gnash_config_get() {"), bash);
+        assertFalse(bash.contains("__gnash_load_rc"), bash);
+        assertFalse(bash.contains("__gnash_promote_assoc_locals"), bash);
+    }
+
+    @Test
+    void scriptsWithoutCollectionsCarryNoCollectionHelpers() throws Exception {
+        String bash = compile("Plain", """
+                def main() {
+                  println("hello")
+                }
+                """);
+        assertFalse(bash.contains("__gnash_list_"), bash);
+        assertFalse(bash.contains("__gnash_map_"), bash);
+        assertTrue(bash.contains("trap '__gnash_trap_err' ERR"), bash);
+    }
+
+    @Test
+    void keepingEveryHelperReproducesTheRuntime() throws Exception {
+        Set<String> everything = new HashSet<>();
+        Matcher symbols = Pattern.compile("__(?:gnash|GNASH)_[A-Za-z0-9_]*").matcher(GnashToBashGenerator.RUNTIME_BODY);
+        while (symbols.find()) {
+            everything.add(symbols.group());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BashEmitter script = new BashEmitter(Channels.newChannel(bytes));
+        new RuntimePrelude(GnashToBashGenerator.RUNTIME_BODY).emit(script, everything);
+        script.flush();
+        assertEquals(GnashToBashGenerator.RUNTIME_BODY, bytes.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,108 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Runs compiled steps with {@code --run-steps}. */
+class StepOrchestratorTest {
+
+    @TempDir
+    Path root;
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+    /**
+     * Adds step {@code name} with {@code header} as the comment block of its
+     * source. The compiled script appends its name to {@code order} and exits
+     * with {@code status}.
+     */
+    private void step(String name, String header, int status) throws IOException {
+        Path source = root.resolve("gnash/steps").resolve(name + ".gnash");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, "package steps\n\n" + header + "\ndef main() {\n  return 0\n}\n", StandardCharsets.UTF_8);
+        Path script = root.resolve("out/steps").resolve(name + ".sh");
+        Files.createDirectories(script.getParent());
+        Files.writeString(script, "echo " + name + " >> '" + root.resolve("order") + "'\n"
+                + "echo 'output of " + name + "'\n"
+                + "exit " + status + "\n", StandardCharsets.UTF_8);
+    }
+
+    private int run(Path manifest) throws IOException {
+        PrintStream out = new PrintStream(log, true, StandardCharsets.UTF_8);
+        return new StepOrchestrator(4, out).runSteps(root.resolve("gnash"), root.resolve("out"), manifest);
+    }
+
+    private List<String> order() throws IOException {
+        return Files.readAllLines(root.resolve("order"));
+    }
+
+    @Test
+    void stepsRunAfterTheirDependencies() throws Exception {
+        step("Packages", "", 0);
+        step("Users", "// Depends on: Packages", StepOrchestrator.CHANGED);
+        step("Services", "// Provisions services.\n// Depends on: Users, Packages", 0);
+        step("Firewall", "", 0);
+        Path manifest = root.resolve("steps.manifest");
+        Files.writeString(manifest, """
+                # ordering kept outside the sources
+                [Firewall]
+                Depends on: Services
+                """);
+
+        assertEquals(StepOrchestrator.CHANGED, run(manifest));
+        assertEquals(List.of("Packages", "Users", "Services", "Firewall"), order());
+        String output = log.toString(StandardCharsets.UTF_8);
+        assertTrue(output.contains("output of Users\nUsers: changed in "), output);
+        assertTrue(output.contains("output of Firewall\nFirewall: unchanged in "), output);
+        assertTrue(output.endsWith(": 1 changed, 3 unchanged, 0 failed, 0 skipped\n"), output);
+    }
+
+    @Test
+    void failedStepsSkipWhatDependsOnThem() throws Exception {
+        step("Packages", "", 3);
+        step("Users", "// Depends on: Packages", 0);
+        step("Services", "// Depends on: Users", 0);
+        step("Firewall", "", 0);
+
+        assertEquals(1, run(null));
+        assertEquals(List.of("Firewall", "Packages"), order().stream().sorted().toList());
+        String output = log.toString(StandardCharsets.UTF_8);
+        assertTrue(output.contains("Packages: failed (exit 3) in "), output);
+        assertTrue(output.contains("Users: skipped (after Packages)\n"), output);
+        assertTrue(output.contains("Services: skipped (after Packages)\n"), output);
+        assertTrue(output.endsWith(": 0 changed, 1 unchanged, 1 failed, 2 skipped\n"), output);
+    }
+
+    @Test
+    void unknownDependenciesAndCyclesAreRejected() throws Exception {
+        step("Users", "// Depends on: Groups", 0);
+        IOException unknown = assertThrows(IOException.class, () -> run(null));
+        assertEquals("Users depends on unknown step Groups", unknown.getMessage());
+
+        step("Groups", "// Depends on: Users", 0);
+        IOException cycle = assertThrows(IOException.class, () -> run(null));
+        assertEquals("steps depend on each other: Groups, Users", cycle.getMessage());
+        assertTrue(Files.notExists(root.resolve("order")));
+    }
+
+    @Test
+    void manifestsNameOnlyCompiledSteps() throws Exception {
+        step("Users", "", 0);
+        Path manifest = root.resolve("steps.manifest");
+        Files.writeString(manifest, "[Groups]\nRUN_AS_ROOT\n");
+        IOException e = assertThrows(IOException.class, () -> run(manifest));
+        assertEquals(manifest + ":1: no compiled step Groups", e.getMessage());
+    }
+}
@@ -0,0 +1,60 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Runs {@code for} loops that stream the output of a command. */
+class StreamingLoopTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void loopsLeftEarlyCloseTheirCommand() throws Exception {
+        Path source = root.resolve("steps/Early.gnash");
+        TestScripts.Run run = TestScripts.compileAndRun(source, """
+                def first() {
+                  for (line in $"seq 1 100000") {
+                    return line
+                  }
+                  return "none"
+                }
+
+                def main() {
+                  for (line in $"seq 1 100000") {
+                    if (line == "3") {
+                      break
+                    }
+                    println("line=${line}")
+                  }
+                  count = 0
+                  for (n in $"seq 1 100") {
+                    f = first()
+                    count = count + 1
+                  }
+                  println("first=${f} count=${count}")
+                  return 0
+                }
+                """);
+        assertEquals(0, run.status(), run::stderr);
+        assertEquals("", run.stderr());
+        assertEquals("""
+                line=1
+                line=2
+                first=1 count=100
+                """, run.stdout());
+
+        // Each call would keep a descriptor open if the return skipped closing it.
+        Path script = root.resolve("steps/Early.sh");
+        TestScripts.Run limited = TestScripts.bash("-c", "ulimit -n 48 && exec bash \"$0\"", script.toString());
+        assertEquals(0, limited.status(), limited::stderr);
+        assertEquals(run.stdout(), limited.stdout());
+        assertTrue(Files.readString(script).contains("<(trap - ERR; seq 1 100000)"));
+    }
+}
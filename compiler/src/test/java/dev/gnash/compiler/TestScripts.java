@@ -0,0 +1,85 @@
+package dev.gnash.compiler;
+
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/** Compiles Gnash sources the way the CLI does and runs the result under Bash. */
+final class TestScripts {
+
+    /** Outcome of running a script: its exit status and what it printed. */
+    record Run(int status, String stdout, String stderr) {
+    }
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private TestScripts() {
+    }
+
+    /** Generates Bash for {@code source}, failing the test on any syntax error. */
+    static String compile(Path source) throws IOException {
+        DiagnosticCollector diagnostics = new DiagnosticCollector();
+        String bash = GnashCompiler.compile(CharStreams.fromPath(source, StandardCharsets.UTF_8), source, diagnostics);
+        assertTrue(diagnostics.isEmpty(), () -> source + ": " + diagnostics.messages());
+        return bash;
+    }
+
+    /** Writes {@code text} to {@code source}, compiles it and runs the script next to it. */
+    static Run compileAndRun(Path source, String text) throws IOException, InterruptedException {
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, text, StandardCharsets.UTF_8);
+        Path script = source.resolveSibling(source.getFileName().toString().replace(".gnash", ".sh"));
+        Files.writeString(script, compile(source), StandardCharsets.UTF_8);
+        return bash(script.toString());
+    }
+
+    /**
+     * Compiles {@code text} as step {@code name} below {@code root}, runs it and
+     * returns what it printed, failing the test unless it exits with 0.
+     */
+    static String output(Path root, String name, String text) throws IOException, InterruptedException {
+        Run run = compileAndRun(root.resolve("steps").resolve(name + ".gnash"), text);
+        assertEquals(0, run.status(), run::stderr);
+        return run.stdout();
+    }
+
+    /** Asserts that {@code bash -n} accepts {@code script}. */
+    static void assertSyntax(Path script) throws IOException, InterruptedException {
+        Run run = bash("-n", script.toString());
+        assertEquals(0, run.status(), () -> script + ": " + run.stderr());
+    }
+
+    /** Runs {@code bash} with {@code arguments}, stdin closed. */
+    static Run bash(String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("bash");
+        command.addAll(List.of(arguments));
+        Path stdout = Files.createTempFile("gnash-test", ".out");
+        Path stderr = Files.createTempFile("gnash-test", ".err");
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectInput(ProcessBuilder.Redirect.from(Path.of("/dev/null").toFile()))
+                    .redirectOutput(stdout.toFile())
+                    .redirectError(stderr.toFile())
+                    .start();
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                fail("timed out: " + command);
+            }
+            return new Run(process.exitValue(), Files.readString(stdout), Files.readString(stderr));
+        } finally {
+            Files.deleteIfExists(stdout);
+            Files.deleteIfExists(stderr);
+        }
+    }
+}
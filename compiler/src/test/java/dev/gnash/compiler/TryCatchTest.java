@@ -0,0 +1,300 @@
+package dev.gnash.compiler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Runs compiled programs through try, catch and finally. */
+class TryCatchTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void tryCatchFinallyUnwindsThrows() throws Exception {
+        String output = TestScripts.output(root, "Throws", """
+                def fail(code) {
+                  throw {
+                    kind: "Fail",
+                    code: code,
+                  }
+                }
+
+                def firstGood(items) {
+                  for (item in items) {
+                    try {
+                      if (item == "bad") {
+                        fail(item)
+                      }
+                      return item
+                    } catch (err) {
+                      kindValue = err.get("kind")
+                      println("skip ${item}: ${kindValue}")
+                      continue
+                    }
+                  }
+                  return "none"
+                }
+
+                def nested() {
+                  try {
+                    try {
+                      fail(7)
+                      println("unreached inner")
+                    } catch (err) {
+                      println("inner caught")
+                      throw err
+                    } finally {
+                      println("inner finally")
+                    }
+                    println("unreached outer")
+                  } catch (err) {
+                    codeValue = err.get("code")
+                    println("outer caught code=${codeValue}")
+                  }
+                }
+
+                def rethrows() {
+                  try {
+                    fail(9)
+                  } catch (err) {
+                    println("rethrowing")
+                    throw err
+                  }
+                }
+
+                def main() {
+                  try {
+                    fail(3)
+                    println("unreached")
+                  } catch (err) {
+                    codeValue = err.get("code")
+                    println("caught code=${codeValue}")
+                  } finally {
+                    println("finally")
+                  }
+                  first = firstGood(["bad", "bad", "ok", "later"])
+                  println("first=${first}")
+                  nested()
+                  try {
+                    rethrows()
+                  } catch (err) {
+                    codeValue = err.get("code")
+                    println("outer got code=${codeValue}")
+                  }
+                  for (line in $"printf 'a\\nb\\n'") {
+                    try {
+                      if (line == "a") {
+                        throw "first"
+                      }
+                      println("line ${line}")
+                    } catch (err) {
+                      println("caught ${err} on ${line}")
+                    }
+                  }
+                  println("done")
+                }
+                """);
+        assertEquals("""
+                caught code=3
+                finally
+                skip bad: Fail
+                skip bad: Fail
+                first=ok
+                inner caught
+                inner finally
+                outer caught code=7
+                rethrowing
+                outer got code=9
+                caught first on a
+                line b
+                done
+                """, output);
+    }
+
+    @Test
+    void throwsPassThroughConditionsAndCallees() throws Exception {
+        String output = TestScripts.output(root, "Conditions", """
+                def lookup(key) {
+                  if (key == "") {
+                    throw "lookup failed"
+                  }
+                  return true
+                }
+
+                def check(key) {
+                  if (lookup(key)) {
+                    return "found"
+                  }
+                  return "missing"
+                }
+
+                def main() {
+                  try {
+                    if (lookup("")) {
+                      println("unreached")
+                    }
+                  } catch (err) {
+                    println("caught from condition: ${err}")
+                  }
+                  try {
+                    result = check("")
+                    println("unreached ${result}")
+                  } catch (err) {
+                    println("caught from callee: ${err}")
+                  }
+                  found = check("k")
+                  println("check=${found}")
+                }
+                """);
+        assertEquals("""
+                caught from condition: lookup failed
+                caught from callee: lookup failed
+                check=found
+                """, output);
+    }
+
+    @Test
+    void uncaughtThrowExitsWithThrowStatus() throws Exception {
+        TestScripts.Run run = TestScripts.compileAndRun(root.resolve("steps/Uncaught.gnash"), """
+                def fail() {
+                  throw "boom"
+                }
+
+                def main() {
+                  println("before")
+                  fail()
+                  println("unreached")
+                }
+                """);
+        assertEquals("before\n", run.stdout());
+        assertEquals(70, run.status(), run::stderr);
+    }
+
+    @Test
+    void jumpsOutOfTryRunFinally() throws Exception {
+        String output = TestScripts.output(root, "Jumps", """
+                def early(flag) {
+                  try {
+                    if (flag) {
+                      return "from body"
+                    }
+                    println("body done")
+                  } catch (err) {
+                    println("unreached")
+                  } finally {
+                    println("finally early ${flag}")
+                  }
+                  return "after"
+                }
+
+                def fromCatch() {
+                  try {
+                    throw "x"
+                  } catch (err) {
+                    return "from catch ${err}"
+                  } finally {
+                    println("finally catch")
+                  }
+                  return "unreached"
+                }
+
+                def nested() {
+                  try {
+                    try {
+                      return "inner"
+                    } catch (err) {
+                      println("unreached")
+                    } finally {
+                      println("inner finally")
+                    }
+                  } catch (err) {
+                    println("unreached")
+                  } finally {
+                    println("outer finally")
+                  }
+                  return "unreached"
+                }
+
+                def isEven(n) {
+                  try {
+                    return n % 2 == 0
+                  } catch (err) {
+                    return false
+                  } finally {
+                    println("checked ${n}")
+                  }
+                }
+
+                def main() {
+                  a = early(true)
+                  println("a=${a}")
+                  b = early(false)
+                  println("b=${b}")
+                  c = fromCatch()
+                  println("c=${c}")
+                  d = nested()
+                  println("d=${d}")
+                  for (n in [1, 2, 3, 4]) {
+                    try {
+                      if (n == 2) {
+                        continue
+                      }
+                      if (n == 4) {
+                        break
+                      }
+                      println("n=${n}")
+                    } catch (err) {
+                      println("unreached")
+                    } finally {
+                      println("finally n=${n}")
+                    }
+                  }
+                  for (line in $"seq 1 5") {
+                    try {
+                      if (line == "2") {
+                        break
+                      }
+                    } catch (err) {
+                      println("unreached")
+                    } finally {
+                      println("stream finally ${line}")
+                    }
+                  }
+                  if (isEven(4)) {
+                    println("4 is even")
+                  }
+                  e = isEven(3)
+                  println("e=${e}")
+                  return 0
+                }
+                """);
+        assertEquals("""
+                finally early true
+                a=from body
+                body done
+                finally early false
+                b=after
+                finally catch
+                c=from catch x
+                inner finally
+                outer finally
+                d=inner
+                n=1
+                finally n=1
+                finally n=2
+                n=3
+                finally n=3
+                finally n=4
+                stream finally 1
+                stream finally 2
+                checked 4
+                4 is even
+                checked 3
+                e=false
+                """, output);
+    }
+}
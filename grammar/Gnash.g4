@@ -115,9 +115,12 @@ assignment
     | logicOrExpression
     ;
 
+// A tuple pattern needs at least two names so that it is told apart from a
+// parenthesised expression by the ',' after the first identifier, keeping the
+// choice within SLL's reach instead of scanning ahead to the '='.
 destructuringPattern
     : IDENTIFIER
-    | '(' IDENTIFIER (',' IDENTIFIER)* ')'
+    | '(' IDENTIFIER ',' IDENTIFIER (',' IDENTIFIER)* ')'
     ;
 
 logicOrExpression
@@ -153,8 +156,11 @@ postfixExpression
     : primaryExpression postfixOperator*
     ;
 
+// Member access and invocation are separate operators: `a.b(x)` is `.b`
+// followed by `(x)`. Folding an optional argument list into the member
+// alternative made every method call ambiguous and forced full-LL prediction.
 postfixOperator
-    : '.' IDENTIFIER (arguments)?
+    : '.' IDENTIFIER
     | arguments
     ;
 
@@ -187,9 +193,10 @@ listLiteral
     : '[' (expression (',' expression)*)? ']'
     ;
 
+// A single alternative: empty and populated maps share the '{' prefix, so the
+// choice is made on the token after it rather than by predicting whole entries.
 mapLiteral
-    : '{' mapEntry (',' mapEntry)* ','? '}'
-    | '{' '}'
+    : '{' (mapEntry (',' mapEntry)* ','?)? '}'
     ;
 
 mapEntry
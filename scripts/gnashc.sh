@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Thin client for the long-lived compile server started with
+#   java ... dev.gnash.compiler.GnashCompiler --serve <socket>
+# Sends <source> <output> pairs over the Unix-domain socket, prints each
+# output path on stdout and any diagnostics on stderr.
+#
+# usage: gnashc.sh <source.gnash> <output.sh> [<source.gnash> <output.sh> ...]
+
+SOCKET="${GNASH_COMPILER_SOCKET:-${XDG_RUNTIME_DIR:-/tmp}/gnash-compiler.sock}"
+
+if (( $# == 0 || $# % 2 != 0 )); then
+  echo "usage: $(basename "$0") <source.gnash> <output.sh> [...]" >&2
+  exit 2
+fi
+
+if [[ ! -S "$SOCKET" ]]; then
+  echo "compile server socket not found: $SOCKET" >&2
+  exit 2
+fi
+
+if command -v socat >/dev/null 2>&1; then
+  # socat gives the server only 0.5s after our EOF by default; wait for it to
+  # finish and close the connection instead.
+  connect=(socat -t 86400 - "UNIX-CONNECT:${SOCKET}")
+elif command -v nc >/dev/null 2>&1; then
+  connect=(nc -N -U "$SOCKET")
+else
+  echo "socat or nc is required to reach the compile server" >&2
+  exit 2
+fi
+
+request=""
+while (( $# > 0 )); do
+  request+="$(realpath -m -- "$1")"$'\t'"$(realpath -m -- "$2")"$'\n'
+  shift 2
+done
+
+status=0
+while IFS=$'\t' read -r kind payload; do
+  case "$kind" in
+    ok) printf '%s\n' "$payload" ;;
+    diag) printf '%s\n' "$payload" >&2 ;;
+    fail) printf 'error: %s\n' "$payload" >&2; status=1 ;;
+  esac
+done < <(printf '%s' "$request" | "${connect[@]}")
+
+exit "$status"
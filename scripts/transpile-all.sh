@@ -0,0 +1,30 @@
+#!/usr/bin/env bash
+set -euo pipefail
+set -E
+
+# Transpiles the whole src/gnash tree (steps, lib, scripts) from a single JVM,
+# mirroring the source layout under build/out.
+
+ROOT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")/.." && pwd)"
+SOURCE_ROOT="${ROOT_DIR}/src/gnash"
+OUTPUT_ROOT="${ROOT_DIR}/build/out"
+
+cd "${ROOT_DIR}"
+
+echo "[gnash] building compiler via Maven..."
+mvn -q -DskipTests package
+
+echo "[gnash] resolving runtime classpath..."
+CP_FILE="target/.gnash-classpath"
+mkdir -p "$(dirname "${CP_FILE}")"
+mvn -q dependency:build-classpath \
+  -Dmdep.outputAbsoluteArtifactFilename=true \
+  -Dmdep.outputFile="${CP_FILE}" \
+  -Dmdep.includeScope=runtime >/dev/null
+CLASSPATH=$(cat "${CP_FILE}")
+
+echo "[gnash] transpiling ${SOURCE_ROOT} -> ${OUTPUT_ROOT}"
+java -cp "target/classes:${CLASSPATH}" dev.gnash.compiler.GnashCompiler \
+  --batch "$@" "${SOURCE_ROOT}" "${OUTPUT_ROOT}"
+
+echo "[gnash] done. Bash output under ${OUTPUT_ROOT}"